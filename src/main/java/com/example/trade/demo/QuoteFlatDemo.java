@@ -14,12 +14,14 @@ import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
 import com.example.trade.demo.domain.fx.application.MarketDepthAdapters.FromLegacyAggregator;
 import com.example.trade.demo.domain.fx.repository.FlatOrderRepository;
 import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.MicroBatchingOmsClient;
 import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.InMemoryOms;
 import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
 import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
 import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
 import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
 import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.time.Scheduler;
 
 public class QuoteFlatDemo {
 
@@ -40,9 +42,11 @@ public class QuoteFlatDemo {
 		FromLegacyAggregator md = new FromLegacyAggregator(agg, rule);
 
 		// 2) 准备执行环境
-		InMemoryOms oms = new InMemoryOms();
 		FlatOrderRepository repo = new InMemoryFlatOrderRepository();
 		ScheduledExecutorService timer = FlatOrderApplicationService.newTimer();
+		// 同一 provider 的子单按 2ms 预算微批发送
+		MicroBatchingOmsClient oms = new MicroBatchingOmsClient(new InMemoryOms(), Scheduler.of(timer),
+				java.time.Clock.systemUTC(), 32, 2);
 		FlatOrderApplicationService app = new FlatOrderApplicationService(md, new VwapSplittingDomainService(), oms, repo, timer);
 
 		// 3) 触发一个 BUY Base 按 Base 数量目标的平盘
@@ -56,6 +60,8 @@ public class QuoteFlatDemo {
 		// 4) 输出父单聚合结果
 		FlatOrderAggregate fo = repo.load(id);
 		System.out.println("Parent status=" + fo.status + ", cumBase=" + fo.cumBase + ", cumQuote=" + fo.cumQuote);
+		System.out.println("OMS batches=" + oms.batchesSent() + ", orders=" + oms.ordersSent()
+				+ ", avgBatch=" + oms.averageBatchSize());
 	}
 }
 
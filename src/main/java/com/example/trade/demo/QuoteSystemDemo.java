@@ -1,19 +1,37 @@
 package com.example.trade.demo;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 
 import com.example.trade.demo.domain.entity.MarketDataEvent;
 import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.service.JitWarmup;
+import com.example.trade.demo.domain.service.LatencyTracer;
 import com.example.trade.demo.domain.service.QuoteService;
 import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
 import com.example.trade.demo.domain.service.VMAPBestPriceStrategy;
+import com.example.trade.demo.domain.snapshot.DepthSnapshotStore;
+import com.example.trade.demo.domain.time.Scheduler;
 
 @SpringBootApplication
 public class QuoteSystemDemo {
@@ -40,12 +58,67 @@ public class QuoteSystemDemo {
     }
 
     @Bean
-    public QuoteService quoteService(@Autowired VMAPBestPriceStrategy strategy) {
-        return new QuoteService(strategy);
+    public QuoteService quoteService(@Autowired VMAPBestPriceStrategy strategy,
+                                     @Value("${trade.quote.provider-ttl:0s}") Duration providerTtl,
+                                     @Value("${trade.quote.idle-evict-after:0s}") Duration idleEvictAfter,
+                                     @Value("${trade.quote.price-scale:-1}") int priceScale,
+                                     @Value("${trade.quote.price-scales:}") String priceScales) {
+        // provider 深度超过 TTL 未刷新即失效；symbol 空闲超过 idle-evict-after 即淘汰聚合器
+        QuoteService service = new QuoteService(strategy, new ProviderTtlPolicy(providerTtl), idleEvictAfter, Clock.systemUTC());
+        // 价格阶梯的 tick 按品种配置，不从行情价格推断
+        service.getPriceScalePolicy().setDefaultScale(priceScale);
+        service.getPriceScalePolicy().setSymbolScales(priceScales);
+        return service;
     }
 
+    // 配置了 trade.snapshot.path 才启用：创建时即恢复上次深度，之后周期写检查点，容器关闭时（close）再写一次。
+    // bean 始终存在（AOT 构建时条件注解即被固定），路径为空时为空操作，启停只看运行时配置
     @Bean
-    public CommandLineRunner demoRunner(@Autowired QuoteService service) {
+    public DepthSnapshotStore depthSnapshotStore(@Autowired QuoteService quoteService,
+                                                 @Value("${trade.snapshot.path:}") String path,
+                                                 @Value("${trade.snapshot.interval:1s}") Duration interval,
+                                                 @Value("${trade.snapshot.max-age:30s}") Duration maxAge) throws IOException {
+        DepthSnapshotStore store = new DepthSnapshotStore(path.isBlank() ? null : Path.of(path.trim()), quoteService, Clock.systemUTC());
+        if (!store.isEnabled()) return store;
+        store.restore(maxAge);
+        store.startPeriodic(Scheduler.of(Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DepthCheckpoint");
+            t.setDaemon(true);
+            return t;
+        })), interval);
+        return store;
+    }
+
+    @Bean
+    public LatencyTracer latencyTracer(@Value("${trade.latency.sample-every:100}") int sampleEvery,
+                                       @Value("${trade.latency.ring-capacity:4096}") int ringCapacity) {
+        return new LatencyTracer(sampleEvery, ringCapacity);
+    }
+
+    // 最先执行的 runner：预热完成前就绪状态保持 REFUSING_TRAFFIC，之后的 runner 与外部流量才开始
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public ApplicationRunner jitWarmupRunner(ApplicationContext context,
+                                             @Autowired SimpleBestPriceStrategy simpleStrategy,
+                                             @Autowired VMAPBestPriceStrategy vmapStrategy,
+                                             @Value("${trade.warmup.enabled:false}") boolean enabled,
+                                             @Value("${trade.warmup.round-iterations:500}") int roundIterations,
+                                             @Value("${trade.warmup.quiet-rounds:2}") int quietRounds,
+                                             @Value("${trade.warmup.max-duration:10s}") Duration maxDuration) {
+        return args -> {
+            if (!enabled) return;
+            AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+            JitWarmup.Report report = new JitWarmup(List.of(simpleStrategy, vmapStrategy),
+                    roundIterations, quietRounds, maxDuration).run();
+            System.out.println(String.format("[Warmup] %d 轮 %d ticks, %d 个结果, %d 个子单, JIT 编译 %dms, 耗时 %dms, %s",
+                    report.rounds(), report.ticks(), report.results(), report.childOrders(), report.compileMillis(),
+                    report.elapsedMillis(), report.converged() ? "编译已平息" : "达到时间上限"));
+            AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+        };
+    }
+
+    @Bean
+    public CommandLineRunner demoRunner(@Autowired QuoteService service, @Autowired LatencyTracer latencyTracer) {
         return args -> {
             System.out.println("=== 报价系统演示开始 ===\n");
 
@@ -115,6 +188,9 @@ public class QuoteSystemDemo {
             );
             service.onMarketData(event4);
 
+            // 输出 tick-to-quote 延迟抽样与分位数
+            latencyTracer.dump(System.out);
+
             System.out.println("\n=== 报价系统演示结束 ===");
         };
     }
@@ -0,0 +1,103 @@
+package com.example.trade.demo.domain.backtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.example.trade.demo.domain.backtest.BacktestReport.SymbolResult;
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.MarketDepthAdapters.FromQuoteService;
+import com.example.trade.demo.domain.fx.event.DomainEvent;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.InMemoryOms;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.QuoteStrategy;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+/**
+ * 确定性回测引擎：按 symbol 分区，每个分区独占一套 QuoteService / FlatOrderApplicationService、
+ * 虚拟时钟与虚拟调度器，在 ForkJoinPool 上并行回放。分区之间不共享可变状态，
+ * 子单/父单 ID 由分区内序列生成，因此同一输入每次回放得到相同的 digest。
+ */
+public final class BacktestEngine {
+
+	private final Supplier<QuoteStrategy> strategies;
+	private final Function<String, FxSymbolRule> rules;
+	private final Supplier<ProviderTtlPolicy> ttlPolicies;
+	private final ForkJoinPool pool;
+	/** 最后一条输入之后继续推进的虚拟时间，用于触发未到期的超时任务 */
+	private final Duration drainAfterLast;
+
+	public BacktestEngine(Supplier<QuoteStrategy> strategies, Function<String, FxSymbolRule> rules,
+						  Supplier<ProviderTtlPolicy> ttlPolicies, ForkJoinPool pool, Duration drainAfterLast) {
+		this.strategies = strategies; this.rules = rules; this.ttlPolicies = ttlPolicies;
+		this.pool = pool; this.drainAfterLast = drainAfterLast;
+	}
+
+	public BacktestReport run(List<? extends BacktestEvent> events) {
+		long wallStart = System.currentTimeMillis();
+		Map<String, List<BacktestEvent>> bySymbol = new TreeMap<>();
+		for (BacktestEvent e : events) bySymbol.computeIfAbsent(e.symbol(), k -> new ArrayList<>()).add(e);
+
+		Map<String, ForkJoinTask<SymbolResult>> tasks = new TreeMap<>();
+		for (Map.Entry<String, List<BacktestEvent>> e : bySymbol.entrySet()) {
+			tasks.put(e.getKey(), pool.submit(() -> replay(e.getKey(), e.getValue())));
+		}
+		Map<String, SymbolResult> results = new TreeMap<>();
+		for (Map.Entry<String, ForkJoinTask<SymbolResult>> t : tasks.entrySet()) {
+			results.put(t.getKey(), t.getValue().join());
+		}
+		return new BacktestReport(results, System.currentTimeMillis() - wallStart);
+	}
+
+	private SymbolResult replay(String symbol, List<BacktestEvent> events) {
+		List<BacktestEvent> ordered = new ArrayList<>(events);
+		ordered.sort(Comparator.comparingLong(BacktestEvent::tsMillis)); // 稳定排序，同一时刻保持录制顺序
+
+		VirtualClock clock = new VirtualClock(ordered.get(0).tsMillis());
+		VirtualScheduler scheduler = new VirtualScheduler(clock);
+
+		QuoteService quotes = new QuoteService(strategies.get(), new QuoteExecutor(clock, Duration.ZERO),
+				ttlPolicies.get(), null, clock);
+		List<ExecutionResult> quoteResults = new ArrayList<>();
+		quotes.addResultListener(quoteResults::add);
+
+		FxSymbolRule rule = rules.apply(symbol);
+		FromQuoteService md = new FromQuoteService(quotes, s -> rule);
+		AtomicLong parentSeq = new AtomicLong();
+		AtomicLong childSeq = new AtomicLong();
+		FlatOrderApplicationService flats = new FlatOrderApplicationService(md,
+				new VwapSplittingDomainService(() -> symbol + "-C" + childSeq.incrementAndGet()),
+				new InMemoryOms(clock), new InMemoryFlatOrderRepository(), scheduler, clock,
+				() -> new FlatOrderId(symbol + "-P" + parentSeq.incrementAndGet()));
+		List<DomainEvent> flatEvents = new ArrayList<>();
+		flats.addEventListener(flatEvents::add);
+		quotes.addDepthListener(md.bookUpdateListener(flats));
+
+		for (BacktestEvent e : ordered) {
+			scheduler.runUntil(e.tsMillis());
+			if (e instanceof BacktestEvent.Tick t) {
+				quotes.onMarketData(t.event());
+			} else if (e instanceof BacktestEvent.Flat f) {
+				flats.start(f.signal(), f.params());
+			}
+		}
+		scheduler.runUntil(clock.millis() + drainAfterLast.toMillis());
+		return new SymbolResult(symbol, ordered.size(), quoteResults, flatEvents);
+	}
+}
@@ -0,0 +1,22 @@
+package com.example.trade.demo.domain.backtest;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+
+/** 回放输入：带录制时间戳的行情或平盘信号，按 symbol 分区、分区内按时间戳回放 */
+public sealed interface BacktestEvent permits BacktestEvent.Tick, BacktestEvent.Flat {
+
+	long tsMillis();
+
+	/** 分区键，与 MarketDataEvent.symbol 口径一致（如 EURUSD） */
+	String symbol();
+
+	record Tick(long tsMillis, MarketDataEvent event) implements BacktestEvent {
+		@Override public String symbol() { return event.getSymbol(); }
+	}
+
+	record Flat(long tsMillis, FlatSignal signal, VwapParams params) implements BacktestEvent {
+		@Override public String symbol() { return signal.symbol().base() + signal.symbol().quote(); }
+	}
+}
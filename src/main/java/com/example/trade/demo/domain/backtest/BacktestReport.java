@@ -0,0 +1,61 @@
+package com.example.trade.demo.domain.backtest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.fx.event.DomainEvent;
+
+/** 回测结果：按 symbol 排序的报价执行结果与平盘领域事件，digest 用于校验多次回放结果一致 */
+public final class BacktestReport {
+
+	public record SymbolResult(String symbol, int eventsReplayed,
+							   List<ExecutionResult> quoteResults, List<DomainEvent> flatEvents) {}
+
+	private final Map<String, SymbolResult> results;
+	private final long wallMillis;
+
+	BacktestReport(Map<String, SymbolResult> results, long wallMillis) {
+		this.results = Collections.unmodifiableMap(results);
+		this.wallMillis = wallMillis;
+	}
+
+	public Map<String, SymbolResult> results() { return results; }
+	public SymbolResult of(String symbol) { return results.get(symbol); }
+	/** 回放耗费的真实时间，不参与 digest */
+	public long wallMillis() { return wallMillis; }
+
+	public String digest() {
+		try {
+			MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			for (SymbolResult r : results.values()) {
+				update(sha, r.symbol() + "|" + r.eventsReplayed());
+				for (ExecutionResult er : r.quoteResults()) {
+					update(sha, er.getExecuteTime() + "|" + er.isSuccess() + "|" + er.getMessage() + "|"
+							+ er.getInstruction() + "|" + er.getInstruction().getTimestamp());
+				}
+				for (DomainEvent evt : r.flatEvents()) update(sha, evt.toString());
+			}
+			return HexFormat.of().formatHex(sha.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest sha, String line) {
+		sha.update(line.getBytes(StandardCharsets.UTF_8));
+		sha.update((byte) '\n');
+	}
+
+	@Override public String toString() {
+		int quotes = results.values().stream().mapToInt(r -> r.quoteResults().size()).sum();
+		int events = results.values().stream().mapToInt(r -> r.flatEvents().size()).sum();
+		return String.format("BacktestReport{symbols=%d, quotes=%d, flatEvents=%d, wallMillis=%d}",
+				results.size(), quotes, events, wallMillis);
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.trade.demo.domain.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 一致性哈希环（不可变）：每个节点放置 virtualNodes 个虚拟节点，symbol 归属顺时针第一个虚拟节点。
+ * 增删节点返回新环，只有落在变化区间内的 symbol 改变归属（约 1/N）。
+ */
+public final class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final NavigableMap<Long, String> ring;
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(int virtualNodes) {
+        this(virtualNodes, new TreeMap<>(), new TreeSet<>());
+    }
+
+    private ConsistentHashRing(int virtualNodes, NavigableMap<Long, String> ring, Set<String> nodes) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+        this.ring = ring;
+        this.nodes = nodes;
+    }
+
+    public ConsistentHashRing withNode(String nodeId) {
+        if (nodes.contains(nodeId)) return this;
+        TreeMap<Long, String> next = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) next.put(hash(nodeId + "#" + i), nodeId);
+        TreeSet<String> members = new TreeSet<>(nodes);
+        members.add(nodeId);
+        return new ConsistentHashRing(virtualNodes, next, members);
+    }
+
+    public ConsistentHashRing withoutNode(String nodeId) {
+        if (!nodes.contains(nodeId)) return this;
+        TreeMap<Long, String> next = new TreeMap<>(ring);
+        next.values().removeIf(nodeId::equals);
+        TreeSet<String> members = new TreeSet<>(nodes);
+        members.remove(nodeId);
+        return new ConsistentHashRing(virtualNodes, next, members);
+    }
+
+    // 环为空时返回 null
+    public String ownerOf(String symbol) {
+        if (ring.isEmpty()) return null;
+        Map.Entry<Long, String> e = ring.ceilingEntry(hash(symbol));
+        return (e != null ? e : ring.firstEntry()).getValue();
+    }
+
+    public Set<String> nodes() { return Collections.unmodifiableSet(nodes); }
+
+    // 64 位 FNV-1a 再做一次 murmur3 finalizer 混合，使短字符串（symbol、节点名）也均匀分布
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
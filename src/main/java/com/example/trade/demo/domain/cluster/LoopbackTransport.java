@@ -0,0 +1,56 @@
+package com.example.trade.demo.domain.cluster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+
+// 进程内传输：在调用线程上同步投递，用于测试与单机多分区部署
+public class LoopbackTransport implements NodeTransport {
+
+    private final Map<String, NodeEndpoint> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+
+    @Override
+    public void bind(String nodeId, NodeEndpoint endpoint) { endpoints.put(nodeId, endpoint); }
+
+    @Override
+    public void unbind(String nodeId) { endpoints.remove(nodeId); }
+
+    @Override
+    public boolean isReachable(String nodeId) { return endpoints.containsKey(nodeId); }
+
+    @Override
+    public void send(String nodeId, MarketDataEvent event) {
+        NodeEndpoint endpoint = endpoints.get(nodeId);
+        if (endpoint == null) {
+            System.out.println("[Transport] 节点 " + nodeId + " 不可达，丢弃 " + event.getSymbol() + " 行情");
+            return;
+        }
+        sent.increment();
+        endpoint.onMarketData(event);
+    }
+
+    @Override
+    public void restore(String nodeId, MarketDataEvent event) {
+        NodeEndpoint endpoint = endpoints.get(nodeId);
+        if (endpoint == null) {
+            System.out.println("[Transport] 节点 " + nodeId + " 不可达，丢弃 " + event.getSymbol() + " 迁移深度");
+            return;
+        }
+        sent.increment();
+        endpoint.restoreDepth(event);
+    }
+
+    @Override
+    public boolean transferSymbol(String fromNode, String toNode, String symbol) {
+        NodeEndpoint from = endpoints.get(fromNode);
+        if (from == null) return false;
+        NodeTransport.replay(this, toNode, from.exportSymbol(symbol));
+        from.releaseSymbol(symbol);
+        return true;
+    }
+
+    public long sentCount() { return sent.sum(); }
+}
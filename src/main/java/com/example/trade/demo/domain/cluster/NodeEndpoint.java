@@ -0,0 +1,19 @@
+package com.example.trade.demo.domain.cluster;
+
+import java.util.List;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+
+// 分区节点对外暴露的操作：接收行情、导出某 symbol 的当前深度（迁移用）、释放已迁出的 symbol
+public interface NodeEndpoint {
+
+    void onMarketData(MarketDataEvent event);
+
+    // 以每个 provider 一条行情事件的形式导出 symbol 当前深度，新归属节点逐条 restoreDepth 即可重建聚合器
+    List<MarketDataEvent> exportSymbol(String symbol);
+
+    // 恢复迁入 symbol 某 provider 的深度：标记为 restored，不运行策略，下一笔实时行情到达后才报价
+    void restoreDepth(MarketDataEvent event);
+
+    void releaseSymbol(String symbol);
+}
@@ -0,0 +1,31 @@
+package com.example.trade.demo.domain.cluster;
+
+import java.util.List;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+
+/**
+ * 节点间传输层：可替换为 TCP/Aeron 等实现，进程内测试使用 LoopbackTransport。
+ * 注册表 ID 只在本节点有效，跨节点传递的行情事件只携带 symbol/provider 名称。
+ */
+public interface NodeTransport {
+
+    void bind(String nodeId, NodeEndpoint endpoint);
+
+    void unbind(String nodeId);
+
+    boolean isReachable(String nodeId);
+
+    void send(String nodeId, MarketDataEvent event);
+
+    // 迁移用：只恢复深度，不作为实时行情处理（不触发报价）
+    void restore(String nodeId, MarketDataEvent event);
+
+    // 让 fromNode 导出 symbol 深度并发送给 toNode，随后 fromNode 释放该 symbol；fromNode 不可达时返回 false
+    boolean transferSymbol(String fromNode, String toNode, String symbol);
+
+    // 默认实现：逐条恢复导出的深度；快照可能已过时，新节点等下一笔实时行情再报价
+    static void replay(NodeTransport transport, String toNode, List<MarketDataEvent> snapshot) {
+        for (MarketDataEvent e : snapshot) transport.restore(toNode, e);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.trade.demo.domain.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+
+/**
+ * 分区路由：按一致性哈希把 symbol 分配给节点，并把行情事件经传输层发往归属节点。
+ * 节点加入/离开时计算归属发生变化的 symbol，由原归属节点导出深度交给新节点（原节点不可达时由新节点从后续行情重建）。
+ * 路由表为不可变快照，route 无锁；成员变更串行化，迁移按以下顺序进行，保证迁移中的 symbol 不会在原节点被重新创建：
+ * - 先为迁移的 symbol 设置栅栏，再切换路由；此后到达的行情暂存在栅栏中，不发往任何节点；
+ * - 等待切换前已读到旧路由的 route 调用全部结束（按纪元计数），它们发往原节点的行情包含在随后导出的深度中；
+ * - 逐个迁移深度，然后按到达顺序把暂存的行情发往新节点并撤掉栅栏。
+ * 迁移到无节点（全部节点离开）的 symbol 不再记录；调用方也可用 forget 移除下架或长期空闲的 symbol。
+ */
+public class PartitionRouter {
+
+    public record SymbolMove(String symbol, String fromNode, String toNode, boolean stateTransferred) {}
+
+    // 迁移中的 symbol：暂存行情，迁移完成后按序发往新节点；closed 之后的行情直接按新路由发送
+    private static final class Fence {
+        final String toNode;
+        final List<MarketDataEvent> held = new ArrayList<>();
+        boolean closed;
+
+        Fence(String toNode) { this.toNode = toNode; }
+    }
+
+    private final NodeTransport transport;
+    private volatile ConsistentHashRing ring;
+    private final Set<String> knownSymbols = ConcurrentHashMap.newKeySet();
+    private final Map<String, Fence> fences = new ConcurrentHashMap<>();
+    // route 调用按纪元计数，成员变更切换路由后等待旧纪元清零
+    private final AtomicLong[] inFlight = { new AtomicLong(), new AtomicLong() };
+    private volatile int epoch;
+
+    public PartitionRouter(NodeTransport transport, int virtualNodes) {
+        this.transport = transport;
+        this.ring = new ConsistentHashRing(virtualNodes);
+    }
+
+    public void route(MarketDataEvent event) {
+        AtomicLong counter = inFlight[epoch & 1];
+        counter.incrementAndGet();
+        try {
+            String symbol = event.getSymbol();
+            String owner = ring.ownerOf(symbol);
+            if (owner == null) {
+                System.out.println("[Router] 无可用节点，丢弃 " + symbol + " 行情");
+                return;
+            }
+            knownSymbols.add(symbol);
+            // 注册表 ID 只在接入节点有效，跨节点只传名称
+            if (event.getSymbolId() >= 0) {
+                event = new MarketDataEvent(event.getSymbol(), event.getProvider(),
+                        event.getAskLevels(), event.getBidLevels(), event.getReceivedNanos());
+            }
+            Fence fence = fences.get(symbol);
+            if (fence != null) {
+                synchronized (fence) {
+                    if (!fence.closed) {
+                        fence.held.add(event);
+                        return;
+                    }
+                }
+            }
+            transport.send(owner, event);
+        } finally {
+            counter.decrementAndGet();
+        }
+    }
+
+    public String ownerOf(String symbol) { return ring.ownerOf(symbol); }
+
+    public Set<String> nodes() { return ring.nodes(); }
+
+    public int knownSymbolCount() { return knownSymbols.size(); }
+
+    /** 不再跟踪该 symbol（下架或长期空闲）；之后再有行情时重新记录 */
+    public void forget(String symbol) {
+        knownSymbols.remove(symbol);
+    }
+
+    public synchronized List<SymbolMove> join(String nodeId) {
+        return rebalance(ring.withNode(nodeId));
+    }
+
+    public synchronized List<SymbolMove> leave(String nodeId) {
+        return rebalance(ring.withoutNode(nodeId));
+    }
+
+    private List<SymbolMove> rebalance(ConsistentHashRing next) {
+        ConsistentHashRing prev = ring;
+        List<String> moving = new ArrayList<>();
+        for (String symbol : knownSymbols) {
+            String from = prev.ownerOf(symbol);
+            String to = next.ownerOf(symbol);
+            if (to == null) {
+                knownSymbols.remove(symbol); // 无节点可归属，原节点的状态随节点一起离开
+                continue;
+            }
+            if (from == null || from.equals(to)) continue;
+            fences.put(symbol, new Fence(to));
+            moving.add(symbol);
+        }
+        ring = next; // 栅栏就位后切换路由
+        awaitRoutesOnPreviousRing();
+
+        List<SymbolMove> moves = new ArrayList<>(moving.size());
+        for (String symbol : moving) {
+            String from = prev.ownerOf(symbol);
+            Fence fence = fences.get(symbol);
+            boolean transferred = transport.isReachable(from) && transport.transferSymbol(from, fence.toNode, symbol);
+            synchronized (fence) {
+                for (MarketDataEvent e : fence.held) transport.send(fence.toNode, e);
+                fence.held.clear();
+                fence.closed = true;
+            }
+            fences.remove(symbol, fence);
+            moves.add(new SymbolMove(symbol, from, fence.toNode, transferred));
+        }
+        if (!moves.isEmpty()) {
+            System.out.println(String.format("[Router] 节点变更 %s -> %s，迁移 symbol %d 个", prev.nodes(), next.nodes(), moves.size()));
+        }
+        return moves;
+    }
+
+    // 切换纪元并等待旧纪元的 route 结束：之后不再有按旧路由发往原节点的行情
+    private void awaitRoutesOnPreviousRing() {
+        int previous = epoch;
+        epoch = previous + 1;
+        AtomicLong counter = inFlight[previous & 1];
+        while (counter.get() != 0) Thread.onSpinWait();
+    }
+}
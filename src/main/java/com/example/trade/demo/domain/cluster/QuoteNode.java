@@ -0,0 +1,72 @@
+package com.example.trade.demo.domain.cluster;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.service.QuoteService;
+
+// 分区节点：把分配到本节点的 symbol 行情交给本地 QuoteService
+public class QuoteNode implements NodeEndpoint {
+
+    private final String nodeId;
+    private final QuoteService quoteService;
+
+    public QuoteNode(String nodeId, QuoteService quoteService) {
+        this.nodeId = nodeId;
+        this.quoteService = quoteService;
+    }
+
+    public String getNodeId() { return nodeId; }
+
+    public QuoteService getQuoteService() { return quoteService; }
+
+    @Override
+    public void onMarketData(MarketDataEvent event) {
+        quoteService.onMarketData(event);
+    }
+
+    @Override
+    public List<MarketDataEvent> exportSymbol(String symbol) {
+        MarketDepthAggregator agg = quoteService.aggregatorOf(symbol);
+        if (agg == null) return List.of();
+        Map<String, NavigableMap<BigDecimal, BigDecimal>> asks = agg.getAllAskDepth();
+        Map<String, NavigableMap<BigDecimal, BigDecimal>> bids = agg.getAllBidDepth();
+        Set<String> providers = new LinkedHashSet<>(asks.keySet());
+        providers.addAll(bids.keySet());
+        List<MarketDataEvent> out = new ArrayList<>(providers.size());
+        for (String provider : providers) {
+            out.add(new MarketDataEvent(symbol, provider,
+                    levels(asks.get(provider), false), levels(bids.get(provider), true)));
+        }
+        return out;
+    }
+
+    @Override
+    public void restoreDepth(MarketDataEvent event) {
+        quoteService.restoreDepth(event);
+    }
+
+    @Override
+    public void releaseSymbol(String symbol) {
+        if (quoteService.evictSymbol(symbol)) {
+            System.out.println("[Cluster] " + nodeId + " 释放 " + symbol);
+        }
+    }
+
+    private static List<OrderBookLevel> levels(NavigableMap<BigDecimal, BigDecimal> depth, boolean isBid) {
+        if (depth == null) return List.of();
+        List<OrderBookLevel> out = new ArrayList<>(depth.size());
+        for (Map.Entry<BigDecimal, BigDecimal> e : (isBid ? depth.descendingMap() : depth).entrySet()) {
+            out.add(new OrderBookLevel(e.getKey(), e.getValue()));
+        }
+        return out;
+    }
+}
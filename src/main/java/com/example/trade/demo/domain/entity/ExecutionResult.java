@@ -6,18 +6,41 @@ public class ExecutionResult {
     private final String message;
     private final QuoteInstruction instruction;
     private final long executeTime;
+    // 延迟追踪打点（System.nanoTime）：风控完成、执行完成；0 表示未追踪
+    private final long riskCheckedNanos;
+    private final long completedNanos;
 
     public ExecutionResult(boolean success, String message, QuoteInstruction instruction) {
+        this(success, message, instruction, System.currentTimeMillis());
+    }
+
+    // 由调用方提供执行时间（如回测中的虚拟时钟）
+    public ExecutionResult(boolean success, String message, QuoteInstruction instruction, long executeTime) {
+        this(success, message, instruction, executeTime, 0L, 0L);
+    }
+
+    public ExecutionResult(boolean success, String message, QuoteInstruction instruction, long executeTime,
+                           long riskCheckedNanos, long completedNanos) {
         this.success = success;
         this.message = message;
         this.instruction = instruction;
-        this.executeTime = System.currentTimeMillis();
+        this.executeTime = executeTime;
+        this.riskCheckedNanos = riskCheckedNanos;
+        this.completedNanos = completedNanos;
     }
 
     public boolean isSuccess() { return success; }
     public String getMessage() { return message; }
     public QuoteInstruction getInstruction() { return instruction; }
     public long getExecuteTime() { return executeTime; }
+    public long getRiskCheckedNanos() { return riskCheckedNanos; }
+    public long getCompletedNanos() { return completedNanos; }
+
+    // 行情进入系统到执行完成的耗时（纳秒）；任一端未打点时返回 -1
+    public long getTickToQuoteNanos() {
+        long ingest = instruction != null ? instruction.getIngestNanos() : 0L;
+        return (ingest == 0L || completedNanos == 0L) ? -1L : completedNanos - ingest;
+    }
 
     @Override
     public String toString() {
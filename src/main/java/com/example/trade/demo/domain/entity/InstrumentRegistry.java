@@ -0,0 +1,103 @@
+package com.example.trade.demo.domain.entity;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+
+/**
+ * symbol / provider 注册表：启动时或首次出现时分配从 0 开始的连续 int ID。
+ * 热路径结构（聚合器、provider 深度、零分配流水线的深度簿）以 ID 为数组下标，
+ * 接入层解码时解析一次 ID 并随事件携带，之后每个 tick 不再对字符串做 hash/equals。
+ * "EURUSD" 与 FxSymbol("EUR","USD") 映射到同一个 symbol ID。
+ * 分配在锁内进行；按 ID 取名称只读 volatile 数组，无锁。ID 一经分配不回收。
+ */
+public class InstrumentRegistry {
+
+    private final Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+    private final Map<FxSymbol, Integer> fxSymbolIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> providerIds = new ConcurrentHashMap<>();
+    private volatile String[] symbolNames = new String[16];
+    private volatile FxSymbol[] fxSymbols = new FxSymbol[16];
+    private volatile String[] providerNames = new String[16];
+    private volatile int symbolCount;
+    private volatile int providerCount;
+
+    // 返回 symbol 的 ID，首次出现时分配
+    public int symbolId(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        return id != null ? id : assignSymbol(symbol);
+    }
+
+    // FxSymbol 与其拼接形式 base+quote 共用同一个 ID
+    public int symbolId(FxSymbol symbol) {
+        Integer id = fxSymbolIds.get(symbol);
+        if (id != null) return id;
+        synchronized (this) {
+            int sid = symbolId(symbol.base() + symbol.quote());
+            FxSymbol[] arr = fxSymbols;
+            if (sid >= arr.length) arr = Arrays.copyOf(arr, symbolNames.length);
+            arr[sid] = symbol;
+            fxSymbols = arr;
+            fxSymbolIds.put(symbol, sid);
+            return sid;
+        }
+    }
+
+    public int providerId(String provider) {
+        Integer id = providerIds.get(provider);
+        return id != null ? id : assignProvider(provider);
+    }
+
+    // 只查询不分配；未注册返回 -1
+    public int findSymbol(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    public int findProvider(String provider) {
+        Integer id = providerIds.get(provider);
+        return id == null ? -1 : id;
+    }
+
+    public String symbolName(int id) { return symbolNames[id]; }
+
+    // 以 String 首次注册、尚未以 FxSymbol 注册过的 symbol 返回 null
+    public FxSymbol fxSymbolOf(int id) {
+        FxSymbol[] arr = fxSymbols;
+        return id < arr.length ? arr[id] : null;
+    }
+
+    public String providerName(int id) { return providerNames[id]; }
+
+    public int symbolCount() { return symbolCount; }
+
+    public int providerCount() { return providerCount; }
+
+    private synchronized int assignSymbol(String symbol) {
+        Integer existing = symbolIds.get(symbol);
+        if (existing != null) return existing;
+        int id = symbolCount;
+        String[] names = symbolNames;
+        if (id == names.length) names = Arrays.copyOf(names, id * 2);
+        names[id] = symbol;
+        symbolNames = names;
+        symbolCount = id + 1;
+        symbolIds.put(symbol, id);
+        return id;
+    }
+
+    private synchronized int assignProvider(String provider) {
+        Integer existing = providerIds.get(provider);
+        if (existing != null) return existing;
+        int id = providerCount;
+        String[] names = providerNames;
+        if (id == names.length) names = Arrays.copyOf(names, id * 2);
+        names[id] = provider;
+        providerNames = names;
+        providerCount = id + 1;
+        providerIds.put(provider, id);
+        return id;
+    }
+}
@@ -8,20 +8,52 @@ public class MarketDataEvent {
     private final String provider;
     private final List<OrderBookLevel> askLevels;
     private final List<OrderBookLevel> bidLevels;
+    private final long receivedNanos; // 进入系统时的 System.nanoTime，用于 tick-to-quote 延迟追踪
+    // 接入层解析好的注册表 ID；-1 表示未解析，由 QuoteService 按名称查找
+    private final int symbolId;
+    private final int providerId;
 
     public MarketDataEvent(String symbol, String provider,
                            List<OrderBookLevel> askLevels,
                            List<OrderBookLevel> bidLevels) {
+        this(symbol, provider, askLevels, bidLevels, System.nanoTime());
+    }
+
+    // 由接入层（如解码线程）在收到原始报文时打点
+    public MarketDataEvent(String symbol, String provider,
+                           List<OrderBookLevel> askLevels,
+                           List<OrderBookLevel> bidLevels,
+                           long receivedNanos) {
         this.symbol = symbol;
         this.provider = provider;
         this.askLevels = askLevels != null ? askLevels : Collections.emptyList();
         this.bidLevels = bidLevels != null ? bidLevels : Collections.emptyList();
+        this.receivedNanos = receivedNanos;
+        this.symbolId = -1;
+        this.providerId = -1;
+    }
+
+    // 携带注册表 ID 的行情事件：名称取自注册表中已驻留的字符串
+    public MarketDataEvent(InstrumentRegistry registry, int symbolId, int providerId,
+                           List<OrderBookLevel> askLevels,
+                           List<OrderBookLevel> bidLevels,
+                           long receivedNanos) {
+        this.symbol = registry.symbolName(symbolId);
+        this.provider = registry.providerName(providerId);
+        this.askLevels = askLevels != null ? askLevels : Collections.emptyList();
+        this.bidLevels = bidLevels != null ? bidLevels : Collections.emptyList();
+        this.receivedNanos = receivedNanos;
+        this.symbolId = symbolId;
+        this.providerId = providerId;
     }
 
     public String getSymbol() { return symbol; }
     public String getProvider() { return provider; }
     public List<OrderBookLevel> getAskLevels() { return askLevels; }
     public List<OrderBookLevel> getBidLevels() { return bidLevels; }
+    public long getReceivedNanos() { return receivedNanos; }
+    public int getSymbolId() { return symbolId; }
+    public int getProviderId() { return providerId; }
 
     @Override
     public String toString() {
@@ -1,13 +1,17 @@
 package com.example.trade.demo.domain.entity;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
-import java.util.TreeMap;
+
+import com.example.trade.demo.domain.log.ConsoleLog;
 
 // -----------------------------
 // 2. 核心组件 (参考你的设计，调整结构)
@@ -16,48 +20,412 @@ import java.util.TreeMap;
 // 1. MarketDepthAggregator (按 Symbol 管理，存储完整深度)
 public class MarketDepthAggregator {
     private final String symbol;
-    private final Map<String, NavigableMap<BigDecimal, BigDecimal>> askDepth = new HashMap<>();
-    private final Map<String, NavigableMap<BigDecimal, BigDecimal>> bidDepth = new HashMap<>();
+    // 按注册表 provider ID 下标存放各 provider 深度：每个 provider/方向一个价格阶梯，全量更新时原地改写；
+    // live 为 false 表示该 provider 当前无深度（阶梯已清空、保留复用）
+    private final InstrumentRegistry registry;
+    private final int priceScale;
+    private PriceLadder[] askDepth = new PriceLadder[8];
+    private PriceLadder[] bidDepth = new PriceLadder[8];
+    private boolean[] live = new boolean[8];
+    // 阶梯原地改写与检查点线程的读取互斥；行情线程自身的读取不加锁
+    private final Object depthLock = new Object();
+
+    // 上次计算的合并前 N 档（卖盘升序、买盘降序），用于判断更新是否触及策略关心的档位；
+    // 与 spareTop 轮换复用，queryTop 供 getConsolidatedAsks/Bids 使用，都只由行情线程访问
+    private int trackedDepth;
+    private TopLevels topAsks = new TopLevels();
+    private TopLevels topBids = new TopLevels();
+    private TopLevels spareTop = new TopLevels();
+    private final TopLevels queryTop = new TopLevels();
+    // 归并用的各 provider 前 N 档缓冲，按 provider ID 下标
+    private BigDecimal[][] providerPx = new BigDecimal[0][];
+    private BigDecimal[][] providerQty = new BigDecimal[0][];
+    private int[] providerCount = new int[0];
+    private int[] providerPos = new int[0];
+
+    // 各 provider 深度的过期时刻；nextExpiryAt 为其中最早者，未到该时刻前读写都不扫描 provider
+    private final Clock clock;
+    private final ProviderTtlPolicy ttlPolicy;
+    private long[] expiresAt = new long[8]; // 0 表示不过期
+    private long nextExpiryAt = Long.MAX_VALUE;
+    private volatile long lastUpdateMillis;
+    private volatile long updateCount; // 每次写 lastUpdateMillis 时递增，时钟未前进时也能看出发生过更新
+
+    // 各 provider 最近一次深度更新时间；restored 标记深度来自检查点快照、尚未被实时行情刷新
+    private long[] updatedAt = new long[8];
+    private boolean[] restored = new boolean[8];
+    private int restoredCount;
+
+    /** 某 provider 当前深度的只读快照，供检查点持久化 */
+    public record ProviderDepthSnapshot(String provider, long updatedAtMillis,
+                                        NavigableMap<BigDecimal, BigDecimal> asks,
+                                        NavigableMap<BigDecimal, BigDecimal> bids) {}
 
     public MarketDepthAggregator(String symbol) {
+        this(symbol, ProviderTtlPolicy.never(), Clock.systemUTC());
+    }
+
+    public MarketDepthAggregator(String symbol, ProviderTtlPolicy ttlPolicy, Clock clock) {
+        this(symbol, ttlPolicy, clock, new InstrumentRegistry());
+    }
+
+    // 与 QuoteService 共享注册表，行情事件携带的 provider ID 可直接作为下标
+    public MarketDepthAggregator(String symbol, ProviderTtlPolicy ttlPolicy, Clock clock, InstrumentRegistry registry) {
+        this(symbol, ttlPolicy, clock, registry, PriceScalePolicy.UNSPECIFIED);
+    }
+
+    // priceScale 为该 symbol 的价格小数位（价格阶梯的 tick），负数表示未配置
+    public MarketDepthAggregator(String symbol, ProviderTtlPolicy ttlPolicy, Clock clock, InstrumentRegistry registry,
+                                 int priceScale) {
         this.symbol = symbol;
+        this.registry = registry;
+        this.priceScale = priceScale;
+        this.ttlPolicy = ttlPolicy;
+        this.clock = clock;
+        this.lastUpdateMillis = clock.millis();
     }
 
     public String getSymbol() { return symbol; }
 
+    // 最近一次深度更新时间，供上层做空闲 symbol 淘汰
+    public long getLastUpdateMillis() { return lastUpdateMillis; }
+
+    // 深度更新次数，淘汰移出槽位后据此判断判定之后是否又有更新
+    public long getUpdateCount() { return updateCount; }
+
     public void updateDepth(String provider, List<OrderBookLevel> askLevels, List<OrderBookLevel> bidLevels) {
-        System.out.println("[Aggregator] 更新 " + symbol + " 的 " + provider + " 深度数据");
-        askDepth.put(provider, buildDepthMap(askLevels));
-        bidDepth.put(provider, buildDepthMap(bidLevels));
+        applyDepth(registry.providerId(provider), askLevels, bidLevels);
+        // 未做前 N 档比较的更新，下次比较时一律视为已变化
+        topAsks.known = false;
+        topBids.known = false;
+    }
+
+    /**
+     * 更新深度，并返回任一侧合并后的前 topN 档（价格与数量）是否发生变化。
+     * 只影响更深档位的更新返回 false，调用方可据此跳过策略计算。
+     */
+    public boolean updateDepth(String provider, List<OrderBookLevel> askLevels, List<OrderBookLevel> bidLevels, int topN) {
+        return updateDepth(registry.providerId(provider), askLevels, bidLevels, topN);
+    }
+
+    // 按注册表 provider ID 更新，热路径不再查找 provider 名称
+    public boolean updateDepth(int providerId, List<OrderBookLevel> askLevels, List<OrderBookLevel> bidLevels, int topN) {
+        applyDepth(providerId, askLevels, bidLevels);
+        boolean changed = topN != trackedDepth || !topAsks.known || !topBids.known;
+        // 新结果写入空闲缓冲，与上次结果比较后互换
+        mergeTop(askDepth, topN, false, spareTop);
+        changed |= !spareTop.sameAs(topAsks);
+        TopLevels free = topAsks;
+        topAsks = spareTop;
+        mergeTop(bidDepth, topN, true, free);
+        changed |= !free.sameAs(topBids);
+        spareTop = topBids;
+        topBids = free;
+        trackedDepth = topN;
+        return changed;
+    }
+
+    private void applyDepth(int providerId, List<OrderBookLevel> askLevels, List<OrderBookLevel> bidLevels) {
+        String provider = registry.providerName(providerId);
+        ConsoleLog.println("[Aggregator] 更新 %s 的 %s 深度数据", symbol, provider);
+        long now = clock.millis();
+        expireStale(now);
+        ensureCapacity(providerId);
+        synchronized (depthLock) {
+            ladder(askDepth, providerId, false).replace(askLevels);
+            ladder(bidDepth, providerId, true).replace(bidLevels);
+            live[providerId] = true;
+            updatedAt[providerId] = now;
+        }
+        if (restored[providerId]) {
+            restored[providerId] = false;
+            restoredCount--;
+        }
+        lastUpdateMillis = now;
+        updateCount++;
+
+        long ttl = ttlPolicy.ttlMillisOf(provider);
+        if (ttl > 0) {
+            long expiry = now + ttl;
+            expiresAt[providerId] = expiry;
+            nextExpiryAt = Math.min(nextExpiryAt, expiry);
+        } else {
+            expiresAt[providerId] = 0L;
+        }
+    }
+
+    private PriceLadder ladder(PriceLadder[] side, int providerId, boolean bid) {
+        PriceLadder ladder = side[providerId];
+        if (ladder == null) side[providerId] = ladder = new PriceLadder(bid, priceScale);
+        return ladder;
+    }
+
+    // 清空某 provider 两侧深度，阶梯保留复用
+    private boolean dropDepth(int id) {
+        boolean had = live[id];
+        synchronized (depthLock) {
+            live[id] = false;
+            if (askDepth[id] != null) askDepth[id].clear();
+            if (bidDepth[id] != null) bidDepth[id].clear();
+        }
+        return had;
+    }
+
+    private void ensureCapacity(int providerId) {
+        if (providerId < askDepth.length) return;
+        int size = Math.max(providerId + 1, askDepth.length * 2);
+        synchronized (depthLock) {
+            askDepth = Arrays.copyOf(askDepth, size);
+            bidDepth = Arrays.copyOf(bidDepth, size);
+            live = Arrays.copyOf(live, size);
+        }
+        expiresAt = Arrays.copyOf(expiresAt, size);
+        updatedAt = Arrays.copyOf(updatedAt, size);
+        restored = Arrays.copyOf(restored, size);
+    }
+
+    // LP 断线等场景下主动移除某个 provider 的深度
+    public boolean removeProvider(String provider) {
+        int id = registry.findProvider(provider);
+        if (id < 0 || id >= askDepth.length) return false;
+        expiresAt[id] = 0L;
+        clearRestored(id);
+        return dropDepth(id);
+    }
+
+    /**
+     * 数据源确认某 provider 的现有深度仍然有效（如合成深度的输入腿仍在更新、只是档位未变）：
+     * 刷新更新时间并按 TTL 重新计算过期时刻，深度本身不变；该 provider 当前无深度时返回 false。
+     */
+    public boolean touch(int providerId) {
+        long now = clock.millis();
+        expireStale(now);
+        if (providerId < 0 || providerId >= live.length || !live[providerId]) return false;
+        updatedAt[providerId] = now;
+        lastUpdateMillis = now;
+        updateCount++;
+        long ttl = ttlPolicy.ttlMillisOf(registry.providerName(providerId));
+        if (ttl > 0) {
+            long expiry = now + ttl;
+            expiresAt[providerId] = expiry;
+            nextExpiryAt = Math.min(nextExpiryAt, expiry);
+        }
+        return true;
     }
 
-    private NavigableMap<BigDecimal, BigDecimal> buildDepthMap(List<OrderBookLevel> levels) {
-        NavigableMap<BigDecimal, BigDecimal> depth = new TreeMap<>();
-        for (OrderBookLevel level : levels) {
-            depth.put(level.getPrice(), level.getQuantity());
+    // 惰性过期：只有到达最早过期时刻才扫描一次，并重新计算下一个过期时刻
+    private void expireStale(long now) {
+        if (now < nextExpiryAt) return;
+        long next = Long.MAX_VALUE;
+        for (int id = 0; id < expiresAt.length; id++) {
+            long expiry = expiresAt[id];
+            if (expiry == 0L) continue;
+            if (expiry <= now) {
+                ConsoleLog.println("[Aggregator] %s 的 %s 深度已过期，移除", symbol, registry.providerName(id));
+                dropDepth(id);
+                expiresAt[id] = 0L;
+                clearRestored(id);
+            } else {
+                next = Math.min(next, expiry);
+            }
         }
-        return depth;
+        nextExpiryAt = next;
     }
 
+    private void clearRestored(int id) {
+        if (restored[id]) {
+            restored[id] = false;
+            restoredCount--;
+        }
+    }
+
+    /**
+     * 从检查点恢复某 provider 的深度（启动时、实时行情到达前调用）。
+     * 已有实时深度的 provider 不覆盖；恢复的深度标记为 restored，直到该 provider 的下一次实时更新。
+     * 有效期从恢复时刻按 TTL 重新计算，给 feed 一个 TTL 的时间重连；TTL 为 0 时不过期。
+     */
+    public boolean restoreDepth(String provider, List<OrderBookLevel> askLevels, List<OrderBookLevel> bidLevels,
+                                long updatedAtMillis) {
+        int id = registry.providerId(provider);
+        ensureCapacity(id);
+        if (live[id] && !restored[id]) return false;
+        long now = clock.millis();
+        synchronized (depthLock) {
+            ladder(askDepth, id, false).replace(askLevels);
+            ladder(bidDepth, id, true).replace(bidLevels);
+            live[id] = true;
+        }
+        updatedAt[id] = updatedAtMillis;
+        if (!restored[id]) {
+            restored[id] = true;
+            restoredCount++;
+        }
+        long ttl = ttlPolicy.ttlMillisOf(provider);
+        expiresAt[id] = ttl > 0 ? now + ttl : 0L;
+        if (ttl > 0) nextExpiryAt = Math.min(nextExpiryAt, now + ttl);
+        topAsks.known = false;
+        topBids.known = false;
+        lastUpdateMillis = now;
+        updateCount++;
+        return true;
+    }
+
+    // 该 provider 的深度是否仍是快照恢复的（尚未收到实时行情）
+    public boolean isRestored(String provider) {
+        int id = registry.findProvider(provider);
+        return id >= 0 && id < restored.length && restored[id];
+    }
+
+    public int getRestoredProviderCount() { return restoredCount; }
+
+    /**
+     * 导出当前全部 provider 深度，供检查点线程调用：只读，不触发惰性过期，跳过已过期的 provider。
+     * 价格阶梯由行情线程原地改写，导出在 depthLock 内进行，得到的是各阶梯某一时刻的不可变视图。
+     */
+    public List<ProviderDepthSnapshot> snapshotProviders(long nowMillis) {
+        List<ProviderDepthSnapshot> out = new ArrayList<>();
+        synchronized (depthLock) {
+            long[] expiry = expiresAt;
+            long[] updated = updatedAt;
+            int n = Math.min(live.length, Math.min(expiry.length, updated.length));
+            for (int id = 0; id < n; id++) {
+                if (!live[id]) continue;
+                if (expiry[id] != 0L && expiry[id] <= nowMillis) continue;
+                out.add(new ProviderDepthSnapshot(registry.providerName(id), updated[id],
+                        askDepth[id].asMap(), bidDepth[id].asMap()));
+            }
+        }
+        return out;
+    }
+
+    // 一侧合并后的前 N 档（按最优到最差）；known 为 false 表示未知，下次比较一律视为已变化
+    private static final class TopLevels {
+        BigDecimal[] px = new BigDecimal[0];
+        BigDecimal[] qty = new BigDecimal[0];
+        int size;
+        boolean known;
+
+        void ensureCapacity(int n) {
+            if (px.length >= n) return;
+            px = new BigDecimal[n];
+            qty = new BigDecimal[n];
+        }
+
+        boolean sameAs(TopLevels other) {
+            if (size != other.size) return false;
+            for (int i = 0; i < size; i++) {
+                if (px[i].compareTo(other.px[i]) != 0 || qty[i].compareTo(other.qty[i]) != 0) return false;
+            }
+            return true;
+        }
+
+        List<OrderBookLevel> toList() {
+            List<OrderBookLevel> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) out.add(new OrderBookLevel(px[i], qty[i]));
+            return out;
+        }
+    }
+
+    /**
+     * 合并各 provider 的前 topN 档（同价位数量相加），截取合并后的前 topN 档写入 out。
+     * 各价格阶梯的前 N 档已按最优到最差排列，逐档取各 provider 当前档中的最优价归并，
+     * 每次只比较 provider 个价格；缓冲全部复用，除同价位数量相加外不分配对象。
+     */
+    private void mergeTop(PriceLadder[] side, int topN, boolean isBid, TopLevels out) {
+        int providers = side.length;
+        if (providerPx.length < providers) {
+            providerPx = Arrays.copyOf(providerPx, providers);
+            providerQty = Arrays.copyOf(providerQty, providers);
+            providerCount = new int[providers];
+            providerPos = new int[providers];
+        }
+        for (int p = 0; p < providers; p++) {
+            providerCount[p] = 0;
+            providerPos[p] = 0;
+            if (side[p] == null) continue;
+            if (providerPx[p] == null || providerPx[p].length < topN) {
+                providerPx[p] = new BigDecimal[topN];
+                providerQty[p] = new BigDecimal[topN];
+            }
+            providerCount[p] = side[p].top(topN, providerPx[p], providerQty[p]);
+        }
+        out.ensureCapacity(topN);
+        int size = 0;
+        while (size < topN) {
+            BigDecimal best = null;
+            for (int p = 0; p < providers; p++) {
+                if (providerPos[p] == providerCount[p]) continue;
+                BigDecimal px = providerPx[p][providerPos[p]];
+                if (best == null || (isBid ? px.compareTo(best) > 0 : px.compareTo(best) < 0)) best = px;
+            }
+            if (best == null) break;
+            BigDecimal sum = null;
+            for (int p = 0; p < providers; p++) {
+                int i = providerPos[p];
+                if (i == providerCount[p] || providerPx[p][i].compareTo(best) != 0) continue;
+                sum = sum == null ? providerQty[p][i] : sum.add(providerQty[p][i]);
+                providerPos[p] = i + 1;
+            }
+            out.px[size] = best;
+            out.qty[size++] = sum;
+        }
+        out.size = size;
+        out.known = true;
+    }
+
+    // 价格阶梯维护各自的最优档，最优卖价只需比较每个 provider 的最优价
     public Optional<BigDecimal> getBestAsk() {
-        return askDepth.values().stream()
-                .flatMap(depth -> depth.keySet().stream())
-                .min(BigDecimal::compareTo);
+        expireStale(clock.millis());
+        BigDecimal best = null;
+        for (PriceLadder depth : askDepth) {
+            if (depth == null || depth.isEmpty()) continue;
+            BigDecimal px = depth.bestPrice();
+            if (best == null || px.compareTo(best) < 0) best = px;
+        }
+        return Optional.ofNullable(best);
     }
 
     public Optional<BigDecimal> getBestBid() {
-        return bidDepth.values().stream()
-                .flatMap(depth -> depth.keySet().stream())
-                .max(BigDecimal::compareTo);
+        expireStale(clock.millis());
+        BigDecimal best = null;
+        for (PriceLadder depth : bidDepth) {
+            if (depth == null || depth.isEmpty()) continue;
+            BigDecimal px = depth.bestPrice();
+            if (best == null || px.compareTo(best) > 0) best = px;
+        }
+        return Optional.ofNullable(best);
+    }
+
+    // 各 provider 合并后的前 topN 档（同价位数量相加）：卖盘升序、买盘降序
+    public List<OrderBookLevel> getConsolidatedAsks(int topN) {
+        expireStale(clock.millis());
+        mergeTop(askDepth, topN, false, queryTop);
+        return queryTop.toList();
+    }
+
+    public List<OrderBookLevel> getConsolidatedBids(int topN) {
+        expireStale(clock.millis());
+        mergeTop(bidDepth, topN, true, queryTop);
+        return queryTop.toList();
     }
 
-    // 暴露全部深度（只读），供复杂策略（如 VMAP/VWAP）计算聚合盘口
+    // 暴露全部深度（只读，按 provider 名称），供复杂策略（如 VMAP/VWAP）计算聚合盘口；视图由价格阶梯首次访问时构建并缓存
     public Map<String, NavigableMap<BigDecimal, BigDecimal>> getAllAskDepth() {
-        return Collections.unmodifiableMap(askDepth);
+        expireStale(clock.millis());
+        return byProviderName(askDepth);
     }
 
     public Map<String, NavigableMap<BigDecimal, BigDecimal>> getAllBidDepth() {
-        return Collections.unmodifiableMap(bidDepth);
+        expireStale(clock.millis());
+        return byProviderName(bidDepth);
+    }
+
+    private Map<String, NavigableMap<BigDecimal, BigDecimal>> byProviderName(PriceLadder[] side) {
+        Map<String, NavigableMap<BigDecimal, BigDecimal>> view = new LinkedHashMap<>();
+        for (int id = 0; id < side.length; id++) {
+            if (live[id]) view.put(registry.providerName(id), side[id].asMap());
+        }
+        return Collections.unmodifiableMap(view);
     }
 
     // 可选：获取快照等
@@ -0,0 +1,28 @@
+package com.example.trade.demo.domain.entity;
+
+// 零分配模式下的执行结果：由流水线持有单一实例并在每次执行时覆盖，message 只使用常量字符串。
+public class MutableExecutionResult {
+    private boolean success;
+    private String message;
+    private MutableQuoteInstruction instruction;
+    private long riskCheckedNanos;
+    private long completedNanos;
+
+    public MutableExecutionResult set(boolean success, String message, MutableQuoteInstruction instruction,
+                                      long riskCheckedNanos, long completedNanos) {
+        this.success = success;
+        this.message = message;
+        this.instruction = instruction;
+        this.riskCheckedNanos = riskCheckedNanos;
+        this.completedNanos = completedNanos;
+        return this;
+    }
+
+    public boolean isSuccess() { return success; }
+    public String getMessage() { return message; }
+    public MutableQuoteInstruction getInstruction() { return instruction; }
+    public long getRiskCheckedNanos() { return riskCheckedNanos; }
+    public long getCompletedNanos() { return completedNanos; }
+
+    public long getTickToQuoteNanos() { return completedNanos - instruction.getIngestNanos(); }
+}
@@ -0,0 +1,74 @@
+package com.example.trade.demo.domain.entity;
+
+// 零分配模式下的行情事件：由 MarketDataRing 预分配并循环复用，价格/数量为定点 long（按固定小数位放大）。
+// 生命周期：生产者 claim -> reset/add* -> publish；消费者处理完毕后槽位归还，引用不得跨越回调保留。
+public class MutableMarketDataEvent {
+    private String symbol;
+    private String provider;
+    private int symbolId = -1;   // 注册表 ID，-1 表示按名称处理
+    private int providerId = -1;
+    private long receivedNanos;
+    private final long[] askPx;
+    private final long[] askQty;
+    private final long[] bidPx;
+    private final long[] bidQty;
+    private int askCount;
+    private int bidCount;
+
+    public MutableMarketDataEvent(int maxLevels) {
+        this.askPx = new long[maxLevels];
+        this.askQty = new long[maxLevels];
+        this.bidPx = new long[maxLevels];
+        this.bidQty = new long[maxLevels];
+    }
+
+    public MutableMarketDataEvent reset(String symbol, String provider, long receivedNanos) {
+        return reset(symbol, provider, -1, -1, receivedNanos);
+    }
+
+    // 接入层已解析注册表 ID 时使用，名称取注册表中已驻留的字符串，下游按 ID 做数组下标
+    public MutableMarketDataEvent reset(InstrumentRegistry registry, int symbolId, int providerId, long receivedNanos) {
+        return reset(registry.symbolName(symbolId), registry.providerName(providerId), symbolId, providerId, receivedNanos);
+    }
+
+    private MutableMarketDataEvent reset(String symbol, String provider, int symbolId, int providerId, long receivedNanos) {
+        this.symbol = symbol;
+        this.provider = provider;
+        this.symbolId = symbolId;
+        this.providerId = providerId;
+        this.receivedNanos = receivedNanos;
+        this.askCount = 0;
+        this.bidCount = 0;
+        return this;
+    }
+
+    // 卖盘按价格升序追加，超出容量的档位丢弃
+    public MutableMarketDataEvent addAsk(long px, long qty) {
+        if (askCount < askPx.length) {
+            askPx[askCount] = px;
+            askQty[askCount++] = qty;
+        }
+        return this;
+    }
+
+    // 买盘按价格降序追加，超出容量的档位丢弃
+    public MutableMarketDataEvent addBid(long px, long qty) {
+        if (bidCount < bidPx.length) {
+            bidPx[bidCount] = px;
+            bidQty[bidCount++] = qty;
+        }
+        return this;
+    }
+
+    public String getSymbol() { return symbol; }
+    public String getProvider() { return provider; }
+    public int getSymbolId() { return symbolId; }
+    public int getProviderId() { return providerId; }
+    public long getReceivedNanos() { return receivedNanos; }
+    public int getAskCount() { return askCount; }
+    public int getBidCount() { return bidCount; }
+    public long askPx(int i) { return askPx[i]; }
+    public long askQty(int i) { return askQty[i]; }
+    public long bidPx(int i) { return bidPx[i]; }
+    public long bidQty(int i) { return bidQty[i]; }
+}
@@ -0,0 +1,36 @@
+package com.example.trade.demo.domain.entity;
+
+// 零分配模式下的报价指令：由流水线持有单一实例并在每次决策时覆盖，价格为定点 long。
+// 只在结果回调期间有效；需要保留时调用方自行拷贝为 QuoteInstruction。
+public class MutableQuoteInstruction {
+    private String symbol;
+    private QuoteInstruction.QuoteType quoteType;
+    private long bidPrice;
+    private long askPrice;
+    private long size;
+    private String strategyName;
+    private long ingestNanos;
+    private long decidedNanos;
+
+    public MutableQuoteInstruction set(String symbol, QuoteInstruction.QuoteType quoteType, long bidPrice, long askPrice,
+                                       long size, String strategyName, long ingestNanos, long decidedNanos) {
+        this.symbol = symbol;
+        this.quoteType = quoteType;
+        this.bidPrice = bidPrice;
+        this.askPrice = askPrice;
+        this.size = size;
+        this.strategyName = strategyName;
+        this.ingestNanos = ingestNanos;
+        this.decidedNanos = decidedNanos;
+        return this;
+    }
+
+    public String getSymbol() { return symbol; }
+    public QuoteInstruction.QuoteType getQuoteType() { return quoteType; }
+    public long getBidPrice() { return bidPrice; }
+    public long getAskPrice() { return askPrice; }
+    public long getSize() { return size; }
+    public String getStrategyName() { return strategyName; }
+    public long getIngestNanos() { return ingestNanos; }
+    public long getDecidedNanos() { return decidedNanos; }
+}
@@ -0,0 +1,290 @@
+package com.example.trade.demo.domain.entity;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 单侧价格阶梯：按 tick 偏移索引的数组存放各价位的价格与数量，槽位 i 对应价格 (anchor + i) × tick，数量为 null 表示该价位无量。
+ * - tick 固定为 10^-priceScale，由品种配置给出（FxSymbolRule.priceScale / PriceScalePolicy），不随行情中的价格变化；
+ * - 价格与数量原样存放传入的 BigDecimal，读取时不换算、不分配，scale 与行情一致（65000.00 仍为 65000.00）；
+ * - 维护有量的最低/最高槽位，最优/最差价与按价位增删改均为 O(1)，删除最优档时向内扫描到下一个有量槽位；
+ * - 价格漂移出数组范围时原地重新居中，跨度超过容量时扩容，容量上限 MAX_SPAN 个 tick；
+ * - 价格不是 tick 的整数倍、未配置 priceScale 或跨度超过 MAX_SPAN 时退回按价格排序的 TreeMap，任何档位都不丢弃；
+ *   下一次 replace 全量更新时重新尝试数组；
+ * - 非线程安全；MarketDepthAggregator 为每个 provider/方向各保留一个阶梯，全量更新时 replace 原地改写。
+ */
+public final class PriceLadder {
+
+    static final int MAX_SPAN = 1 << 12;
+    private static final int MIN_CAPACITY = 16;
+
+    private final boolean bid;
+    private final int priceScale; // 负数表示未配置，始终使用 TreeMap
+    private long anchor;          // 槽位 0 的价格（tick 数）
+    private BigDecimal[] px;
+    private BigDecimal[] qty;
+    private int lo = -1;          // 有量的最低槽位，空时为 -1
+    private int hi = -1;          // 有量的最高槽位
+    private int levels;
+    private TreeMap<BigDecimal, BigDecimal> sparse; // 非 null 时阶梯退回 TreeMap
+    private volatile NavigableMap<BigDecimal, BigDecimal> view;
+
+    public PriceLadder(boolean bid, int priceScale) {
+        this.bid = bid;
+        this.priceScale = priceScale;
+        this.px = new BigDecimal[MIN_CAPACITY];
+        this.qty = new BigDecimal[MIN_CAPACITY];
+        if (priceScale < 0) sparse = new TreeMap<>();
+    }
+
+    public static PriceLadder asks(int priceScale) { return new PriceLadder(false, priceScale); }
+    public static PriceLadder bids(int priceScale) { return new PriceLadder(true, priceScale); }
+
+    /** 由一组档位构建（同价位以后出现者为准，数量不为正的档位忽略） */
+    public static PriceLadder of(List<OrderBookLevel> levels, boolean bid, int priceScale) {
+        PriceLadder ladder = new PriceLadder(bid, priceScale);
+        ladder.replace(levels);
+        return ladder;
+    }
+
+    /** 全量替换为给定档位：复用已有数组，只在跨度超过当前容量时扩容 */
+    public void replace(List<OrderBookLevel> levels) {
+        clear();
+        if (priceScale >= 0) sparse = null;
+        for (int i = 0, n = levels.size(); i < n; i++) {
+            OrderBookLevel l = levels.get(i);
+            set(l.getPrice(), l.getQuantity());
+        }
+    }
+
+    public boolean isBid() { return bid; }
+    public boolean isEmpty() { return levels() == 0; }
+    public int levels() { return sparse != null ? sparse.size() : levels; }
+    public int capacity() { return qty.length; }
+    /** 当前是否退回了 TreeMap */
+    public boolean isSparse() { return sparse != null; }
+    /** 配置的 tick，未配置时为 null */
+    public BigDecimal tick() { return priceScale < 0 ? null : BigDecimal.ONE.movePointLeft(priceScale); }
+
+    /** 设置某价位的数量，数量不为正时删除该价位；放不进数组的价位转入 TreeMap，不会丢弃 */
+    public void set(BigDecimal price, BigDecimal quantity) {
+        if (quantity.signum() <= 0) {
+            remove(price);
+            return;
+        }
+        view = null;
+        if (sparse == null) {
+            long t = ticksOf(price);
+            int i = t == Long.MIN_VALUE ? -1 : slotFor(t);
+            if (i >= 0) {
+                if (qty[i] == null) {
+                    levels++;
+                    if (lo < 0 || i < lo) lo = i;
+                    if (i > hi) hi = i;
+                }
+                px[i] = price;
+                qty[i] = quantity;
+                return;
+            }
+            toSparse();
+        }
+        sparse.put(price, quantity);
+    }
+
+    /** 删除某价位，返回该价位原先是否有量 */
+    public boolean remove(BigDecimal price) {
+        if (sparse != null) {
+            if (sparse.remove(price) == null) return false;
+            view = null;
+            return true;
+        }
+        int i = slotOf(price);
+        if (i < 0) return false;
+        clearSlot(i);
+        view = null;
+        return true;
+    }
+
+    public void clear() {
+        if (levels > 0) {
+            Arrays.fill(px, lo, hi + 1, null);
+            Arrays.fill(qty, lo, hi + 1, null);
+        }
+        lo = hi = -1;
+        levels = 0;
+        if (sparse != null) sparse.clear();
+        view = null;
+    }
+
+    /** 某价位的数量，无量时返回 null */
+    public BigDecimal quantityAt(BigDecimal price) {
+        if (sparse != null) return sparse.get(price);
+        int i = slotOf(price);
+        return i < 0 ? null : qty[i];
+    }
+
+    public BigDecimal bestPrice() {
+        if (sparse != null) return sparse.isEmpty() ? null : (bid ? sparse.lastKey() : sparse.firstKey());
+        return levels == 0 ? null : px[bid ? hi : lo];
+    }
+
+    public BigDecimal bestQuantity() {
+        BigDecimal best = bestPrice();
+        return best == null ? null : quantityAt(best);
+    }
+
+    public BigDecimal worstPrice() {
+        if (sparse != null) return sparse.isEmpty() ? null : (bid ? sparse.firstKey() : sparse.lastKey());
+        return levels == 0 ? null : px[bid ? lo : hi];
+    }
+
+    /**
+     * 从最优档开始依次把至多 n 档的价格与数量写入调用方提供的数组，返回写入的档数。
+     * 数组模式下不分配对象，供聚合器按 provider 合并前 N 档。
+     */
+    public int top(int n, BigDecimal[] prices, BigDecimal[] quantities) {
+        int count = 0;
+        if (sparse != null) {
+            Iterator<Map.Entry<BigDecimal, BigDecimal>> it = (bid ? sparse.descendingMap() : sparse).entrySet().iterator();
+            while (count < n && it.hasNext()) {
+                Map.Entry<BigDecimal, BigDecimal> e = it.next();
+                prices[count] = e.getKey();
+                quantities[count++] = e.getValue();
+            }
+            return count;
+        }
+        if (levels == 0) return 0;
+        if (bid) {
+            for (int i = hi; i >= lo && count < n; i--) {
+                if (qty[i] == null) continue;
+                prices[count] = px[i];
+                quantities[count++] = qty[i];
+            }
+        } else {
+            for (int i = lo; i <= hi && count < n; i++) {
+                if (qty[i] == null) continue;
+                prices[count] = px[i];
+                quantities[count++] = qty[i];
+            }
+        }
+        return count;
+    }
+
+    /** 按价格升序的只读视图，首次访问时构建，阶梯修改后重建 */
+    public NavigableMap<BigDecimal, BigDecimal> asMap() {
+        NavigableMap<BigDecimal, BigDecimal> v = view;
+        if (v == null) {
+            NavigableMap<BigDecimal, BigDecimal> m;
+            if (sparse != null) {
+                m = new TreeMap<>(sparse);
+            } else {
+                m = new TreeMap<>();
+                for (int i = lo; i >= 0 && i <= hi; i++) {
+                    if (qty[i] != null) m.put(px[i], qty[i]);
+                }
+            }
+            view = v = Collections.unmodifiableNavigableMap(m);
+        }
+        return v;
+    }
+
+    // 价格的 tick 数；不是 tick 的整数倍或放不下 long 时返回 Long.MIN_VALUE
+    private long ticksOf(BigDecimal price) {
+        if (price.scale() > priceScale && price.stripTrailingZeros().scale() > priceScale) return Long.MIN_VALUE;
+        BigDecimal t = price.movePointRight(priceScale);
+        // 整数部分超过 18 位时可能放不下 long
+        return t.precision() - t.scale() > 18 ? Long.MIN_VALUE : t.longValue();
+    }
+
+    private int slotOf(BigDecimal price) {
+        if (levels == 0) return -1;
+        long t = ticksOf(price);
+        if (t == Long.MIN_VALUE) return -1;
+        long off = t - anchor;
+        if (off < lo || off > hi || qty[(int) off] == null) return -1;
+        return (int) off;
+    }
+
+    private void clearSlot(int i) {
+        px[i] = null;
+        qty[i] = null;
+        if (--levels == 0) {
+            lo = hi = -1;
+            return;
+        }
+        if (i == lo) while (qty[lo] == null) lo++;
+        if (i == hi) while (qty[hi] == null) hi--;
+    }
+
+    // 价位所在槽位；超出数组时原地重新居中或扩容，跨度超过 MAX_SPAN 时返回 -1
+    private int slotFor(long t) {
+        if (levels == 0) {
+            anchor = t - qty.length / 2;
+            return (int) (t - anchor);
+        }
+        long off = t - anchor;
+        if (off >= 0 && off < qty.length) return (int) off;
+        long min = Math.min(t, anchor + lo);
+        long max = Math.max(t, anchor + hi);
+        if (max - min + 1 > MAX_SPAN) return -1;
+        relayout(min, (int) (max - min + 1));
+        return (int) (t - anchor);
+    }
+
+    // 使 [min, min + span) 居中于数组：容量足够时原地平移，否则按跨度两倍扩容
+    private void relayout(long min, int span) {
+        int capacity = qty.length;
+        while (capacity < span * 2 && capacity < MAX_SPAN) capacity <<= 1;
+        long newAnchor = min - (capacity - span) / 2;
+        int shift = (int) (anchor - newAnchor);
+        int count = hi - lo + 1;
+        if (capacity != qty.length) {
+            BigDecimal[] p = new BigDecimal[capacity];
+            BigDecimal[] q = new BigDecimal[capacity];
+            System.arraycopy(px, lo, p, lo + shift, count);
+            System.arraycopy(qty, lo, q, lo + shift, count);
+            px = p;
+            qty = q;
+        } else {
+            System.arraycopy(px, lo, px, lo + shift, count);
+            System.arraycopy(qty, lo, qty, lo + shift, count);
+            // 清掉平移后不再覆盖的旧槽位
+            int from = shift > 0 ? lo : Math.max(lo, hi + shift + 1);
+            int to = shift > 0 ? Math.min(hi + 1, lo + shift) : hi + 1;
+            if (from < to) {
+                Arrays.fill(px, from, to, null);
+                Arrays.fill(qty, from, to, null);
+            }
+        }
+        anchor = newAnchor;
+        lo += shift;
+        hi += shift;
+    }
+
+    // 数组放不下时把已有档位转入 TreeMap
+    private void toSparse() {
+        TreeMap<BigDecimal, BigDecimal> m = new TreeMap<>();
+        for (int i = lo; i >= 0 && i <= hi; i++) {
+            if (qty[i] != null) m.put(px[i], qty[i]);
+        }
+        if (levels > 0) {
+            Arrays.fill(px, lo, hi + 1, null);
+            Arrays.fill(qty, lo, hi + 1, null);
+        }
+        lo = hi = -1;
+        levels = 0;
+        sparse = m;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PriceLadder{%s, levels=%d, best=%s, worst=%s, capacity=%d%s}",
+                bid ? "BID" : "ASK", levels(), bestPrice(), worstPrice(), qty.length, sparse != null ? ", sparse" : "");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.trade.demo.domain.entity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 各 symbol 的价格小数位（tick = 10^-scale），决定聚合器价格阶梯的下标粒度：默认值 + 按 symbol 覆盖。
+// 小数位为负表示未配置，该 symbol 的深度按价格排序存放（TreeMap）。聚合器创建时读取，修改只影响之后新建的聚合器。
+public class PriceScalePolicy {
+    public static final int UNSPECIFIED = -1;
+
+    private volatile int defaultScale;
+    private final Map<String, Integer> overrides = new ConcurrentHashMap<>();
+
+    public PriceScalePolicy(int defaultScale) {
+        this.defaultScale = defaultScale;
+    }
+
+    public static PriceScalePolicy unspecified() {
+        return new PriceScalePolicy(UNSPECIFIED);
+    }
+
+    public void setDefaultScale(int scale) {
+        this.defaultScale = scale;
+    }
+
+    public void setSymbolScale(String symbol, int scale) {
+        overrides.put(symbol, scale);
+    }
+
+    // 按 "EURUSD:5,USDJPY:3" 形式批量配置，空串表示无覆盖
+    public void setSymbolScales(String perSymbol) {
+        if (perSymbol == null || perSymbol.isBlank()) return;
+        for (String entry : perSymbol.split(",")) {
+            String[] kv = entry.trim().split(":");
+            if (kv.length != 2) throw new IllegalArgumentException("价格小数位配置应为 symbol:scale，实际为 " + entry);
+            setSymbolScale(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+    }
+
+    // 返回该 symbol 的价格小数位，负数表示未配置
+    public int scaleOf(String symbol) {
+        Integer scale = overrides.get(symbol);
+        return scale != null ? scale : defaultScale;
+    }
+}
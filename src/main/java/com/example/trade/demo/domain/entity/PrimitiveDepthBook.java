@@ -0,0 +1,98 @@
+package com.example.trade.demo.domain.entity;
+
+// 零分配模式下的单 symbol 深度：每个 provider 占一个槽位，档位存放在预分配的 long 数组中。
+// 最优价以 NO_PRICE 表示缺失，替代 Optional；provider 槽位在首次出现时分配，之后只做覆盖写入。
+public class PrimitiveDepthBook {
+    public static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final String symbol;
+    private final int maxLevels;
+    private final String[] providers;
+    private final int[] providerIds; // 注册表 ID；事件携带 ID 时按 int 比较匹配槽位
+    private final long[][] askPx;
+    private final long[][] askQty;
+    private final long[][] bidPx;
+    private final long[][] bidQty;
+    private final int[] askCount;
+    private final int[] bidCount;
+    private int providerCount;
+    // 上次决策时的最优价，用于跳过未改变顶档的更新
+    private long lastBestBid = NO_PRICE;
+    private long lastBestAsk = NO_PRICE;
+
+    public PrimitiveDepthBook(String symbol, int maxProviders, int maxLevels) {
+        this.symbol = symbol;
+        this.maxLevels = maxLevels;
+        this.providers = new String[maxProviders];
+        this.providerIds = new int[maxProviders];
+        this.askPx = new long[maxProviders][maxLevels];
+        this.askQty = new long[maxProviders][maxLevels];
+        this.bidPx = new long[maxProviders][maxLevels];
+        this.bidQty = new long[maxProviders][maxLevels];
+        this.askCount = new int[maxProviders];
+        this.bidCount = new int[maxProviders];
+    }
+
+    public String getSymbol() { return symbol; }
+
+    // 用事件覆盖该 provider 的深度；provider 槽位已满时返回 false
+    public boolean update(MutableMarketDataEvent event) {
+        int slot = slotOf(event.getProviderId(), event.getProvider());
+        if (slot < 0) return false;
+        int asks = Math.min(event.getAskCount(), maxLevels);
+        for (int i = 0; i < asks; i++) {
+            askPx[slot][i] = event.askPx(i);
+            askQty[slot][i] = event.askQty(i);
+        }
+        askCount[slot] = asks;
+        int bids = Math.min(event.getBidCount(), maxLevels);
+        for (int i = 0; i < bids; i++) {
+            bidPx[slot][i] = event.bidPx(i);
+            bidQty[slot][i] = event.bidQty(i);
+        }
+        bidCount[slot] = bids;
+        return true;
+    }
+
+    // 同一数据源应始终携带或始终不携带 ID，否则同一 provider 会占用两个槽位
+    private int slotOf(int providerId, String provider) {
+        if (providerId >= 0) {
+            for (int i = 0; i < providerCount; i++) {
+                if (providerIds[i] == providerId) return i;
+            }
+        } else {
+            for (int i = 0; i < providerCount; i++) {
+                if (providerIds[i] < 0 && providers[i].equals(provider)) return i;
+            }
+        }
+        if (providerCount == providers.length) return -1;
+        providers[providerCount] = provider;
+        providerIds[providerCount] = providerId;
+        return providerCount++;
+    }
+
+    // 各 provider 的第一档即其最优价（卖盘升序、买盘降序）
+    public long bestAsk() {
+        long best = NO_PRICE;
+        for (int i = 0; i < providerCount; i++) {
+            if (askCount[i] > 0 && (best == NO_PRICE || askPx[i][0] < best)) best = askPx[i][0];
+        }
+        return best;
+    }
+
+    public long bestBid() {
+        long best = NO_PRICE;
+        for (int i = 0; i < providerCount; i++) {
+            if (bidCount[i] > 0 && (best == NO_PRICE || bidPx[i][0] > best)) best = bidPx[i][0];
+        }
+        return best;
+    }
+
+    // 记录本次最优价，返回与上次相比是否变化
+    public boolean markTop(long bestBid, long bestAsk) {
+        boolean changed = bestBid != lastBestBid || bestAsk != lastBestAsk;
+        lastBestBid = bestBid;
+        lastBestAsk = bestAsk;
+        return changed;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.trade.demo.domain.entity;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Provider 深度时效配置：默认 TTL + 按 provider 覆盖；TTL 为空或非正数表示永不过期。
+// 同一实例可被多个 MarketDepthAggregator 共享，运行期修改即时生效。
+public class ProviderTtlPolicy {
+    private static final long NEVER = 0L;
+
+    private volatile long defaultTtlMillis;
+    private final Map<String, Long> overrides = new ConcurrentHashMap<>();
+
+    public ProviderTtlPolicy(Duration defaultTtl) {
+        this.defaultTtlMillis = toMillis(defaultTtl);
+    }
+
+    public static ProviderTtlPolicy never() {
+        return new ProviderTtlPolicy(null);
+    }
+
+    public void setDefaultTtl(Duration ttl) {
+        this.defaultTtlMillis = toMillis(ttl);
+    }
+
+    public void setProviderTtl(String provider, Duration ttl) {
+        overrides.put(provider, toMillis(ttl));
+    }
+
+    // 返回该 provider 的 TTL 毫秒数，0 表示永不过期
+    public long ttlMillisOf(String provider) {
+        Long ttl = overrides.get(provider);
+        return ttl != null ? ttl : defaultTtlMillis;
+    }
+
+    private static long toMillis(Duration ttl) {
+        return (ttl == null || ttl.isNegative() || ttl.isZero()) ? NEVER : ttl.toMillis();
+    }
+}
@@ -17,6 +17,9 @@ public class QuoteInstruction {
     private final BigDecimal size;
     private final String strategyName;
     private final long timestamp;
+    // 延迟追踪打点（System.nanoTime）：行情进入系统、策略给出指令；0 表示未追踪
+    private final long ingestNanos;
+    private final long decidedNanos;
 
     // 买价模式构造函数
     public QuoteInstruction(String symbol, BigDecimal bidPrice, BigDecimal size, String strategyName) {
@@ -27,6 +30,8 @@ public class QuoteInstruction {
         this.size = size;
         this.strategyName = strategyName;
         this.timestamp = System.currentTimeMillis();
+        this.ingestNanos = 0L;
+        this.decidedNanos = 0L;
     }
     
     // 卖价模式构造函数
@@ -38,6 +43,8 @@ public class QuoteInstruction {
         this.size = size;
         this.strategyName = strategyName;
         this.timestamp = System.currentTimeMillis();
+        this.ingestNanos = 0L;
+        this.decidedNanos = 0L;
     }
     
     // 买卖价模式构造函数
@@ -49,6 +56,8 @@ public class QuoteInstruction {
         this.size = size;
         this.strategyName = strategyName;
         this.timestamp = System.currentTimeMillis();
+        this.ingestNanos = 0L;
+        this.decidedNanos = 0L;
     }
     
     // 兼容性构造函数（保持向后兼容）
@@ -60,6 +69,31 @@ public class QuoteInstruction {
         this.size = BigDecimal.ONE;
         this.strategyName = "SimpleBestPriceStrategy";
         this.timestamp = System.currentTimeMillis();
+        this.ingestNanos = 0L;
+        this.decidedNanos = 0L;
+    }
+
+    // 复制构造：仅替换时间戳与追踪打点
+    private QuoteInstruction(QuoteInstruction source, long timestamp, long ingestNanos, long decidedNanos) {
+        this.symbol = source.symbol;
+        this.quoteType = source.quoteType;
+        this.bidPrice = source.bidPrice;
+        this.askPrice = source.askPrice;
+        this.size = source.size;
+        this.strategyName = source.strategyName;
+        this.timestamp = timestamp;
+        this.ingestNanos = ingestNanos;
+        this.decidedNanos = decidedNanos;
+    }
+
+    // 按调用方时钟重新打时间戳（如回测中的虚拟时间），返回新实例
+    public QuoteInstruction withTimestamp(long timestamp) {
+        return new QuoteInstruction(this, timestamp, ingestNanos, decidedNanos);
+    }
+
+    // 打上时间戳及延迟追踪点（行情进入系统、策略决策完成），返回新实例
+    public QuoteInstruction withTrace(long timestamp, long ingestNanos, long decidedNanos) {
+        return new QuoteInstruction(this, timestamp, ingestNanos, decidedNanos);
     }
 
     // 静态工厂方法 - 创建买价指令
@@ -85,6 +119,8 @@ public class QuoteInstruction {
     public BigDecimal getSize() { return size; }
     public String getStrategyName() { return strategyName; }
     public long getTimestamp() { return timestamp; }
+    public long getIngestNanos() { return ingestNanos; }
+    public long getDecidedNanos() { return decidedNanos; }
     
     // 兼容性方法
     public String getSide() { 
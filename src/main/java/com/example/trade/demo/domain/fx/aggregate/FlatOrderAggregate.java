@@ -2,8 +2,8 @@ package com.example.trade.demo.domain.fx.aggregate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
 import com.example.trade.demo.domain.fx.valueobject.VwapParams.TargetType;
@@ -17,7 +17,8 @@ public final class FlatOrderAggregate {
 		public final String clientOrderId;
 		public final FxSymbol symbol;
 		public final Side side;
-		public final BigDecimal price;     // Quote/Base
+		public BigDecimal price;           // Quote/Base，改单成功后更新
+		public final BigDecimal originalPx; // 拆单时的限价，重定价的滑点以此为基准
 		public final BigDecimal qtyBase;   // Base
 		public final String providerId;
 
@@ -25,6 +26,8 @@ public final class FlatOrderAggregate {
 		public BigDecimal cumBase = BigDecimal.ZERO;
 		public String venueOrderId;
 		public Instant submitTs;
+		public boolean amendInFlight;      // 已有改单在途
+		public BigDecimal pendingAmendPx;  // 在途期间合并的最新目标价，仅保留最后一个
 
 		public ChildOrder(String clientOrderId, FxSymbol symbol, Side side,
 					   BigDecimal price, BigDecimal qtyBase, String providerId) {
@@ -32,6 +35,7 @@ public final class FlatOrderAggregate {
 			this.symbol = symbol;
 			this.side = side;
 			this.price = price;
+			this.originalPx = price;
 			this.qtyBase = qtyBase;
 			this.providerId = providerId;
 		}
@@ -43,7 +47,8 @@ public final class FlatOrderAggregate {
 	public final TargetType targetType;
 	public final BigDecimal targetBase;
 	public final BigDecimal targetQuote;
-	public final List<ChildOrder> children = new ArrayList<>();
+	// 分片执行时子单会在回报线程遍历期间追加，使用写时复制列表
+	public final List<ChildOrder> children = new CopyOnWriteArrayList<>();
 
 	public OrdStatus status = OrdStatus.PENDING_NEW;
 	public BigDecimal cumBase = BigDecimal.ZERO;
@@ -0,0 +1,283 @@
+package com.example.trade.demo.domain.fx.application;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.service.QuoteService;
+
+/**
+ * 交叉盘合成：对配置的交叉盘（如 EUR/JPY）由经同一枢轴货币的两条腿（EUR/USD、USD/JPY）合成深度，
+ * 以 provider SYNTH_PROVIDER 的身份写回 QuoteService，交叉盘的报价策略、经 MarketDepthAdapters.FromQuoteService
+ * 读取盘口的 VWAP 拆单都与直连流动性一样看到合成深度。
+ * - 增量：作为 QuoteService 的深度监听器注册，某条腿合并后的前 depth 档变化时只重算引用该腿的交叉盘，
+ *   另一条腿使用缓存的档位；合成结果与上次写回相同则不写回，不触发策略；
+ * - 有效期：SYNTH 深度与直连 provider 一样受 TTL 约束。腿每次更新（即使档位未变）都会延长引用它的交叉盘的
+ *   SYNTH 有效期，并重读另一条腿：另一条腿已过期时合成深度随之清空；两条腿都静默时 SYNTH 按 TTL 自然过期；
+ * - 合成：卖盘（买入交叉盘 Base）= 以枢轴货币买入 Base、卖出 Quote，买盘相反；两条腿逐档按枢轴货币名义金额配对，
+ *   每档数量取两腿可成交量的较小者（以 Base 计）；腿为 枢轴/X 方向时取其反向一侧并以倒数计价；
+ * - 价格按 FxSymbolRule 的 tick 向不利方向取整（卖盘向上、买盘向下），数量按 baseQtyScale 向下截断，取整后同价档位合并；
+ * - 与 QuoteService 在同一行情线程上运行，配置（addCross）应在接入行情之前完成。
+ */
+public final class CrossRateEngine {
+
+	public static final String SYNTH_PROVIDER = "SYNTH";
+
+	/** 一条腿：X/枢轴 为正向，枢轴/X 为反向 */
+	private record Leg(int symbolId, FxSymbol symbol, boolean inverted) {}
+
+	/** 腿上一档：原始报价与该档折合的枢轴货币名义金额 */
+	private record LegLevel(BigDecimal px, BigDecimal notional) {}
+
+	/** 腿合并后的前 depth 档（原始方向：卖盘升序、买盘降序） */
+	private record LegBook(List<OrderBookLevel> asks, List<OrderBookLevel> bids) {}
+
+	private static final class Cross {
+		final int symbolId;
+		final FxSymbolRule rule;
+		final Leg base;
+		final Leg quote;
+		List<OrderBookLevel> asks = List.of();
+		List<OrderBookLevel> bids = List.of();
+
+		Cross(int symbolId, FxSymbolRule rule, Leg base, Leg quote) {
+			this.symbolId = symbolId; this.rule = rule; this.base = base; this.quote = quote;
+		}
+	}
+
+	private static final Cross[] NONE = new Cross[0];
+
+	private final QuoteService quotes;
+	private final InstrumentRegistry registry;
+	private final int depth;
+	private final int synthProviderId;
+	private final Map<FxSymbol, Cross> crosses = new ConcurrentHashMap<>();
+	// 按腿的 symbol ID 下标：引用该腿的交叉盘、该腿最近一次的合并档位
+	private volatile Cross[][] crossesByLeg = new Cross[16][];
+	private LegBook[] legBooks = new LegBook[16];
+	private final LongAdder legChanges = new LongAdder();
+	private final LongAdder recomputed = new LongAdder();
+	private final LongAdder published = new LongAdder();
+
+	public CrossRateEngine(QuoteService quotes, int depth) {
+		if (depth < 1) throw new IllegalArgumentException("depth must be positive: " + depth);
+		this.quotes = quotes;
+		this.registry = quotes.getRegistry();
+		this.depth = depth;
+		this.synthProviderId = registry.providerId(SYNTH_PROVIDER);
+	}
+
+	/**
+	 * 配置交叉盘：baseLeg 连接 cross.base 与枢轴货币，quoteLeg 连接 cross.quote 与同一枢轴货币，方向不限
+	 * （如 EUR/JPY = EUR/USD × USD/JPY，EUR/GBP = EUR/USD ÷ GBP/USD）。
+	 */
+	public synchronized void addCross(FxSymbol cross, FxSymbol baseLeg, FxSymbol quoteLeg, FxSymbolRule rule) {
+		if (rule.tickSize().signum() <= 0) throw new IllegalArgumentException("tickSize must be positive: " + rule.tickSize());
+		Leg b = leg(cross.base(), baseLeg);
+		Leg q = leg(cross.quote(), quoteLeg);
+		String pivot = b.inverted() ? baseLeg.base() : baseLeg.quote();
+		String quotePivot = q.inverted() ? quoteLeg.base() : quoteLeg.quote();
+		if (!pivot.equals(quotePivot) || pivot.equals(cross.base()) || pivot.equals(cross.quote())) {
+			throw new IllegalArgumentException(cross + " 的两条腿 " + baseLeg + "、" + quoteLeg + " 没有共同的枢轴货币");
+		}
+		int crossId = registry.symbolId(cross);
+		if (crossId < crossesByLeg.length && crossesByLeg[crossId] != null) {
+			throw new IllegalArgumentException(cross + " 已作为其他交叉盘的腿，不能再由合成深度驱动");
+		}
+		if (crosses.containsKey(baseLeg) || crosses.containsKey(quoteLeg)) {
+			throw new IllegalArgumentException(cross + " 的腿不能是合成的交叉盘");
+		}
+		Cross c = new Cross(crossId, rule, b, q);
+		if (crosses.putIfAbsent(cross, c) != null) throw new IllegalArgumentException(cross + " 已配置");
+		// 合成价格按规则的 tick 对齐，交叉盘的价格阶梯使用同一小数位
+		quotes.getPriceScalePolicy().setSymbolScale(registry.symbolName(crossId), rule.priceScale());
+		register(b.symbolId(), c);
+		register(q.symbolId(), c);
+		System.out.println(String.format("[Cross] 配置交叉盘 %s：由 %s 与 %s 经 %s 合成", cross, baseLeg, quoteLeg, pivot));
+	}
+
+	public long legChanges() { return legChanges.sum(); }
+	public long recomputed() { return recomputed.sum(); }
+	public long published() { return published.sum(); }
+
+	/** 作为 QuoteService 的深度监听器注册：quotes.addDepthListener(engine::onDepthUpdate) */
+	public void onDepthUpdate(MarketDepthAggregator agg, MarketDataEvent event) {
+		if (SYNTH_PROVIDER.equals(event.getProvider())) return;
+		int symbolId = event.getSymbolId() >= 0 ? event.getSymbolId() : registry.findSymbol(event.getSymbol());
+		Cross[][] byLeg = crossesByLeg;
+		if (symbolId < 0 || symbolId >= byLeg.length || byLeg[symbolId] == null) return;
+		long nanos = event.getReceivedNanos();
+		if (updateLeg(symbolId, agg)) {
+			for (Cross c : byLeg[symbolId]) recompute(c, nanos);
+		}
+		for (Cross c : byLeg[symbolId]) {
+			// 另一条腿可能已静默并在其聚合器中惰性过期：重读一次，变化时重算引用它的全部交叉盘
+			int other = c.base.symbolId() == symbolId ? c.quote.symbolId() : c.base.symbolId();
+			if (refreshLeg(other)) {
+				for (Cross d : byLeg[other]) recompute(d, nanos);
+			}
+			keepAlive(c);
+		}
+	}
+
+	/** 从当前聚合器重读全部腿并重算全部交叉盘（如检查点恢复之后） */
+	public void refresh() {
+		Cross[][] byLeg = crossesByLeg;
+		for (int id = 0; id < byLeg.length; id++) {
+			if (byLeg[id] == null) continue;
+			MarketDepthAggregator agg = quotes.aggregatorOf(id);
+			if (agg != null) updateLeg(id, agg);
+		}
+		for (Cross c : crosses.values()) recompute(c, System.nanoTime());
+	}
+
+	// 缓存腿的合并档位，返回是否有变化
+	private boolean updateLeg(int symbolId, MarketDepthAggregator agg) {
+		LegBook book = new LegBook(agg.getConsolidatedAsks(depth), agg.getConsolidatedBids(depth));
+		if (symbolId >= legBooks.length) legBooks = Arrays.copyOf(legBooks, Math.max(symbolId + 1, legBooks.length * 2));
+		LegBook prev = legBooks[symbolId];
+		legBooks[symbolId] = book;
+		if (prev != null && sameLevels(prev.asks(), book.asks()) && sameLevels(prev.bids(), book.bids())) return false;
+		legChanges.increment();
+		return true;
+	}
+
+	// 按当前聚合器重读腿；聚合器已被空闲淘汰时视为无深度
+	private boolean refreshLeg(int symbolId) {
+		MarketDepthAggregator agg = quotes.aggregatorOf(symbolId);
+		if (agg != null) return updateLeg(symbolId, agg);
+		if (legBookOf(symbolId) == null) return false;
+		legBooks[symbolId] = null;
+		legChanges.increment();
+		return true;
+	}
+
+	// 腿仍在更新但合成结果未变时不写回深度，只延长 SYNTH 的有效期，避免配置 provider TTL 时合成深度在平静行情中过期
+	private void keepAlive(Cross c) {
+		if (c.asks.isEmpty() && c.bids.isEmpty()) return;
+		MarketDepthAggregator agg = quotes.aggregatorOf(c.symbolId);
+		if (agg != null) agg.touch(synthProviderId);
+	}
+
+	private void recompute(Cross c, long receivedNanos) {
+		LegBook b = legBookOf(c.base.symbolId());
+		LegBook q = legBookOf(c.quote.symbolId());
+		List<OrderBookLevel> asks = List.of();
+		List<OrderBookLevel> bids = List.of();
+		if (b != null && q != null) {
+			asks = combine(c, buySide(c.base, b), sellSide(c.quote, q), true);
+			bids = combine(c, sellSide(c.base, b), buySide(c.quote, q), false);
+		}
+		recomputed.increment();
+		if (sameLevels(c.asks, asks) && sameLevels(c.bids, bids)) return;
+		c.asks = asks;
+		c.bids = bids;
+		published.increment();
+		quotes.onMarketData(new MarketDataEvent(registry, c.symbolId, synthProviderId, asks, bids, receivedNanos));
+	}
+
+	private LegBook legBookOf(int symbolId) {
+		return symbolId < legBooks.length ? legBooks[symbolId] : null;
+	}
+
+	// 以枢轴货币买入 X：正向腿吃卖盘，反向腿（枢轴/X）卖出枢轴即吃其买盘；名义金额以枢轴货币计
+	private static List<LegLevel> buySide(Leg leg, LegBook book) {
+		return leg.inverted() ? legLevels(book.bids(), true) : legLevels(book.asks(), false);
+	}
+
+	private static List<LegLevel> sellSide(Leg leg, LegBook book) {
+		return leg.inverted() ? legLevels(book.asks(), true) : legLevels(book.bids(), false);
+	}
+
+	private static List<LegLevel> legLevels(List<OrderBookLevel> levels, boolean inverted) {
+		List<LegLevel> out = new ArrayList<>(levels.size());
+		for (OrderBookLevel l : levels) {
+			// 反向腿的数量本身以枢轴货币计
+			out.add(new LegLevel(l.getPrice(), inverted ? l.getQuantity() : l.getQuantity().multiply(l.getPrice())));
+		}
+		return out;
+	}
+
+	// 两条腿按枢轴货币名义金额逐档配对，生成交叉盘的一侧（最优在前，至多 depth 档）
+	private List<OrderBookLevel> combine(Cross c, List<LegLevel> baseSide, List<LegLevel> quoteSide, boolean ask) {
+		List<OrderBookLevel> out = new ArrayList<>(depth + 1);
+		int i = 0;
+		int j = 0;
+		BigDecimal remBase = baseSide.isEmpty() ? null : baseSide.get(0).notional();
+		BigDecimal remQuote = quoteSide.isEmpty() ? null : quoteSide.get(0).notional();
+		while (i < baseSide.size() && j < quoteSide.size() && out.size() <= depth) {
+			LegLevel lb = baseSide.get(i);
+			LegLevel lq = quoteSide.get(j);
+			BigDecimal n = remBase.min(remQuote);
+			BigDecimal px = crossPrice(c, lb.px(), lq.px(), ask);
+			BigDecimal qty = c.base.inverted()
+					? n.multiply(lb.px()).setScale(c.rule.baseQtyScale(), RoundingMode.DOWN)
+					: n.divide(lb.px(), c.rule.baseQtyScale(), RoundingMode.DOWN);
+			if (qty.signum() > 0) {
+				OrderBookLevel last = out.isEmpty() ? null : out.get(out.size() - 1);
+				if (last != null && last.getPrice().compareTo(px) == 0) {
+					out.set(out.size() - 1, new OrderBookLevel(px, last.getQuantity().add(qty)));
+				} else {
+					out.add(new OrderBookLevel(px, qty));
+				}
+			}
+			remBase = remBase.subtract(n);
+			remQuote = remQuote.subtract(n);
+			if (remBase.signum() <= 0 && ++i < baseSide.size()) remBase = baseSide.get(i).notional();
+			if (remQuote.signum() <= 0 && ++j < quoteSide.size()) remQuote = quoteSide.get(j).notional();
+		}
+		// 超出的一档可能尚未累计完整，丢弃
+		if (out.size() > depth) out.remove(out.size() - 1);
+		return out;
+	}
+
+	/**
+	 * 交叉价 = Base 的枢轴价 / Quote 的枢轴价，反向腿的枢轴价为其报价的倒数；
+	 * 分子分母各自按乘积精确计算，只在对齐 tick 时做一次有向取整，不经过倒数的舍入。
+	 */
+	private static BigDecimal crossPrice(Cross c, BigDecimal basePx, BigDecimal quotePx, boolean ask) {
+		BigDecimal num = (c.base.inverted() ? BigDecimal.ONE : basePx).multiply(c.quote.inverted() ? quotePx : BigDecimal.ONE);
+		BigDecimal den = (c.base.inverted() ? basePx : BigDecimal.ONE).multiply(c.quote.inverted() ? BigDecimal.ONE : quotePx);
+		BigDecimal tick = c.rule.tickSize();
+		BigDecimal ticks = num.divide(den.multiply(tick), 0, ask ? RoundingMode.CEILING : RoundingMode.FLOOR);
+		return ticks.multiply(tick).setScale(c.rule.priceScale(), RoundingMode.UNNECESSARY);
+	}
+
+	private Leg leg(String ccy, FxSymbol leg) {
+		if (leg.base().equals(ccy) && !leg.quote().equals(ccy)) return new Leg(registry.symbolId(leg), leg, false);
+		if (leg.quote().equals(ccy) && !leg.base().equals(ccy)) return new Leg(registry.symbolId(leg), leg, true);
+		throw new IllegalArgumentException(leg + " 不含货币 " + ccy);
+	}
+
+	private void register(int legId, Cross c) {
+		Cross[][] byLeg = crossesByLeg;
+		if (legId >= byLeg.length) byLeg = Arrays.copyOf(byLeg, Math.max(legId + 1, byLeg.length * 2));
+		else byLeg = byLeg.clone();
+		Cross[] existing = byLeg[legId] == null ? NONE : byLeg[legId];
+		Cross[] grown = Arrays.copyOf(existing, existing.length + 1);
+		grown[existing.length] = c;
+		byLeg[legId] = grown;
+		crossesByLeg = byLeg;
+	}
+
+	private static boolean sameLevels(List<OrderBookLevel> a, List<OrderBookLevel> b) {
+		if (a.size() != b.size()) return false;
+		for (int i = 0; i < a.size(); i++) {
+			OrderBookLevel x = a.get(i);
+			OrderBookLevel y = b.get(i);
+			if (x.getPrice().compareTo(y.getPrice()) != 0 || x.getQuantity().compareTo(y.getQuantity()) != 0) return false;
+		}
+		return true;
+	}
+}
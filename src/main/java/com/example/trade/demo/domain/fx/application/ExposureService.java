@@ -0,0 +1,236 @@
+package com.example.trade.demo.domain.fx.application;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.event.ChildOrderExecuted;
+import com.example.trade.demo.domain.fx.event.DomainEvent;
+import com.example.trade.demo.domain.fx.event.FlatOrderCompleted;
+import com.example.trade.demo.domain.fx.event.FlatOrderStarted;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.time.Scheduler;
+
+/**
+ * 实时敞口：消费 ChildOrderExecuted 累计每个 symbol 的净 Base / 净 Quote 与每种货币的净头寸，
+ * 只有本服务限额信号发起的父单 FlatOrderCompleted 才解除该 symbol 的平盘在途标记（其他来源的平盘单完成不影响）。
+ * - 成交路径只对 LongAdder 做加法（定点 long，6 位小数），多个回报线程并发更新互不争用；
+ * - 每笔成交先登记 entered、最后登记 exited，refresh() 在两者相等且读数期间无新成交时才采纳读数，
+ *   因此快照中每笔成交的各条腿要么全部计入、要么全部未计入；
+ * - snapshot() 只读一个 volatile 引用，O(1)；快照由 refresh()（定时或手动）重建；
+ * - refresh() 后检查 symbol 净 Base 限额，超限且无平盘在途时发出反向 FlatSignal。
+ *   信号监听器应同步发起父单（app.start 或关闭轧差的 netting）：FlatOrderStarted 在同一线程上到达，借此记下父单 ID；
+ *   监听器没有同步发起父单（被拒绝、异常或异步转发）时释放在途标记，下次 refresh 仍超限会再发信号。
+ * - 会暂存信号、稍后才发起父单的监听器（如开启窗口的 FlatSignalNettingService）用 addDeferredSignalListener 注册：
+ *   信号交出后在途标记保持，直到监听器以 signalSettled 报告该信号已有结果，避免窗口期内重复对冲。
+ */
+public final class ExposureService implements AutoCloseable {
+
+	static final int SCALE = 6;
+	private static final int MAX_REFRESH_ATTEMPTS = 16;
+
+	/** 单个 symbol 的敞口：净 Base（买为正）、净 Quote 名义金额（买为负）、成交笔数 */
+	public record SymbolExposure(BigDecimal netBase, BigDecimal netQuote, long fills) {}
+
+	/** 一致性快照；version 为已计入的成交笔数 */
+	public record ExposureSnapshot(long version, Instant asOf, Map<FxSymbol, SymbolExposure> symbols,
+								   Map<String, BigDecimal> currencies) {
+		public SymbolExposure of(FxSymbol symbol) {
+			SymbolExposure e = symbols.get(symbol);
+			return e == null ? new SymbolExposure(BigDecimal.ZERO, BigDecimal.ZERO, 0) : e;
+		}
+		public BigDecimal currency(String ccy) { return currencies.getOrDefault(ccy, BigDecimal.ZERO); }
+	}
+
+	private static final class Signalling {
+		final FxSymbol symbol;
+		boolean started;
+		Signalling(FxSymbol symbol) { this.symbol = symbol; }
+	}
+
+	private static final class Position {
+		final LongAdder base = new LongAdder();
+		final LongAdder quote = new LongAdder();
+		final LongAdder fills = new LongAdder();
+	}
+
+	private final Clock clock;
+	private final Map<FxSymbol, Position> positions = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> currencies = new ConcurrentHashMap<>();
+	private final LongAdder entered = new LongAdder();
+	private final LongAdder exited = new LongAdder();
+	private volatile ExposureSnapshot published;
+
+	// 限额（净 Base 绝对值）与自动平盘
+	private final Map<FxSymbol, BigDecimal> limits = new ConcurrentHashMap<>();
+	private volatile BigDecimal defaultLimit;
+	private final Map<FxSymbol, Boolean> flatInFlight = new ConcurrentHashMap<>();
+	// 本服务信号发起、尚未完成的父单；checkLimits 分发信号期间在 signalling 中登记当前 symbol
+	private final Map<FlatOrderId, FxSymbol> ownOrders = new ConcurrentHashMap<>();
+	private final ThreadLocal<Signalling> signalling = new ThreadLocal<>();
+	private final List<Consumer<FlatSignal>> signalListeners = new CopyOnWriteArrayList<>();
+	private final List<Consumer<FlatSignal>> deferredListeners = new CopyOnWriteArrayList<>();
+	// 交给延迟监听器、尚未报告结果的信号
+	private final Map<FxSymbol, FlatSignal> deferred = new ConcurrentHashMap<>();
+	private final LongAdder inconsistentReads = new LongAdder();
+	private volatile boolean closed;
+
+	public ExposureService(Clock clock) {
+		this.clock = clock;
+		this.published = new ExposureSnapshot(0, clock.instant(), Map.of(), Map.of());
+	}
+
+	public void setDefaultLimit(BigDecimal maxAbsBase) { this.defaultLimit = maxAbsBase; }
+	public void setLimit(FxSymbol symbol, BigDecimal maxAbsBase) { limits.put(symbol, maxAbsBase); }
+	public void addSignalListener(Consumer<FlatSignal> listener) { signalListeners.add(listener); }
+
+	/** 接收信号后异步发起父单的监听器；其收下的信号在 signalSettled 之前保持该 symbol 的在途标记 */
+	public void addDeferredSignalListener(Consumer<FlatSignal> listener) { deferredListeners.add(listener); }
+
+	/** 延迟监听器报告信号已有结果（成交、内部对冲或发单失败），解除该 symbol 的在途标记 */
+	public void signalSettled(FlatSignal signal) {
+		if (deferred.remove(signal.symbol(), signal)) flatInFlight.remove(signal.symbol());
+	}
+
+	/** 作为 FlatOrderApplicationService 的事件监听器注册 */
+	public void onEvent(DomainEvent evt) {
+		if (evt instanceof ChildOrderExecuted e) {
+			onFill(e.symbol(), e.side(), e.lastQtyBase(), e.lastPx());
+		} else if (evt instanceof FlatOrderStarted s) {
+			Signalling sig = signalling.get();
+			if (sig != null && sig.symbol.equals(s.symbol())) {
+				sig.started = true;
+				ownOrders.put(s.flatOrderId(), s.symbol());
+			}
+		} else if (evt instanceof FlatOrderCompleted c) {
+			if (ownOrders.remove(c.flatOrderId()) != null) flatInFlight.remove(c.symbol());
+		}
+	}
+
+	/** 记入一笔成交：BUY 时 Base 货币增加、Quote 货币减少名义金额，SELL 相反 */
+	public void onFill(FxSymbol symbol, FlatSignal.Side side, BigDecimal qtyBase, BigDecimal px) {
+		long qty = toFixed(qtyBase);
+		long notional = toFixed(qtyBase.multiply(px));
+		if (side == FlatSignal.Side.SELL) qty = -qty; else notional = -notional;
+		Position p = positions.get(symbol);
+		if (p == null) p = positions.computeIfAbsent(symbol, k -> new Position());
+		LongAdder baseCcy = currency(symbol.base());
+		LongAdder quoteCcy = currency(symbol.quote());
+
+		entered.increment();
+		p.base.add(qty);
+		p.quote.add(notional);
+		p.fills.increment();
+		baseCcy.add(qty);
+		quoteCcy.add(notional);
+		exited.increment();
+	}
+
+	/** 最近一次 refresh() 发布的快照 */
+	public ExposureSnapshot snapshot() { return published; }
+
+	/** 未能取得一致读数、沿用上一快照的次数 */
+	public long inconsistentReads() { return inconsistentReads.sum(); }
+
+	/**
+	 * 重建并发布快照，随后检查限额。成交持续涌入导致多次读数都不一致时沿用上一快照，下次再试。
+	 */
+	public ExposureSnapshot refresh() {
+		for (int attempt = 0; attempt < MAX_REFRESH_ATTEMPTS; attempt++) {
+			long out = exited.sum();
+			long in = entered.sum();
+			if (in != out) { Thread.onSpinWait(); continue; } // 有成交正在记入
+			if (in == published.version()) {
+				checkLimits(published);
+				return published;
+			}
+			Map<FxSymbol, SymbolExposure> symbols = new LinkedHashMap<>();
+			for (Map.Entry<FxSymbol, Position> e : positions.entrySet()) {
+				Position p = e.getValue();
+				symbols.put(e.getKey(), new SymbolExposure(fromFixed(p.base.sum()), fromFixed(p.quote.sum()), p.fills.sum()));
+			}
+			Map<String, BigDecimal> ccys = new LinkedHashMap<>();
+			for (Map.Entry<String, LongAdder> e : currencies.entrySet()) ccys.put(e.getKey(), fromFixed(e.getValue().sum()));
+			if (entered.sum() != in) { Thread.onSpinWait(); continue; } // 读数期间有新成交开始记入
+			ExposureSnapshot snap = new ExposureSnapshot(in, clock.instant(),
+					Collections.unmodifiableMap(symbols), Collections.unmodifiableMap(ccys));
+			published = snap;
+			checkLimits(snap);
+			return snap;
+		}
+		inconsistentReads.increment();
+		return published;
+	}
+
+	/** 按固定间隔 refresh()，直到 close() */
+	public void start(Scheduler scheduler, Duration interval) {
+		long millis = Math.max(1, interval.toMillis());
+		scheduler.schedule(new Runnable() {
+			@Override public void run() {
+				if (closed) return;
+				try {
+					refresh();
+				} catch (RuntimeException e) {
+					System.out.println("[Exposure] refresh failed: " + e);
+				}
+				if (!closed) scheduler.schedule(this, millis);
+			}
+		}, millis);
+	}
+
+	@Override public void close() { closed = true; }
+
+	private void checkLimits(ExposureSnapshot snap) {
+		for (Map.Entry<FxSymbol, SymbolExposure> e : snap.symbols().entrySet()) {
+			FxSymbol symbol = e.getKey();
+			BigDecimal limit = limits.getOrDefault(symbol, defaultLimit);
+			BigDecimal net = e.getValue().netBase();
+			if (limit == null || net.abs().compareTo(limit) <= 0) continue;
+			// 同一 symbol 平盘完成前不重复触发
+			if (flatInFlight.putIfAbsent(symbol, Boolean.TRUE) != null) continue;
+			FlatSignal sig = new FlatSignal(symbol, net.signum() > 0 ? FlatSignal.Side.SELL : FlatSignal.Side.BUY,
+					net.abs(), "EXPOSURE_LIMIT " + net.toPlainString() + " > " + limit.toPlainString(), snap.asOf());
+			System.out.println("[Exposure] " + symbol + " 净头寸 " + net.toPlainString() + " 超过限额 " + limit.toPlainString() + "，发出平盘信号");
+			Signalling current = new Signalling(symbol);
+			signalling.set(current);
+			boolean handedOff = false;
+			try {
+				for (Consumer<FlatSignal> l : signalListeners) l.accept(sig);
+				if (!deferredListeners.isEmpty()) {
+					deferred.put(symbol, sig); // 先登记，监听器可能同步给出结果
+					for (Consumer<FlatSignal> l : deferredListeners) l.accept(sig);
+					handedOff = true;
+				}
+			} finally {
+				signalling.remove();
+				if (!handedOff) deferred.remove(symbol, sig);
+				if (!current.started && !handedOff) flatInFlight.remove(symbol);
+			}
+		}
+	}
+
+	private LongAdder currency(String ccy) {
+		LongAdder a = currencies.get(ccy);
+		return a != null ? a : currencies.computeIfAbsent(ccy, k -> new LongAdder());
+	}
+
+	static long toFixed(BigDecimal v) {
+		return v.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+	}
+
+	static BigDecimal fromFixed(long v) {
+		return BigDecimal.valueOf(v, SCALE);
+	}
+}
@@ -1,28 +1,49 @@
 package com.example.trade.demo.domain.fx.application;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
 import com.example.trade.demo.domain.fx.event.ChildOrderExecuted;
+import com.example.trade.demo.domain.fx.event.DomainEvent;
 import com.example.trade.demo.domain.fx.event.FlatOrderCompleted;
 import com.example.trade.demo.domain.fx.event.FlatOrderStarted;
 import com.example.trade.demo.domain.fx.repository.FlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.CreditLimitService;
+import com.example.trade.demo.domain.fx.service.CreditLimitService.Reservation;
+import com.example.trade.demo.domain.fx.service.CreditRates;
 import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
 import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
 import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
 import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
 import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.RepricePolicy;
 import com.example.trade.demo.domain.fx.valueobject.VwapParams;
 import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.jfr.FlatOrderReportEvent;
+import com.example.trade.demo.domain.jfr.FlatOrderTimeoutEvent;
+import com.example.trade.demo.domain.time.Scheduler;
 
 public final class FlatOrderApplicationService {
 
@@ -35,91 +56,536 @@ public final class FlatOrderApplicationService {
 	private final VwapSplittingDomainService splitter;
 	private final OmsClient oms;
 	private final FlatOrderRepository repo;
-	private final ScheduledExecutorService timer;
+	private final Scheduler timer;
+	private final Clock clock;
+	private final Supplier<FlatOrderId> ids;
+	private final List<Consumer<DomainEvent>> listeners = new CopyOnWriteArrayList<>();
 	private final Duration ackTimeout = Duration.ofMillis(1500);
 	private final Duration parentTimeout = Duration.ofSeconds(5);
+	// 进行中的父单，按 symbol 索引，供盘口变化时重定价
+	private final Map<FxSymbol, Map<FlatOrderId, VwapParams>> active = new ConcurrentHashMap<>();
+	// 仍有后续分片待发送的父单：子单全部终态时不结束
+	private final Set<FlatOrderId> slicing = ConcurrentHashMap.newKeySet();
+	private volatile RepricePolicy reprice = RepricePolicy.off();
+	private final LongAdder amendsSent = new LongAdder();
+	private final LongAdder amendsCoalesced = new LongAdder();
+	// 交易前额度：未设置时不检查；子单的预占按 clientOrderId 保存，终态时释放
+	private volatile CreditLimitService credit;
+	private volatile String creditCounterparty;
+	private final Map<String, CreditHold> reservations = new ConcurrentHashMap<>();
+	private final CreditRates creditRates;
+	// 子单的确认/挂单期限：每个父单一个定时器，只在最早期限到期时触发并逐一检查，不为每个子单单独调度
+	private final Map<FlatOrderId, ChildDeadlines> deadlines = new ConcurrentHashMap<>();
+	// 分片父单的超时时刻：其父单与子单期限由分片调度循环经 pollDeadlines 检查，不使用定时器
+	private final Map<FlatOrderId, Long> polled = new ConcurrentHashMap<>();
+
+	private static final long NONE = Long.MAX_VALUE;
+
+	/** 子单的额度预占；rate 为预占时子单 Quote 货币到额度货币的换算率，成交与改价按同一换算率记账 */
+	private record CreditHold(Reservation reservation, BigDecimal rate) {
+		void fill(BigDecimal reservedPortion, BigDecimal actualNotional) {
+			reservation.fill(reservedPortion.multiply(rate), actualNotional.multiply(rate));
+		}
+		void resize(BigDecimal newRemaining) { reservation.resize(newRemaining.multiply(rate)); }
+		void release() { reservation.release(); }
+	}
+
+	private static final class Deadline {
+		final ChildOrder child;
+		long ackAt;
+		long restAt;
+		Deadline(ChildOrder child, long ackAt, long restAt) { this.child = child; this.ackAt = ackAt; this.restAt = restAt; }
+	}
+
+	private static final class ChildDeadlines {
+		final Map<String, Deadline> byChild = new LinkedHashMap<>();
+		long armedAt = NONE; // 已调度的最早一次检查
+
+		long next() {
+			long next = NONE;
+			for (Deadline d : byChild.values()) next = Math.min(next, Math.min(d.ackAt, d.restAt));
+			return next;
+		}
+	}
 
 	public FlatOrderApplicationService(MarketDepthProvider md, VwapSplittingDomainService splitter,
 									   OmsClient oms, FlatOrderRepository repo, ScheduledExecutorService timer) {
-		this.md = md; this.splitter = splitter; this.oms = oms; this.repo = repo; this.timer = timer;
+		this(md, splitter, oms, repo, Scheduler.of(timer), Clock.systemUTC(), FlatOrderId::newId);
+	}
+
+	/** 时钟、调度器与父单 ID 均可注入，回测时使用虚拟时间与确定性 ID */
+	public FlatOrderApplicationService(MarketDepthProvider md, VwapSplittingDomainService splitter,
+									   OmsClient oms, FlatOrderRepository repo,
+									   Scheduler timer, Clock clock, Supplier<FlatOrderId> ids) {
+		this.md = md; this.splitter = splitter; this.oms = oms; this.repo = repo;
+		this.timer = timer; this.clock = clock; this.ids = ids;
+		this.creditRates = new CreditRates(md::latest);
 	}
 
+	/** 订阅领域事件（开始/子单成交/完成） */
+	public void addEventListener(Consumer<DomainEvent> listener) { listeners.add(listener); }
+
+	/** 开启/调整改单重定价模式；默认关闭，仅撤单 */
+	public void setRepricePolicy(RepricePolicy policy) { this.reprice = policy; }
+
+	/**
+	 * 启用交易前额度：子单发送前按 provider 与 counterparty 预占名义金额，额度不足的子单直接拒绝。
+	 * 名义金额先换算为 credit.limitCurrency()，换算路径见 CreditRates；无法换算的子单同样拒绝。
+	 */
+	public void setCreditLimits(CreditLimitService credit, String counterparty) {
+		this.credit = credit;
+		this.creditCounterparty = counterparty;
+	}
+
+	public long amendsSent() { return amendsSent.sum(); }
+	public long amendsCoalesced() { return amendsCoalesced.sum(); }
+
 	public FlatOrderId start(FlatSignal sig, VwapParams params) {
 		OrderBook book = md.latest(params.symbol());
 		FxSymbolRule rule = md.ruleOf(params.symbol());
 
-		FlatOrderId id = FlatOrderId.newId();
+		FlatOrderId id = ids.get();
 		FlatOrderAggregate flat = new FlatOrderAggregate(id, params.symbol(), sig.side(), params.targetType(), params.targetValue());
 		repo.save(flat);
+		active.computeIfAbsent(params.symbol(), k -> new ConcurrentHashMap<>()).put(id, params);
 
 		// 领域事件：开始
-		emit(new FlatOrderStarted(id, params.symbol(), sig.side(), params.targetType(), params.targetValue(), Instant.now()));
+		emit(new FlatOrderStarted(id, params.symbol(), sig.side(), params.targetType(), params.targetValue(), clock.instant()));
 
 		List<ChildOrder> children = splitter.split(params.symbol(), sig.side(), params, book, rule);
 		flat.children.addAll(children);
 		repo.update(flat);
-		for (ChildOrder c : children) submitChild(flat, c, rule);
-		timer.schedule(() -> onParentTimeout(id), parentTimeout.toMillis(), TimeUnit.MILLISECONDS);
+		submitChildren(flat, children, rule);
+		// 子单全部因额度被拒时不会有回报，直接结束
+		if (!children.isEmpty() && allTerminal(flat)) finish(flat, rule);
+		timer.schedule(() -> onParentTimeout(id), parentTimeout.toMillis());
+		return id;
+	}
+
+	/**
+	 * 分片执行：只建立父单，不立即拆单；由 TimeSlicedExecutionScheduler 按 ttl 分片调用 submitSlice。
+	 * 父单超时为 ttl 之后再留出 parentTimeout 的收尾时间；父单超时与子单期限都不调度定时器，由调度循环调用 pollDeadlines 检查。
+	 */
+	public FlatOrderId open(FlatSignal sig, VwapParams params) {
+		FlatOrderId id = ids.get();
+		FlatOrderAggregate flat = new FlatOrderAggregate(id, params.symbol(), sig.side(), params.targetType(), params.targetValue());
+		repo.save(flat);
+		active.computeIfAbsent(params.symbol(), k -> new ConcurrentHashMap<>()).put(id, params);
+		slicing.add(id);
+		polled.put(id, clock.millis() + params.ttl().plus(parentTimeout).toMillis());
+		emit(new FlatOrderStarted(id, params.symbol(), sig.side(), params.targetType(), params.targetValue(), clock.instant()));
 		return id;
 	}
 
-	private void submitChild(FlatOrderAggregate flat, ChildOrder c, FxSymbolRule rule) {
-		c.submitTs = Instant.now();
-		timer.schedule(() -> onAckTimeout(flat.id, c.clientOrderId), ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
-		oms.submit(c, rpt -> onReport(flat.id, rpt, rule));
+	/**
+	 * 按最新盘口拆出一个分片并发送；amount 与父单目标同单位（Base 数量或 Quote 金额）。
+	 * 父单已结束返回 false。
+	 */
+	public boolean submitSlice(FlatOrderId id, BigDecimal amount) {
+		FlatOrderAggregate fo = repo.load(id);
+		VwapParams p = fo == null ? null : active.getOrDefault(fo.symbol, Map.of()).get(id);
+		if (p == null || fo.status == OrdStatus.FILLED) return false;
+		if (amount.signum() <= 0) return true;
+		FxSymbolRule rule = md.ruleOf(fo.symbol);
+		VwapParams slice = new VwapParams(p.symbol(), p.targetType(), amount, p.intent(), p.ttl(), p.slippageBuffer());
+		List<ChildOrder> children = new ArrayList<>();
+		for (ChildOrder c : splitter.split(fo.symbol, fo.side, slice, md.latest(fo.symbol), rule)) {
+			if (c.qtyBase.signum() > 0) children.add(c);
+		}
+		if (children.isEmpty()) return true;
+		fo.children.addAll(children);
+		repo.update(fo);
+		submitChildren(fo, children, rule);
+		return true;
+	}
+
+	/**
+	 * 检查 open 建立的父单的期限：处理到期的子单确认/挂单超时，到达父单超时则撤掉剩余子单并结束父单。
+	 * 返回下一个期限（毫秒）；父单已结束或已超时返回 Long.MAX_VALUE，调用方不再检查。
+	 */
+	public long pollDeadlines(FlatOrderId id, long nowMillis) {
+		Long parentDue = polled.get(id);
+		if (parentDue == null) return NONE;
+		if (nowMillis >= parentDue) {
+			polled.remove(id);
+			onParentTimeout(id);
+			return NONE;
+		}
+		ChildDeadlines cd = deadlines.get(id);
+		long next = NONE;
+		if (cd != null) {
+			runDeadlines(id, cd, nowMillis);
+			synchronized (cd) { next = cd.next(); }
+		}
+		return polled.containsKey(id) ? Math.min(parentDue, next) : NONE;
+	}
+
+	/** 父单尚未覆盖的目标：目标 - 已成交 - 在途子单剩余量；与目标同单位，不小于 0 */
+	public BigDecimal remainingTarget(FlatOrderId id) {
+		FlatOrderAggregate fo = repo.load(id);
+		if (fo == null) return BigDecimal.ZERO;
+		boolean base = fo.targetType == VwapParams.TargetType.BASE_QTY;
+		BigDecimal left = base ? fo.targetBase.subtract(fo.cumBase) : fo.targetQuote.subtract(fo.cumQuote);
+		for (ChildOrder c : fo.children) {
+			if (!working(c)) continue;
+			BigDecimal open = c.qtyBase.subtract(c.cumBase);
+			left = left.subtract(base ? open : open.multiply(c.price));
+		}
+		return left.max(BigDecimal.ZERO);
+	}
+
+	/** 最后一个分片已发出：此后子单全部终态即结束父单 */
+	public void endSlicing(FlatOrderId id) {
+		if (!slicing.remove(id)) return;
+		FlatOrderAggregate fo = repo.load(id);
+		if (fo != null && fo.status != OrdStatus.FILLED && (targetMet(fo) || allTerminal(fo))) {
+			cancelRemainders(fo);
+			finish(fo, md.ruleOf(fo.symbol));
+		}
+	}
+
+	private void submitChildren(FlatOrderAggregate flat, List<ChildOrder> children, FxSymbolRule rule) {
+		int requested = children.size();
+		children = reserveCredit(children);
+		if (children.size() < requested) repo.update(flat); // 有子单因额度被拒
+		if (children.isEmpty()) return;
+		long now = clock.millis();
+		long rest = restMillis();
+		ChildDeadlines cd = deadlines.computeIfAbsent(flat.id, k -> new ChildDeadlines());
+		synchronized (cd) {
+			for (ChildOrder c : children) {
+				c.submitTs = clock.instant();
+				cd.byChild.put(c.clientOrderId, new Deadline(c, now + ackTimeout.toMillis(), rest > 0 ? now + rest : NONE));
+			}
+		}
+		arm(flat.id, cd);
+		oms.submitAll(children, rpt -> onReport(flat.id, rpt, rule));
+	}
+
+	/** 为每个子单预占额度，返回获准发送的子单；被拒子单置为 REJECTED */
+	private List<ChildOrder> reserveCredit(List<ChildOrder> children) {
+		CreditLimitService limits = credit;
+		if (limits == null) return children;
+		List<ChildOrder> accepted = new ArrayList<>(children.size());
+		for (ChildOrder c : children) {
+			BigDecimal rate = creditRates.rate(c.symbol, c.price, limits.limitCurrency());
+			if (rate == null) {
+				c.status = OrdStatus.REJECTED;
+				System.out.println("[Credit] 子单 " + c.clientOrderId + " 被拒: " + c.symbol + " 无法换算到 " + limits.limitCurrency());
+				continue;
+			}
+			Reservation r = limits.reserve(c.providerId, creditCounterparty, c.qtyBase.multiply(c.price).multiply(rate));
+			if (r.isGranted()) {
+				reservations.put(c.clientOrderId, new CreditHold(r, rate));
+				accepted.add(c);
+			} else {
+				c.status = OrdStatus.REJECTED;
+				System.out.println("[Credit] 子单 " + c.clientOrderId + " 被拒: " + r.rejectReason());
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * 盘口变化通知：重定价模式下，对该 symbol 进行中父单的在途子单，
+	 * 若其 provider 的最优价相对子单限价移动超过阈值，则通过 replace 原地改价。
+	 * 由深度源驱动，见 MarketDepthAdapters.FromQuoteService#bookUpdateListener。
+	 */
+	public void onBookUpdate(FxSymbol symbol) {
+		RepricePolicy rp = reprice;
+		Map<FlatOrderId, VwapParams> parents = active.get(symbol);
+		if (!rp.enabled() || parents == null || parents.isEmpty()) return;
+		OrderBook book = md.latest(symbol);
+		FxSymbolRule rule = md.ruleOf(symbol);
+		BigDecimal threshold = rule.tickSize().multiply(BigDecimal.valueOf(rp.thresholdTicks()));
+		for (Map.Entry<FlatOrderId, VwapParams> e : parents.entrySet()) {
+			FlatOrderAggregate fo = repo.load(e.getKey());
+			if (fo == null) continue;
+			for (ChildOrder c : fo.children) {
+				if (!working(c)) continue;
+				BigDecimal target = referencePx(c, e.getValue(), book, rule);
+				if (target != null && target.subtract(c.price).abs().compareTo(threshold) >= 0) {
+					requestAmend(fo.id, c, target);
+				}
+			}
+		}
+	}
+
+	private long restMillis() {
+		RepricePolicy rp = reprice;
+		return rp.enabled() ? rp.restTimeout().toMillis() : 0;
+	}
+
+	/** 按父单的最早期限调度一次检查；已有更早或相同时刻的检查时不重复调度，分片父单由调度循环检查 */
+	private void arm(FlatOrderId id, ChildDeadlines cd) {
+		if (polled.containsKey(id)) return;
+		long next;
+		synchronized (cd) {
+			next = cd.next();
+			if (next == NONE || next >= cd.armedAt) return;
+			cd.armedAt = next;
+		}
+		timer.schedule(() -> onDeadlines(id), Math.max(0, next - clock.millis()));
+	}
+
+	/** 父单定时器到期：处理到期的确认超时与挂单超时，再按剩余最早期限重新调度 */
+	private void onDeadlines(FlatOrderId id) {
+		ChildDeadlines cd = deadlines.get(id);
+		if (cd == null) return;
+		runDeadlines(id, cd, clock.millis());
+		arm(id, cd);
+	}
+
+	private void runDeadlines(FlatOrderId id, ChildDeadlines cd, long now) {
+		long rest = restMillis();
+		List<ChildOrder> ackDue = new ArrayList<>();
+		List<ChildOrder> restDue = new ArrayList<>();
+		synchronized (cd) {
+			if (now >= cd.armedAt) cd.armedAt = NONE; // 被更早期限取代的旧定时器到期时不影响当前调度
+			for (Iterator<Deadline> it = cd.byChild.values().iterator(); it.hasNext(); ) {
+				Deadline d = it.next();
+				if (!working(d.child)) {
+					it.remove();
+					continue;
+				}
+				if (d.ackAt <= now) {
+					d.ackAt = NONE;
+					if (d.child.status == OrdStatus.PENDING_NEW) ackDue.add(d.child);
+				}
+				if (d.restAt <= now) {
+					d.restAt = rest > 0 ? now + rest : NONE;
+					restDue.add(d.child);
+				}
+				if (d.ackAt == NONE && d.restAt == NONE) it.remove();
+			}
+		}
+		for (ChildOrder c : ackDue) onAckTimeout(id, c);
+		for (ChildOrder c : restDue) onRestTimeout(id, c);
+	}
+
+	/** 子单确认后长时间未完全成交：按最新盘口改价，不受阈值限制 */
+	private void onRestTimeout(FlatOrderId id, ChildOrder co) {
+		FlatOrderTimeoutEvent jfr = new FlatOrderTimeoutEvent();
+		jfr.begin();
+		commitTimeout(jfr, "REST", id, co.clientOrderId, restTimeout(id, co));
+	}
+
+	// 返回是否发出了改价
+	private boolean restTimeout(FlatOrderId id, ChildOrder co) {
+		FlatOrderAggregate fo = repo.load(id);
+		VwapParams params = fo == null ? null : active.getOrDefault(fo.symbol, Map.of()).get(id);
+		if (params == null || !reprice.enabled() || !working(co) || co.status == OrdStatus.PENDING_NEW) return false;
+		BigDecimal target = referencePx(co, params, md.latest(fo.symbol), md.ruleOf(fo.symbol));
+		if (target == null || target.compareTo(co.price) == 0) return false;
+		requestAmend(id, co, target);
+		return true;
+	}
+
+	/** 同一子单同时只允许一笔改单在途；在途期间的新目标价只保留最新一个，回报后再发送 */
+	private void requestAmend(FlatOrderId id, ChildOrder c, BigDecimal px) {
+		synchronized (c) {
+			if (c.amendInFlight) {
+				if (c.pendingAmendPx != null) amendsCoalesced.increment();
+				c.pendingAmendPx = px;
+				return;
+			}
+			if (px.compareTo(c.price) == 0) return;
+			c.amendInFlight = true;
+		}
+		amendsSent.increment();
+		oms.replace(c, px, rpt -> onAmendReport(id, c, px, rpt));
+	}
+
+	private void onAmendReport(FlatOrderId id, ChildOrder c, BigDecimal px, ExecutionReport rpt) {
+		BigDecimal next;
+		synchronized (c) {
+			if (rpt.ordStatus() == OrdStatus.REPLACED) {
+				c.price = px;
+				CreditHold r = reservations.get(c.clientOrderId);
+				if (r != null) r.resize(c.qtyBase.subtract(c.cumBase).multiply(px));
+			}
+			c.amendInFlight = false;
+			next = c.pendingAmendPx;
+			c.pendingAmendPx = null;
+		}
+		if (next != null && working(c)) {
+			requestAmend(id, c, next);
+		}
+	}
+
+	/**
+	 * 子单所在 provider 在拆单同侧的最优价（按 tick 对齐）；provider 已不在盘口时返回 null。
+	 * 不利方向的改价以拆单时的限价加减 slippageBuffer 为界（买不高于、卖不低于），不无限追价。
+	 */
+	private BigDecimal referencePx(ChildOrder c, VwapParams p, OrderBook book, FxSymbolRule rule) {
+		boolean onAsk = (c.side == FlatSignal.Side.BUY) == (p.targetType() == VwapParams.TargetType.BASE_QTY
+				|| p.intent() == VwapParams.ExecutionIntent.TAKER);
+		for (PriceLevel lvl : onAsk ? book.asksAsc() : book.bidsDesc()) {
+			for (ProviderDepth pd : lvl.providers()) {
+				if (pd.providerId().equals(c.providerId)) {
+					return withinSlippage(c, p, toTick(lvl.price(), rule, onAsk ? RoundingMode.CEILING : RoundingMode.FLOOR), rule);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static BigDecimal withinSlippage(ChildOrder c, VwapParams p, BigDecimal target, FxSymbolRule rule) {
+		BigDecimal buffer = p.slippageBuffer() == null ? BigDecimal.ZERO : p.slippageBuffer().abs();
+		if (c.side == FlatSignal.Side.BUY) {
+			return target.min(toTick(c.originalPx.add(buffer), rule, RoundingMode.FLOOR));
+		}
+		return target.max(toTick(c.originalPx.subtract(buffer), rule, RoundingMode.CEILING));
+	}
+
+	private static BigDecimal toTick(BigDecimal px, FxSymbolRule rule, RoundingMode mode) {
+		BigDecimal n = px.divide(rule.tickSize(), 0, mode);
+		return n.multiply(rule.tickSize()).setScale(rule.priceScale(), RoundingMode.HALF_UP);
+	}
+
+	private static boolean working(ChildOrder c) {
+		return c.status == OrdStatus.NEW || c.status == OrdStatus.PARTIALLY_FILLED || c.status == OrdStatus.PENDING_NEW;
 	}
 
 	private void onReport(FlatOrderId id, ExecutionReport rpt, FxSymbolRule rule) {
+		FlatOrderReportEvent jfr = new FlatOrderReportEvent();
+		jfr.begin();
+		boolean finished = applyReport(id, rpt, rule);
+		if (!jfr.shouldCommit()) return;
+		ChildOrder co = repo.findChild(rpt.clientOrderId());
+		jfr.flatOrderId = id.value();
+		jfr.clientOrderId = rpt.clientOrderId();
+		jfr.provider = co == null ? null : co.providerId;
+		jfr.ordStatus = rpt.ordStatus().name();
+		jfr.lastQty = rpt.lastQtyBase() == null ? 0 : rpt.lastQtyBase().doubleValue();
+		jfr.lastPx = rpt.lastPx() == null ? Double.NaN : rpt.lastPx().doubleValue();
+		jfr.parentFinished = finished;
+		jfr.commit();
+	}
+
+	// 返回该回报是否使父单完成。同一父单的子单可能在不同的 OMS 回报线程上同时回报，
+	// 累计量的读改写与完成判定在父单锁内进行（finish 同样锁父单）
+	private boolean applyReport(FlatOrderId id, ExecutionReport rpt, FxSymbolRule rule) {
 		FlatOrderAggregate fo = repo.load(id);
-		if (fo == null) return;
+		if (fo == null) return false;
+		synchronized (fo) {
+			return applyReportLocked(fo, id, rpt, rule);
+		}
+	}
+
+	private boolean applyReportLocked(FlatOrderAggregate fo, FlatOrderId id, ExecutionReport rpt, FxSymbolRule rule) {
 		FlatOrderAggregate.ChildOrder co = fo.children.stream().filter(x -> x.clientOrderId.equals(rpt.clientOrderId())).findFirst().orElse(null);
-		if (co == null) return;
+		if (co == null) return false;
 
 		co.venueOrderId = rpt.venueOrderId();
-		co.status = rpt.ordStatus();
+		if (rpt.ordStatus() != OrdStatus.REPLACED) co.status = rpt.ordStatus(); // 改单回报不改变子单的工作状态
 
 		if (rpt.lastQtyBase() != null && rpt.lastQtyBase().signum() > 0) {
 			BigDecimal incBase = rpt.lastQtyBase();
 			BigDecimal incQuote = incBase.multiply(rpt.lastPx());
+			CreditHold r = reservations.get(co.clientOrderId);
+			if (r != null) r.fill(incBase.multiply(co.price), incQuote);
 			co.cumBase = co.cumBase.add(incBase);
 			fo.cumBase = fo.cumBase.add(incBase);
 			fo.cumQuote = fo.cumQuote.add(incQuote);
-			emit(new ChildOrderExecuted(id, co.clientOrderId, incBase, rpt.lastPx(), Instant.now()));
+			emit(new ChildOrderExecuted(id, co.clientOrderId, co.symbol, co.side, incBase, rpt.lastPx(), clock.instant()));
+		}
+		if (terminal(co.status)) {
+			CreditHold r = reservations.remove(co.clientOrderId);
+			if (r != null) r.release();
 		}
 		repo.update(fo);
 
-		if (targetMet(fo) || allTerminal(fo)) {
+		if (targetMet(fo) || (allTerminal(fo) && !slicing.contains(id))) {
 			cancelRemainders(fo);
 			finish(fo, rule);
+			return true;
 		}
+		return false;
 	}
 
-	private void onAckTimeout(FlatOrderId id, String clientOrderId) {
-		FlatOrderAggregate fo = repo.load(id);
-		if (fo == null) return;
-		FlatOrderAggregate.ChildOrder co = fo.children.stream().filter(x -> x.clientOrderId.equals(clientOrderId)).findFirst().orElse(null);
-		if (co != null && co.status == OrdStatus.PENDING_NEW) {
-			oms.cancel(co, rpt -> {});
+	private void onAckTimeout(FlatOrderId id, ChildOrder co) {
+		FlatOrderTimeoutEvent jfr = new FlatOrderTimeoutEvent();
+		jfr.begin();
+		boolean acted = false;
+		if (co.status == OrdStatus.PENDING_NEW) {
+			oms.cancel(co, this::onCancelReport);
+			acted = true;
 		}
+		commitTimeout(jfr, "ACK", id, co.clientOrderId, acted);
 	}
 
 	private void onParentTimeout(FlatOrderId id) {
+		FlatOrderTimeoutEvent jfr = new FlatOrderTimeoutEvent();
+		jfr.begin();
+		boolean acted = false;
 		FlatOrderAggregate fo = repo.load(id);
-		if (fo == null || fo.status == OrdStatus.FILLED || fo.status == OrdStatus.CANCELED) return;
-		if (!targetMet(fo)) { cancelRemainders(fo); finish(fo, md.ruleOf(fo.symbol)); }
+		if (fo != null && fo.status != OrdStatus.FILLED && fo.status != OrdStatus.CANCELED && !targetMet(fo)) {
+			cancelRemainders(fo);
+			finish(fo, md.ruleOf(fo.symbol));
+			acted = true;
+		}
+		commitTimeout(jfr, "PARENT", id, null, acted);
+	}
+
+	private static void commitTimeout(FlatOrderTimeoutEvent jfr, String kind, FlatOrderId id, String clientOrderId, boolean acted) {
+		if (!jfr.shouldCommit()) return;
+		jfr.kind = kind;
+		jfr.flatOrderId = id.value();
+		jfr.clientOrderId = clientOrderId;
+		jfr.acted = acted;
+		jfr.commit();
+	}
+
+	/** 撤单回报：父单已在收尾，只需记下子单终态并释放额度预占 */
+	private void onCancelReport(ExecutionReport rpt) {
+		if (!terminal(rpt.ordStatus())) return;
+		CreditHold r = reservations.remove(rpt.clientOrderId());
+		if (r != null) r.release();
+		FlatOrderAggregate fo = repo.findByClientOrderId(rpt.clientOrderId());
+		ChildOrder co = repo.findChild(rpt.clientOrderId());
+		if (fo == null || co == null) return;
+		synchronized (fo) {
+			if (terminal(co.status)) return;
+			co.status = rpt.ordStatus();
+			repo.update(fo);
+		}
+	}
+
+	/**
+	 * 撤掉发往某 provider 的全部在途子单（如与该 LP 断线），返回发出撤单的子单数。
+	 * 按仓储的 provider 索引直接定位，不遍历父单。
+	 */
+	public int cancelProvider(String providerId) {
+		List<ChildOrder> working = repo.workingChildrenAt(providerId);
+		if (!working.isEmpty()) oms.cancelAll(working, this::onCancelReport);
+		return working.size();
 	}
 
+	/** 按 provider 分组批量撤掉仍在途的子单 */
 	private void cancelRemainders(FlatOrderAggregate fo) {
-		fo.children.stream().filter(c ->
-				c.status == OrdStatus.NEW || c.status == OrdStatus.PARTIALLY_FILLED || c.status == OrdStatus.PENDING_NEW
-		).forEach(c -> oms.cancel(c, rpt -> {}));
+		Map<String, List<ChildOrder>> byProvider = new LinkedHashMap<>();
+		for (ChildOrder c : fo.children) {
+			if (working(c)) {
+				byProvider.computeIfAbsent(c.providerId, k -> new ArrayList<>()).add(c);
+			}
+		}
+		for (List<ChildOrder> group : byProvider.values()) oms.cancelAll(group, this::onCancelReport);
 	}
 
 	private void finish(FlatOrderAggregate fo, FxSymbolRule rule) {
-		fo.status = OrdStatus.FILLED; // 简化
+		synchronized (fo) {
+			if (fo.status == OrdStatus.FILLED) return; // 回报线程与分片/超时线程可能同时判定完成
+			fo.status = OrdStatus.FILLED; // 简化
+		}
+		slicing.remove(fo.id);
+		deadlines.remove(fo.id);
+		polled.remove(fo.id);
 		repo.update(fo);
+		Map<FlatOrderId, VwapParams> parents = active.get(fo.symbol);
+		if (parents != null) parents.remove(fo.id);
 		BigDecimal vwap = fo.cumBase.signum() == 0 ? BigDecimal.ZERO : fo.cumQuote.divide(fo.cumBase, rule.priceScale(), java.math.RoundingMode.HALF_UP);
-		emit(new FlatOrderCompleted(fo.id, fo.cumBase, fo.cumQuote, vwap, Instant.now()));
+		emit(new FlatOrderCompleted(fo.id, fo.symbol, fo.side, fo.cumBase, fo.cumQuote, vwap, clock.instant()));
 	}
 
 	private boolean targetMet(FlatOrderAggregate f) {
@@ -128,13 +594,16 @@ public final class FlatOrderApplicationService {
 				: f.cumQuote.compareTo(f.targetQuote) >= 0;
 	}
 	private boolean allTerminal(FlatOrderAggregate f) {
-		return f.children.stream().allMatch(c ->
-				switch (c.status) { case FILLED, REJECTED, CANCELED, EXPIRED -> true; default -> false; });
+		return f.children.stream().allMatch(c -> terminal(c.status));
+	}
+	private static boolean terminal(OrdStatus s) {
+		return switch (s) { case FILLED, REJECTED, CANCELED, EXPIRED -> true; default -> false; };
 	}
 
-	private void emit(Object evt) {
+	private void emit(DomainEvent evt) {
 		// 简化：控制台打印；生产可对接事件总线
 		System.out.println("[DomainEvent] " + evt);
+		for (Consumer<DomainEvent> l : listeners) l.accept(evt);
 	}
 
 	public static ScheduledExecutorService newTimer() {
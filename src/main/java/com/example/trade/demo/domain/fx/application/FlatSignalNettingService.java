@@ -0,0 +1,298 @@
+package com.example.trade.demo.domain.fx.application;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.event.DomainEvent;
+import com.example.trade.demo.domain.fx.event.FlatOrderCompleted;
+import com.example.trade.demo.domain.fx.event.FlatOrderStarted;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.NettingPolicy;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.time.Scheduler;
+
+/**
+ * 平盘信号轧差：同一 symbol 的 FlatSignal（suggestedTarget 以 Base 计）先累积成批，
+ * 只把批内买卖相抵后的净额作为一个父单交给 FlatOrderApplicationService，减少父单/子单数量与点差成本。
+ * - 窗口从批内第一笔信号开始计时，不随后续信号顺延；净额或信号数达到 NettingPolicy 阈值时提前发出；
+ * - 归属：少数方向的信号全部内部对冲；多数方向的信号按数量比例分摊净额（SCALE 位小数向下取整，余数记入最后一笔），
+ *   其余部分记为内部对冲；
+ * - 父单完成（FlatOrderCompleted）后按同样比例把成交量分摊回各信号，成交均价取父单的实现均价；
+ *   完全对冲的信号在批次结束时即给出结果；
+ * - 父单发起失败（参数或 start 抛出异常）时批次不丢失：以 parentId 为 null 的批次发布，各信号的外部分配量记为未成交。
+ * 需作为 FlatOrderApplicationService 的事件监听器注册（onEvent）。
+ */
+public final class FlatSignalNettingService {
+
+	static final int SCALE = 6;
+
+	/** 信号在批次中的分配：与反向信号内部对冲的量、随净额发往市场的量（Base） */
+	public record Allocation(FlatSignal signal, BigDecimal nettedBase, BigDecimal externalBase) {}
+
+	/** 一个轧差批次；买卖完全相抵时 netSide 与 parentId 为 null，父单发起失败时只有 parentId 为 null */
+	public record NettingBatch(long batchId, FxSymbol symbol, List<Allocation> allocations, FlatSignal.Side netSide,
+							   BigDecimal netBase, FlatOrderId parentId, Instant closedAt) {
+		public boolean failed() {
+			return netSide != null && parentId == null;
+		}
+
+		public BigDecimal grossBase() {
+			BigDecimal gross = BigDecimal.ZERO;
+			for (Allocation a : allocations) gross = gross.add(a.signal().suggestedTarget());
+			return gross;
+		}
+	}
+
+	/** 信号的最终结果：内部对冲量、外部成交量及其均价（无外部成交时均价为 null） */
+	public record SignalOutcome(FlatSignal signal, long batchId, FlatOrderId parentId, BigDecimal nettedBase,
+								BigDecimal filledBase, BigDecimal avgPx) {}
+
+	private static final class Pending {
+		final List<FlatSignal> signals = new ArrayList<>();
+		BigDecimal net = BigDecimal.ZERO; // 买为正
+		long generation;
+	}
+
+	private final FlatOrderApplicationService app;
+	private final Function<FlatSignal, VwapParams> paramsFor;
+	private final Scheduler scheduler;
+	private final Clock clock;
+	private final NettingPolicy policy;
+	private final Map<FxSymbol, Pending> pending = new ConcurrentHashMap<>();
+	private final Map<FlatOrderId, NettingBatch> inFlight = new ConcurrentHashMap<>();
+	// start() 同步发出 FlatOrderStarted，借此在父单可能同步完成之前登记其所属批次
+	private final ThreadLocal<NettingBatch> starting = new ThreadLocal<>();
+	private final AtomicLong batchIds = new AtomicLong();
+	private final List<Consumer<NettingBatch>> batchListeners = new CopyOnWriteArrayList<>();
+	private final List<Consumer<SignalOutcome>> outcomeListeners = new CopyOnWriteArrayList<>();
+	private final LongAdder signalsReceived = new LongAdder();
+	private final LongAdder ordersSent = new LongAdder();
+	private final LongAdder fullyNetted = new LongAdder();
+	private final LongAdder startFailures = new LongAdder();
+
+	public FlatSignalNettingService(FlatOrderApplicationService app, Function<FlatSignal, VwapParams> paramsFor,
+									Scheduler scheduler, Clock clock, NettingPolicy policy) {
+		this.app = app;
+		this.paramsFor = paramsFor;
+		this.scheduler = scheduler;
+		this.clock = clock;
+		this.policy = policy;
+	}
+
+	public void addBatchListener(Consumer<NettingBatch> listener) { batchListeners.add(listener); }
+	public void addOutcomeListener(Consumer<SignalOutcome> listener) { outcomeListeners.add(listener); }
+
+	public long signalsReceived() { return signalsReceived.sum(); }
+	/** 实际发往市场的父单数 */
+	public long ordersSent() { return ordersSent.sum(); }
+	/** 买卖完全相抵、未发单的批次数 */
+	public long fullyNetted() { return fullyNetted.sum(); }
+	/** 父单发起失败的批次数 */
+	public long startFailures() { return startFailures.sum(); }
+
+	/**
+	 * 提交平盘信号；可替代直接调用 FlatOrderApplicationService.start 作为信号监听器。
+	 * 开启窗口时信号会被暂存、父单稍后才发起，接 ExposureService 时须用 attach 注册，不能作为其同步监听器。
+	 */
+	public void submit(FlatSignal sig) {
+		if (sig.suggestedTarget().signum() <= 0) throw new IllegalArgumentException("suggestedTarget must be positive: " + sig);
+		signalsReceived.increment();
+		if (!policy.enabled()) {
+			dispatch(sig.symbol(), List.of(sig));
+			return;
+		}
+		Pending p = pending.computeIfAbsent(sig.symbol(), k -> new Pending());
+		List<FlatSignal> ready = null;
+		boolean first;
+		long generation;
+		synchronized (p) {
+			first = p.signals.isEmpty();
+			p.signals.add(sig);
+			p.net = p.net.add(signed(sig));
+			generation = p.generation;
+			BigDecimal flushAt = policy.flushAtNetBase();
+			if (p.signals.size() >= policy.maxSignals() || (flushAt != null && p.net.abs().compareTo(flushAt) >= 0)) {
+				ready = drain(p);
+			}
+		}
+		if (ready != null) {
+			dispatch(sig.symbol(), ready);
+		} else if (first) {
+			scheduler.schedule(() -> onWindowEnd(sig.symbol(), generation), policy.window().toMillis());
+		}
+	}
+
+	/**
+	 * 作为 ExposureService 的延迟信号监听器注册：信号在批内暂存期间 ExposureService 保持在途标记，
+	 * 每笔信号给出结果（SignalOutcome）时再通知其解除，窗口内不会对同一超限重复发信号。
+	 */
+	public void attach(ExposureService exposure) {
+		exposure.addDeferredSignalListener(this::submit);
+		addOutcomeListener(o -> exposure.signalSettled(o.signal()));
+	}
+
+	/** 立即发出全部 symbol 的待轧差信号（如停机前） */
+	public void flushAll() {
+		for (Map.Entry<FxSymbol, Pending> e : pending.entrySet()) {
+			List<FlatSignal> ready;
+			synchronized (e.getValue()) {
+				if (e.getValue().signals.isEmpty()) continue;
+				ready = drain(e.getValue());
+			}
+			dispatch(e.getKey(), ready);
+		}
+	}
+
+	/** 作为 FlatOrderApplicationService 的事件监听器注册 */
+	public void onEvent(DomainEvent evt) {
+		if (evt instanceof FlatOrderStarted s) {
+			NettingBatch b = starting.get();
+			if (b != null) inFlight.put(s.flatOrderId(), b);
+		} else if (evt instanceof FlatOrderCompleted c) {
+			NettingBatch b = inFlight.remove(c.flatOrderId());
+			if (b != null) attributeFills(b, c);
+		}
+	}
+
+	// 窗口到期：批次若已因阈值提前发出（generation 已变），不再处理
+	private void onWindowEnd(FxSymbol symbol, long generation) {
+		Pending p = pending.get(symbol);
+		List<FlatSignal> ready;
+		synchronized (p) {
+			if (p.generation != generation || p.signals.isEmpty()) return;
+			ready = drain(p);
+		}
+		dispatch(symbol, ready);
+	}
+
+	private static List<FlatSignal> drain(Pending p) {
+		List<FlatSignal> out = new ArrayList<>(p.signals);
+		p.signals.clear();
+		p.net = BigDecimal.ZERO;
+		p.generation++;
+		return out;
+	}
+
+	private void dispatch(FxSymbol symbol, List<FlatSignal> signals) {
+		long batchId = batchIds.incrementAndGet();
+		BigDecimal buy = BigDecimal.ZERO;
+		BigDecimal sell = BigDecimal.ZERO;
+		for (FlatSignal s : signals) {
+			if (s.side() == FlatSignal.Side.BUY) buy = buy.add(s.suggestedTarget()); else sell = sell.add(s.suggestedTarget());
+		}
+		int cmp = buy.compareTo(sell);
+		FlatSignal.Side netSide = cmp > 0 ? FlatSignal.Side.BUY : cmp < 0 ? FlatSignal.Side.SELL : null;
+		BigDecimal net = buy.subtract(sell).abs();
+		List<Allocation> allocations = allocate(signals, netSide, cmp > 0 ? buy : sell, net);
+
+		if (netSide == null) {
+			NettingBatch batch = new NettingBatch(batchId, symbol, allocations, null, net, null, clock.instant());
+			fullyNetted.increment();
+			System.out.println(String.format("[Netting] %s 批次 %d：%d 笔信号买卖相抵，不发单", symbol, batchId, signals.size()));
+			publish(batch);
+			return;
+		}
+
+		FlatSignal netSignal = new FlatSignal(symbol, netSide, net,
+				"NETTED batch " + batchId + " of " + signals.size() + " signals", clock.instant());
+		NettingBatch batch = new NettingBatch(batchId, symbol, allocations, netSide, net, null, clock.instant());
+		FlatOrderId parentId;
+		starting.set(batch);
+		try {
+			parentId = app.start(netSignal, paramsFor.apply(netSignal));
+		} catch (RuntimeException e) {
+			fail(batch, e);
+			return;
+		} finally {
+			starting.remove();
+		}
+		ordersSent.increment();
+		NettingBatch started = new NettingBatch(batchId, symbol, allocations, netSide, net, parentId, batch.closedAt());
+		// 父单未同步完成时，以带 parentId 的批次替换登记
+		inFlight.replace(parentId, batch, started);
+		System.out.println(String.format("[Netting] %s 批次 %d：%d 笔信号（毛额 %s）轧差为 %s %s",
+				symbol, batchId, signals.size(), started.grossBase().toPlainString(), netSide, net.toPlainString()));
+		publish(started);
+	}
+
+	// 信号已出队，不能随异常丢失：撤销可能已登记的父单，发布失败批次并给出未成交的结果
+	private void fail(NettingBatch batch, RuntimeException e) {
+		startFailures.increment();
+		inFlight.values().remove(batch);
+		System.out.println(String.format("[Netting] %s 批次 %d：净额 %s %s 发单失败：%s",
+				batch.symbol(), batch.batchId(), batch.netSide(), batch.netBase().toPlainString(), e.getMessage()));
+		for (Consumer<NettingBatch> l : batchListeners) l.accept(batch);
+		for (Allocation a : batch.allocations()) {
+			emit(new SignalOutcome(a.signal(), batch.batchId(), null, a.nettedBase(), BigDecimal.ZERO, null));
+		}
+	}
+
+	// 少数方向全部对冲；多数方向按数量比例分摊净额，余数记入最后一笔
+	private static List<Allocation> allocate(List<FlatSignal> signals, FlatSignal.Side netSide, BigDecimal majority, BigDecimal net) {
+		int last = -1;
+		for (int i = 0; i < signals.size(); i++) if (signals.get(i).side() == netSide) last = i;
+		List<Allocation> out = new ArrayList<>(signals.size());
+		BigDecimal assigned = BigDecimal.ZERO;
+		for (int i = 0; i < signals.size(); i++) {
+			FlatSignal s = signals.get(i);
+			BigDecimal qty = s.suggestedTarget();
+			BigDecimal external;
+			if (s.side() != netSide) {
+				external = BigDecimal.ZERO;
+			} else if (i == last) {
+				external = net.subtract(assigned);
+			} else {
+				external = qty.multiply(net).divide(majority, SCALE, RoundingMode.DOWN);
+				assigned = assigned.add(external);
+			}
+			out.add(new Allocation(s, qty.subtract(external), external));
+		}
+		return Collections.unmodifiableList(out);
+	}
+
+	private void publish(NettingBatch batch) {
+		for (Consumer<NettingBatch> l : batchListeners) l.accept(batch);
+		for (Allocation a : batch.allocations()) {
+			if (a.externalBase().signum() == 0) {
+				emit(new SignalOutcome(a.signal(), batch.batchId(), batch.parentId(), a.nettedBase(), BigDecimal.ZERO, null));
+			}
+		}
+	}
+
+	// 父单成交量按各信号外部分配量的比例分摊，余数记入最后一笔
+	private void attributeFills(NettingBatch batch, FlatOrderCompleted c) {
+		List<Allocation> external = batch.allocations().stream().filter(a -> a.externalBase().signum() > 0).toList();
+		BigDecimal assigned = BigDecimal.ZERO;
+		BigDecimal avgPx = c.cumBase().signum() == 0 ? null : c.realizedVWAP();
+		for (int i = 0; i < external.size(); i++) {
+			Allocation a = external.get(i);
+			BigDecimal filled = i == external.size() - 1
+					? c.cumBase().subtract(assigned)
+					: c.cumBase().multiply(a.externalBase()).divide(batch.netBase(), SCALE, RoundingMode.DOWN);
+			assigned = assigned.add(filled);
+			emit(new SignalOutcome(a.signal(), batch.batchId(), c.flatOrderId(), a.nettedBase(), filled, avgPx));
+		}
+	}
+
+	private void emit(SignalOutcome outcome) {
+		for (Consumer<SignalOutcome> l : outcomeListeners) l.accept(outcome);
+	}
+
+	private static BigDecimal signed(FlatSignal s) {
+		return s.side() == FlatSignal.Side.BUY ? s.suggestedTarget() : s.suggestedTarget().negate();
+	}
+}
@@ -6,8 +6,13 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
 import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.service.QuoteService;
 import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
 import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
 import com.example.trade.demo.domain.fx.valueobject.OrderBook;
@@ -24,31 +29,66 @@ public final class MarketDepthAdapters {
 			this.agg = agg; this.rule = rule;
 		}
 
+		@Override public OrderBook latest(FxSymbol symbol) { return bookOf(agg); }
+		@Override public FxSymbolRule ruleOf(FxSymbol symbol) { return rule; }
+	}
+
+	/**
+	 * 直接读取 QuoteService 的聚合器：FxSymbol 经注册表解析为与 "EURUSD" 相同的 symbol ID，
+	 * 按下标取聚合器，不拼接字符串。该 symbol 尚无行情时返回空盘口。
+	 */
+	public static final class FromQuoteService implements FlatOrderApplicationService.MarketDepthProvider {
+		private final QuoteService quotes;
+		private final Function<FxSymbol, FxSymbolRule> rules;
+
+		public FromQuoteService(QuoteService quotes, Function<FxSymbol, FxSymbolRule> rules) {
+			this.quotes = quotes; this.rules = rules;
+		}
+
 		@Override public OrderBook latest(FxSymbol symbol) {
-			List<PriceLevel> asks = merge(agg.getAllAskDepth(), true);
-			List<PriceLevel> bids = merge(agg.getAllBidDepth(), false);
-			return new OrderBook(asks, bids);
+			MarketDepthAggregator agg = quotes.aggregatorOf(quotes.getRegistry().symbolId(symbol));
+			return agg == null ? new OrderBook(List.of(), List.of()) : bookOf(agg);
 		}
-		@Override public FxSymbolRule ruleOf(FxSymbol symbol) { return rule; }
+		@Override public FxSymbolRule ruleOf(FxSymbol symbol) { return rules.apply(symbol); }
 
-		private List<PriceLevel> merge(Map<String, NavigableMap<BigDecimal, BigDecimal>> side, boolean isAsk) {
-			Map<BigDecimal, List<ProviderDepth>> tmp = new java.util.HashMap<>();
-			for (Map.Entry<String, NavigableMap<BigDecimal, BigDecimal>> e : side.entrySet()) {
-				String provider = e.getKey();
-				for (Map.Entry<BigDecimal, BigDecimal> lv : e.getValue().entrySet()) {
-					BigDecimal px = lv.getKey();
-					BigDecimal qty = lv.getValue();
-					tmp.computeIfAbsent(px, k -> new ArrayList<>()).add(new ProviderDepth(provider, qty));
-				}
-			}
-			List<PriceLevel> out = new ArrayList<>();
-			for (Map.Entry<BigDecimal, List<ProviderDepth>> e : tmp.entrySet()) {
-				out.add(new PriceLevel(e.getKey(), e.getValue()));
+		/**
+		 * 深度监听器：每笔深度更新后在行情线程上调用 app.onBookUpdate，使重定价跟随实时盘口。
+		 * 注册方式：quotes.addDepthListener(md.bookUpdateListener(app))。
+		 * 只有以 FxSymbol 注册过的 symbol（即发起过平盘的交易对）才会转发。
+		 */
+		public BiConsumer<MarketDepthAggregator, MarketDataEvent> bookUpdateListener(FlatOrderApplicationService app) {
+			InstrumentRegistry registry = quotes.getRegistry();
+			return (agg, event) -> {
+				int id = event.getSymbolId() >= 0 ? event.getSymbolId() : registry.findSymbol(event.getSymbol());
+				FxSymbol symbol = id < 0 ? null : registry.fxSymbolOf(id);
+				if (symbol != null) app.onBookUpdate(symbol);
+			};
+		}
+	}
+
+	static OrderBook bookOf(MarketDepthAggregator agg) {
+		List<PriceLevel> asks = merge(agg.getAllAskDepth(), true);
+		List<PriceLevel> bids = merge(agg.getAllBidDepth(), false);
+		return new OrderBook(asks, bids);
+	}
+
+	private static List<PriceLevel> merge(Map<String, NavigableMap<BigDecimal, BigDecimal>> side, boolean isAsk) {
+		Map<BigDecimal, List<ProviderDepth>> tmp = new java.util.HashMap<>();
+		for (Map.Entry<String, NavigableMap<BigDecimal, BigDecimal>> e : side.entrySet()) {
+			String provider = e.getKey();
+			for (Map.Entry<BigDecimal, BigDecimal> lv : e.getValue().entrySet()) {
+				BigDecimal px = lv.getKey();
+				BigDecimal qty = lv.getValue();
+				tmp.computeIfAbsent(px, k -> new ArrayList<>()).add(new ProviderDepth(provider, qty));
 			}
-			out.sort(Comparator.comparing(PriceLevel::price));
-			if (!isAsk) java.util.Collections.reverse(out);
-			return out;
 		}
+		List<PriceLevel> out = new ArrayList<>();
+		for (Map.Entry<BigDecimal, List<ProviderDepth>> e : tmp.entrySet()) {
+			out.add(new PriceLevel(e.getKey(), e.getValue()));
+		}
+		out.sort(Comparator.comparing(PriceLevel::price));
+		if (!isAsk) java.util.Collections.reverse(out);
+		return out;
 	}
 }
 
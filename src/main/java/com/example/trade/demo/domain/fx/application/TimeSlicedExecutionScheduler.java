@@ -0,0 +1,176 @@
+package com.example.trade.demo.domain.fx.application;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+
+/**
+ * 分时切片执行调度器：把每个父单的目标按 VwapParams.ttl 平均切成若干分片，
+ * 每个分片到期时按最新 OrderBook 重新拆单（目标 = 剩余未覆盖量 / 剩余分片数）。
+ * - 固定 loops 个调度循环线程（默认每核一个），父单按 ID 哈希固定归属某个循环；
+ * - 每个循环用一个按到期时间排序的堆管理其全部父单，不为单个父单创建线程或定时任务：
+ *   父单的到期时间取下一个分片与下一个期限（子单确认/挂单超时、父单超时，见 pollDeadlines）中较早者，
+ *   最后一个分片发出后仍留在堆中，直到父单结束；
+ * - 空闲时循环线程一直休眠到堆顶到期，新父单入队时唤醒；
+ * - 也可不调用 start()，由调用方以 runDue(now) 驱动（回测/虚拟时间）。
+ */
+public final class TimeSlicedExecutionScheduler implements AutoCloseable {
+
+	private static final long NONE = Long.MAX_VALUE;
+
+	private static final class ParentSchedule {
+		final FlatOrderId id;
+		final long intervalMillis;
+		long nextDueMillis;
+		int slicesLeft;
+		long deadlineMillis;
+		long wakeMillis; // 在堆中的排序键：下一个分片与下一个期限中较早者
+
+		ParentSchedule(FlatOrderId id, long intervalMillis, long firstDueMillis, int slices) {
+			this.id = id; this.intervalMillis = intervalMillis; this.nextDueMillis = firstDueMillis; this.slicesLeft = slices;
+			this.deadlineMillis = NONE; this.wakeMillis = firstDueMillis;
+		}
+	}
+
+	private final FlatOrderApplicationService app;
+	private final Clock clock;
+	private final long sliceIntervalMillis;
+	private final Loop[] loops;
+	private final AtomicInteger activeParents = new AtomicInteger();
+	private final LongAdder slicesSent = new LongAdder();
+
+	public TimeSlicedExecutionScheduler(FlatOrderApplicationService app, Clock clock, Duration sliceInterval) {
+		this(app, clock, sliceInterval, Runtime.getRuntime().availableProcessors());
+	}
+
+	public TimeSlicedExecutionScheduler(FlatOrderApplicationService app, Clock clock, Duration sliceInterval, int loopCount) {
+		this.app = app;
+		this.clock = clock;
+		this.sliceIntervalMillis = Math.max(1, sliceInterval.toMillis());
+		this.loops = new Loop[Math.max(1, loopCount)];
+		for (int i = 0; i < loops.length; i++) loops[i] = new Loop(i);
+	}
+
+	/** 启动调度循环线程 */
+	public void start() {
+		for (Loop l : loops) l.thread.start();
+	}
+
+	@Override public void close() {
+		for (Loop l : loops) { l.running = false; LockSupport.unpark(l.thread); }
+	}
+
+	/**
+	 * 建立父单并登记分片计划：分片数 = ttl / sliceInterval（至少 1），第一个分片立即到期。
+	 */
+	public FlatOrderId submit(FlatSignal sig, VwapParams params) {
+		FlatOrderId id = app.open(sig, params);
+		long ttl = params.ttl() == null ? 0 : params.ttl().toMillis();
+		int slices = (int) Math.max(1, ttl / sliceIntervalMillis);
+		activeParents.incrementAndGet();
+		loopOf(id).enqueue(new ParentSchedule(id, sliceIntervalMillis, clock.millis(), slices));
+		return id;
+	}
+
+	/** 在调用线程上执行所有循环中已到期的分片，返回执行的分片数；仅用于未 start() 的场景 */
+	public int runDue(long nowMillis) {
+		int n = 0;
+		for (Loop l : loops) n += l.runDue(nowMillis);
+		return n;
+	}
+
+	/** 尚未结束的父单数 */
+	public int activeParents() { return activeParents.get(); }
+	public long slicesSent() { return slicesSent.sum(); }
+
+	private Loop loopOf(FlatOrderId id) {
+		return loops[Math.floorMod(id.hashCode(), loops.length)];
+	}
+
+	private final class Loop implements Runnable {
+		private final ConcurrentLinkedQueue<ParentSchedule> inbox = new ConcurrentLinkedQueue<>();
+		private final PriorityQueue<ParentSchedule> due = new PriorityQueue<>(Comparator.comparingLong(s -> s.wakeMillis));
+		private final Thread thread;
+		private volatile boolean running = true;
+
+		Loop(int index) {
+			this.thread = new Thread(this, "SliceLoop-" + index);
+			this.thread.setDaemon(true);
+		}
+
+		void enqueue(ParentSchedule s) {
+			inbox.add(s);
+			LockSupport.unpark(thread);
+		}
+
+		@Override public void run() {
+			while (running) {
+				runDue(clock.millis());
+				ParentSchedule next = due.peek();
+				if (!inbox.isEmpty()) continue;
+				if (next == null) {
+					LockSupport.park(this);
+				} else {
+					long waitMillis = next.wakeMillis - clock.millis();
+					if (waitMillis > 0) LockSupport.parkNanos(this, waitMillis * 1_000_000L);
+				}
+			}
+		}
+
+		int runDue(long nowMillis) {
+			ParentSchedule s;
+			while ((s = inbox.poll()) != null) due.add(s);
+			int n = 0;
+			while ((s = due.peek()) != null && s.wakeMillis <= nowMillis) {
+				due.poll();
+				if (s.slicesLeft > 0 && s.nextDueMillis <= nowMillis) {
+					n++;
+					if (runSlice(s)) s.nextDueMillis += s.intervalMillis;
+				}
+				s.deadlineMillis = app.pollDeadlines(s.id, nowMillis);
+				s.wakeMillis = Math.min(s.slicesLeft > 0 ? s.nextDueMillis : NONE, s.deadlineMillis);
+				if (s.wakeMillis == NONE) {
+					activeParents.decrementAndGet(); // 父单已结束
+				} else {
+					due.add(s);
+				}
+			}
+			return n;
+		}
+
+		/** 发送一个分片；返回父单是否还有后续分片，没有时 slicesLeft 置 0 */
+		private boolean runSlice(ParentSchedule s) {
+			BigDecimal amount = app.remainingTarget(s.id).divide(BigDecimal.valueOf(s.slicesLeft), 8, RoundingMode.DOWN);
+			// 最后一个分片发出全部剩余量，避免截断误差留下尾差
+			if (s.slicesLeft == 1) amount = app.remainingTarget(s.id);
+			boolean alive;
+			try {
+				alive = app.submitSlice(s.id, amount);
+			} catch (RuntimeException e) {
+				System.out.println("[SliceScheduler] slice failed for " + s.id + ": " + e);
+				alive = true;
+			}
+			slicesSent.increment();
+			if (!alive) {
+				s.slicesLeft = 0;
+				return false;
+			}
+			if (--s.slicesLeft <= 0) {
+				app.endSlicing(s.id);
+				return false;
+			}
+			return true;
+		}
+	}
+}
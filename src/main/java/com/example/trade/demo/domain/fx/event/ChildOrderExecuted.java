@@ -4,8 +4,8 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal.Side;
 
-public record ChildOrderExecuted(FlatOrderId flatOrderId, String clientOrderId,
+public record ChildOrderExecuted(FlatOrderId flatOrderId, String clientOrderId, FxSymbol symbol, Side side,
 								  BigDecimal lastQtyBase, BigDecimal lastPx, Instant occurredOn) implements DomainEvent {}
-
-
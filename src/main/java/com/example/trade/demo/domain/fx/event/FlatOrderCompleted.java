@@ -4,8 +4,8 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal.Side;
 
-public record FlatOrderCompleted(FlatOrderId flatOrderId, BigDecimal cumBase, BigDecimal cumQuote,
+public record FlatOrderCompleted(FlatOrderId flatOrderId, FxSymbol symbol, Side side, BigDecimal cumBase, BigDecimal cumQuote,
 								  BigDecimal realizedVWAP, Instant occurredOn) implements DomainEvent {}
-
-
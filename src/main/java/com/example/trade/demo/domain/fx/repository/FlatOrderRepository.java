@@ -1,12 +1,33 @@
 package com.example.trade.demo.domain.fx.repository;
 
+import java.util.List;
+
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
 
+/**
+ * 平盘父单仓储。聚合在内存中原地修改，修改后调用 update 使查询索引与之同步；
+ * 查询结果为调用时刻的快照列表。
+ */
 public interface FlatOrderRepository {
 	void save(FlatOrderAggregate fo);
 	FlatOrderAggregate load(FlatOrderId id);
 	void update(FlatOrderAggregate fo);
-}
-
 
+	/** 某 symbol 的全部父单 */
+	List<FlatOrderAggregate> findBySymbol(FxSymbol symbol);
+	/** 某 symbol 尚未结束（非终态）的父单 */
+	List<FlatOrderAggregate> findWorking(FxSymbol symbol);
+	List<FlatOrderAggregate> findByStatus(OrdStatus status);
+	/** 子单所属父单；未知 clientOrderId 返回 null */
+	FlatOrderAggregate findByClientOrderId(String clientOrderId);
+	FlatOrderAggregate findByVenueOrderId(String venueOrderId);
+	ChildOrder findChild(String clientOrderId);
+	/** 发往某 provider 的全部子单 */
+	List<ChildOrder> childrenAt(String providerId);
+	/** 发往某 provider 且仍在途的子单（如断线后批量撤单） */
+	List<ChildOrder> workingChildrenAt(String providerId);
+}
@@ -1,17 +1,128 @@
 package com.example.trade.demo.domain.fx.repository;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
 
+/**
+ * 内存仓储，带二级索引：symbol、父单状态、provider、clientOrderId / venueOrderId。
+ * - 每个父单记录上次建索引时的状态（父单状态、各子单状态与 venueOrderId），update 只对发生变化的部分增删索引项，
+ *   代价与该父单的子单数成正比，与仓储中的订单总数无关；
+ * - 同一父单的 update 串行执行（不同父单互不阻塞），索引集合均为并发集合，查询无锁；
+ * - 查询为哈希查找，返回结果集的快照。
+ */
 public final class InMemoryFlatOrderRepository implements FlatOrderRepository {
+
+	private record ChildState(OrdStatus status, String venueOrderId) {}
+
+	/** 父单上次建索引时的状态 */
+	private static final class Indexed {
+		OrdStatus status;
+		final Map<String, ChildState> children = new HashMap<>();
+	}
+
 	private final Map<String, FlatOrderAggregate> store = new ConcurrentHashMap<>();
+	private final Map<String, Indexed> indexed = new ConcurrentHashMap<>();
+	private final Map<FxSymbol, Set<String>> bySymbol = new ConcurrentHashMap<>();
+	private final Map<FxSymbol, Set<String>> workingBySymbol = new ConcurrentHashMap<>();
+	private final Map<OrdStatus, Set<String>> byStatus = new EnumMap<>(OrdStatus.class);
+	private final Map<String, String> parentByClientOrderId = new ConcurrentHashMap<>();
+	private final Map<String, ChildOrder> childByClientOrderId = new ConcurrentHashMap<>();
+	private final Map<String, String> clientOrderIdByVenueOrderId = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, ChildOrder>> byProvider = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, ChildOrder>> workingByProvider = new ConcurrentHashMap<>();
+
+	public InMemoryFlatOrderRepository() {
+		for (OrdStatus s : OrdStatus.values()) byStatus.put(s, ConcurrentHashMap.newKeySet()); // 预先建好，之后只读
+	}
+
+	@Override public void save(FlatOrderAggregate fo) {
+		store.put(fo.id.value(), fo);
+		reindex(fo);
+	}
 
-	@Override public void save(FlatOrderAggregate fo) { store.put(fo.id.value(), fo); }
 	@Override public FlatOrderAggregate load(FlatOrderId id) { return store.get(id.value()); }
-	@Override public void update(FlatOrderAggregate fo) { store.put(fo.id.value(), fo); }
-}
 
+	@Override public void update(FlatOrderAggregate fo) {
+		store.put(fo.id.value(), fo);
+		reindex(fo);
+	}
+
+	@Override public List<FlatOrderAggregate> findBySymbol(FxSymbol symbol) { return parents(bySymbol.get(symbol)); }
+	@Override public List<FlatOrderAggregate> findWorking(FxSymbol symbol) { return parents(workingBySymbol.get(symbol)); }
+	@Override public List<FlatOrderAggregate> findByStatus(OrdStatus status) { return parents(byStatus.get(status)); }
+
+	@Override public FlatOrderAggregate findByClientOrderId(String clientOrderId) {
+		String parent = parentByClientOrderId.get(clientOrderId);
+		return parent == null ? null : store.get(parent);
+	}
 
+	@Override public FlatOrderAggregate findByVenueOrderId(String venueOrderId) {
+		String clientOrderId = clientOrderIdByVenueOrderId.get(venueOrderId);
+		return clientOrderId == null ? null : findByClientOrderId(clientOrderId);
+	}
+
+	@Override public ChildOrder findChild(String clientOrderId) { return childByClientOrderId.get(clientOrderId); }
+
+	@Override public List<ChildOrder> childrenAt(String providerId) { return children(byProvider.get(providerId)); }
+	@Override public List<ChildOrder> workingChildrenAt(String providerId) { return children(workingByProvider.get(providerId)); }
+
+	private void reindex(FlatOrderAggregate fo) {
+		String id = fo.id.value();
+		Indexed idx = indexed.computeIfAbsent(id, k -> new Indexed());
+		synchronized (idx) {
+			OrdStatus status = fo.status;
+			if (idx.status != status) {
+				if (idx.status == null) bySymbol.computeIfAbsent(fo.symbol, k -> ConcurrentHashMap.newKeySet()).add(id);
+				else byStatus.get(idx.status).remove(id);
+				byStatus.get(status).add(id);
+				Set<String> working = workingBySymbol.computeIfAbsent(fo.symbol, k -> ConcurrentHashMap.newKeySet());
+				if (terminal(status)) working.remove(id); else working.add(id);
+				idx.status = status;
+			}
+			for (ChildOrder c : fo.children) {
+				ChildState now = new ChildState(c.status, c.venueOrderId);
+				ChildState before = idx.children.put(c.clientOrderId, now);
+				if (now.equals(before)) continue;
+				if (before == null) {
+					parentByClientOrderId.put(c.clientOrderId, id);
+					childByClientOrderId.put(c.clientOrderId, c);
+					byProvider.computeIfAbsent(c.providerId, k -> new ConcurrentHashMap<>()).put(c.clientOrderId, c);
+				}
+				String venueBefore = before == null ? null : before.venueOrderId();
+				if (venueBefore != null && !venueBefore.equals(now.venueOrderId())) clientOrderIdByVenueOrderId.remove(venueBefore);
+				if (now.venueOrderId() != null) clientOrderIdByVenueOrderId.put(now.venueOrderId(), c.clientOrderId);
+				Map<String, ChildOrder> working = workingByProvider.computeIfAbsent(c.providerId, k -> new ConcurrentHashMap<>());
+				if (terminal(now.status())) working.remove(c.clientOrderId); else working.put(c.clientOrderId, c);
+			}
+		}
+	}
+
+	private List<FlatOrderAggregate> parents(Set<String> ids) {
+		if (ids == null) return List.of();
+		List<FlatOrderAggregate> out = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			FlatOrderAggregate fo = store.get(id);
+			if (fo != null) out.add(fo);
+		}
+		return out;
+	}
+
+	private static List<ChildOrder> children(Map<String, ChildOrder> byId) {
+		return byId == null ? List.of() : new ArrayList<>(byId.values());
+	}
+
+	private static boolean terminal(OrdStatus s) {
+		return switch (s) { case FILLED, REJECTED, CANCELED, EXPIRED -> true; default -> false; };
+	}
+}
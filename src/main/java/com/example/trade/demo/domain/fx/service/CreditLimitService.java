@@ -0,0 +1,228 @@
+package com.example.trade.demo.domain.fx.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 交易前授信/名义金额额度：按 provider 与 counterparty 各设一条额度线，发送子单或报价前预占名义金额。
+ * - 预占在每条额度线上以 CAS 完成（used + amount ≤ limit 才写入），没有全局锁；
+ *   同时涉及 provider 与 counterparty 时依次预占，后者失败则回滚前者；
+ * - 预占结果为 Reservation：成交时把对应的预占部分转为实际成交金额（差额调整到额度线上），
+ *   撤单/拒单/过期时释放剩余预占，释放幂等；
+ * - 成交部分持续占用，直到交割：settleProvider / settleCounterparty 按交割金额释放，rollDay 在日终释放全部成交占用；
+ * - 未设置额度的 provider/counterparty 不受限；金额以 4 位小数定点 long 记账，单位统一为 limitCurrency（默认 USD），
+ *   不同交易对的名义金额由调用方在预占前换算（平盘子单见 FlatOrderApplicationService，按盘口中间价换算）。
+ */
+public final class CreditLimitService {
+
+	static final int SCALE = 4;
+	public static final String DEFAULT_LIMIT_CURRENCY = "USD";
+
+	/** 一条额度线 */
+	public static final class Line {
+		private final String name;
+		private volatile long limit;
+		private final AtomicLong used = new AtomicLong();
+		// used 中已成交、尚未交割的部分
+		private final AtomicLong filled = new AtomicLong();
+
+		Line(String name, long limit) { this.name = name; this.limit = limit; }
+
+		boolean tryReserve(long amount) {
+			for (;;) {
+				long cur = used.get();
+				long next = cur + amount;
+				if (amount > 0 && next > limit) return false;
+				if (used.compareAndSet(cur, next)) return true;
+			}
+		}
+
+		// 不检查额度的调整：成交、改价回报等已发生的事实
+		void adjust(long delta) { used.addAndGet(delta); }
+
+		// 交割：从成交占用中释放至多 amount，返回实际释放金额
+		long settle(long amount) {
+			for (;;) {
+				long cur = filled.get();
+				long take = Math.min(cur, amount);
+				if (take <= 0) return 0;
+				if (filled.compareAndSet(cur, cur - take)) {
+					used.addAndGet(-take);
+					return take;
+				}
+			}
+		}
+
+		public String name() { return name; }
+		public BigDecimal limit() { return fromFixed(limit); }
+		public BigDecimal used() { return fromFixed(used.get()); }
+		public BigDecimal available() { return fromFixed(limit - used.get()); }
+		public BigDecimal filled() { return fromFixed(filled.get()); }
+	}
+
+	/** 一笔预占；remaining 为尚未成交、仍处于预占状态的金额 */
+	public static final class Reservation {
+		private final Line provider;
+		private final Line counterparty;
+		private final AtomicLong remaining;
+		private final String rejectReason;
+
+		Reservation(Line provider, Line counterparty, long amount, String rejectReason) {
+			this.provider = provider;
+			this.counterparty = counterparty;
+			this.remaining = new AtomicLong(rejectReason == null ? amount : 0);
+			this.rejectReason = rejectReason;
+		}
+
+		public boolean isGranted() { return rejectReason == null; }
+		public String rejectReason() { return rejectReason; }
+		public BigDecimal remaining() { return fromFixed(remaining.get()); }
+		/** 剩余预占为 0：已释放或已全部成交，resize/tryResize 不会再把它恢复 */
+		public boolean isReleased() { return isGranted() && remaining.get() == 0; }
+
+		/**
+		 * 成交：reservedPortion（按预占价计算的这部分数量的金额）从预占中扣除，
+		 * 额度线按实际成交金额 actualNotional 占用，两者差额计入额度线。
+		 */
+		public void fill(BigDecimal reservedPortion, BigDecimal actualNotional) {
+			if (!isGranted()) return;
+			long want = toFixed(reservedPortion);
+			long taken;
+			for (;;) {
+				long cur = remaining.get();
+				taken = Math.min(cur, want);
+				if (remaining.compareAndSet(cur, cur - taken)) break;
+			}
+			long actual = toFixed(actualNotional);
+			long delta = actual - taken;
+			if (delta != 0) apply(delta);
+			if (provider != null) provider.filled.addAndGet(actual);
+			if (counterparty != null) counterparty.filled.addAndGet(actual);
+		}
+
+		/** 改价已生效：把剩余预占调整为新的剩余金额 */
+		public void resize(BigDecimal newRemaining) {
+			if (!isGranted()) return;
+			long target = toFixed(newRemaining);
+			long prev;
+			for (;;) {
+				prev = remaining.get();
+				if (prev == 0 && target > 0) return; // 已释放的预占不再恢复
+				if (remaining.compareAndSet(prev, target)) break;
+			}
+			if (target != prev) apply(target - prev);
+		}
+
+		/**
+		 * 按新金额调整剩余预占（如在挂报价被新报价替换）：增加部分需通过额度检查，失败时保持原预占不变。
+		 * 与 resize 相同，已释放的预占不再恢复，返回 false（调用方通过 isReleased 区分，另行预占）。
+		 */
+		public boolean tryResize(BigDecimal newRemaining) {
+			if (!isGranted()) return false;
+			long target = toFixed(newRemaining);
+			for (;;) {
+				long prev = remaining.get();
+				if (prev == 0 && target > 0) return false;
+				long delta = target - prev;
+				if (delta > 0) {
+					if (provider != null && !provider.tryReserve(delta)) return false;
+					if (counterparty != null && !counterparty.tryReserve(delta)) {
+						if (provider != null) provider.adjust(-delta);
+						return false;
+					}
+					if (remaining.compareAndSet(prev, target)) return true;
+					apply(-delta); // 并发修改，撤回后重试
+				} else {
+					if (remaining.compareAndSet(prev, target)) {
+						if (delta != 0) apply(delta);
+						return true;
+					}
+				}
+			}
+		}
+
+		/** 释放剩余预占（撤单/拒单/过期/完全成交）；重复调用无副作用 */
+		public void release() {
+			long left = remaining.getAndSet(0);
+			if (left != 0) apply(-left);
+		}
+
+		private void apply(long delta) {
+			if (provider != null) provider.adjust(delta);
+			if (counterparty != null) counterparty.adjust(delta);
+		}
+	}
+
+	private final String limitCurrency;
+	private final Map<String, Line> providers = new ConcurrentHashMap<>();
+	private final Map<String, Line> counterparties = new ConcurrentHashMap<>();
+	private final LongAdder granted = new LongAdder();
+	private final LongAdder refused = new LongAdder();
+
+	public CreditLimitService() { this(DEFAULT_LIMIT_CURRENCY); }
+
+	public CreditLimitService(String limitCurrency) { this.limitCurrency = limitCurrency; }
+
+	/** 所有额度线与预占金额的计价货币 */
+	public String limitCurrency() { return limitCurrency; }
+
+	public void setProviderLimit(String provider, BigDecimal limit) { setLimit(providers, provider, limit); }
+	public void setCounterpartyLimit(String counterparty, BigDecimal limit) { setLimit(counterparties, counterparty, limit); }
+
+	public Line providerLine(String provider) { return provider == null ? null : providers.get(provider); }
+	public Line counterpartyLine(String counterparty) { return counterparty == null ? null : counterparties.get(counterparty); }
+
+	public long granted() { return granted.sum(); }
+	public long refused() { return refused.sum(); }
+
+	/** 预占名义金额；provider/counterparty 为 null 或未设额度时该维度不受限 */
+	public Reservation reserve(String provider, String counterparty, BigDecimal notional) {
+		long amount = toFixed(notional);
+		Line p = providerLine(provider);
+		Line c = counterpartyLine(counterparty);
+		if (p != null && !p.tryReserve(amount)) {
+			refused.increment();
+			return new Reservation(p, c, 0, "provider " + provider + " 额度不足");
+		}
+		if (c != null && !c.tryReserve(amount)) {
+			if (p != null) p.adjust(-amount);
+			refused.increment();
+			return new Reservation(p, c, 0, "counterparty " + counterparty + " 额度不足");
+		}
+		granted.increment();
+		return new Reservation(p, c, amount, null);
+	}
+
+	/** 成交已交割：释放该 provider 额度线上至多 amount 的成交占用，返回实际释放金额 */
+	public BigDecimal settleProvider(String provider, BigDecimal amount) { return settle(providerLine(provider), amount); }
+
+	/** 成交已交割：释放该 counterparty 额度线上至多 amount 的成交占用，返回实际释放金额 */
+	public BigDecimal settleCounterparty(String counterparty, BigDecimal amount) { return settle(counterpartyLine(counterparty), amount); }
+
+	/** 日终滚动：释放所有额度线上的成交占用，在途预占保持不变 */
+	public void rollDay() {
+		for (Line l : providers.values()) l.settle(Long.MAX_VALUE);
+		for (Line l : counterparties.values()) l.settle(Long.MAX_VALUE);
+	}
+
+	private static BigDecimal settle(Line line, BigDecimal amount) {
+		return line == null ? BigDecimal.ZERO : fromFixed(line.settle(toFixed(amount)));
+	}
+
+	private static void setLimit(Map<String, Line> lines, String name, BigDecimal limit) {
+		long fixed = toFixed(limit);
+		lines.computeIfAbsent(name, k -> new Line(k, fixed)).limit = fixed;
+	}
+
+	static long toFixed(BigDecimal v) {
+		return v.setScale(SCALE, RoundingMode.UP).unscaledValue().longValueExact();
+	}
+
+	static BigDecimal fromFixed(long v) {
+		return BigDecimal.valueOf(v, SCALE);
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.trade.demo.domain.fx.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.Function;
+
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+
+/**
+ * 名义金额到额度货币的换算：1 单位 symbol 的 Quote 货币折合多少额度货币（CreditLimitService.limitCurrency）。
+ * - Quote 即额度货币时为 1；Base 为额度货币时按调用方给出的价格折算（1 / px）；
+ * - 否则取额度货币与 Quote 货币交叉盘（如 USDJPY 或 GBPUSD）的盘口中间价，都取不到时返回 null，由调用方拒绝。
+ * 平盘子单与在挂报价共用同一换算，盘口来自 books（通常为 MarketDepthProvider.latest）。
+ */
+public final class CreditRates {
+
+	public static final int SCALE = 10;
+
+	private final Function<FxSymbol, OrderBook> books;
+
+	public CreditRates(Function<FxSymbol, OrderBook> books) {
+		this.books = books;
+	}
+
+	public BigDecimal rate(FxSymbol symbol, BigDecimal px, String ccy) {
+		if (symbol.quote().equals(ccy)) return BigDecimal.ONE;
+		if (symbol.base().equals(ccy)) return BigDecimal.ONE.divide(px, SCALE, RoundingMode.HALF_EVEN);
+		BigDecimal mid = mid(books.apply(new FxSymbol(ccy, symbol.quote())));
+		if (mid != null) return BigDecimal.ONE.divide(mid, SCALE, RoundingMode.HALF_EVEN);
+		return mid(books.apply(new FxSymbol(symbol.quote(), ccy)));
+	}
+
+	/**
+	 * 把 Quote 货币金额换算为额度货币：与 rate 同一路径，但对 1 / px 的情形直接相除，
+	 * 避免先取倒数再相乘的截断误差（150010 JPY / 150.01 恰为 1000 USD）。无法换算时返回 null。
+	 */
+	public BigDecimal convert(FxSymbol symbol, BigDecimal px, BigDecimal quoteAmount, String ccy) {
+		if (symbol.quote().equals(ccy)) return quoteAmount;
+		if (symbol.base().equals(ccy)) return quoteAmount.divide(px, SCALE, RoundingMode.HALF_EVEN);
+		BigDecimal mid = mid(books.apply(new FxSymbol(ccy, symbol.quote())));
+		if (mid != null) return quoteAmount.divide(mid, SCALE, RoundingMode.HALF_EVEN);
+		mid = mid(books.apply(new FxSymbol(symbol.quote(), ccy)));
+		return mid == null ? null : quoteAmount.multiply(mid);
+	}
+
+	private static BigDecimal mid(OrderBook book) {
+		if (book == null) return null;
+		BigDecimal ask = book.asksAsc().isEmpty() ? null : book.asksAsc().get(0).price();
+		BigDecimal bid = book.bidsDesc().isEmpty() ? null : book.bidsDesc().get(0).price();
+		if (ask == null || bid == null) return ask != null ? ask : bid;
+		return ask.add(bid).divide(BigDecimal.valueOf(2), SCALE, RoundingMode.HALF_EVEN);
+	}
+}
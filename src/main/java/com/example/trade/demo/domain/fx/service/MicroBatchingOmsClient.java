@@ -0,0 +1,191 @@
+package com.example.trade.demo.domain.fx.service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.time.Scheduler;
+
+/**
+ * 自适应微批 OMS 装饰器：同一 provider 的子单在 maxDelayMillis 预算内攒批，以 submitAll 一次发出。
+ * - 攒满 maxBatch 立即发送；
+ * - 按 provider 维护到达间隔的指数滑动平均，间隔大于预算（流量稀疏、等待无收益）时不等待直接发送；
+ * - submitAll（平盘服务每个父单一次切片）按 provider 分组，每组计为一次到达，与 submit 走同一攒批判断，
+ *   使相邻父单发往同一 provider 的切片合并成一批；
+ * - 尚在批内未发出的子单被撤单时直接本地回报 CANCELED，不再占用 venue 报文。
+ * 回报按 clientOrderId 路由回各自提交时的回调。关闭时立即发出所有批内子单，之后的提交不再攒批。
+ */
+public final class MicroBatchingOmsClient implements OmsClient, AutoCloseable {
+
+	private static final double EWMA_ALPHA = 0.2;
+
+	private static final class Batch {
+		final List<ChildOrder> pending = new ArrayList<>();
+		boolean flushScheduled;
+		long lastArrivalMillis = -1;
+		double ewmaGapMillis = Double.MAX_VALUE;
+	}
+
+	private final OmsClient venue;
+	private final Scheduler timer;
+	private final Clock clock;
+	private final int maxBatch;
+	private final long maxDelayMillis;
+	private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+	private final Map<String, Consumer<ExecutionReport>> routes = new ConcurrentHashMap<>();
+	private final LongAdder batchesSent = new LongAdder();
+	private final LongAdder ordersSent = new LongAdder();
+	private final LongAdder cancelledBeforeSend = new LongAdder();
+	private volatile boolean closed;
+
+	public MicroBatchingOmsClient(OmsClient venue, Scheduler timer, Clock clock, int maxBatch, long maxDelayMillis) {
+		this.venue = venue; this.timer = timer; this.clock = clock;
+		this.maxBatch = Math.max(1, maxBatch); this.maxDelayMillis = Math.max(0, maxDelayMillis);
+	}
+
+	@Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		routes.put(child.clientOrderId, onReport);
+		enqueue(child.providerId, List.of(child));
+	}
+
+	@Override public void submitAll(List<ChildOrder> children, Consumer<ExecutionReport> onReport) {
+		Map<String, List<ChildOrder>> byProvider = new LinkedHashMap<>();
+		for (ChildOrder c : children) {
+			routes.put(c.clientOrderId, onReport);
+			byProvider.computeIfAbsent(c.providerId, k -> new ArrayList<>()).add(c);
+		}
+		for (Map.Entry<String, List<ChildOrder>> e : byProvider.entrySet()) enqueue(e.getKey(), e.getValue());
+	}
+
+	// 一次到达（单个子单或一组切片）加入 provider 的批：攒满、流量稀疏或已关闭时立即发送，否则等待 linger 预算
+	private void enqueue(String providerId, List<ChildOrder> arrived) {
+		Batch b = batches.computeIfAbsent(providerId, k -> new Batch());
+		List<ChildOrder> ready = null;
+		boolean schedule = false;
+		synchronized (b) {
+			long now = clock.millis();
+			if (b.lastArrivalMillis >= 0) {
+				long gap = now - b.lastArrivalMillis;
+				b.ewmaGapMillis = b.ewmaGapMillis == Double.MAX_VALUE ? gap : (1 - EWMA_ALPHA) * b.ewmaGapMillis + EWMA_ALPHA * gap;
+			}
+			b.lastArrivalMillis = now;
+			b.pending.addAll(arrived);
+			if (closed || b.pending.size() >= maxBatch || b.ewmaGapMillis > maxDelayMillis) {
+				ready = drain(b);
+			} else if (!b.flushScheduled) {
+				b.flushScheduled = true;
+				schedule = true;
+			}
+		}
+		if (ready != null) send(ready);
+		if (schedule) timer.schedule(() -> flush(providerId), maxDelayMillis);
+	}
+
+	@Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		if (removePending(child)) {
+			cancelLocally(child, onReport);
+		} else {
+			venue.cancel(child, releaseOnCancel(onReport));
+		}
+	}
+
+	@Override public void cancelAll(List<ChildOrder> children, Consumer<ExecutionReport> onReport) {
+		List<ChildOrder> atVenue = new ArrayList<>(children.size());
+		for (ChildOrder c : children) {
+			if (removePending(c)) cancelLocally(c, onReport);
+			else atVenue.add(c);
+		}
+		if (!atVenue.isEmpty()) venue.cancelAll(atVenue, releaseOnCancel(onReport));
+	}
+
+	@Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {
+		flush(child.providerId); // 改单前确保原单已发出
+		venue.replace(child, newPx, onReport);
+	}
+
+	/** 立即发出某 provider 批内的全部子单 */
+	public void flush(String providerId) {
+		Batch b = batches.get(providerId);
+		if (b == null) return;
+		List<ChildOrder> ready;
+		synchronized (b) {
+			b.flushScheduled = false;
+			ready = drain(b);
+		}
+		send(ready);
+	}
+
+	/** 发出全部 provider 的批内子单；已调度的 linger 定时器到期时批为空，不再发送 */
+	@Override public void close() {
+		closed = true;
+		for (String providerId : batches.keySet()) flush(providerId);
+	}
+
+	public long batchesSent() { return batchesSent.sum(); }
+	public long ordersSent() { return ordersSent.sum(); }
+	public long cancelledBeforeSend() { return cancelledBeforeSend.sum(); }
+	public double averageBatchSize() {
+		long n = batchesSent.sum();
+		return n == 0 ? 0.0 : (double) ordersSent.sum() / n;
+	}
+
+	private List<ChildOrder> drain(Batch b) {
+		if (b.pending.isEmpty()) return List.of();
+		List<ChildOrder> out = new ArrayList<>(b.pending);
+		b.pending.clear();
+		return out;
+	}
+
+	private void send(List<ChildOrder> ready) {
+		for (int from = 0; from < ready.size(); from += maxBatch) {
+			List<ChildOrder> chunk = ready.subList(from, Math.min(ready.size(), from + maxBatch));
+			batchesSent.increment();
+			ordersSent.add(chunk.size());
+			venue.submitAll(chunk, this::route);
+		}
+	}
+
+	private boolean removePending(ChildOrder child) {
+		Batch b = batches.get(child.providerId);
+		if (b == null) return false;
+		synchronized (b) {
+			return b.pending.remove(child);
+		}
+	}
+
+	private void cancelLocally(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		cancelledBeforeSend.increment();
+		routes.remove(child.clientOrderId);
+		// 与 venue 撤单一致：撤单回报只交给撤单回调
+		onReport.accept(new ExecutionReport(child.clientOrderId, null, OrdStatus.CANCELED,
+				BigDecimal.ZERO, child.price, clock.instant(), "CXL_BEFORE_SEND"));
+	}
+
+	/** venue 撤单成功后释放该子单的回报路由 */
+	private Consumer<ExecutionReport> releaseOnCancel(Consumer<ExecutionReport> onReport) {
+		return rpt -> {
+			if (rpt.ordStatus() == OrdStatus.CANCELED) routes.remove(rpt.clientOrderId());
+			onReport.accept(rpt);
+		};
+	}
+
+	private void route(ExecutionReport rpt) {
+		Consumer<ExecutionReport> cb = routes.get(rpt.clientOrderId());
+		if (cb == null) return;
+		switch (rpt.ordStatus()) {
+			case FILLED, REJECTED, CANCELED, EXPIRED -> routes.remove(rpt.clientOrderId());
+			default -> { }
+		}
+		cb.accept(rpt);
+	}
+}
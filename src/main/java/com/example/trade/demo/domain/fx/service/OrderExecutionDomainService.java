@@ -1,7 +1,9 @@
 package com.example.trade.demo.domain.fx.service;
 
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.Instant;
+import java.util.List;
 import java.util.function.Consumer;
 
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
@@ -16,24 +18,39 @@ public final class OrderExecutionDomainService {
 		void submit(ChildOrder child, Consumer<ExecutionReport> onReport);
 		void cancel(ChildOrder child, Consumer<ExecutionReport> onReport);
 		void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport);
+
+		/** 批量提交；默认逐笔 submit，支持批量报文（如 FIX NewOrderList）的 venue 应覆盖 */
+		default void submitAll(List<ChildOrder> children, Consumer<ExecutionReport> onReport) {
+			for (ChildOrder c : children) submit(c, onReport);
+		}
+
+		/** 批量撤单（同一父单或同一 provider）；默认逐笔 cancel，支持 mass cancel 的 venue 应覆盖 */
+		default void cancelAll(List<ChildOrder> children, Consumer<ExecutionReport> onReport) {
+			for (ChildOrder c : children) cancel(c, onReport);
+		}
 	}
 
 	public static final class InMemoryOms implements OmsClient {
+		private final Clock clock;
+
+		public InMemoryOms() { this(Clock.systemUTC()); }
+		public InMemoryOms(Clock clock) { this.clock = clock; }
+
 		@Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
 			onReport.accept(new ExecutionReport(child.clientOrderId, "VENUE-" + child.clientOrderId, OrdStatus.NEW,
-					BigDecimal.ZERO, child.price, Instant.now(), "ACK"));
+					BigDecimal.ZERO, child.price, clock.instant(), "ACK"));
 			onReport.accept(new ExecutionReport(child.clientOrderId, "VENUE-" + child.clientOrderId, OrdStatus.PARTIALLY_FILLED,
-					child.qtyBase, child.price, Instant.now(), "FILL"));
+					child.qtyBase, child.price, clock.instant(), "FILL"));
 			onReport.accept(new ExecutionReport(child.clientOrderId, "VENUE-" + child.clientOrderId, OrdStatus.FILLED,
-					BigDecimal.ZERO, child.price, Instant.now(), "DONE"));
+					BigDecimal.ZERO, child.price, clock.instant(), "DONE"));
 		}
 		@Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) {
 			onReport.accept(new ExecutionReport(child.clientOrderId, child.venueOrderId, OrdStatus.CANCELED,
-					BigDecimal.ZERO, child.price, Instant.now(), "CXL"));
+					BigDecimal.ZERO, child.price, clock.instant(), "CXL"));
 		}
 		@Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {
 			onReport.accept(new ExecutionReport(child.clientOrderId, child.venueOrderId, OrdStatus.REPLACED,
-					BigDecimal.ZERO, newPx, Instant.now(), "RPL"));
+					BigDecimal.ZERO, newPx, clock.instant(), "RPL"));
 		}
 	}
 }
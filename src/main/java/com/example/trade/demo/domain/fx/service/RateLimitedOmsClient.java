@@ -0,0 +1,207 @@
+package com.example.trade.demo.domain.fx.service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.service.RateLimitPolicy;
+import com.example.trade.demo.domain.service.TokenBucket;
+import com.example.trade.demo.domain.time.Scheduler;
+
+/**
+ * 出站限流 OMS 装饰器：每条发往 venue 的报文（下单、改单、撤单）先从该 provider 的令牌桶、
+ * 以及该 symbol 的令牌桶（如配置）各取一个令牌，避免超过 LP 的报文速率上限被限速或断开。
+ * - 令牌不足时按 RateLimitPolicy 处理：排队（预订令牌，延迟发送）、合并（排队中的改单只保留最新价格）或直接拒绝；
+ *   被拒的下单本地回报 REJECTED（"THROTTLED"），被拒的改单回报子单当前状态（"RPL_THROTTLED"），与 venue 拒绝改单一致；
+ * - 撤单总是排队发送；尚在排队、未发出的子单被撤单时直接本地回报 CANCELED；
+ * - 未配置限额的 provider/symbol 不限流。
+ */
+public final class RateLimitedOmsClient implements OmsClient {
+
+	private record PendingReplace(ChildOrder child, BigDecimal px, Consumer<ExecutionReport> onReport) {}
+
+	private final OmsClient venue;
+	private final Scheduler timer;
+	private final Clock clock;
+	private final RateLimitPolicy policy;
+	private final Map<String, TokenBucket> providerBuckets = new ConcurrentHashMap<>();
+	private final Map<FxSymbol, TokenBucket> symbolBuckets = new ConcurrentHashMap<>();
+	private final Map<String, ChildOrder> queuedSubmits = new ConcurrentHashMap<>();
+	private final Map<String, PendingReplace> queuedReplaces = new ConcurrentHashMap<>();
+	private volatile double defaultSymbolRate;
+	private volatile int defaultSymbolBurst;
+
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder queued = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder cancelledBeforeSend = new LongAdder();
+
+	public RateLimitedOmsClient(OmsClient venue, Scheduler timer, Clock clock, RateLimitPolicy policy) {
+		this.venue = venue; this.timer = timer; this.clock = clock; this.policy = policy;
+	}
+
+	public void setProviderLimit(String providerId, double perSecond, int burst) {
+		providerBuckets.put(providerId, new TokenBucket("provider:" + providerId, perSecond, burst, clock));
+	}
+
+	public void setSymbolLimit(FxSymbol symbol, double perSecond, int burst) {
+		symbolBuckets.put(symbol, new TokenBucket("symbol:" + symbol, perSecond, burst, clock));
+	}
+
+	/** 未单独配置的 symbol 使用的限额；perSecond ≤ 0 表示不限 */
+	public void setDefaultSymbolLimit(double perSecond, int burst) {
+		this.defaultSymbolBurst = burst;
+		this.defaultSymbolRate = perSecond;
+	}
+
+	@Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		long wait = acquire(child, policy.maxWaitNanos());
+		if (wait < 0) rejectSubmit(child, onReport);
+		else if (wait == 0) send(() -> venue.submit(child, onReport));
+		else delaySubmit(child, onReport, wait);
+	}
+
+	@Override public void submitAll(List<ChildOrder> children, Consumer<ExecutionReport> onReport) {
+		List<ChildOrder> now = new ArrayList<>(children.size());
+		for (ChildOrder c : children) {
+			long wait = acquire(c, policy.maxWaitNanos());
+			if (wait < 0) rejectSubmit(c, onReport);
+			else if (wait == 0) now.add(c);
+			else delaySubmit(c, onReport, wait);
+		}
+		if (!now.isEmpty()) {
+			sent.add(now.size());
+			venue.submitAll(now, onReport);
+		}
+	}
+
+	@Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		if (cancelQueued(child, onReport)) return;
+		long wait = acquire(child, Long.MAX_VALUE);
+		if (wait == 0) send(() -> venue.cancel(child, onReport));
+		else delay(wait, () -> send(() -> venue.cancel(child, onReport)));
+	}
+
+	@Override public void cancelAll(List<ChildOrder> children, Consumer<ExecutionReport> onReport) {
+		List<ChildOrder> now = new ArrayList<>(children.size());
+		for (ChildOrder c : children) {
+			if (cancelQueued(c, onReport)) continue;
+			long wait = acquire(c, Long.MAX_VALUE);
+			if (wait == 0) now.add(c);
+			else delay(wait, () -> send(() -> venue.cancel(c, onReport)));
+		}
+		if (!now.isEmpty()) {
+			sent.add(now.size());
+			venue.cancelAll(now, onReport);
+		}
+	}
+
+	@Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {
+		if (queuedSubmits.containsKey(child.clientOrderId)) {
+			// 原单尚未发出：发出时读取子单的最新价格，改单无需占用报文
+			onReport.accept(new ExecutionReport(child.clientOrderId, null, OrdStatus.REPLACED,
+					BigDecimal.ZERO, newPx, clock.instant(), "RPL_BEFORE_SEND"));
+			return;
+		}
+		if (policy.mode() == RateLimitPolicy.Mode.COALESCE) {
+			// 已有改单在排队：换成最新价格，被取代的一笔按未生效应答
+			PendingReplace fresh = new PendingReplace(child, newPx, onReport);
+			PendingReplace[] superseded = new PendingReplace[1];
+			queuedReplaces.computeIfPresent(child.clientOrderId, (k, old) -> {
+				superseded[0] = old;
+				return fresh;
+			});
+			if (superseded[0] != null) {
+				coalesced.increment();
+				superseded[0].onReport().accept(new ExecutionReport(child.clientOrderId, child.venueOrderId, child.status,
+						BigDecimal.ZERO, null, clock.instant(), "RPL_SUPERSEDED"));
+				return;
+			}
+		}
+		long wait = acquire(child, policy.maxWaitNanos());
+		if (wait < 0) {
+			rejected.increment();
+			onReport.accept(new ExecutionReport(child.clientOrderId, child.venueOrderId, child.status,
+					BigDecimal.ZERO, null, clock.instant(), "RPL_THROTTLED"));
+		} else if (wait == 0) {
+			send(() -> venue.replace(child, newPx, onReport));
+		} else if (policy.mode() == RateLimitPolicy.Mode.COALESCE) {
+			queued.increment();
+			queuedReplaces.put(child.clientOrderId, new PendingReplace(child, newPx, onReport));
+			delay(wait, () -> {
+				PendingReplace p = queuedReplaces.remove(child.clientOrderId);
+				if (p != null) send(() -> venue.replace(p.child(), p.px(), p.onReport()));
+			});
+		} else {
+			queued.increment();
+			delay(wait, () -> send(() -> venue.replace(child, newPx, onReport)));
+		}
+	}
+
+	public TokenBucket providerBucket(String providerId) { return providerBuckets.get(providerId); }
+	public TokenBucket symbolBucket(FxSymbol symbol) { return symbolBuckets.get(symbol); }
+
+	/** 已发往 venue 的报文数 */
+	public long sent() { return sent.sum(); }
+	/** 因令牌不足延迟发送的报文数 */
+	public long queued() { return queued.sum(); }
+	/** 因令牌不足被拒的下单/改单数 */
+	public long rejected() { return rejected.sum(); }
+	/** 排队期间被更新改单取代、未发送的改单数 */
+	public long coalesced() { return coalesced.sum(); }
+	public long cancelledBeforeSend() { return cancelledBeforeSend.sum(); }
+	/** 当前排队中尚未发出的下单数 */
+	public int queuedSubmits() { return queuedSubmits.size(); }
+
+	private long acquire(ChildOrder c, long maxWaitNanos) {
+		return TokenBucket.reserveBoth(providerBuckets.get(c.providerId), symbolBucketFor(c.symbol), maxWaitNanos);
+	}
+
+	private TokenBucket symbolBucketFor(FxSymbol symbol) {
+		TokenBucket b = symbolBuckets.get(symbol);
+		if (b != null || defaultSymbolRate <= 0) return b;
+		return symbolBuckets.computeIfAbsent(symbol, k -> new TokenBucket("symbol:" + k, defaultSymbolRate, defaultSymbolBurst, clock));
+	}
+
+	private void rejectSubmit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		rejected.increment();
+		onReport.accept(new ExecutionReport(child.clientOrderId, null, OrdStatus.REJECTED,
+				BigDecimal.ZERO, child.price, clock.instant(), "THROTTLED"));
+	}
+
+	private void delaySubmit(ChildOrder child, Consumer<ExecutionReport> onReport, long waitNanos) {
+		queued.increment();
+		queuedSubmits.put(child.clientOrderId, child);
+		delay(waitNanos, () -> {
+			if (queuedSubmits.remove(child.clientOrderId) != null) send(() -> venue.submit(child, onReport));
+		});
+	}
+
+	private boolean cancelQueued(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		if (queuedSubmits.remove(child.clientOrderId) == null) return false;
+		cancelledBeforeSend.increment();
+		onReport.accept(new ExecutionReport(child.clientOrderId, null, OrdStatus.CANCELED,
+				BigDecimal.ZERO, child.price, clock.instant(), "CXL_BEFORE_SEND"));
+		return true;
+	}
+
+	private void delay(long waitNanos, Runnable task) {
+		timer.schedule(task, (waitNanos + 999_999) / 1_000_000);
+	}
+
+	private void send(Runnable message) {
+		sent.increment();
+		message.run();
+	}
+}
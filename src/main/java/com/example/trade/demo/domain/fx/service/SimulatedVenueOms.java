@@ -0,0 +1,311 @@
+package com.example.trade.demo.domain.fx.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal.Side;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+
+/**
+ * 本地 venue 模拟器，用于压测 FlatOrderApplicationService：
+ * - 按 provider 配置确认/成交/撤单延迟分布（均值 + 均匀抖动）、部分成交概率与拒单概率；
+ * - 回报在模拟器自己的分片线程上异步投递，同一 clientOrderId 固定落在同一分片，保证单笔订单事件有序；
+ * - 成交按当前 OrderBook 中该 provider 在限价以内的可成交量撮合，逐档回报、成交价取所吃档位的价格，
+ *   无流动性时挂单重试，超过次数后 EXPIRED；
+ * - 撤单/改单与成交在分片线程上竞争，成交在先则回报撤单被拒（CXL_REJECT_TOO_LATE）。
+ * 撮合只读取盘口快照，不扣减跨订单共享的流动性。每个分片单线程处理自己的订单状态，无锁。
+ */
+public final class SimulatedVenueOms implements OmsClient, AutoCloseable {
+
+	/** 延迟单位为微秒；jitter 为均匀分布的半宽 */
+	public record VenueProfile(long ackLatencyMicros, long ackJitterMicros,
+							   long fillLatencyMicros, long fillJitterMicros,
+							   long cancelLatencyMicros, double partialFillProbability,
+							   double rejectProbability, int maxRestAttempts) {
+		public static VenueProfile instant() { return new VenueProfile(0, 0, 0, 0, 0, 0.0, 0.0, 0); }
+	}
+
+	private enum Kind { ACK, FILL, CANCEL, REPLACE }
+
+	private static final class SimOrder {
+		final ChildOrder child;
+		final Consumer<ExecutionReport> onReport;
+		final VenueProfile profile;
+		final String venueOrderId;
+		OrdStatus status = OrdStatus.PENDING_NEW;
+		BigDecimal remaining;
+		BigDecimal limitPx;
+		int restAttempts;
+
+		SimOrder(ChildOrder child, Consumer<ExecutionReport> onReport, VenueProfile profile, String venueOrderId) {
+			this.child = child; this.onReport = onReport; this.profile = profile; this.venueOrderId = venueOrderId;
+			this.remaining = child.qtyBase; this.limitPx = child.price;
+		}
+
+		boolean working() {
+			return status == OrdStatus.PENDING_NEW || status == OrdStatus.NEW || status == OrdStatus.PARTIALLY_FILLED;
+		}
+	}
+
+	private record SimEvent(Kind kind, long dueNanos, long seq, long jitterMicros, String clientOrderId,
+							SimOrder order, BigDecimal newPx, Consumer<ExecutionReport> requestCallback) {}
+
+	private final Function<FxSymbol, OrderBook> books;
+	private final Map<String, VenueProfile> profiles;
+	private final VenueProfile defaultProfile;
+	private final Clock clock;
+	private final Shard[] shards;
+
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder filled = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder cancelled = new LongAdder();
+	private final LongAdder cancelRejects = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+
+	public SimulatedVenueOms(Function<FxSymbol, OrderBook> books, Map<String, VenueProfile> profiles,
+							 VenueProfile defaultProfile, Clock clock, int shardCount, long seed) {
+		this.books = books;
+		this.profiles = new ConcurrentHashMap<>(profiles);
+		this.defaultProfile = defaultProfile;
+		this.clock = clock;
+		this.shards = new Shard[Math.max(1, shardCount)];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new Shard(i, seed + i);
+			shards[i].thread.start();
+		}
+	}
+
+	@Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		submitted.increment();
+		VenueProfile p = profiles.getOrDefault(child.providerId, defaultProfile);
+		SimOrder order = new SimOrder(child, onReport, p, "SIM-" + child.clientOrderId);
+		shardOf(child.clientOrderId).enqueue(Kind.ACK, child.clientOrderId, order, null, null,
+				p.ackLatencyMicros(), p.ackJitterMicros());
+	}
+
+	@Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) {
+		VenueProfile p = profiles.getOrDefault(child.providerId, defaultProfile);
+		shardOf(child.clientOrderId).enqueue(Kind.CANCEL, child.clientOrderId, null, null, onReport,
+				p.cancelLatencyMicros(), 0);
+	}
+
+	@Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {
+		VenueProfile p = profiles.getOrDefault(child.providerId, defaultProfile);
+		shardOf(child.clientOrderId).enqueue(Kind.REPLACE, child.clientOrderId, null, newPx, onReport,
+				p.cancelLatencyMicros(), 0);
+	}
+
+	public long submitted() { return submitted.sum(); }
+	public long filled() { return filled.sum(); }
+	public long rejected() { return rejected.sum(); }
+	public long cancelled() { return cancelled.sum(); }
+	public long cancelRejects() { return cancelRejects.sum(); }
+	public long expired() { return expired.sum(); }
+
+	@Override public void close() {
+		for (Shard s : shards) s.running = false;
+		for (Shard s : shards) LockSupport.unpark(s.thread);
+	}
+
+	private Shard shardOf(String clientOrderId) {
+		return shards[Math.floorMod(clientOrderId.hashCode(), shards.length)];
+	}
+
+	private ExecutionReport report(SimOrder o, OrdStatus st, BigDecimal lastQty, BigDecimal lastPx, String reason) {
+		return new ExecutionReport(o.child.clientOrderId, o.venueOrderId, st, lastQty, lastPx, clock.instant(), reason);
+	}
+
+	/** 单线程分片：MPSC 收件箱 + 按到期时间排序的本地事件堆 */
+	private final class Shard implements Runnable {
+		private final ConcurrentLinkedQueue<SimEvent> inbox = new ConcurrentLinkedQueue<>();
+		private final PriorityQueue<SimEvent> due = new PriorityQueue<>(
+				Comparator.comparingLong(SimEvent::dueNanos).thenComparingLong(SimEvent::seq));
+		private final Map<String, SimOrder> orders = new HashMap<>();
+		private final SplittableRandom random;
+		private final Thread thread;
+		private volatile boolean running = true;
+		private long seq;
+
+		Shard(int index, long seed) {
+			this.random = new SplittableRandom(seed);
+			this.thread = new Thread(this, "SimVenue-" + index);
+			this.thread.setDaemon(true);
+		}
+
+		void enqueue(Kind kind, String id, SimOrder order, BigDecimal newPx, Consumer<ExecutionReport> cb,
+					 long latencyMicros, long jitterMicros) {
+			// 抖动在分片线程上用分片自己的随机源采样，此处只记录基准到期时间
+			inbox.add(new SimEvent(kind, System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(latencyMicros),
+					0, jitterMicros, id, order, newPx, cb));
+			LockSupport.unpark(thread);
+		}
+
+		@Override public void run() {
+			while (running) {
+				SimEvent in;
+				while ((in = inbox.poll()) != null) {
+					if (in.kind() == Kind.ACK) orders.put(in.clientOrderId(), in.order());
+					due.add(new SimEvent(in.kind(), in.dueNanos() + jitterNanos(in.jitterMicros()), seq++, 0,
+							in.clientOrderId(), in.order(), in.newPx(), in.requestCallback()));
+				}
+				long now = System.nanoTime();
+				SimEvent e;
+				while ((e = due.peek()) != null && e.dueNanos() <= now) {
+					due.poll();
+					process(e);
+				}
+				e = due.peek();
+				if (inbox.isEmpty()) {
+					LockSupport.parkNanos(e == null ? 1_000_000L : Math.min(e.dueNanos() - now, 50_000L));
+				}
+			}
+		}
+
+		private void process(SimEvent e) {
+			switch (e.kind()) {
+				case ACK -> onAck(e.order());
+				case FILL -> onFill(e.order());
+				case CANCEL -> onCancel(e);
+				case REPLACE -> onReplace(e);
+			}
+		}
+
+		private void onAck(SimOrder o) {
+			if (o.status != OrdStatus.PENDING_NEW) return; // 确认前已被撤单
+			if (random.nextDouble() < o.profile.rejectProbability()) {
+				o.status = OrdStatus.REJECTED;
+				orders.remove(o.child.clientOrderId);
+				rejected.increment();
+				o.onReport.accept(report(o, OrdStatus.REJECTED, BigDecimal.ZERO, o.limitPx, "REJECT"));
+				return;
+			}
+			o.status = OrdStatus.NEW;
+			o.onReport.accept(report(o, OrdStatus.NEW, BigDecimal.ZERO, o.limitPx, "ACK"));
+			scheduleFill(o);
+		}
+
+		private long jitterNanos(long jitterMicros) {
+			return jitterMicros > 0 ? TimeUnit.MICROSECONDS.toNanos(random.nextLong(-jitterMicros, jitterMicros + 1)) : 0;
+		}
+
+		private void scheduleFill(SimOrder o) {
+			long dueNanos = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(o.profile.fillLatencyMicros())
+					+ jitterNanos(o.profile.fillJitterMicros());
+			due.add(new SimEvent(Kind.FILL, dueNanos, seq++, 0, o.child.clientOrderId, o, null, null));
+		}
+
+		private void onFill(SimOrder o) {
+			if (o.status != OrdStatus.NEW && o.status != OrdStatus.PARTIALLY_FILLED) return;
+			OrderBook book = books.apply(o.child.symbol);
+			BigDecimal available = availableQty(o, book);
+			if (available.signum() <= 0) {
+				if (++o.restAttempts > o.profile.maxRestAttempts()) {
+					o.status = OrdStatus.EXPIRED;
+					orders.remove(o.child.clientOrderId);
+					expired.increment();
+					o.onReport.accept(report(o, OrdStatus.EXPIRED, BigDecimal.ZERO, o.limitPx, "NO_LIQUIDITY"));
+				} else {
+					scheduleFill(o);
+				}
+				return;
+			}
+			BigDecimal qty = o.remaining.min(available);
+			if (random.nextDouble() < o.profile.partialFillProbability()) {
+				BigDecimal part = qty.multiply(BigDecimal.valueOf(0.3 + 0.4 * random.nextDouble()))
+						.setScale(o.remaining.scale(), RoundingMode.DOWN);
+				if (part.signum() > 0) qty = part;
+			}
+			// 从最优档起逐档吃单，每档一条回报，成交价为该档价格（可能优于限价）
+			boolean buy = o.child.side == Side.BUY;
+			for (PriceLevel lvl : buy ? book.asksAsc() : book.bidsDesc()) {
+				if (qty.signum() <= 0 || !withinLimit(o, lvl.price())) break;
+				BigDecimal atLevel = providerQty(lvl, o.child.providerId);
+				if (atLevel.signum() <= 0) continue;
+				BigDecimal take = qty.min(atLevel);
+				qty = qty.subtract(take);
+				o.remaining = o.remaining.subtract(take);
+				if (o.remaining.signum() <= 0) {
+					o.status = OrdStatus.FILLED;
+					orders.remove(o.child.clientOrderId);
+					filled.increment();
+					o.onReport.accept(report(o, OrdStatus.FILLED, take, lvl.price(), "FILL"));
+					return;
+				}
+				o.status = OrdStatus.PARTIALLY_FILLED;
+				o.onReport.accept(report(o, OrdStatus.PARTIALLY_FILLED, take, lvl.price(), "PARTIAL"));
+			}
+			scheduleFill(o);
+		}
+
+		/** 该 provider 在限价以内（买：卖盘 <= 限价；卖：买盘 >= 限价）的可成交量 */
+		private BigDecimal availableQty(SimOrder o, OrderBook book) {
+			if (book == null) return BigDecimal.ZERO;
+			BigDecimal sum = BigDecimal.ZERO;
+			for (PriceLevel lvl : o.child.side == Side.BUY ? book.asksAsc() : book.bidsDesc()) {
+				if (!withinLimit(o, lvl.price())) break;
+				sum = sum.add(providerQty(lvl, o.child.providerId));
+			}
+			return sum;
+		}
+
+		private boolean withinLimit(SimOrder o, BigDecimal px) {
+			int cmp = px.compareTo(o.limitPx);
+			return o.child.side == Side.BUY ? cmp <= 0 : cmp >= 0;
+		}
+
+		private BigDecimal providerQty(PriceLevel lvl, String providerId) {
+			BigDecimal sum = BigDecimal.ZERO;
+			for (ProviderDepth pd : lvl.providers()) {
+				if (pd.providerId().equals(providerId)) sum = sum.add(pd.baseQty());
+			}
+			return sum;
+		}
+
+		private void onCancel(SimEvent e) {
+			SimOrder o = orders.get(e.clientOrderId());
+			if (o == null || !o.working()) {
+				cancelRejects.increment();
+				e.requestCallback().accept(new ExecutionReport(e.clientOrderId(), o == null ? null : o.venueOrderId,
+						o == null ? OrdStatus.REJECTED : o.status, BigDecimal.ZERO, null, clock.instant(), "CXL_REJECT_TOO_LATE"));
+				return;
+			}
+			o.status = OrdStatus.CANCELED;
+			orders.remove(e.clientOrderId());
+			cancelled.increment();
+			e.requestCallback().accept(report(o, OrdStatus.CANCELED, BigDecimal.ZERO, o.limitPx, "CXL"));
+		}
+
+		private void onReplace(SimEvent e) {
+			SimOrder o = orders.get(e.clientOrderId());
+			if (o == null || !o.working()) {
+				e.requestCallback().accept(new ExecutionReport(e.clientOrderId(), o == null ? null : o.venueOrderId,
+						o == null ? OrdStatus.REJECTED : o.status, BigDecimal.ZERO, null, clock.instant(), "RPL_REJECT_TOO_LATE"));
+				return;
+			}
+			o.limitPx = e.newPx();
+			o.restAttempts = 0;
+			e.requestCallback().accept(report(o, OrdStatus.REPLACED, BigDecimal.ZERO, o.limitPx, "RPL"));
+		}
+	}
+}
@@ -3,8 +3,11 @@ package com.example.trade.demo.domain.fx.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
 import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
@@ -16,11 +19,25 @@ import com.example.trade.demo.domain.fx.valueobject.VwapParams;
 import com.example.trade.demo.domain.fx.valueobject.VwapParams.ExecutionIntent;
 import com.example.trade.demo.domain.fx.valueobject.VwapParams.TargetType;
 import com.example.trade.demo.domain.fx.valueobject.FlatSignal.Side;
+import com.example.trade.demo.domain.jfr.VwapSplitEvent;
 
 /** 移植自 FxVwapStrategy：BUY/SELL × BASE/QUOTE 四种组合逻辑 */
 public final class VwapSplittingDomainService {
 
+	private final Supplier<String> clientOrderIds;
+
+	public VwapSplittingDomainService() {
+		this(() -> UUID.randomUUID().toString());
+	}
+
+	/** 可注入子单 ID 生成器（回测中使用确定性序列） */
+	public VwapSplittingDomainService(Supplier<String> clientOrderIds) {
+		this.clientOrderIds = clientOrderIds;
+	}
+
 	public List<ChildOrder> split(FxSymbol s, Side side, VwapParams p, OrderBook book, FxSymbolRule r) {
+		VwapSplitEvent jfr = new VwapSplitEvent();
+		jfr.begin();
 		List<ChildOrder> out = new ArrayList<>();
 		switch (side) {
 			case BUY -> {
@@ -44,9 +61,28 @@ public final class VwapSplittingDomainService {
 				}
 			}
 		}
+		commit(jfr, s, side, p, out);
 		return out;
 	}
 
+	private static void commit(VwapSplitEvent jfr, FxSymbol s, Side side, VwapParams p, List<ChildOrder> out) {
+		if (!jfr.shouldCommit()) return;
+		Set<BigDecimal> levels = new HashSet<>();
+		Set<String> providers = new HashSet<>();
+		for (ChildOrder c : out) {
+			levels.add(c.price);
+			providers.add(c.providerId);
+		}
+		jfr.symbol = s.toString();
+		jfr.side = side.name();
+		jfr.targetType = p.targetType().name();
+		jfr.target = p.targetValue().doubleValue();
+		jfr.childCount = out.size();
+		jfr.levelsConsumed = levels.size();
+		jfr.providers = providers.size();
+		jfr.commit();
+	}
+
 	private void fillByBaseTarget(List<ChildOrder> out, FxSymbol s, Side side, BigDecimal baseTarget,
 							   List<PriceLevel> levels, FxSymbolRule r, boolean isAsk) {
 		BigDecimal remain = baseTarget;
@@ -56,7 +92,7 @@ public final class VwapSplittingDomainService {
 				if (remain.signum() <= 0) break;
 				BigDecimal takeBase = pd.baseQty().min(remain).max(BigDecimal.ZERO);
 				if (takeBase.signum() <= 0) continue;
-				out.add(new ChildOrder(UUID.randomUUID().toString(), s, side, px,
+				out.add(new ChildOrder(clientOrderIds.get(), s, side, px,
 						scaleQty(takeBase, r), pd.providerId()));
 				remain = remain.subtract(takeBase);
 			}
@@ -75,7 +111,7 @@ public final class VwapSplittingDomainService {
 				BigDecimal takeQuote = quoteAvail.min(qRemain).max(BigDecimal.ZERO);
 				if (takeQuote.signum() <= 0) continue;
 				BigDecimal takeBase = safeDiv(takeQuote, px, r.baseQtyScale());
-				out.add(new ChildOrder(UUID.randomUUID().toString(), s, side, px,
+				out.add(new ChildOrder(clientOrderIds.get(), s, side, px,
 						scaleQty(takeBase, r), pd.providerId()));
 				qRemain = qRemain.subtract(takeQuote);
 			}
@@ -94,7 +130,7 @@ public final class VwapSplittingDomainService {
 				BigDecimal takeQuote = quoteAvail.min(qRemain).max(BigDecimal.ZERO);
 				if (takeQuote.signum() <= 0) continue;
 				BigDecimal takeBase = safeDiv(takeQuote, px, r.baseQtyScale());
-				out.add(new ChildOrder(UUID.randomUUID().toString(), s, side, px,
+				out.add(new ChildOrder(clientOrderIds.get(), s, side, px,
 						scaleQty(takeBase, r), pd.providerId()));
 				qRemain = qRemain.subtract(takeQuote);
 			}
@@ -0,0 +1,18 @@
+package com.example.trade.demo.domain.fx.valueobject;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * 平盘信号轧差策略：
+ * - window：同一 symbol 第一笔待轧差信号到达后等待的时长，到期时把累积的净额发往市场；ZERO 表示不轧差、逐笔直发；
+ * - flushAtNetBase：累积净额（Base）达到该值时不等窗口到期立即发出；null 表示只看窗口；
+ * - maxSignals：单个批次最多累积的信号数，达到后立即发出。
+ */
+public record NettingPolicy(Duration window, BigDecimal flushAtNetBase, int maxSignals) {
+	public static NettingPolicy off() { return new NettingPolicy(Duration.ZERO, null, 1); }
+
+	public static NettingPolicy window(Duration window) { return new NettingPolicy(window, null, Integer.MAX_VALUE); }
+
+	public boolean enabled() { return window.toMillis() > 0; }
+}
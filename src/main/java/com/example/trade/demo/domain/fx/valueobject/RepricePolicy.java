@@ -0,0 +1,15 @@
+package com.example.trade.demo.domain.fx.valueobject;
+
+import java.time.Duration;
+
+/**
+ * 改单重定价策略：
+ * - thresholdTicks：盘口相对子单限价移动超过该 tick 数时，通过 replace 原地改价；<=0 表示关闭；
+ * - restTimeout：子单已确认但在该时长内未完全成交时，按最新盘口改价（而不是撤单）；ZERO 表示不检查。
+ * 两种改价都不超出父单的 slippageBuffer：买单不高于拆单限价 + buffer，卖单不低于拆单限价 - buffer。
+ */
+public record RepricePolicy(int thresholdTicks, Duration restTimeout) {
+	public static RepricePolicy off() { return new RepricePolicy(0, Duration.ZERO); }
+
+	public boolean enabled() { return thresholdTicks > 0; }
+}
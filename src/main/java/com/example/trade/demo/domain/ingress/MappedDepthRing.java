@@ -0,0 +1,113 @@
+package com.example.trade.demo.domain.ingress;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射文件的单生产者/单消费者深度行情环形缓冲区，供独立的 feed-handler 进程写入、报价进程读取。
+ * 文件布局（本机字节序）：
+ *   [0, 64)    头部：magic、版本、容量、每侧最大档位、价格小数位、槽位大小
+ *   [64, 72)   tail：生产者下一个写入的序号（单独占一条缓存行）
+ *   [128, 136) head：消费者下一个读取的序号（单独占一条缓存行）
+ *   [192, ...) 槽位：receivedNanos、symbol/provider 名称（ASCII，各最多 32 字节）、各侧档位数、定点价格/数量
+ * head/tail 存放在文件中，任一侧进程重启后从上次位置继续；跨进程可见性依靠 VarHandle 的 release/acquire 语义。
+ */
+public final class MappedDepthRing {
+
+    static final int MAGIC = 0x4D445247; // "MDRG"
+    static final int VERSION = 1;
+    static final int TAIL_OFFSET = 64;
+    static final int HEAD_OFFSET = 128;
+    static final int HEADER_SIZE = 192;
+    static final int MAX_NAME_BYTES = 32;
+
+    // 槽位内偏移
+    static final int SLOT_NANOS = 0;
+    static final int SLOT_SYMBOL_LEN = 8;
+    static final int SLOT_PROVIDER_LEN = 10;
+    static final int SLOT_ASK_COUNT = 12;
+    static final int SLOT_BID_COUNT = 14;
+    static final int SLOT_SYMBOL = 16;
+    static final int SLOT_PROVIDER = SLOT_SYMBOL + MAX_NAME_BYTES;
+    static final int SLOT_LEVELS = SLOT_PROVIDER + MAX_NAME_BYTES;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    final MappedByteBuffer buffer;
+    final int capacity;
+    final int mask;
+    final int maxLevels;
+    final int priceScale;
+    final int slotSize;
+
+    private MappedDepthRing(MappedByteBuffer buffer, int capacity, int maxLevels, int priceScale, int slotSize) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxLevels = maxLevels;
+        this.priceScale = priceScale;
+        this.slotSize = slotSize;
+    }
+
+    /**
+     * 打开环形缓冲区文件；文件不存在时按给定参数创建，已存在时校验 magic/版本并沿用文件中的参数。
+     */
+    public static MappedDepthRing open(Path file, int capacityPowerOfTwo, int maxLevels, int priceScale) throws IOException {
+        if (Integer.bitCount(capacityPowerOfTwo) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacityPowerOfTwo);
+        }
+        boolean exists = Files.exists(file) && Files.size(file) >= HEADER_SIZE;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (exists) {
+                MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                header.order(ByteOrder.nativeOrder());
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("not a depth ring file: " + file);
+                }
+                int capacity = header.getInt(8);
+                int levels = header.getInt(12);
+                int scale = header.getInt(16);
+                int slotSize = header.getInt(20);
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * slotSize);
+                buf.order(ByteOrder.nativeOrder());
+                return new MappedDepthRing(buf, capacity, levels, scale, slotSize);
+            }
+            int slotSize = alignTo64(SLOT_LEVELS + 4 * 8 * maxLevels);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacityPowerOfTwo * slotSize);
+            buf.order(ByteOrder.nativeOrder());
+            buf.putInt(8, capacityPowerOfTwo).putInt(12, maxLevels).putInt(16, priceScale).putInt(20, slotSize);
+            LONGS.setRelease(buf, TAIL_OFFSET, 0L);
+            LONGS.setRelease(buf, HEAD_OFFSET, 0L);
+            buf.putInt(4, VERSION);
+            buf.putInt(0, MAGIC); // 最后写 magic，读者看到 magic 即表示头部已完整
+            return new MappedDepthRing(buf, capacityPowerOfTwo, maxLevels, priceScale, slotSize);
+        }
+    }
+
+    public int capacity() { return capacity; }
+    public int maxLevels() { return maxLevels; }
+    public int priceScale() { return priceScale; }
+
+    // 已发布未消费的事件数
+    public long backlog() { return tail() - head(); }
+
+    long tail() { return (long) LONGS.getAcquire(buffer, TAIL_OFFSET); }
+    long head() { return (long) LONGS.getAcquire(buffer, HEAD_OFFSET); }
+    void publishTail(long seq) { LONGS.setRelease(buffer, TAIL_OFFSET, seq); }
+    void publishHead(long seq) { LONGS.setRelease(buffer, HEAD_OFFSET, seq); }
+
+    int slotOffset(long seq) { return HEADER_SIZE + (int) (seq & mask) * slotSize; }
+    int askPxOffset(int slot, int i) { return slot + SLOT_LEVELS + 8 * i; }
+    int askQtyOffset(int slot, int i) { return slot + SLOT_LEVELS + 8 * (maxLevels + i); }
+    int bidPxOffset(int slot, int i) { return slot + SLOT_LEVELS + 8 * (2 * maxLevels + i); }
+    int bidQtyOffset(int slot, int i) { return slot + SLOT_LEVELS + 8 * (3 * maxLevels + i); }
+
+    private static int alignTo64(int n) { return (n + 63) & ~63; }
+}
@@ -0,0 +1,81 @@
+package com.example.trade.demo.domain.ingress;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MutableMarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.service.QuoteService;
+
+/**
+ * 共享内存行情接入线程：轮询 MappedRingReader，空闲时先自旋再短暂 park，
+ * 把事件交给零分配流水线或（经转换）QuoteService。
+ */
+public final class MappedRingIngress implements Runnable, AutoCloseable {
+
+    private static final int SPIN_BEFORE_PARK = 1_000;
+    private static final long PARK_NANOS = 50_000L;
+
+    private final MappedRingReader reader;
+    private final Consumer<MutableMarketDataEvent> handler;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public MappedRingIngress(MappedRingReader reader, Consumer<MutableMarketDataEvent> handler) {
+        this.reader = reader;
+        this.handler = handler;
+        this.thread = new Thread(this, "MappedRingIngress");
+        this.thread.setDaemon(true);
+    }
+
+    public MappedRingIngress start() {
+        thread.start();
+        return this;
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        while (running) {
+            if (reader.drain(handler) > 0) {
+                idle = 0;
+            } else if (++idle > SPIN_BEFORE_PARK) {
+                LockSupport.parkNanos(PARK_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 把定点事件转换为 QuoteService 的行情事件；注册表 ID 原样携带，reader 须使用 QuoteService 的注册表。
+     */
+    public static Consumer<MutableMarketDataEvent> toQuoteService(QuoteService quoteService, int priceScale) {
+        return e -> {
+            List<OrderBookLevel> asks = new ArrayList<>(e.getAskCount());
+            for (int i = 0; i < e.getAskCount(); i++) {
+                asks.add(new OrderBookLevel(BigDecimal.valueOf(e.askPx(i), priceScale), BigDecimal.valueOf(e.askQty(i))));
+            }
+            List<OrderBookLevel> bids = new ArrayList<>(e.getBidCount());
+            for (int i = 0; i < e.getBidCount(); i++) {
+                bids.add(new OrderBookLevel(BigDecimal.valueOf(e.bidPx(i), priceScale), BigDecimal.valueOf(e.bidQty(i))));
+            }
+            quoteService.onMarketData(new MarketDataEvent(quoteService.getRegistry(), e.getSymbolId(), e.getProviderId(),
+                    asks, bids, e.getReceivedNanos()));
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.trade.demo.domain.ingress;
+
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MutableMarketDataEvent;
+
+/**
+ * 消费者端（报价进程）：直接从映射内存解码到复用的 MutableMarketDataEvent，不经过中间字节数组，也不产生系统调用。
+ * symbol/provider 名称按字节在本地缓存中匹配并解析为注册表 ID，已见过的名称不再分配字符串。
+ * 只允许一个线程读取；事件对象只在回调期间有效。
+ */
+public final class MappedRingReader {
+
+    private final MappedDepthRing ring;
+    private final MappedByteBuffer buf;
+    private final InstrumentRegistry registry;
+    private final MutableMarketDataEvent event;
+    private final NameCache symbols = new NameCache();
+    private final NameCache providers = new NameCache();
+    private long head;
+
+    public MappedRingReader(MappedDepthRing ring, InstrumentRegistry registry) {
+        this.ring = ring;
+        this.buf = ring.buffer;
+        this.registry = registry;
+        this.event = new MutableMarketDataEvent(ring.maxLevels);
+        this.head = ring.head();
+    }
+
+    // 处理当前已发布的全部事件，返回处理条数
+    public int drain(Consumer<MutableMarketDataEvent> handler) {
+        long tail = ring.tail();
+        int n = 0;
+        while (head < tail) {
+            int slot = ring.slotOffset(head);
+            int symbolId = symbols.resolve(buf, slot + MappedDepthRing.SLOT_SYMBOL,
+                    buf.getShort(slot + MappedDepthRing.SLOT_SYMBOL_LEN), registry, true);
+            int providerId = providers.resolve(buf, slot + MappedDepthRing.SLOT_PROVIDER,
+                    buf.getShort(slot + MappedDepthRing.SLOT_PROVIDER_LEN), registry, false);
+            event.reset(registry, symbolId, providerId, buf.getLong(slot + MappedDepthRing.SLOT_NANOS));
+            int asks = buf.getShort(slot + MappedDepthRing.SLOT_ASK_COUNT);
+            for (int i = 0; i < asks; i++) {
+                event.addAsk(buf.getLong(ring.askPxOffset(slot, i)), buf.getLong(ring.askQtyOffset(slot, i)));
+            }
+            int bids = buf.getShort(slot + MappedDepthRing.SLOT_BID_COUNT);
+            for (int i = 0; i < bids; i++) {
+                event.addBid(buf.getLong(ring.bidPxOffset(slot, i)), buf.getLong(ring.bidQtyOffset(slot, i)));
+            }
+            handler.accept(event);
+            head++;
+            n++;
+        }
+        if (n > 0) ring.publishHead(head); // 批量归还槽位
+        return n;
+    }
+
+    // 开放寻址的名称缓存：按映射内存中的字节直接比较，命中时不分配
+    private static final class NameCache {
+        private byte[][] keys = new byte[64][];
+        private int[] ids = new int[64];
+        private int size;
+
+        int resolve(MappedByteBuffer buf, int offset, int len, InstrumentRegistry registry, boolean symbol) {
+            int h = 1;
+            for (int i = 0; i < len; i++) h = 31 * h + buf.get(offset + i);
+            int mask = keys.length - 1;
+            for (int idx = h & mask; ; idx = (idx + 1) & mask) {
+                byte[] k = keys[idx];
+                if (k == null) break;
+                if (matches(k, buf, offset, len)) return ids[idx];
+            }
+            byte[] name = new byte[len];
+            buf.get(offset, name);
+            String s = new String(name, StandardCharsets.US_ASCII);
+            int id = symbol ? registry.symbolId(s) : registry.providerId(s);
+            if (++size * 2 > keys.length) grow();
+            insert(name, id, h);
+            return id;
+        }
+
+        private static boolean matches(byte[] k, MappedByteBuffer buf, int offset, int len) {
+            if (k.length != len) return false;
+            for (int i = 0; i < len; i++) {
+                if (k[i] != buf.get(offset + i)) return false;
+            }
+            return true;
+        }
+
+        private void insert(byte[] key, int id, int h) {
+            int mask = keys.length - 1;
+            int idx = h & mask;
+            while (keys[idx] != null) idx = (idx + 1) & mask;
+            keys[idx] = key;
+            ids[idx] = id;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new byte[oldKeys.length * 2][];
+            ids = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int h = 1;
+                for (byte b : oldKeys[i]) h = 31 * h + b;
+                insert(oldKeys[i], oldIds[i], h);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.trade.demo.domain.ingress;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * 生产者端（feed-handler 进程）：把解码后的定点深度写入下一个槽位并发布。
+ * 只允许一个线程写入；缓冲区满时 publish 返回 false，由调用方决定丢弃或重试。
+ * symbol / provider 名称必须是不超过 32 字节的 ASCII，否则抛 IllegalArgumentException，不会静默截断或替换字符。
+ */
+public final class MappedRingWriter {
+
+    private final MappedDepthRing ring;
+    private final MappedByteBuffer buf;
+    private long tail;
+    private long cachedHead;
+
+    public MappedRingWriter(MappedDepthRing ring) {
+        this.ring = ring;
+        this.buf = ring.buffer;
+        this.tail = ring.tail();
+        this.cachedHead = ring.head();
+    }
+
+    public boolean publish(String symbol, String provider, long receivedNanos,
+                           long[] askPx, long[] askQty, int askCount,
+                           long[] bidPx, long[] bidQty, int bidCount) {
+        checkName("symbol", symbol);
+        checkName("provider", provider);
+        if (tail - cachedHead >= ring.capacity) {
+            cachedHead = ring.head(); // 只在看似已满时才读取消费者位置
+            if (tail - cachedHead >= ring.capacity) return false;
+        }
+        int slot = ring.slotOffset(tail);
+        int asks = Math.min(askCount, ring.maxLevels);
+        int bids = Math.min(bidCount, ring.maxLevels);
+        buf.putLong(slot + MappedDepthRing.SLOT_NANOS, receivedNanos);
+        buf.putShort(slot + MappedDepthRing.SLOT_SYMBOL_LEN, (short) putName(slot + MappedDepthRing.SLOT_SYMBOL, symbol));
+        buf.putShort(slot + MappedDepthRing.SLOT_PROVIDER_LEN, (short) putName(slot + MappedDepthRing.SLOT_PROVIDER, provider));
+        buf.putShort(slot + MappedDepthRing.SLOT_ASK_COUNT, (short) asks);
+        buf.putShort(slot + MappedDepthRing.SLOT_BID_COUNT, (short) bids);
+        for (int i = 0; i < asks; i++) {
+            buf.putLong(ring.askPxOffset(slot, i), askPx[i]);
+            buf.putLong(ring.askQtyOffset(slot, i), askQty[i]);
+        }
+        for (int i = 0; i < bids; i++) {
+            buf.putLong(ring.bidPxOffset(slot, i), bidPx[i]);
+            buf.putLong(ring.bidQtyOffset(slot, i), bidQty[i]);
+        }
+        ring.publishTail(++tail);
+        return true;
+    }
+
+    // 截断或替换字符后读端会把行情归到另一个 symbol / provider 上，所以写入前先整体校验
+    private static void checkName(String field, String name) {
+        if (name.length() > MappedDepthRing.MAX_NAME_BYTES) {
+            throw new IllegalArgumentException(field + " 超过 " + MappedDepthRing.MAX_NAME_BYTES + " 字节: " + name);
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80) throw new IllegalArgumentException(field + " 只支持 ASCII: " + name);
+        }
+    }
+
+    // 名称已通过 checkName，按 ASCII 逐字节写入
+    private int putName(int offset, String name) {
+        int len = name.length();
+        for (int i = 0; i < len; i++) buf.put(offset + i, (byte) name.charAt(i));
+        return len;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.trade.demo.domain.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 平盘子单回报处理（FlatOrderApplicationService.onReport），事件时长为处理耗时（含仓储更新与事件分发） */
+@Name("com.example.trade.FlatOrderReport")
+@Label("Flat Order Report")
+@Category({"Trade", "Flat"})
+@Description("处理一条子单执行回报")
+@Enabled(false)
+@StackTrace(false)
+public final class FlatOrderReportEvent extends Event {
+
+    @Label("Flat Order Id")
+    public String flatOrderId;
+
+    @Label("Client Order Id")
+    public String clientOrderId;
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Order Status")
+    public String ordStatus;
+
+    @Label("Last Qty")
+    public double lastQty;
+
+    @Label("Last Price")
+    public double lastPx;
+
+    @Label("Parent Finished")
+    @Description("该回报使父单完成")
+    public boolean parentFinished;
+}
@@ -0,0 +1,31 @@
+package com.example.trade.demo.domain.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 平盘超时处理：ACK（子单未确认）、REST（挂单过久）、PARENT（父单超时），事件时长为处理耗时 */
+@Name("com.example.trade.FlatOrderTimeout")
+@Label("Flat Order Timeout")
+@Category({"Trade", "Flat"})
+@Description("平盘父单/子单超时处理，acted 表示触发了撤单或改价")
+@Enabled(false)
+@StackTrace(false)
+public final class FlatOrderTimeoutEvent extends Event {
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Flat Order Id")
+    public String flatOrderId;
+
+    @Label("Client Order Id")
+    public String clientOrderId;
+
+    @Label("Acted")
+    public boolean acted;
+}
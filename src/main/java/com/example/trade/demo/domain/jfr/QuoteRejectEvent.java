@@ -0,0 +1,47 @@
+package com.example.trade.demo.domain.jfr;
+
+import java.math.BigDecimal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 报价在执行器被拒（风控、限速或额度），瞬时事件 */
+@Name("com.example.trade.QuoteReject")
+@Label("Quote Reject")
+@Category({"Trade", "Quote"})
+@Description("QuoteExecutor 拒绝报价：check 为 RISK / RATE_LIMIT / CREDIT")
+@Enabled(false)
+@StackTrace(false)
+public final class QuoteRejectEvent extends Event {
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Check")
+    public String check;
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Bid")
+    public double bid;
+
+    @Label("Ask")
+    public double ask;
+
+    public static void emit(String symbol, String check, String reason, BigDecimal bid, BigDecimal ask) {
+        QuoteRejectEvent e = new QuoteRejectEvent();
+        if (!e.shouldCommit()) return;
+        e.symbol = symbol;
+        e.check = check;
+        e.reason = reason;
+        e.bid = bid == null ? Double.NaN : bid.doubleValue();
+        e.ask = ask == null ? Double.NaN : ask.doubleValue();
+        e.commit();
+    }
+}
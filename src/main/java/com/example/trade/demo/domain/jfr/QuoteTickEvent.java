@@ -0,0 +1,68 @@
+package com.example.trade.demo.domain.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 一次 QuoteService.onMarketData：事件时长为整个 tick 的处理时间，各阶段耗时记为字段。
+ * 默认关闭，由 trade.jfc 开启；关闭时 begin/commit 为空操作，lap() 不读时钟。
+ */
+@Name("com.example.trade.QuoteTick")
+@Label("Quote Tick")
+@Category({"Trade", "Quote"})
+@Description("QuoteService.onMarketData：深度聚合、策略、执行各阶段耗时")
+@Enabled(false)
+@StackTrace(false)
+public final class QuoteTickEvent extends Event {
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Top Changed")
+    @Description("策略关心的前 N 档是否变化；未变化时跳过策略")
+    public boolean topChanged;
+
+    @Label("Quoted")
+    public boolean quoted;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Aggregate")
+    @Timespan
+    public long aggregateNanos;
+
+    @Label("Strategy")
+    @Timespan
+    public long strategyNanos;
+
+    @Label("Execute")
+    @Timespan
+    public long executeNanos;
+
+    private transient long mark;
+
+    /** 开始计时（同时开始第一个阶段） */
+    public void start() {
+        begin();
+        if (isEnabled()) mark = System.nanoTime();
+    }
+
+    /** 距上一次 lap/start 的纳秒数；事件未开启时返回 0 */
+    public long lap() {
+        if (!isEnabled()) return 0;
+        long now = System.nanoTime();
+        long elapsed = now - mark;
+        mark = now;
+        return elapsed;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.trade.demo.domain.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 一次策略决策（QuoteStrategy.decideQuote），事件时长为策略计算耗时 */
+@Name("com.example.trade.StrategyDecision")
+@Label("Strategy Decision")
+@Category({"Trade", "Quote"})
+@Description("策略根据聚合深度生成（或放弃）报价指令")
+@Enabled(false)
+@StackTrace(false)
+public final class StrategyDecisionEvent extends Event {
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Produced")
+    @Description("是否生成了报价指令")
+    public boolean produced;
+
+    @Label("Quote Type")
+    public String quoteType;
+
+    @Label("Bid")
+    public double bid;
+
+    @Label("Ask")
+    public double ask;
+
+    @Label("Size")
+    public double size;
+}
@@ -0,0 +1,40 @@
+package com.example.trade.demo.domain.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 一次 VWAP 拆单（VwapSplittingDomainService.split），事件时长为拆单耗时 */
+@Name("com.example.trade.VwapSplit")
+@Label("VWAP Split")
+@Category({"Trade", "Flat"})
+@Description("按盘口把平盘目标拆成子单：子单数、吃掉的价格档数、涉及的 provider 数")
+@Enabled(false)
+@StackTrace(false)
+public final class VwapSplitEvent extends Event {
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Side")
+    public String side;
+
+    @Label("Target Type")
+    public String targetType;
+
+    @Label("Target")
+    public double target;
+
+    @Label("Child Count")
+    public int childCount;
+
+    @Label("Levels Consumed")
+    public int levelsConsumed;
+
+    @Label("Providers")
+    public int providers;
+}
@@ -0,0 +1,193 @@
+package com.example.trade.demo.domain.loadtest;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.log.ConsoleLog;
+import com.example.trade.demo.domain.service.LatencyTracer.Histogram;
+import com.example.trade.demo.domain.service.LatencyTracer.LatencySummary;
+import com.example.trade.demo.domain.service.QuoteService;
+
+/**
+ * 以恒定速率驱动 QuoteService 的压测/浸泡测试发生器（单线程，同步调用 onMarketData）。
+ * 协调遗漏（coordinated omission）修正：第 i 笔行情的计划发送时间固定为 start + i / rate，
+ * 事件的 receivedNanos 取计划时间而非实际发送时间；管线卡顿导致发生器落后时，积压行情随后尽快补发，
+ * 其 tick-to-quote 延迟包含在队列中等待的时间，与真实行情源（不会因我们变慢而少发）看到的一致。
+ * 同时记录未修正的服务时间（实际发送 → 报价完成），两者的差距反映排队延迟。
+ * 按 window 切分时间窗，每个窗口输出吞吐、延迟分位数、GC 次数/耗时、本线程分配字节数与堆占用，
+ * 用于观察长时间运行下的延迟与内存漂移。
+ */
+public final class LoadGenerator {
+
+    // 距计划时间超过该值才 park，否则自旋，避免 park 的唤醒抖动拉低速率精度
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+
+    /** 单个时间窗的统计；延迟单位纳秒 */
+    public record Window(int index, long elapsedMillis, long ticks, long quotes, double tickRate,
+                         LatencySummary latency, LatencySummary serviceTime, long maxLagMicros,
+                         long gcCount, long gcMillis, long allocatedBytes, long heapUsedBytes) {}
+
+    /**
+     * 整体结果。p99Drift 为最后一个窗口与基线窗口 p99 之比（窗口数 ≥ 3 时以第 2 个窗口为基线，跳过预热），
+     * heapGrowthBytes 为最后与基线窗口结束时的堆占用之差；sustained 表示实际 tick 速率达到目标的 95%。
+     */
+    public record Report(LoadProfile profile, List<Window> windows, long ticks, long quotes, double tickRate,
+                         LatencySummary latency, LatencySummary serviceTime, double p99Drift, long heapGrowthBytes,
+                         boolean sustained) {}
+
+    private final QuoteService service;
+    private final LoadProfile profile;
+    private final boolean silenceOutput;
+    private final PrintStream report;
+
+    // 结果监听器与发生器在同一线程上同步执行，以下字段无需同步
+    private long sendNanos;
+    private long quotes;
+    private Histogram windowLatency;
+    private Histogram windowService;
+    private final Histogram totalLatency = new Histogram();
+    private final Histogram totalService = new Histogram();
+
+    /**
+     * @param silenceOutput 运行期间静默发生器线程上的热路径日志（ConsoleLog.quietly；逐 tick 打印会主导耗时）
+     * @param report        每个窗口结束时输出一行统计，可为 null
+     */
+    public LoadGenerator(QuoteService service, LoadProfile profile, boolean silenceOutput, PrintStream report) {
+        this.service = service;
+        this.profile = profile;
+        this.silenceOutput = silenceOutput;
+        this.report = report;
+    }
+
+    public Report run(Duration duration, Duration window) {
+        return silenceOutput ? ConsoleLog.quietly(() -> drive(duration, window)) : drive(duration, window);
+    }
+
+    private Report drive(Duration duration, Duration window) {
+        SyntheticMarketData feed = new SyntheticMarketData(profile, service.getRegistry());
+        Consumer<ExecutionResult> listener = this::onResult;
+        service.addResultListener(listener);
+
+        List<Window> windows = new ArrayList<>();
+        long intervalNanos = Math.max(1, Math.round(1_000_000_000d / profile.ratePerSecond()));
+        long windowNanos = Math.max(1, window.toNanos());
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long ticks = 0;
+        try {
+            Probe probe = Probe.now();
+            long windowStart = start;
+            long windowTicks = 0;
+            long windowQuotes = 0;
+            long maxLag = 0;
+            windowLatency = new Histogram();
+            windowService = new Histogram();
+            for (;;) {
+                long intended = start + ticks * intervalNanos;
+                if (intended >= end) break;
+                long now = System.nanoTime();
+                while (now < intended) {
+                    if (intended - now > SPIN_THRESHOLD_NANOS) LockSupport.parkNanos(intended - now - SPIN_THRESHOLD_NANOS);
+                    else Thread.onSpinWait();
+                    now = System.nanoTime();
+                }
+                maxLag = Math.max(maxLag, now - intended);
+                sendNanos = now;
+                service.onMarketData(feed.next(intended));
+                ticks++;
+                windowTicks++;
+
+                if (now - windowStart >= windowNanos) {
+                    windows.add(closeWindow(windows.size(), start, windowStart, now, windowTicks, quotes - windowQuotes, maxLag, probe));
+                    probe = Probe.now();
+                    windowStart = now;
+                    windowTicks = 0;
+                    windowQuotes = quotes;
+                    maxLag = 0;
+                    windowLatency = new Histogram();
+                    windowService = new Histogram();
+                }
+            }
+            if (windowTicks > 0) {
+                windows.add(closeWindow(windows.size(), start, windowStart, System.nanoTime(), windowTicks,
+                        quotes - windowQuotes, maxLag, probe));
+            }
+        } finally {
+            service.removeResultListener(listener);
+        }
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        double tickRate = ticks / Math.max(elapsedSeconds, 1e-9);
+        Window base = windows.isEmpty() ? null : windows.get(windows.size() >= 3 ? 1 : 0);
+        Window last = windows.isEmpty() ? null : windows.get(windows.size() - 1);
+        double drift = base == null || base.latency().p99() == 0 ? 1.0 : (double) last.latency().p99() / base.latency().p99();
+        long heapGrowth = base == null ? 0 : last.heapUsedBytes() - base.heapUsedBytes();
+        Report r = new Report(profile, List.copyOf(windows), ticks, quotes, tickRate,
+                totalLatency.summary("ALL"), totalService.summary("ALL"), drift, heapGrowth,
+                tickRate >= 0.95 * profile.ratePerSecond());
+        if (report != null) {
+            report.println(String.format("[Soak] 合计 ticks=%d quotes=%d rate=%.0f/s（目标 %.0f/s） p99=%dns p99.9=%dns max=%dns "
+                            + "服务时间 p99=%dns p99漂移=%.2fx 堆增长=%dKB %s",
+                    ticks, quotes, tickRate, profile.ratePerSecond(), r.latency().p99(), r.latency().p999(), r.latency().max(),
+                    r.serviceTime().p99(), drift, heapGrowth / 1024, r.sustained() ? "速率达标" : "速率未达标"));
+        }
+        return r;
+    }
+
+    private void onResult(ExecutionResult result) {
+        long latency = result.getTickToQuoteNanos();
+        if (latency < 0) return;
+        quotes++;
+        long service = result.getCompletedNanos() - sendNanos;
+        windowLatency.record(latency);
+        windowService.record(service);
+        totalLatency.record(latency);
+        totalService.record(service);
+    }
+
+    private Window closeWindow(int index, long start, long windowStart, long now, long ticks, long quotes, long maxLag,
+                               Probe before) {
+        Probe after = Probe.now();
+        double seconds = Math.max(now - windowStart, 1) / 1e9;
+        Window w = new Window(index, (now - start) / 1_000_000, ticks, quotes, ticks / seconds,
+                windowLatency.summary("W" + index), windowService.summary("W" + index), maxLag / 1_000,
+                after.gcCount - before.gcCount, after.gcMillis - before.gcMillis,
+                after.allocatedBytes < 0 ? -1 : after.allocatedBytes - before.allocatedBytes, after.heapUsedBytes);
+        if (report != null) {
+            report.println(String.format("[Soak] #%d t=%ds ticks=%d quotes=%d rate=%.0f/s p50=%dns p99=%dns p99.9=%dns max=%dns "
+                            + "服务时间 p99=%dns 最大落后=%dus GC=%d次/%dms 分配=%dKB 堆=%dMB",
+                    index, w.elapsedMillis() / 1000, ticks, quotes, w.tickRate(), w.latency().p50(), w.latency().p99(),
+                    w.latency().p999(), w.latency().max(), w.serviceTime().p99(), w.maxLagMicros(), w.gcCount(),
+                    w.gcMillis(), w.allocatedBytes() / 1024, w.heapUsedBytes() >> 20));
+        }
+        return w;
+    }
+
+    /** 一次 JVM 指标读数；分配字节数只统计当前（发生器）线程，不支持时为 -1 */
+    private record Probe(long gcCount, long gcMillis, long allocatedBytes, long heapUsedBytes) {
+        static Probe now() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            long allocated = -1;
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()
+                    && sun.isThreadAllocatedMemoryEnabled()) {
+                allocated = sun.getCurrentThreadAllocatedBytes();
+            }
+            long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            return new Probe(count, millis, allocated, heap);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.trade.demo.domain.loadtest;
+
+/**
+ * 压测负载形态。
+ * ratePerSecond 为所有 symbol 合计的行情 tick 速率；levels 为每个 provider 每侧档位数；
+ * volatilityBps 为每个 tick 中间价随机游走的标准差（基点）；seed 固定时行情序列可复现。
+ */
+public record LoadProfile(int symbols, int providers, int levels, double ratePerSecond, double volatilityBps, long seed) {
+
+    public LoadProfile {
+        if (symbols < 1 || providers < 1 || levels < 1) {
+            throw new IllegalArgumentException("symbols/providers/levels must be positive");
+        }
+        if (!(ratePerSecond > 0)) throw new IllegalArgumentException("ratePerSecond must be positive: " + ratePerSecond);
+        if (volatilityBps < 0) throw new IllegalArgumentException("volatilityBps must be non-negative: " + volatilityBps);
+    }
+
+    public static LoadProfile of(int symbols, int providers, double ratePerSecond) {
+        return new LoadProfile(symbols, providers, 5, ratePerSecond, 2.0, 42L);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.trade.demo.domain.loadtest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+
+/**
+ * 合成多 provider、多 symbol 行情：每个 symbol 的中间价做几何随机游走（在 [MIN_MID, MAX_MID] 内反射，
+ * 保持在执行器风控的价格带内），各 provider 围绕中间价报出带随机偏移的阶梯深度。
+ * symbol 轮流出 tick，provider 随机选取；价格为 0.01 tick 的整数倍，与默认 VWAP 策略的 tickSize 一致。
+ * 非线程安全，每个压测线程各用一个实例。
+ */
+public final class SyntheticMarketData {
+
+    private static final double TICK = 0.01;
+    private static final double MIN_MID = 60.0;
+    private static final double MAX_MID = 90.0;
+
+    private final LoadProfile profile;
+    private final InstrumentRegistry registry;
+    private final SplittableRandom rnd;
+    private final int[] symbolIds;
+    private final int[] providerIds;
+    private final double[] mids;
+    private long seq;
+
+    public SyntheticMarketData(LoadProfile profile, InstrumentRegistry registry) {
+        this.profile = profile;
+        this.registry = registry;
+        this.rnd = new SplittableRandom(profile.seed());
+        this.symbolIds = new int[profile.symbols()];
+        this.mids = new double[profile.symbols()];
+        for (int s = 0; s < symbolIds.length; s++) {
+            symbolIds[s] = registry.symbolId("LOAD" + s);
+            mids[s] = MIN_MID + rnd.nextDouble() * (MAX_MID - MIN_MID);
+        }
+        this.providerIds = new int[profile.providers()];
+        for (int p = 0; p < providerIds.length; p++) providerIds[p] = registry.providerId("LOAD-LP" + p);
+    }
+
+    public String symbolName(int s) { return registry.symbolName(symbolIds[s]); }
+
+    /** 下一笔行情；receivedNanos 写入事件作为 tick-to-quote 的起点 */
+    public MarketDataEvent next(long receivedNanos) {
+        int s = (int) (seq++ % symbolIds.length);
+        double mid = mids[s] * (1 + profile.volatilityBps() / 10_000 * gaussian());
+        if (mid > MAX_MID) mid = 2 * MAX_MID - mid;
+        if (mid < MIN_MID) mid = 2 * MIN_MID - mid;
+        mids[s] = mid;
+
+        long midTicks = Math.round(mid / TICK);
+        long halfSpread = 1 + rnd.nextInt(3);
+        long skew = rnd.nextInt(3) - 1;
+        int p = rnd.nextInt(providerIds.length);
+        return new MarketDataEvent(registry, symbolIds[s], providerIds[p],
+                ladder(midTicks + skew + halfSpread, +1), ladder(midTicks + skew - halfSpread, -1), receivedNanos);
+    }
+
+    private List<OrderBookLevel> ladder(long bestTicks, int direction) {
+        List<OrderBookLevel> levels = new ArrayList<>(profile.levels());
+        for (int l = 0; l < profile.levels(); l++) {
+            levels.add(new OrderBookLevel(BigDecimal.valueOf(bestTicks + (long) direction * l, 2),
+                    BigDecimal.valueOf(10L * (l + 1) + rnd.nextInt(10))));
+        }
+        return levels;
+    }
+
+    // Box-Muller；SplittableRandom 没有 nextGaussian
+    private double gaussian() {
+        double u = 1.0 - rnd.nextDouble();
+        double v = rnd.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+}
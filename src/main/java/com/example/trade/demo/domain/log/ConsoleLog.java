@@ -0,0 +1,46 @@
+package com.example.trade.demo.domain.log;
+
+import java.util.function.Supplier;
+
+/**
+ * 热路径（聚合器 → 策略 → 执行器 → QuoteService）的控制台日志。
+ * 预热、压测等需要高频驱动热路径的场景用 quietly 包住调用，只静默当前线程的日志；
+ * 其他线程（线上行情、演示输出）照常打印，不再替换进程级的 System.out。
+ */
+public final class ConsoleLog {
+
+    private static final ThreadLocal<Boolean> QUIET = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private ConsoleLog() {}
+
+    public static void println(String line) {
+        if (!QUIET.get()) System.out.println(line);
+    }
+
+    /**
+     * 按 String.format 输出一行；静默时不格式化、不拼接，参数的 toString 也不会被调用。
+     * 固定参数个数的重载避免可变参数数组，热路径调用方应使用这些重载而不是先拼好字符串。
+     */
+    public static void println(String format, Object arg) {
+        if (!QUIET.get()) System.out.println(String.format(format, arg));
+    }
+
+    public static void println(String format, Object arg1, Object arg2) {
+        if (!QUIET.get()) System.out.println(String.format(format, arg1, arg2));
+    }
+
+    public static boolean isQuiet() {
+        return QUIET.get();
+    }
+
+    /** 在当前线程静默热路径日志执行 action，结束后恢复原状态（可嵌套） */
+    public static <T> T quietly(Supplier<T> action) {
+        Boolean previous = QUIET.get();
+        QUIET.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            QUIET.set(previous);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.trade.demo.domain.service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+
+/**
+ * 以 Flow.Publisher 形式向下游推送执行结果，每个订阅者按自己的需求消费。
+ * 报价线程不能被慢订阅者阻塞：结果以 offer 非阻塞投递，某订阅者缓冲（maxBufferCapacity）已满时对该订阅者丢弃并计数。
+ */
+public final class ExecutionResultPublisher implements Flow.Publisher<ExecutionResult>, Consumer<ExecutionResult>, AutoCloseable {
+
+    private final SubmissionPublisher<ExecutionResult> publisher;
+    private final LongAdder dropped = new LongAdder();
+    private volatile Runnable onClose; // 关闭时从结果来源注销，见 QuoteService#resultPublisher
+
+    public ExecutionResultPublisher(Executor executor, int maxBufferCapacity) {
+        this.publisher = new SubmissionPublisher<>(executor, maxBufferCapacity);
+    }
+
+    @Override public void subscribe(Flow.Subscriber<? super ExecutionResult> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    @Override public void accept(ExecutionResult result) {
+        if (publisher.isClosed()) return;
+        publisher.offer(result, (subscriber, item) -> {
+            dropped.increment();
+            return false;
+        });
+    }
+
+    public long dropped() { return dropped.sum(); }
+
+    public int subscriberCount() { return publisher.getNumberOfSubscribers(); }
+
+    void onClose(Runnable action) { this.onClose = action; }
+
+    @Override public void close() {
+        publisher.close();
+        Runnable action = onClose;
+        if (action != null) action.run();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.trade.demo.domain.service;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.fx.application.MarketDepthAdapters.FromQuoteService;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.log.ConsoleLog;
+
+/**
+ * 上线前 JIT 预热：用合成行情驱动聚合器 → 策略 → 执行器风控 → VWAP 拆单这条热路径，
+ * 直到 JIT 编译活动平息（连续若干轮编译耗时不再增长）或达到时间上限。
+ * 预热使用独立的 QuoteService / 注册表 / 零延迟执行器，不触碰线上聚合器、延迟追踪与日志反馈；
+ * JIT 按方法而非实例编译，预热实例跑热的代码即线上实例执行的代码。
+ * 热路径逐 tick 打印日志，预热在 ConsoleLog.quietly 中执行，只静默预热线程自己的日志。
+ */
+public class JitWarmup {
+
+    // 一轮内编译耗时增长不超过该值即视为"安静"
+    private static final long QUIET_COMPILE_MILLIS = 1;
+    private static final int SYMBOLS = 4;
+    private static final int PROVIDERS = 3;
+    private static final int LEVELS = 5;
+    private static final FxSymbolRule RULE = new FxSymbolRule(new BigDecimal("0.01"), 2, 2, 2);
+
+    public record Report(int rounds, long ticks, long results, long childOrders,
+                         long compileMillis, long elapsedMillis, boolean converged) {}
+
+    private final List<QuoteStrategy> strategies;
+    private final int roundIterations;
+    private final int quietRounds;
+    private final Duration maxDuration;
+
+    public JitWarmup(List<QuoteStrategy> strategies, int roundIterations, int quietRounds, Duration maxDuration) {
+        this.strategies = List.copyOf(strategies);
+        this.roundIterations = Math.max(1, roundIterations);
+        this.quietRounds = Math.max(1, quietRounds);
+        this.maxDuration = maxDuration;
+    }
+
+    public Report run() {
+        return ConsoleLog.quietly(this::runQuietly);
+    }
+
+    private Report runQuietly() {
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean canMonitor = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + maxDuration.toNanos();
+        long compileStart = canMonitor ? jit.getTotalCompilationTime() : 0;
+
+        InstrumentRegistry registry = new InstrumentRegistry();
+        LongAdder results = new LongAdder();
+        List<QuoteService> services = new ArrayList<>();
+        for (QuoteStrategy strategy : strategies) {
+            QuoteService service = new QuoteService(strategy, new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                    ProviderTtlPolicy.never(), null, Clock.systemUTC(), registry);
+            service.addResultListener(r -> results.increment());
+            services.add(service);
+        }
+        FxSymbol[] symbols = new FxSymbol[SYMBOLS];
+        int[] symbolIds = new int[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) {
+            symbols[s] = new FxSymbol("WU" + s, "USD");
+            symbolIds[s] = registry.symbolId(symbols[s]);
+        }
+        int[] providerIds = new int[PROVIDERS];
+        for (int p = 0; p < PROVIDERS; p++) providerIds[p] = registry.providerId("WARMUP-LP" + p);
+        VwapSplittingDomainService splitter = new VwapSplittingDomainService(() -> "warmup");
+
+        int rounds = 0;
+        int quiet = 0;
+        long ticks = 0;
+        long childOrders = 0;
+        long lastCompile = compileStart;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < roundIterations; i++, ticks++) {
+                int s = (int) (ticks % SYMBOLS);
+                int p = (int) (ticks % PROVIDERS);
+                // 每 16 个 tick 把价格推过买价上限，覆盖风控拒绝分支
+                BigDecimal mid = ticks % 16 == 15 ? new BigDecimal("120.00")
+                        : BigDecimal.valueOf(8000 + ticks % 40 * 5, 2);
+                List<OrderBookLevel> asks = ladder(mid, BigDecimal.ONE);
+                List<OrderBookLevel> bids = ladder(mid, BigDecimal.ONE.negate());
+                for (QuoteService service : services) {
+                    // 交替走按 ID 与按名称两条入口
+                    service.onMarketData((ticks & 1) == 0
+                            ? new MarketDataEvent(registry, symbolIds[s], providerIds[p], asks, bids, System.nanoTime())
+                            : new MarketDataEvent(registry.symbolName(symbolIds[s]), registry.providerName(providerIds[p]),
+                                    asks, bids));
+                }
+                if (!services.isEmpty()) childOrders += split(splitter, services.get(0), symbols[s], ticks);
+            }
+            rounds++;
+            if (!canMonitor) continue;
+            long compile = jit.getTotalCompilationTime();
+            quiet = compile - lastCompile <= QUIET_COMPILE_MILLIS ? quiet + 1 : 0;
+            lastCompile = compile;
+            if (quiet >= quietRounds) break;
+        }
+        long compileMillis = canMonitor ? lastCompile - compileStart : 0;
+        return new Report(rounds, ticks, results.sum(), childOrders, compileMillis,
+                (System.nanoTime() - startNanos) / 1_000_000, quiet >= quietRounds);
+    }
+
+    // 轮流覆盖 BUY/SELL × BASE_QTY/QUOTE_NOTIONAL 四个拆单分支
+    private static int split(VwapSplittingDomainService splitter, QuoteService service, FxSymbol symbol, long tick) {
+        OrderBook book = new FromQuoteService(service, s -> RULE).latest(symbol);
+        FlatSignal.Side side = (tick & 1) == 0 ? FlatSignal.Side.BUY : FlatSignal.Side.SELL;
+        VwapParams.TargetType type = (tick & 2) == 0 ? VwapParams.TargetType.BASE_QTY : VwapParams.TargetType.QUOTE_NOTIONAL;
+        BigDecimal target = type == VwapParams.TargetType.BASE_QTY ? new BigDecimal("25") : new BigDecimal("2000");
+        VwapParams params = new VwapParams(symbol, type, target, VwapParams.ExecutionIntent.TAKER, Duration.ZERO, BigDecimal.ZERO);
+        return splitter.split(symbol, side, params, book, RULE).size();
+    }
+
+    // direction = +1 生成卖盘（向上），-1 生成买盘（向下）
+    private static List<OrderBookLevel> ladder(BigDecimal mid, BigDecimal direction) {
+        List<OrderBookLevel> levels = new ArrayList<>(LEVELS);
+        for (int l = 1; l <= LEVELS; l++) {
+            BigDecimal px = mid.add(direction.multiply(BigDecimal.valueOf(l, 2)));
+            levels.add(new OrderBookLevel(px, BigDecimal.valueOf(10L * l)));
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.trade.demo.domain.service;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.QuoteInstruction;
+
+/**
+ * tick-to-quote 延迟追踪：
+ * - 每个执行结果都计入按 symbol 划分的对数分桶直方图，用于计算分位数；
+ * - 每 sampleEvery 个结果抽样一条分阶段明细（策略/风控/执行）写入环形缓冲区，可随时导出。
+ * 直方图只做原子自增，多线程并发记录无锁。
+ */
+public class LatencyTracer {
+
+    // 单条抽样明细，各阶段耗时单位为纳秒
+    public record TraceSample(String symbol, boolean success, long ingestNanos,
+                              long strategyNanos, long riskNanos, long executionNanos, long totalNanos) {}
+
+    public record LatencySummary(String symbol, long count, long p50, long p90, long p99, long p999, long max) {}
+
+    private final int sampleEvery;
+    private final AtomicReferenceArray<TraceSample> ring;
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public LatencyTracer(int sampleEvery, int ringCapacity) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.ring = new AtomicReferenceArray<>(Math.max(1, ringCapacity));
+    }
+
+    public void record(ExecutionResult result) {
+        long total = result.getTickToQuoteNanos();
+        if (total < 0) return;
+        QuoteInstruction qi = result.getInstruction();
+        histograms.computeIfAbsent(qi.getSymbol(), s -> new Histogram()).record(total);
+
+        if (seq.getAndIncrement() % sampleEvery != 0) return;
+        TraceSample sample = new TraceSample(qi.getSymbol(), result.isSuccess(), qi.getIngestNanos(),
+                qi.getDecidedNanos() - qi.getIngestNanos(),
+                result.getRiskCheckedNanos() - qi.getDecidedNanos(),
+                result.getCompletedNanos() - result.getRiskCheckedNanos(),
+                total);
+        long slot = written.getAndIncrement();
+        ring.set((int) (slot % ring.length()), sample);
+    }
+
+    public LatencySummary summary(String symbol) {
+        Histogram h = histograms.get(symbol);
+        if (h == null) return new LatencySummary(symbol, 0, 0, 0, 0, 0, 0);
+        return h.summary(symbol);
+    }
+
+    public List<LatencySummary> summaries() {
+        List<LatencySummary> out = new ArrayList<>();
+        for (String symbol : new TreeMap<>(histograms).keySet()) out.add(summary(symbol));
+        return out;
+    }
+
+    // 按写入顺序返回环形缓冲区中仍保留的抽样明细（并发写入时可能缺少正在覆盖的槽位）
+    public List<TraceSample> samples() {
+        long end = written.get();
+        long start = Math.max(0, end - ring.length());
+        List<TraceSample> out = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            TraceSample s = ring.get((int) (i % ring.length()));
+            if (s != null) out.add(s);
+        }
+        return out;
+    }
+
+    public void dump(PrintStream out) {
+        out.println("symbol,success,ingestNanos,strategyNanos,riskNanos,executionNanos,totalNanos");
+        for (TraceSample s : samples()) {
+            out.println(String.format("%s,%s,%d,%d,%d,%d,%d", s.symbol(), s.success(), s.ingestNanos(),
+                    s.strategyNanos(), s.riskNanos(), s.executionNanos(), s.totalNanos()));
+        }
+        for (LatencySummary sm : summaries()) {
+            out.println(String.format("[Latency] %s count=%d p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns",
+                    sm.symbol(), sm.count(), sm.p50(), sm.p90(), sm.p99(), sm.p999(), sm.max()));
+        }
+    }
+
+    /**
+     * 对数-线性分桶直方图：小于 16ns 每纳秒一桶，之后每个 2 的幂区间再分 16 个子桶（相对误差约 6%）。
+     * 分位数取桶上界，偏保守。也供压测按时间窗单独统计使用。
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_COUNT);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            counts.incrementAndGet(indexOf(value));
+            total.incrementAndGet();
+            long m;
+            while (value > (m = max.get()) && !max.compareAndSet(m, value)) { }
+        }
+
+        static int indexOf(long v) {
+            if (v < SUB_COUNT) return (int) Math.max(0, v);
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1));
+            return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        static long upperBoundOf(int index) {
+            if (index < SUB_COUNT) return index;
+            int exp = index / SUB_COUNT + SUB_BITS - 1;
+            int sub = index % SUB_COUNT;
+            return ((long) (SUB_COUNT + sub + 1) << (exp - SUB_BITS)) - 1;
+        }
+
+        public long count() { return total.get(); }
+
+        public LatencySummary summary(String symbol) {
+            long n = total.get();
+            return new LatencySummary(symbol, n, percentile(n, 0.50), percentile(n, 0.90),
+                    percentile(n, 0.99), percentile(n, 0.999), max.get());
+        }
+
+        private long percentile(long n, double q) {
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long acc = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                acc += counts.get(i);
+                if (acc >= rank) return Math.min(upperBoundOf(i), max.get());
+            }
+            return max.get();
+        }
+    }
+}
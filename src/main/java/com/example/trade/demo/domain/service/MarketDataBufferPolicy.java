@@ -0,0 +1,24 @@
+package com.example.trade.demo.domain.service;
+
+/**
+ * MarketDataSubscriber 的单 symbol 缓冲策略。
+ * - BUFFER：不丢弃，事件处理后才向上游补充需求，慢消费时上游被限速；缓冲总量以订阅窗口为上限；
+ * - CONFLATE：每个 provider 只保留最新一笔（行情事件是该 provider 的全量深度，合并不丢信息），被覆盖的旧事件立即补充需求；
+ * - DROP_OLDEST：最多保留 capacity 笔，满时丢弃最旧一笔并立即补充需求。
+ */
+public record MarketDataBufferPolicy(Mode mode, int capacity) {
+
+    public enum Mode { BUFFER, CONFLATE, DROP_OLDEST }
+
+    public MarketDataBufferPolicy {
+        if (mode == Mode.DROP_OLDEST && capacity < 1) {
+            throw new IllegalArgumentException("DROP_OLDEST capacity must be positive: " + capacity);
+        }
+    }
+
+    public static MarketDataBufferPolicy buffer() { return new MarketDataBufferPolicy(Mode.BUFFER, 0); }
+
+    public static MarketDataBufferPolicy conflate() { return new MarketDataBufferPolicy(Mode.CONFLATE, 0); }
+
+    public static MarketDataBufferPolicy dropOldest(int capacity) { return new MarketDataBufferPolicy(Mode.DROP_OLDEST, capacity); }
+}
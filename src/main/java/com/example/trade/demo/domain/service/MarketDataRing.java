@@ -0,0 +1,48 @@
+package com.example.trade.demo.domain.service;
+
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.entity.MutableMarketDataEvent;
+
+// 单生产者/单消费者环形缓冲区：槽位中的 MutableMarketDataEvent 预先分配并循环使用。
+// 生产者 claim() 取得空槽位并填充，publish() 发布；消费者 drain() 依次回调，回调返回后槽位即被回收。
+public class MarketDataRing {
+    private final MutableMarketDataEvent[] slots;
+    private final int mask;
+    private volatile long head; // 消费者下一个读取的序号
+    private volatile long tail; // 生产者下一个发布的序号
+
+    public MarketDataRing(int capacityPowerOfTwo, int maxLevels) {
+        if (Integer.bitCount(capacityPowerOfTwo) != 1) {
+            throw new IllegalArgumentException("capacity 必须为 2 的幂: " + capacityPowerOfTwo);
+        }
+        this.slots = new MutableMarketDataEvent[capacityPowerOfTwo];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new MutableMarketDataEvent(maxLevels);
+        }
+        this.mask = capacityPowerOfTwo - 1;
+    }
+
+    // 缓冲区已满时返回 null，由生产者决定丢弃、重试或合并
+    public MutableMarketDataEvent claim() {
+        long t = tail;
+        if (t - head == slots.length) return null;
+        return slots[(int) (t & mask)];
+    }
+
+    public void publish() {
+        tail = tail + 1;
+    }
+
+    public int drain(Consumer<MutableMarketDataEvent> handler) {
+        long h = head;
+        long t = tail;
+        int n = 0;
+        while (h < t) {
+            handler.accept(slots[(int) (h & mask)]);
+            head = ++h;
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.trade.demo.domain.service;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+
+/**
+ * 以 Flow.Subscriber 形式接收行情并送入 QuoteService，按需求（request）实现背压：
+ * - 订阅时请求 window 笔；事件离开缓冲（被处理、被合并覆盖或被丢弃）后才补充需求，
+ *   因此在途 + 缓冲的事件总数不超过 window，遵守需求的上游（如 SubmissionPublisher）在消费慢时被阻塞或自行丢弃；
+ * - 每个 symbol 一个缓冲区，策略见 MarketDataBufferPolicy，可按 symbol 覆盖默认策略；
+ * - 处理在 executor 上以单个排空任务串行进行（聚合器非线程安全），各 symbol 轮流取一笔，热门 symbol 不会饿死其他 symbol。
+ */
+public final class MarketDataSubscriber implements Flow.Subscriber<MarketDataEvent>, AutoCloseable {
+
+    private final QuoteService service;
+    private final Executor executor;
+    private final int window;
+    private final MarketDataBufferPolicy defaultPolicy;
+    private final Map<String, MarketDataBufferPolicy> symbolPolicies = new ConcurrentHashMap<>();
+    private final Map<String, SymbolBuffer> buffers = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<SymbolBuffer> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean completed;
+
+    public MarketDataSubscriber(QuoteService service, Executor executor, MarketDataBufferPolicy defaultPolicy, int window) {
+        if (window < 1) throw new IllegalArgumentException("window must be positive: " + window);
+        this.service = service;
+        this.executor = executor;
+        this.defaultPolicy = defaultPolicy;
+        this.window = window;
+    }
+
+    /** 为某 symbol 指定缓冲策略；只影响之后新建的缓冲区，应在订阅前设置 */
+    public MarketDataSubscriber withSymbolPolicy(String symbol, MarketDataBufferPolicy policy) {
+        symbolPolicies.put(symbol, policy);
+        return this;
+    }
+
+    @Override public void onSubscribe(Flow.Subscription s) {
+        if (subscription != null) {
+            s.cancel(); // 只接受一个上游
+            return;
+        }
+        subscription = s;
+        s.request(window);
+    }
+
+    @Override public void onNext(MarketDataEvent event) {
+        received.increment();
+        SymbolBuffer b = buffers.get(event.getSymbol());
+        if (b == null) b = buffers.computeIfAbsent(event.getSymbol(),
+                k -> new SymbolBuffer(symbolPolicies.getOrDefault(k, defaultPolicy)));
+        int freed = b.offer(event);
+        if (freed > 0) request(freed);
+        scheduleDrain();
+    }
+
+    @Override public void onError(Throwable t) {
+        System.out.println("[MarketDataSubscriber] 上游异常终止: " + t);
+        completed = true;
+    }
+
+    @Override public void onComplete() {
+        completed = true;
+    }
+
+    /** 取消订阅；已缓冲的事件仍会处理完 */
+    @Override public void close() {
+        Flow.Subscription s = subscription;
+        if (s != null) s.cancel();
+        completed = true;
+    }
+
+    public boolean isCompleted() { return completed; }
+    public int buffered() { return buffered.get(); }
+    public long received() { return received.sum(); }
+    public long processed() { return processed.sum(); }
+    public long conflated() { return conflated.sum(); }
+    public long dropped() { return dropped.sum(); }
+
+    private void request(long n) {
+        Flow.Subscription s = subscription;
+        if (s != null && !completed) s.request(n);
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) executor.execute(this::drain);
+    }
+
+    private void drain() {
+        int pendingRequest = 0;
+        try {
+            SymbolBuffer b;
+            while ((b = ready.poll()) != null) {
+                MarketDataEvent e = b.poll();
+                if (e == null) continue;
+                try {
+                    service.onMarketData(e);
+                } catch (RuntimeException ex) {
+                    System.out.println("[MarketDataSubscriber] 处理行情失败: " + ex);
+                }
+                processed.increment();
+                // 批量补充需求，减少 request 调用次数
+                if (++pendingRequest >= Math.max(1, window / 2)) {
+                    request(pendingRequest);
+                    pendingRequest = 0;
+                }
+            }
+        } finally {
+            if (pendingRequest > 0) request(pendingRequest);
+            draining.set(false);
+        }
+        // 排空结束与新事件入队之间的竞争：再检查一次
+        if (!ready.isEmpty()) scheduleDrain();
+    }
+
+    /** 单 symbol 缓冲区；入队与出队在同一把锁内维护"是否已在 ready 队列"标记，保证每个缓冲区在 ready 中至多出现一次 */
+    private final class SymbolBuffer {
+        private final MarketDataBufferPolicy policy;
+        private final ArrayDeque<MarketDataEvent> queue = new ArrayDeque<>();
+        private final LinkedHashMap<String, MarketDataEvent> latestByProvider = new LinkedHashMap<>();
+        private boolean queued;
+
+        SymbolBuffer(MarketDataBufferPolicy policy) {
+            this.policy = policy;
+        }
+
+        // 返回因合并/丢弃而立即释放的需求数
+        synchronized int offer(MarketDataEvent e) {
+            int freed = 0;
+            switch (policy.mode()) {
+                case BUFFER -> queue.addLast(e);
+                case CONFLATE -> {
+                    if (latestByProvider.put(e.getProvider(), e) != null) {
+                        conflated.increment();
+                        freed = 1;
+                    }
+                }
+                case DROP_OLDEST -> {
+                    if (queue.size() >= policy.capacity()) {
+                        queue.pollFirst();
+                        dropped.increment();
+                        freed = 1;
+                    }
+                    queue.addLast(e);
+                }
+            }
+            if (freed == 0) buffered.incrementAndGet();
+            if (!queued) {
+                queued = true;
+                ready.add(this);
+            }
+            return freed;
+        }
+
+        synchronized MarketDataEvent poll() {
+            MarketDataEvent e;
+            if (policy.mode() == MarketDataBufferPolicy.Mode.CONFLATE) {
+                Iterator<MarketDataEvent> it = latestByProvider.values().iterator();
+                e = it.hasNext() ? it.next() : null;
+                if (e != null) it.remove();
+            } else {
+                e = queue.pollFirst();
+            }
+            if (e != null) buffered.decrementAndGet();
+            boolean more = !queue.isEmpty() || !latestByProvider.isEmpty();
+            queued = more;
+            if (more) ready.add(this);
+            return e;
+        }
+    }
+}
@@ -1,141 +1,221 @@
 package com.example.trade.demo.domain.service;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import com.example.trade.demo.domain.entity.ExecutionResult;
 import com.example.trade.demo.domain.entity.QuoteInstruction;
+import com.example.trade.demo.domain.fx.service.CreditLimitService;
+import com.example.trade.demo.domain.fx.service.CreditLimitService.Reservation;
+import com.example.trade.demo.domain.fx.service.CreditRates;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.jfr.QuoteRejectEvent;
+import com.example.trade.demo.domain.log.ConsoleLog;
 
 public class QuoteExecutor {
+    private final Clock clock;
+    private final long simulatedLatencyMillis; // 模拟执行耗时，0 表示不等待（回测使用）
+    private volatile QuoteRiskRule riskRule = QuoteRiskRule.DEFAULT;
+
+    // 可选：交易前额度。每个 symbol 的在挂报价持有一笔预占，新报价按其名义金额调整这笔预占
+    private volatile CreditLimitService credit;
+    private volatile String creditProvider;
+    private volatile String creditCounterparty;
+    private volatile CreditRates creditRates;                // null 表示报价名义金额已是额度货币
+    private volatile Function<String, FxSymbol> creditSymbols; // 报价 symbol（如 USDJPY）到 Base/Quote 货币
+    private final Map<String, Reservation> standingQuotes = new ConcurrentHashMap<>();
+
+    // 可选：报价发送限速。venue 一只总桶 + 每个 symbol 一只桶；超限按 RateLimitPolicy 计为合并或拒绝
+    private volatile TokenBucket venueBucket;
+    private volatile RateLimitPolicy ratePolicy;
+    private volatile double symbolRate;
+    private volatile int symbolBurst;
+    private final Map<String, TokenBucket> symbolBuckets = new ConcurrentHashMap<>();
+    private final LongAdder quotesCoalesced = new LongAdder();
+    private final LongAdder quotesThrottled = new LongAdder();
+
+    public QuoteExecutor() {
+        this(Clock.systemUTC(), Duration.ofMillis(50));
+    }
+
+    public QuoteExecutor(Clock clock, Duration simulatedLatency) {
+        this.clock = clock;
+        this.simulatedLatencyMillis = simulatedLatency.toMillis();
+    }
+
+    public void setRiskRule(QuoteRiskRule riskRule) { this.riskRule = riskRule; }
+
+    public QuoteRiskRule getRiskRule() { return riskRule; }
+
+    // 不做货币换算：报价名义金额（价格 × 数量，Quote 货币）直接按额度货币预占，只适用于 Quote 货币即额度货币的品种
+    public void setCreditLimits(CreditLimitService credit, String provider, String counterparty) {
+        setCreditLimits(credit, provider, counterparty, null, null);
+    }
+
+    /**
+     * 交易前额度：报价名义金额为 symbol 的 Quote 货币，预占前经 rates 换算为 credit.limitCurrency()，
+     * 与平盘子单使用同一换算（CreditRates）。symbols 把报价 symbol 解析为 Base/Quote 货币，
+     * 解析不了或取不到换算价时报价按额度不足拒绝。
+     */
+    public void setCreditLimits(CreditLimitService credit, String provider, String counterparty,
+                                CreditRates rates, Function<String, FxSymbol> symbols) {
+        this.creditRates = rates;
+        this.creditSymbols = symbols;
+        this.creditProvider = provider;
+        this.creditCounterparty = counterparty;
+        this.credit = credit;
+    }
+
+    /**
+     * 报价限速：venueBucket 为整个 venue 的报文速率（可为 null），symbolPerSecond ≤ 0 表示不按 symbol 限速。
+     * 执行器在行情线程上同步调用，任何模式都不在该线程上等待令牌：QUEUE 与 REJECT 一样立即失败，由下一笔行情重新报价；
+     * COALESCE 同样不发送，计为合并（同一 symbol 的下一笔报价总是携带最新价格，发送旧价没有意义）。
+     * 令牌在额度检查之前取得，额度被拒时退还，不占用发送速率。
+     */
+    public void setRateLimits(TokenBucket venueBucket, double symbolPerSecond, int symbolBurst, RateLimitPolicy policy) {
+        this.venueBucket = venueBucket;
+        this.symbolRate = symbolPerSecond;
+        this.symbolBurst = symbolBurst;
+        this.symbolBuckets.clear();
+        this.ratePolicy = policy;
+    }
+
+    public long quotesCoalesced() { return quotesCoalesced.sum(); }
+    public long quotesThrottled() { return quotesThrottled.sum(); }
+
+    // 撤下某 symbol 的报价时释放其额度预占
+    public void releaseQuoteCredit(String symbol) {
+        Reservation r = standingQuotes.remove(symbol);
+        if (r != null) r.release();
+    }
+
     // QuoteExecutor 的核心职责是执行指令并返回结果
     // 它不关心结果如何被记录或反馈，那是 Log 模块的事
     public ExecutionResult executeQuote(QuoteInstruction instruction) {
-        System.out.println(String.format("[Executor] %s: 开始执行报价: %s", instruction.getSymbol(), instruction));
+        ConsoleLog.println("[Executor] %s: 开始执行报价: %s", instruction.getSymbol(), instruction);
 
         // 1. 模拟风控检查
-        if (!riskCheck(instruction)) {
-            ExecutionResult result = new ExecutionResult(false, "风控检查失败", instruction);
-            System.out.println(String.format("[Executor] %s: 风控失败: %s", instruction.getSymbol(), result));
+        boolean riskPassed = riskCheck(instruction);
+        long riskCheckedNanos = System.nanoTime();
+        if (!riskPassed) {
+            ExecutionResult result = new ExecutionResult(false, "风控检查失败", instruction, clock.millis(),
+                    riskCheckedNanos, riskCheckedNanos);
+            ConsoleLog.println("[Executor] %s: 风控失败: %s", instruction.getSymbol(), result);
+            QuoteRejectEvent.emit(instruction.getSymbol(), "RISK", result.getMessage(), instruction.getBidPrice(), instruction.getAskPrice());
             return result; // 直接返回失败结果
         }
+        String throttled = throttle(instruction);
+        if (throttled != null) {
+            ExecutionResult result = new ExecutionResult(false, "限速: " + throttled, instruction, clock.millis(),
+                    riskCheckedNanos, System.nanoTime());
+            ConsoleLog.println("[Executor] %s: 发送限速: %s", instruction.getSymbol(), result);
+            QuoteRejectEvent.emit(instruction.getSymbol(), "RATE_LIMIT", throttled, instruction.getBidPrice(), instruction.getAskPrice());
+            return result;
+        }
+        String creditReject = reserveQuoteCredit(instruction);
+        if (creditReject != null) {
+            ExecutionResult result = new ExecutionResult(false, "额度不足: " + creditReject, instruction, clock.millis(),
+                    riskCheckedNanos, System.nanoTime());
+            ConsoleLog.println("[Executor] %s: 额度检查失败: %s", instruction.getSymbol(), result);
+            refundTokens(instruction.getSymbol());
+            QuoteRejectEvent.emit(instruction.getSymbol(), "CREDIT", creditReject, instruction.getBidPrice(), instruction.getAskPrice());
+            return result;
+        }
 
         // 2. 模拟执行延迟和成功
         try {
-            Thread.sleep(50); // 模拟执行时间
-            System.out.println(String.format("[Executor] %s: 报价执行成功", instruction.getSymbol()));
-            return new ExecutionResult(true, "执行成功", instruction); // 返回成功结果
+            if (simulatedLatencyMillis > 0) {
+                Thread.sleep(simulatedLatencyMillis); // 模拟执行时间
+            }
+            ConsoleLog.println("[Executor] %s: 报价执行成功", instruction.getSymbol());
+            return new ExecutionResult(true, "执行成功", instruction, clock.millis(),
+                    riskCheckedNanos, System.nanoTime()); // 返回成功结果
         } catch (Exception e) {
-            ExecutionResult result = new ExecutionResult(false, "执行异常: " + e.getMessage(), instruction);
-            System.out.println(String.format("[Executor] %s: 执行异常: %s", instruction.getSymbol(), result));
+            ExecutionResult result = new ExecutionResult(false, "执行异常: " + e.getMessage(), instruction, clock.millis(),
+                    riskCheckedNanos, System.nanoTime());
+            ConsoleLog.println("[Executor] %s: 执行异常: %s", instruction.getSymbol(), result);
             return result; // 返回异常结果
         }
     }
 
-    private boolean riskCheck(QuoteInstruction instruction) {
-        // 风控检查：根据不同的报价模式进行相应的检查
-        QuoteInstruction.QuoteType quoteType = instruction.getQuoteType();
-        
-        switch (quoteType) {
-            case BID:
-                return checkBidQuote(instruction);
-            case ASK:
-                return checkAskQuote(instruction);
-            case BID_ASK:
-                return checkBidAskQuote(instruction);
-            default:
-                System.out.println("[Executor] 风控失败: 未知的报价类型");
-                return false;
+    // 返回 null 表示已取得令牌可以发送；只取当前可用的令牌，不预订未来令牌，不阻塞行情线程
+    private String throttle(QuoteInstruction instruction) {
+        RateLimitPolicy policy = ratePolicy;
+        if (policy == null) return null;
+        if (TokenBucket.reserveBoth(venueBucket, symbolBucket(instruction.getSymbol()), 0) >= 0) return null;
+        if (policy.mode() == RateLimitPolicy.Mode.COALESCE) {
+            quotesCoalesced.increment();
+            return "已合并，等待下一笔报价";
         }
+        quotesThrottled.increment();
+        return "超过报价速率";
     }
-    
-    private boolean checkBidQuote(QuoteInstruction instruction) {
-        // 买价模式检查
-        BigDecimal bidPrice = instruction.getBidPrice();
-        
-        // 基本检查：价格不能为空且必须为正数
-        if (bidPrice == null) {
-            System.out.println("[Executor] 风控失败: 买价为空");
-            return false;
-        }
-        
-        if (bidPrice.compareTo(BigDecimal.ZERO) <= 0) {
-            System.out.println("[Executor] 风控失败: 买价必须大于0");
-            return false;
-        }
-        
-        // 买价上限检查：买价不应当高于某个价格（与单元测试对齐：上限100）
-        BigDecimal maxBidPrice = new BigDecimal("100.0"); // 买价上限
-        if (bidPrice.compareTo(maxBidPrice) > 0) {
-            System.out.println(String.format("[Executor] 风控失败: 买价 %.2f 高于上限 %.2f", bidPrice, maxBidPrice));
-            return false;
-        }
-        
-        System.out.println(String.format("[Executor] 买价风控检查通过: 买价=%.2f", bidPrice));
-        return true;
+
+    // 已取得令牌但报价未发出（额度被拒）：退还两只桶的令牌
+    private void refundTokens(String symbol) {
+        if (ratePolicy == null) return;
+        TokenBucket venue = venueBucket;
+        TokenBucket perSymbol = symbolBucket(symbol);
+        if (venue != null) venue.refund();
+        if (perSymbol != null) perSymbol.refund();
     }
-    
-    private boolean checkAskQuote(QuoteInstruction instruction) {
-        // 卖价模式检查
-        BigDecimal askPrice = instruction.getAskPrice();
-        
-        // 基本检查：价格不能为空且必须为正数
-        if (askPrice == null) {
-            System.out.println("[Executor] 风控失败: 卖价为空");
-            return false;
-        }
-        
-        if (askPrice.compareTo(BigDecimal.ZERO) <= 0) {
-            System.out.println("[Executor] 风控失败: 卖价必须大于0");
-            return false;
-        }
-        
-        // 卖价下限检查：卖价不应当低于某个价格（与单元测试对齐：下限50）
-        BigDecimal minAskPrice = new BigDecimal("50.0"); // 卖价下限
-        if (askPrice.compareTo(minAskPrice) < 0) {
-            System.out.println(String.format("[Executor] 风控失败: 卖价 %.2f 低于下限 %.2f", askPrice, minAskPrice));
-            return false;
-        }
-        
-        System.out.println(String.format("[Executor] 卖价风控检查通过: 卖价=%.2f", askPrice));
-        return true;
+
+    private TokenBucket symbolBucket(String symbol) {
+        if (symbolRate <= 0) return null;
+        TokenBucket b = symbolBuckets.get(symbol);
+        return b != null ? b : symbolBuckets.computeIfAbsent(symbol, k -> new TokenBucket("quote:" + k, symbolRate, symbolBurst, clock));
     }
-    
-    private boolean checkBidAskQuote(QuoteInstruction instruction) {
-        // 买卖价模式检查
-        BigDecimal bidPrice = instruction.getBidPrice();
-        BigDecimal askPrice = instruction.getAskPrice();
-        
-        // 基本检查：价格不能为空且必须为正数
-        if (bidPrice == null || askPrice == null) {
-            System.out.println("[Executor] 风控失败: 买价或卖价为空");
-            return false;
-        }
-        
-        if (bidPrice.compareTo(BigDecimal.ZERO) <= 0 || askPrice.compareTo(BigDecimal.ZERO) <= 0) {
-            System.out.println("[Executor] 风控失败: 价格必须大于0");
-            return false;
-        }
-        
-        // 买卖价差检查：买价必须小于卖价
-        if (bidPrice.compareTo(askPrice) >= 0) {
-            System.out.println("[Executor] 风控失败: 买价必须小于卖价");
-            return false;
+
+    // 返回 null 表示额度通过；失败时原在挂报价的预占保持不变
+    private String reserveQuoteCredit(QuoteInstruction instruction) {
+        CreditLimitService limits = credit;
+        if (limits == null) return null;
+        String symbol = instruction.getSymbol();
+        BigDecimal px = quotePrice(instruction);
+        BigDecimal notional = px.multiply(instruction.getSize());
+        CreditRates rates = creditRates;
+        if (rates != null) {
+            FxSymbol fx = creditSymbols.apply(symbol);
+            notional = fx == null ? null : rates.convert(fx, px, notional, limits.limitCurrency());
+            if (notional == null) return symbol + " 无法换算到 " + limits.limitCurrency();
         }
-        
-        // 买价上限检查：买价不应当高于某个价格（与单元测试对齐：上限100）
-        BigDecimal maxBidPrice = new BigDecimal("100.0"); // 买价上限
-        if (bidPrice.compareTo(maxBidPrice) > 0) {
-            System.out.println(String.format("[Executor] 风控失败: 买价 %.2f 高于上限 %.2f", bidPrice, maxBidPrice));
-            return false;
+        for (;;) {
+            Reservation standing = standingQuotes.get(symbol);
+            if (standing == null) {
+                Reservation r = limits.reserve(creditProvider, creditCounterparty, notional);
+                if (!r.isGranted()) return r.rejectReason();
+                standing = standingQuotes.putIfAbsent(symbol, r);
+                if (standing == null) return null;
+                r.release(); // 并发的另一笔报价已登记在挂预占，改为调整那一笔
+            }
+            if (standing.tryResize(notional)) return null;
+            if (!standing.isReleased()) return "在挂报价额度调整失败";
+            // 并发的 releaseQuoteCredit 已释放这一笔：不复活它，移除后重新预占
+            standingQuotes.remove(symbol, standing);
         }
-        
-        // 卖价下限检查：卖价不应当低于某个价格（与单元测试对齐：下限50）
-        BigDecimal minAskPrice = new BigDecimal("50.0"); // 卖价下限
-        if (askPrice.compareTo(minAskPrice) < 0) {
-            System.out.println(String.format("[Executor] 风控失败: 卖价 %.2f 低于下限 %.2f", askPrice, minAskPrice));
+    }
+
+    // 报价名义金额按两侧中较高的价格计：数量 × 该价格，单位为 Quote 货币
+    private static BigDecimal quotePrice(QuoteInstruction instruction) {
+        BigDecimal px = BigDecimal.ZERO;
+        if (instruction.getBidPrice() != null) px = px.max(instruction.getBidPrice());
+        if (instruction.getAskPrice() != null) px = px.max(instruction.getAskPrice());
+        return px;
+    }
+
+    private boolean riskCheck(QuoteInstruction instruction) {
+        // 风控检查：按报价模式检查价格，规则与阈值见 QuoteRiskRule
+        String reason = riskRule.check(instruction.getQuoteType(), instruction.getBidPrice(), instruction.getAskPrice());
+        if (reason != null) {
+            ConsoleLog.println("[Executor] 风控失败: %s", reason);
             return false;
         }
-        
-        System.out.println(String.format("[Executor] 买卖价风控检查通过: 买价=%.2f, 卖价=%.2f", bidPrice, askPrice));
+        ConsoleLog.println("[Executor] %s 风控检查通过", instruction.getQuoteType());
         return true;
     }
 }
@@ -0,0 +1,70 @@
+package com.example.trade.demo.domain.service;
+
+import java.math.BigDecimal;
+
+import com.example.trade.demo.domain.entity.QuoteInstruction.QuoteType;
+
+/**
+ * 报价价格风控：价格必须为正，买价不高于 maxBidPrice，卖价不低于 minAskPrice，双边报价买价必须小于卖价。
+ * QuoteExecutor 按 BigDecimal 检查；零分配流水线通过 atScale 换算成定点阈值后按 long 检查，两者共用同一组阈值与规则。
+ */
+public record QuoteRiskRule(BigDecimal maxBidPrice, BigDecimal minAskPrice) {
+
+    /** 与单元测试对齐：买价上限 100，卖价下限 50 */
+    public static final QuoteRiskRule DEFAULT = new QuoteRiskRule(new BigDecimal("100.0"), new BigDecimal("50.0"));
+
+    /** 返回 null 表示通过，否则返回拒绝原因；未使用的一侧价格传 null */
+    public String check(QuoteType type, BigDecimal bid, BigDecimal ask) {
+        if (type == null) return "未知的报价类型";
+        switch (type) {
+            case BID:
+                return checkBid(bid);
+            case ASK:
+                return checkAsk(ask);
+            case BID_ASK:
+                if (bid == null || ask == null) return "买价或卖价为空";
+                if (bid.signum() <= 0 || ask.signum() <= 0) return "价格必须大于0";
+                if (bid.compareTo(ask) >= 0) return "买价必须小于卖价";
+                String reason = checkBid(bid);
+                return reason != null ? reason : checkAsk(ask);
+            default:
+                return "未知的报价类型";
+        }
+    }
+
+    private String checkBid(BigDecimal bid) {
+        if (bid == null) return "买价为空";
+        if (bid.signum() <= 0) return "买价必须大于0";
+        if (bid.compareTo(maxBidPrice) > 0) return String.format("买价 %.2f 高于上限 %.2f", bid, maxBidPrice);
+        return null;
+    }
+
+    private String checkAsk(BigDecimal ask) {
+        if (ask == null) return "卖价为空";
+        if (ask.signum() <= 0) return "卖价必须大于0";
+        if (ask.compareTo(minAskPrice) < 0) return String.format("卖价 %.2f 低于下限 %.2f", ask, minAskPrice);
+        return null;
+    }
+
+    /** 换算为 priceScale 位小数的定点阈值 */
+    public FixedPoint atScale(int priceScale) {
+        return new FixedPoint(maxBidPrice.movePointRight(priceScale).longValueExact(),
+                minAskPrice.movePointRight(priceScale).longValueExact());
+    }
+
+    /** 定点版本，供热路径使用：只返回是否通过，不分配拒绝原因 */
+    public record FixedPoint(long maxBidPrice, long minAskPrice) {
+        public boolean passes(QuoteType type, long bid, long ask) {
+            switch (type) {
+                case BID:
+                    return bid > 0 && bid <= maxBidPrice;
+                case ASK:
+                    return ask > 0 && ask >= minAskPrice;
+                case BID_ASK:
+                    return bid > 0 && ask > 0 && bid < ask && bid <= maxBidPrice && ask >= minAskPrice;
+                default:
+                    return false;
+            }
+        }
+    }
+}
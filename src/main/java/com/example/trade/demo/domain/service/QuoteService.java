@@ -1,63 +1,338 @@
 package com.example.trade.demo.domain.service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
 import com.example.trade.demo.domain.entity.MarketDataEvent;
 import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.PriceScalePolicy;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
 import com.example.trade.demo.domain.entity.QuoteInstruction;
+import com.example.trade.demo.domain.jfr.QuoteTickEvent;
+import com.example.trade.demo.domain.jfr.StrategyDecisionEvent;
+import com.example.trade.demo.domain.log.ConsoleLog;
 
 @Service
 public class QuoteService {
-    private final Map<String, MarketDepthAggregator> aggregators = new ConcurrentHashMap<>();
+    // 按注册表 symbol ID 下标存放聚合器；扩容、创建与淘汰在 aggregatorLock 内进行，读取无锁
+    private final InstrumentRegistry registry;
+    private volatile AtomicReferenceArray<MarketDepthAggregator> aggregators = new AtomicReferenceArray<>(64);
+    private final Object aggregatorLock = new Object();
+    private final AtomicInteger activeSymbols = new AtomicInteger();
     private final QuoteStrategy strategy;
     private final QuoteExecutor executor;
+    private final ProviderTtlPolicy ttlPolicy;
+    // 各 symbol 的价格小数位，决定新建聚合器价格阶梯的 tick
+    private final PriceScalePolicy priceScales = PriceScalePolicy.unspecified();
+    private final Clock clock;
+    // 空闲 symbol 淘汰：超过 idleEvictMillis 未更新的聚合器被移除；0 表示不淘汰
+    private final long idleEvictMillis;
+    private volatile long lastSweepMillis;
+    // 执行结果观察者（回测收集、下游推送等），与 LogAndFeedBack 并行接收结果
+    private final List<Consumer<ExecutionResult>> resultListeners = new CopyOnWriteArrayList<>();
+    // 深度观察者（交叉盘合成等）：每笔行情更新深度、处理完毕后在同一线程上收到聚合器与该事件
+    private final List<BiConsumer<MarketDepthAggregator, MarketDataEvent>> depthListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     private LogAndFeedBack logAndFeedback; // 引入日志反馈模块
 
+    private volatile LatencyTracer latencyTracer; // 可选：tick-to-quote 延迟追踪
+
+    @Autowired
     public QuoteService(QuoteStrategy strategy) {
+        this(strategy, ProviderTtlPolicy.never(), null, Clock.systemUTC());
+    }
+
+    public QuoteService(QuoteStrategy strategy, ProviderTtlPolicy ttlPolicy, Duration idleEvictAfter, Clock clock) {
+        this(strategy, new QuoteExecutor(), ttlPolicy, idleEvictAfter, clock);
+    }
+
+    public QuoteService(QuoteStrategy strategy, QuoteExecutor executor, ProviderTtlPolicy ttlPolicy,
+                        Duration idleEvictAfter, Clock clock) {
+        this(strategy, executor, ttlPolicy, idleEvictAfter, clock, new InstrumentRegistry());
+    }
+
+    public QuoteService(QuoteStrategy strategy, QuoteExecutor executor, ProviderTtlPolicy ttlPolicy,
+                        Duration idleEvictAfter, Clock clock, InstrumentRegistry registry) {
+        this.registry = registry;
         this.strategy = strategy;
-        this.executor = new QuoteExecutor(); // 初始化执行器
+        this.executor = executor;
+        this.ttlPolicy = ttlPolicy;
+        this.clock = clock;
+        this.idleEvictMillis = (idleEvictAfter == null || idleEvictAfter.isNegative()) ? 0L : idleEvictAfter.toMillis();
+        this.lastSweepMillis = clock.millis();
+    }
+
+    public ProviderTtlPolicy getTtlPolicy() { return ttlPolicy; }
+
+    public PriceScalePolicy getPriceScalePolicy() { return priceScales; }
+
+    public InstrumentRegistry getRegistry() { return registry; }
+
+    public int getActiveSymbolCount() { return activeSymbols.get(); }
+
+    // 查询某 symbol 当前的聚合器；未收到过行情或已被淘汰时返回 null
+    public MarketDepthAggregator aggregatorOf(String symbol) {
+        int id = registry.findSymbol(symbol);
+        return id < 0 ? null : aggregatorOf(id);
+    }
+
+    public MarketDepthAggregator aggregatorOf(int symbolId) {
+        AtomicReferenceArray<MarketDepthAggregator> arr = aggregators;
+        return symbolId < arr.length() ? arr.get(symbolId) : null;
+    }
+
+    // 取得或创建某 symbol 的聚合器（检查点恢复等在行情到达前预置深度的场景）
+    public MarketDepthAggregator aggregatorFor(String symbol) {
+        int id = registry.symbolId(symbol);
+        MarketDepthAggregator agg = aggregatorOf(id);
+        return agg != null ? agg : createAggregator(id);
+    }
+
+    // 当前全部聚合器的快照列表，供检查点等后台任务遍历
+    public List<MarketDepthAggregator> activeAggregators() {
+        AtomicReferenceArray<MarketDepthAggregator> arr = aggregators;
+        List<MarketDepthAggregator> out = new ArrayList<>(activeSymbols.get());
+        for (int i = 0; i < arr.length(); i++) {
+            MarketDepthAggregator agg = arr.get(i);
+            if (agg != null) out.add(agg);
+        }
+        return out;
+    }
+
+    @Autowired(required = false)
+    public void setLatencyTracer(LatencyTracer latencyTracer) { this.latencyTracer = latencyTracer; }
+
+    public void addResultListener(Consumer<ExecutionResult> listener) { resultListeners.add(listener); }
+
+    public void removeResultListener(Consumer<ExecutionResult> listener) { resultListeners.remove(listener); }
+
+    public int resultListenerCount() { return resultListeners.size(); }
+
+    public void addDepthListener(BiConsumer<MarketDepthAggregator, MarketDataEvent> listener) { depthListeners.add(listener); }
+
+    public void removeDepthListener(BiConsumer<MarketDepthAggregator, MarketDataEvent> listener) { depthListeners.remove(listener); }
+
+    // 背压式行情入口：返回的订阅者可订阅到任意 Flow.Publisher<MarketDataEvent>，处理在 executor 上串行进行
+    public MarketDataSubscriber marketDataSubscriber(Executor executor, MarketDataBufferPolicy policy, int window) {
+        return new MarketDataSubscriber(this, executor, policy, window);
+    }
+
+    // 执行结果的 Flow.Publisher；慢订阅者超过 maxBufferCapacity 的结果被丢弃，不阻塞报价线程。关闭时注销结果监听
+    public ExecutionResultPublisher resultPublisher(Executor executor, int maxBufferCapacity) {
+        ExecutionResultPublisher publisher = new ExecutionResultPublisher(executor, maxBufferCapacity);
+        publisher.onClose(() -> removeResultListener(publisher));
+        addResultListener(publisher);
+        return publisher;
     }
 
     // 核心业务流程入口
     public void onMarketData(MarketDataEvent event) {
-        System.out.println("\n--- [QuoteService] 处理行情事件 ---");
-        System.out.println(String.format("[Market] 收到行情: %s", event));
+        ConsoleLog.println("\n--- [QuoteService] 处理行情事件 ---");
+        ConsoleLog.println("[Market] 收到行情: %s", event);
 
         String symbol = event.getSymbol();
+        QuoteTickEvent jfr = new QuoteTickEvent();
+        jfr.start();
+        maybeEvictIdleSymbols();
 
-        // 1. 获取或创建聚合器实例
-        MarketDepthAggregator aggregator = aggregators.computeIfAbsent(symbol, MarketDepthAggregator::new);
-        System.out.println(String.format("[QuoteService] 使用聚合器: %s", aggregator.getSymbol()));
+        // 1. 获取或创建聚合器实例（事件已携带注册表 ID 时不再按名称查找）
+        int symbolId = event.getSymbolId() >= 0 ? event.getSymbolId() : registry.symbolId(symbol);
+        int providerId = event.getProviderId() >= 0 ? event.getProviderId() : registry.providerId(event.getProvider());
+        MarketDepthAggregator aggregator = aggregatorOf(symbolId);
+        if (aggregator == null) aggregator = createAggregator(symbolId);
+        ConsoleLog.println("[QuoteService] 使用聚合器: %s", aggregator.getSymbol());
 
-        // 2. 更新聚合器深度数据
-        aggregator.updateDepth(event.getProvider(), event.getAskLevels(), event.getBidLevels());
+        // 2. 更新聚合器深度数据，并判断策略关心的前 N 档是否变化
+        boolean topChanged = aggregator.updateDepth(providerId, event.getAskLevels(), event.getBidLevels(),
+                strategy.depthOfInterest());
+        MarketDepthAggregator installed = reinstall(symbolId, aggregator);
+        if (installed != aggregator) {
+            // 更新期间被淘汰且已有新聚合器接替：本次更新重放到新聚合器上
+            aggregator = installed;
+            topChanged = aggregator.updateDepth(providerId, event.getAskLevels(), event.getBidLevels(),
+                    strategy.depthOfInterest());
+        }
+        jfr.aggregateNanos = jfr.lap();
+        if (!topChanged) {
+            ConsoleLog.println("[QuoteService] %s: 前 %d 档未变化，跳过策略计算", symbol, strategy.depthOfInterest());
+            ConsoleLog.println("--- [QuoteService] 行情事件处理完毕 ---\n");
+            commitTick(jfr, event, false, null);
+            notifyDepth(aggregator, event);
+            return;
+        }
 
         // 3. 调用策略生成指令
+        StrategyDecisionEvent decision = new StrategyDecisionEvent();
+        decision.begin();
         QuoteInstruction instruction = strategy.decideQuote(aggregator);
+        commitDecision(decision, symbol, instruction);
+        jfr.strategyNanos = jfr.lap();
+        ExecutionResult executed = null;
 
         // 4. 如果有指令，则执行
         if (instruction != null) {
+            instruction = instruction.withTrace(clock.millis(), event.getReceivedNanos(), System.nanoTime());
+
             // 5. 调用执行器执行指令，并获取执行结果
             ExecutionResult result = executor.executeQuote(instruction);
+            jfr.executeNanos = jfr.lap();
+            executed = result;
+            LatencyTracer tracer = latencyTracer;
+            if (tracer != null) {
+                tracer.record(result);
+            }
+            for (Consumer<ExecutionResult> listener : resultListeners) {
+                listener.accept(result);
+            }
 
             // 6. 将执行结果传递给日志/反馈模块 (符合 sequenceDiagram)
             if (logAndFeedback != null) {
                 logAndFeedback.handleExecutionResult(result);
             } else {
                 // 如果依赖注入失败，使用简单的日志输出
-                System.out.println(String.format("[QuoteService] 执行结果: %s", result));
+                ConsoleLog.println("[QuoteService] 执行结果: %s", result);
             }
         } else {
-            System.out.println(String.format("[QuoteService] %s: 策略未生成指令", symbol));
+            ConsoleLog.println("[QuoteService] %s: 策略未生成指令", symbol);
         }
 
-        System.out.println("--- [QuoteService] 行情事件处理完毕 ---\n");
+        ConsoleLog.println("--- [QuoteService] 行情事件处理完毕 ---\n");
+        commitTick(jfr, event, true, executed);
+        notifyDepth(aggregator, event);
+    }
+
+    private void notifyDepth(MarketDepthAggregator aggregator, MarketDataEvent event) {
+        for (BiConsumer<MarketDepthAggregator, MarketDataEvent> listener : depthListeners) {
+            try {
+                listener.accept(aggregator, event);
+            } catch (RuntimeException e) {
+                ConsoleLog.println("[QuoteService] 深度监听器异常: %s", e);
+            }
+        }
+    }
+
+    // JFR 事件：未开启时 shouldCommit 为 false，不填充字段
+    private static void commitTick(QuoteTickEvent jfr, MarketDataEvent event, boolean topChanged, ExecutionResult result) {
+        if (!jfr.shouldCommit()) return;
+        jfr.symbol = event.getSymbol();
+        jfr.provider = event.getProvider();
+        jfr.topChanged = topChanged;
+        jfr.quoted = result != null;
+        jfr.success = result != null && result.isSuccess();
+        jfr.commit();
+    }
+
+    private void commitDecision(StrategyDecisionEvent decision, String symbol, QuoteInstruction instruction) {
+        if (!decision.shouldCommit()) return;
+        decision.symbol = symbol;
+        decision.strategy = strategy.getClass().getSimpleName();
+        decision.produced = instruction != null;
+        if (instruction != null) {
+            decision.quoteType = instruction.getQuoteType().name();
+            decision.bid = instruction.getBidPrice() == null ? Double.NaN : instruction.getBidPrice().doubleValue();
+            decision.ask = instruction.getAskPrice() == null ? Double.NaN : instruction.getAskPrice().doubleValue();
+            decision.size = instruction.getSize() == null ? Double.NaN : instruction.getSize().doubleValue();
+        }
+        decision.commit();
+    }
+
+    private MarketDepthAggregator createAggregator(int symbolId) {
+        synchronized (aggregatorLock) {
+            AtomicReferenceArray<MarketDepthAggregator> arr = aggregators;
+            if (symbolId >= arr.length()) {
+                AtomicReferenceArray<MarketDepthAggregator> grown =
+                        new AtomicReferenceArray<>(Math.max(symbolId + 1, arr.length() * 2));
+                for (int i = 0; i < arr.length(); i++) grown.set(i, arr.get(i));
+                aggregators = arr = grown;
+            }
+            MarketDepthAggregator existing = arr.get(symbolId);
+            if (existing != null) return existing;
+            MarketDepthAggregator created = new MarketDepthAggregator(registry.symbolName(symbolId), ttlPolicy, clock, registry,
+                    priceScales.scaleOf(registry.symbolName(symbolId)));
+            arr.set(symbolId, created);
+            activeSymbols.incrementAndGet();
+            return created;
+        }
+    }
+
+    // 淘汰与 onMarketData 并发时，更新可能写进了刚被移出槽位的聚合器。更新先写更新计数再读槽位，
+    // 淘汰先清槽位再重读更新计数（均为 volatile），二者至少有一方看到对方：要么淘汰发现更新并放回，
+    // 要么这里发现被移出。槽位为空时把聚合器放回；已被新建的聚合器占用时返回占用者，由调用方重放更新
+    private MarketDepthAggregator reinstall(int symbolId, MarketDepthAggregator aggregator) {
+        if (aggregatorOf(symbolId) == aggregator) return aggregator;
+        synchronized (aggregatorLock) {
+            AtomicReferenceArray<MarketDepthAggregator> arr = aggregators;
+            if (arr.compareAndSet(symbolId, null, aggregator)) {
+                activeSymbols.incrementAndGet();
+                return aggregator;
+            }
+            return arr.get(symbolId);
+        }
+    }
+
+    // 恢复某 provider 的深度（分区迁入等）：不运行策略，深度标记为 restored，已有实时深度时不覆盖
+    public boolean restoreDepth(MarketDataEvent event) {
+        return aggregatorFor(event.getSymbol()).restoreDepth(event.getProvider(), event.getAskLevels(),
+                event.getBidLevels(), clock.millis());
+    }
+
+    // 移除某 symbol 的聚合器（如分区迁移到其他节点后）；不存在时返回 false
+    public boolean evictSymbol(String symbol) {
+        int id = registry.findSymbol(symbol);
+        if (id < 0) return false;
+        synchronized (aggregatorLock) {
+            AtomicReferenceArray<MarketDepthAggregator> arr = aggregators;
+            if (id >= arr.length() || arr.get(id) == null) return false;
+            arr.set(id, null);
+        }
+        activeSymbols.decrementAndGet();
+        return true;
+    }
+
+    // 每个淘汰周期最多扫描一次，单个 tick 不遍历全部 symbol
+    private void maybeEvictIdleSymbols() {
+        if (idleEvictMillis <= 0) return;
+        long now = clock.millis();
+        if (now - lastSweepMillis < idleEvictMillis) return;
+        lastSweepMillis = now;
+        evictIdleSymbols(now);
+    }
+
+    // 也可由外部定时器驱动
+    public int evictIdleSymbols(long nowMillis) {
+        if (idleEvictMillis <= 0) return 0;
+        int evicted = 0;
+        synchronized (aggregatorLock) {
+            AtomicReferenceArray<MarketDepthAggregator> arr = aggregators;
+            for (int i = 0; i < arr.length(); i++) {
+                MarketDepthAggregator agg = arr.get(i);
+                if (agg == null) continue;
+                long updates = agg.getUpdateCount();
+                // 只移除判定空闲时看到的那个聚合器
+                if (nowMillis - agg.getLastUpdateMillis() <= idleEvictMillis || !arr.compareAndSet(i, agg, null)) continue;
+                // 移除后重读：判定之后有更新时放回（更新方也可能已经 reinstall，此时 CAS 失败、活跃数由其补回）
+                if (agg.getUpdateCount() != updates && arr.compareAndSet(i, null, agg)) continue;
+                evicted++;
+            }
+        }
+        activeSymbols.addAndGet(-evicted);
+        if (evicted > 0) {
+            ConsoleLog.println("[QuoteService] 淘汰空闲 symbol %d 个", evicted);
+        }
+        return evicted;
     }
 }
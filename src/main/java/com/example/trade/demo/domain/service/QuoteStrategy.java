@@ -7,4 +7,10 @@ import com.example.trade.demo.domain.entity.QuoteInstruction;
 public interface QuoteStrategy {
     QuoteInstruction decideQuote(MarketDepthAggregator aggregator);
     // 简化，去掉 MarketContext
+
+    // 策略关心的合并盘口档数：聚合器据此判断前 N 档是否变化，未变化时跳过策略计算。
+    // 默认关心全部档位（任何更新都会触发策略）。
+    default int depthOfInterest() {
+        return Integer.MAX_VALUE;
+    }
 }
@@ -0,0 +1,32 @@
+package com.example.trade.demo.domain.service;
+
+import java.time.Duration;
+
+/**
+ * 超过发送速率时的处理策略。
+ * - QUEUE：预订下一个令牌并延迟发送，需等待超过 maxQueueDelay 时拒绝；
+ * - COALESCE：同 QUEUE，但同一对象（子单改价、同一 symbol 报价）排队期间只保留最新一笔，被取代的一笔不再发送；
+ * - REJECT：没有可用令牌立即拒绝。
+ * 撤单不受策略影响：总是排队发送，不会因限流被丢弃。
+ */
+public record RateLimitPolicy(Mode mode, Duration maxQueueDelay) {
+
+    public enum Mode { QUEUE, COALESCE, REJECT }
+
+    public RateLimitPolicy {
+        if (mode != Mode.REJECT && (maxQueueDelay == null || maxQueueDelay.isNegative())) {
+            throw new IllegalArgumentException("maxQueueDelay must be non-negative: " + maxQueueDelay);
+        }
+    }
+
+    public static RateLimitPolicy queue(Duration maxQueueDelay) { return new RateLimitPolicy(Mode.QUEUE, maxQueueDelay); }
+
+    public static RateLimitPolicy coalesce(Duration maxQueueDelay) { return new RateLimitPolicy(Mode.COALESCE, maxQueueDelay); }
+
+    public static RateLimitPolicy reject() { return new RateLimitPolicy(Mode.REJECT, Duration.ZERO); }
+
+    /** 允许的最长排队时间（纳秒） */
+    public long maxWaitNanos() {
+        return mode == Mode.REJECT ? 0 : maxQueueDelay.toNanos();
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Optional;
 
 import com.example.trade.demo.domain.entity.MarketDepthAggregator;
 import com.example.trade.demo.domain.entity.QuoteInstruction;
+import com.example.trade.demo.domain.log.ConsoleLog;
 
 public class SimpleBestPriceStrategy implements QuoteStrategy{
     
@@ -25,14 +26,20 @@ public class SimpleBestPriceStrategy implements QuoteStrategy{
         this.strategyType = strategyType;
     }
     
+    // 只使用最优价，仅关心第一档
+    @Override
+    public int depthOfInterest() {
+        return 1;
+    }
+
     @Override
     public QuoteInstruction decideQuote(MarketDepthAggregator aggregator) {
-        System.out.println("[Strategy] 策略决定报价: " + aggregator.getSymbol());
+        ConsoleLog.println("[Strategy] 策略决定报价: %s", aggregator.getSymbol());
         Optional<BigDecimal> bestBid = aggregator.getBestBid();
         Optional<BigDecimal> bestAsk = aggregator.getBestAsk();
 
         if (!bestBid.isPresent() || !bestAsk.isPresent()) {
-            System.out.println("[Strategy] 无法获取最优价格，不生成指令");
+            ConsoleLog.println("[Strategy] 无法获取最优价格，不生成指令");
             return null;
         }
 
@@ -55,7 +62,7 @@ public class SimpleBestPriceStrategy implements QuoteStrategy{
         QuoteInstruction instruction = QuoteInstruction.createBidQuote(
             symbol, bidPrice, BigDecimal.ONE, "SimpleBestPriceStrategy-BID"
         );
-        System.out.println("[Strategy] 生成买价指令: " + instruction);
+        ConsoleLog.println("[Strategy] 生成买价指令: %s", instruction);
         return instruction;
     }
     
@@ -63,7 +70,7 @@ public class SimpleBestPriceStrategy implements QuoteStrategy{
         QuoteInstruction instruction = QuoteInstruction.createAskQuote(
             symbol, askPrice, BigDecimal.ONE, "SimpleBestPriceStrategy-ASK"
         );
-        System.out.println("[Strategy] 生成卖价指令: " + instruction);
+        ConsoleLog.println("[Strategy] 生成卖价指令: %s", instruction);
         return instruction;
     }
     
@@ -71,7 +78,7 @@ public class SimpleBestPriceStrategy implements QuoteStrategy{
         QuoteInstruction instruction = QuoteInstruction.createBidAskQuote(
             symbol, bidPrice, askPrice, BigDecimal.ONE, "SimpleBestPriceStrategy-BID_ASK"
         );
-        System.out.println("[Strategy] 生成买卖价指令: " + instruction);
+        ConsoleLog.println("[Strategy] 生成买卖价指令: %s", instruction);
         return instruction;
     }
 }
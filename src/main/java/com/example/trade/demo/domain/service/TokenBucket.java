@@ -0,0 +1,99 @@
+package com.example.trade.demo.domain.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁令牌桶（GCRA 形式）：每秒补充 permitsPerSecond 个令牌，最多积攒 burst 个。
+ * 桶的全部状态是一个"理论到达时间"（TAT，纳秒）：每取一个令牌 TAT 前进一个发放间隔，
+ * TAT 超前当前时间不超过 burst 个间隔即可放行；取令牌只是对这一个 AtomicLong 的 CAS，没有锁、没有后台补充线程。
+ * reserve(maxWait) 允许预订未来的令牌：返回需要等待的纳秒数，调用方据此延迟发送，预订按先后顺序排队。
+ */
+public final class TokenBucket {
+
+    private final Clock clock;
+    private final String name;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong tat = new AtomicLong();
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    public TokenBucket(String name, double permitsPerSecond, int burst, Clock clock) {
+        if (!(permitsPerSecond > 0)) throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        if (burst < 1) throw new IllegalArgumentException("burst must be positive: " + burst);
+        this.name = name;
+        this.clock = clock;
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000d / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+    }
+
+    /** 立即取一个令牌；没有可用令牌时返回 false */
+    public boolean tryAcquire() {
+        return reserve(0) >= 0;
+    }
+
+    /**
+     * 预订一个令牌：返回需等待的纳秒数（0 表示立即可用），等待超过 maxWaitNanos 时不预订并返回 -1。
+     */
+    public long reserve(long maxWaitNanos) {
+        long now = nowNanos();
+        for (;;) {
+            long cur = tat.get();
+            long next = Math.max(cur, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > maxWaitNanos) {
+                throttled.increment();
+                return -1;
+            }
+            if (tat.compareAndSet(cur, next)) {
+                granted.increment();
+                if (wait > 0) {
+                    delayed.increment();
+                    return wait;
+                }
+                return 0;
+            }
+        }
+    }
+
+    /** 退还最近预订的一个令牌（组合限流中另一只桶拒绝时回滚） */
+    public void refund() {
+        tat.addAndGet(-intervalNanos);
+        granted.decrement();
+    }
+
+    /** 当前可用令牌数（近似值，仅用于监控） */
+    public double available() {
+        long ahead = Math.max(0, tat.get() - nowNanos());
+        return Math.max(0, (double) (burstNanos - ahead) / intervalNanos);
+    }
+
+    public String name() { return name; }
+    public long granted() { return granted.sum(); }
+    public long delayed() { return delayed.sum(); }
+    public long throttled() { return throttled.sum(); }
+
+    /**
+     * 同时向两只桶（如 provider 与 symbol）预订；任一为 null 时只看另一只。
+     * 后一只拒绝时退还前一只的令牌，返回两者中较长的等待，失败返回 -1。
+     */
+    public static long reserveBoth(TokenBucket first, TokenBucket second, long maxWaitNanos) {
+        long w1 = first == null ? 0 : first.reserve(maxWaitNanos);
+        if (w1 < 0) return -1;
+        long w2 = second == null ? 0 : second.reserve(maxWaitNanos);
+        if (w2 < 0) {
+            if (first != null) first.refund();
+            return -1;
+        }
+        return Math.max(w1, w2);
+    }
+
+    private long nowNanos() {
+        Instant now = clock.instant();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+}
@@ -2,6 +2,9 @@ package com.example.trade.demo.domain.service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
@@ -9,6 +12,7 @@ import java.util.TreeMap;
 
 import com.example.trade.demo.domain.entity.MarketDepthAggregator;
 import com.example.trade.demo.domain.entity.QuoteInstruction;
+import com.example.trade.demo.domain.service.VwapKernels.DepthBatch;
 
 /**
  * VMAP 报价策略（此处实现为 VWAP 口径，按聚合盘口计算目标量的加权均价），
@@ -40,12 +44,53 @@ public class VMAPBestPriceStrategy implements QuoteStrategy {
         }
     }
 
+    /**
+     * 批量报价的工作区：两侧深度批与全部中间/输出数组，按容量预分配，调用方持有并复用（非线程安全）。
+     * 行情变化后只需改写 bids/asks 中的价格数量再调用 priceBatch，不经过 BigDecimal。
+     */
+    public static final class Batch {
+        public final DepthBatch bids;
+        public final DepthBatch asks;
+        final double[] target;
+        final double[] tick;
+        final double[] vwapBid, vwapAsk, depthBid, depthAsk, acc;
+        public final long[] bidTicks;
+        public final long[] askTicks;
+        public final boolean[] quotable;
+
+        public Batch(int capacity, int maxLevels) {
+            bids = new DepthBatch(capacity, maxLevels);
+            asks = new DepthBatch(capacity, maxLevels);
+            target = new double[capacity];
+            tick = new double[capacity];
+            vwapBid = new double[capacity];
+            vwapAsk = new double[capacity];
+            depthBid = new double[capacity];
+            depthAsk = new double[capacity];
+            acc = new double[capacity];
+            bidTicks = new long[capacity];
+            askTicks = new long[capacity];
+            quotable = new boolean[capacity];
+        }
+
+        public void clear() {
+            bids.clear();
+            asks.clear();
+        }
+    }
+
     private final Params p;
 
     public VMAPBestPriceStrategy(Params params) {
         this.p = params;
     }
 
+    // VWAP 与深度保护最多只看 maxLevels 档
+    @Override
+    public int depthOfInterest() {
+        return p.maxLevels;
+    }
+
     @Override
     public QuoteInstruction decideQuote(MarketDepthAggregator aggregator) {
         // 1) 合并各 provider 深度到单本盘口
@@ -85,6 +130,57 @@ public class VMAPBestPriceStrategy implements QuoteStrategy {
         );
     }
 
+    /**
+     * 批量报价：一次为多个 symbol 计算，结果与逐个调用 decideQuote 一致；不可报价的位置为 null。
+     * 合并盘口仍按 provider 逐个合并，VWAP/深度/tick 对齐在原始数组上一次完成。
+     */
+    public List<QuoteInstruction> decideQuotes(List<MarketDepthAggregator> aggregators, Batch batch) {
+        int n = aggregators.size();
+        batch.clear();
+        for (int s = 0; s < n; s++) {
+            MarketDepthAggregator agg = aggregators.get(s);
+            batch.bids.load(s, mergeSide(agg.getAllBidDepth()).descendingMap());
+            batch.asks.load(s, mergeSide(agg.getAllAskDepth()));
+        }
+        priceBatch(batch, n);
+
+        List<QuoteInstruction> out = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            if (!batch.quotable[s]) {
+                out.add(null);
+                continue;
+            }
+            BigDecimal bidPx = BigDecimal.valueOf(batch.bidTicks[s]).multiply(p.tickSize);
+            BigDecimal askPx = BigDecimal.valueOf(batch.askTicks[s]).multiply(p.tickSize);
+            out.add(QuoteInstruction.createBidAskQuote(aggregators.get(s).getSymbol(), bidPx, askPx, p.quoteSize, p.strategyName));
+        }
+        return out;
+    }
+
+    /**
+     * 对已装载的前 n 个 symbol 计算两侧 VWAP、深度保护与 tick 对齐，结果写入 batch.bidTicks/askTicks/quotable。
+     * 全部在原始数组上完成，不分配对象。
+     */
+    public void priceBatch(Batch batch, int n) {
+        double target = p.targetQty.doubleValue();
+        double tick = p.tickSize.doubleValue();
+        // 与 BigDecimal 路径的精确比较对齐：深度恰好等于 minDepth 时不因浮点误差被拒绝
+        double minDepth = p.minDepth.doubleValue() * (1 - 1e-12);
+        Arrays.fill(batch.target, 0, n, target);
+        Arrays.fill(batch.tick, 0, n, tick);
+        VwapKernels.vwapToTarget(batch.bids, n, p.maxLevels, batch.target, batch.vwapBid, batch.depthBid, batch.acc);
+        VwapKernels.vwapToTarget(batch.asks, n, p.maxLevels, batch.target, batch.vwapAsk, batch.depthAsk, batch.acc);
+        VwapKernels.roundToTicks(batch.vwapBid, batch.tick, p.bidSteps, true, n, batch.bidTicks);
+        VwapKernels.roundToTicks(batch.vwapAsk, batch.tick, p.askSteps, false, n, batch.askTicks);
+        for (int s = 0; s < n; s++) {
+            // vwap 为 NaN（该侧无深度）时比较结果为 false
+            batch.quotable[s] = batch.vwapBid[s] > 0 && batch.vwapAsk[s] > 0
+                    && batch.depthBid[s] >= minDepth && batch.depthAsk[s] >= minDepth;
+            // 价格带保护
+            batch.askTicks[s] = Math.max(batch.askTicks[s], batch.bidTicks[s] + 1);
+        }
+    }
+
     private NavigableMap<BigDecimal, BigDecimal> mergeSide(Map<String, NavigableMap<BigDecimal, BigDecimal>> sideDepth) {
         NavigableMap<BigDecimal, BigDecimal> merged = new TreeMap<>();
         for (NavigableMap<BigDecimal, BigDecimal> perProvider : sideDepth.values()) {
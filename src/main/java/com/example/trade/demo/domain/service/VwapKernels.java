@@ -0,0 +1,104 @@
+package com.example.trade.demo.domain.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * VWAP / 累计深度 / tick 对齐的原始数组内核，可一次处理一批 symbol。
+ * 批数据按"档位优先"布局（第 l 档、第 s 个 symbol 位于 l * capacity + s），
+ * 内层循环沿 symbol 方向逐元素计算、无分支、无跨元素依赖，C2 可将其自动向量化（SuperWord）；
+ * 不足 maxLevels 的档位数量为 0，自然不贡献成交量，无需按档数分支。
+ * 价格/数量以 double 计算，tick 对齐带 1e-9 tick 的容差，避免恰好落在 tick 上的均价因舍入误差偏移一个 tick。
+ */
+public final class VwapKernels {
+
+    private static final double TICK_EPSILON = 1e-9;
+
+    private VwapKernels() {}
+
+    /** 一批盘口的单侧深度（SoA，档位优先），可复用：clear() 后重新装载 */
+    public static final class DepthBatch {
+        final int capacity;
+        final int levels;
+        final double[] px;
+        final double[] qty;
+        int size;
+
+        public DepthBatch(int capacity, int levels) {
+            this.capacity = capacity;
+            this.levels = levels;
+            this.px = new double[capacity * levels];
+            this.qty = new double[capacity * levels];
+        }
+
+        public int size() { return size; }
+        public int capacity() { return capacity; }
+        public int levels() { return levels; }
+
+        public void clear() {
+            Arrays.fill(px, 0, px.length, 0d);
+            Arrays.fill(qty, 0, qty.length, 0d);
+            size = 0;
+        }
+
+        // 设置第 s 个 symbol 的第 level 档；s 超出当前 size 时扩展 size
+        public void set(int s, int level, double price, double quantity) {
+            int i = level * capacity + s;
+            px[i] = price;
+            qty[i] = quantity;
+            if (s >= size) size = s + 1;
+        }
+
+        /** 把已按最优到次优排好序的深度（价格 → 数量）装入第 s 个 symbol 的前 levels 档 */
+        public void load(int s, Map<BigDecimal, BigDecimal> ordered) {
+            int l = 0;
+            for (Map.Entry<BigDecimal, BigDecimal> e : ordered.entrySet()) {
+                if (l >= levels) break;
+                set(s, l++, e.getKey().doubleValue(), e.getValue().doubleValue());
+            }
+            if (s >= size) size = s + 1;
+        }
+    }
+
+    /**
+     * 对前 n 个 symbol 计算覆盖 target[s] 的 VWAP 与前 maxLevels 档累计数量。
+     * 深度不足目标量时按已覆盖部分计算；一档都没有时 vwap 为 NaN。
+     * acc 为长度不小于 n 的临时数组（调用方复用，避免分配）。
+     */
+    public static void vwapToTarget(DepthBatch book, int n, int maxLevels, double[] target,
+                                    double[] outVwap, double[] outDepth, double[] acc) {
+        int cap = book.capacity;
+        int levels = Math.min(maxLevels, book.levels);
+        double[] px = book.px;
+        double[] qty = book.qty;
+        Arrays.fill(acc, 0, n, 0d);
+        Arrays.fill(outVwap, 0, n, 0d); // 先作为名义金额累加器
+        Arrays.fill(outDepth, 0, n, 0d);
+        for (int l = 0; l < levels; l++) {
+            int base = l * cap;
+            for (int s = 0; s < n; s++) {
+                double q = qty[base + s];
+                double take = Math.min(q, Math.max(0d, target[s] - acc[s]));
+                acc[s] += take;
+                outVwap[s] += px[base + s] * take;
+                outDepth[s] += q;
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            outVwap[s] = acc[s] > 0d ? outVwap[s] / acc[s] : Double.NaN;
+        }
+    }
+
+    /**
+     * price[s] 偏移 steps 个 tick 后对齐到 tick，输出 tick 数（价格 = ticks × tick）。
+     * bid 向下取整、ask 向上取整。
+     */
+    public static void roundToTicks(double[] price, double[] tick, int steps, boolean isBid, int n, long[] outTicks) {
+        if (isBid) {
+            for (int s = 0; s < n; s++) outTicks[s] = (long) Math.floor(price[s] / tick[s] + steps + TICK_EPSILON);
+        } else {
+            for (int s = 0; s < n; s++) outTicks[s] = (long) Math.ceil(price[s] / tick[s] + steps - TICK_EPSILON);
+        }
+    }
+}
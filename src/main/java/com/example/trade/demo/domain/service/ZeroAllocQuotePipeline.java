@@ -0,0 +1,107 @@
+package com.example.trade.demo.domain.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.example.trade.demo.domain.entity.MutableExecutionResult;
+import com.example.trade.demo.domain.entity.MutableMarketDataEvent;
+import com.example.trade.demo.domain.entity.MutableQuoteInstruction;
+import com.example.trade.demo.domain.entity.PrimitiveDepthBook;
+import com.example.trade.demo.domain.entity.QuoteInstruction;
+
+/**
+ * 零分配报价流水线：与 QuoteService 相同的 聚合 -> 最优价策略 -> 风控 -> 执行 流程，
+ * 但全程使用定点 long 与预分配的可变对象，稳态（所有 symbol/provider 出现过之后）每个事件不产生堆分配。
+ * 指令与结果对象由流水线持有并在每次事件时覆盖，只在 ResultHandler 回调期间有效。单线程使用。
+ */
+public class ZeroAllocQuotePipeline implements Consumer<MutableMarketDataEvent> {
+
+    public interface ResultHandler {
+        void onResult(MutableExecutionResult result);
+    }
+
+    private static final String MSG_OK = "执行成功";
+    private static final String MSG_RISK_REJECT = "风控检查失败";
+
+    private final Map<String, PrimitiveDepthBook> books = new HashMap<>();
+    // 事件携带注册表 symbol ID 时按下标取深度簿，不做字符串查找
+    private PrimitiveDepthBook[] booksById = new PrimitiveDepthBook[16];
+    private final SimpleBestPriceStrategy.StrategyType strategyType;
+    private final String strategyName;
+    private final QuoteRiskRule.FixedPoint riskRule;
+    private final long quoteSize;
+    private final int maxProviders;
+    private final int maxLevels;
+    private final ResultHandler handler;
+    private final MutableQuoteInstruction instruction = new MutableQuoteInstruction();
+    private final MutableExecutionResult result = new MutableExecutionResult();
+
+    public ZeroAllocQuotePipeline(SimpleBestPriceStrategy.StrategyType strategyType, int priceScale,
+                                  QuoteRiskRule riskRule, long quoteSize,
+                                  int maxProviders, int maxLevels, ResultHandler handler) {
+        this.strategyType = strategyType;
+        this.strategyName = "ZeroAllocBestPriceStrategy-" + strategyType;
+        this.riskRule = riskRule.atScale(priceScale);
+        this.quoteSize = quoteSize;
+        this.maxProviders = maxProviders;
+        this.maxLevels = maxLevels;
+        this.handler = handler;
+    }
+
+    @Override
+    public void accept(MutableMarketDataEvent event) {
+        onMarketData(event);
+    }
+
+    private PrimitiveDepthBook bookOf(MutableMarketDataEvent event) {
+        int id = event.getSymbolId();
+        if (id >= 0) {
+            if (id >= booksById.length) booksById = Arrays.copyOf(booksById, Math.max(id + 1, booksById.length * 2));
+            PrimitiveDepthBook book = booksById[id];
+            if (book == null) {
+                book = new PrimitiveDepthBook(event.getSymbol(), maxProviders, maxLevels);
+                booksById[id] = book;
+            }
+            return book;
+        }
+        PrimitiveDepthBook book = books.get(event.getSymbol());
+        if (book == null) {
+            book = new PrimitiveDepthBook(event.getSymbol(), maxProviders, maxLevels);
+            books.put(event.getSymbol(), book);
+        }
+        return book;
+    }
+
+    // 返回是否产生了执行结果
+    public boolean onMarketData(MutableMarketDataEvent event) {
+        PrimitiveDepthBook book = bookOf(event);
+        if (!book.update(event)) return false;
+
+        long bestBid = book.bestBid();
+        long bestAsk = book.bestAsk();
+        if (!book.markTop(bestBid, bestAsk)) return false;
+        if (bestBid == PrimitiveDepthBook.NO_PRICE || bestAsk == PrimitiveDepthBook.NO_PRICE) return false;
+
+        switch (strategyType) {
+            case BID_ONLY -> instruction.set(book.getSymbol(), QuoteInstruction.QuoteType.BID, bestBid, 0L,
+                    quoteSize, strategyName, event.getReceivedNanos(), System.nanoTime());
+            case ASK_ONLY -> instruction.set(book.getSymbol(), QuoteInstruction.QuoteType.ASK, 0L, bestAsk,
+                    quoteSize, strategyName, event.getReceivedNanos(), System.nanoTime());
+            default -> instruction.set(book.getSymbol(), QuoteInstruction.QuoteType.BID_ASK, bestBid, bestAsk,
+                    quoteSize, strategyName, event.getReceivedNanos(), System.nanoTime());
+        }
+
+        boolean passed = riskCheck(instruction);
+        long riskCheckedNanos = System.nanoTime();
+        result.set(passed, passed ? MSG_OK : MSG_RISK_REJECT, instruction, riskCheckedNanos, System.nanoTime());
+        handler.onResult(result);
+        return true;
+    }
+
+    // 与 QuoteExecutor 共用 QuoteRiskRule，按定点价格比较
+    private boolean riskCheck(MutableQuoteInstruction qi) {
+        return riskRule.passes(qi.getQuoteType(), qi.getBidPrice(), qi.getAskPrice());
+    }
+}
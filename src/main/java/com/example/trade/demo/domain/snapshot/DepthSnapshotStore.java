@@ -0,0 +1,244 @@
+package com.example.trade.demo.domain.snapshot;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.zip.CRC32;
+
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator.ProviderDepthSnapshot;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.time.Scheduler;
+
+/**
+ * 聚合器深度检查点：把 QuoteService 中全部 symbol × provider 的深度写入紧凑的内存映射文件，
+ * 重启时重新加载，使服务在各 LP 重发全量盘口之前即可基于上次状态报价。
+ * 文件布局（大端）：
+ *   [0, 32)  头部：magic、版本、写入时间、记录数、记录区长度、记录区 CRC32
+ *   [32, ..) 记录：symbol、provider（长度前缀 UTF-8）、provider 最近更新时间、两侧档位数、
+ *            档位（价格/数量各为 unscaled long + scale 字节）
+ * 写入先落到临时文件、force 后原子改名，崩溃时旧检查点保持完整。
+ * 恢复时每个 provider 单独判断时效：超过 maxAge 的丢弃，其余标记为 restored，直到该 provider 的首个实时更新。
+ * path 为 null 时检查点关闭：restore/checkpoint/startPeriodic/close 均不做任何事，便于按配置启停而不改变 bean 图。
+ */
+public final class DepthSnapshotStore implements AutoCloseable {
+
+    static final int MAGIC = 0x44534E50; // "DSNP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int LEVEL_SIZE = 18;
+
+    /** 一次恢复的结果 */
+    public record RestoreReport(int symbols, int providers, int skippedStale, long snapshotAgeMillis) {
+        static RestoreReport empty() { return new RestoreReport(0, 0, 0, -1); }
+    }
+
+    private final Path path;
+    private final QuoteService service;
+    private final Clock clock;
+    private volatile boolean closed;
+
+    public DepthSnapshotStore(Path path, QuoteService service, Clock clock) {
+        this.path = path;
+        this.service = service;
+        this.clock = clock;
+    }
+
+    /** 未配置路径时为 false，所有操作均为空操作 */
+    public boolean isEnabled() { return path != null; }
+
+    /** 写一次检查点，返回写入的 provider 深度条数 */
+    public synchronized int checkpoint() throws IOException {
+        if (path == null) return 0;
+        long now = clock.millis();
+        List<byte[]> symbols = new ArrayList<>();
+        List<List<ProviderDepthSnapshot>> depths = new ArrayList<>();
+        int bodyLength = 0;
+        int records = 0;
+        for (MarketDepthAggregator agg : service.activeAggregators()) {
+            List<ProviderDepthSnapshot> providers = agg.snapshotProviders(now);
+            if (providers.isEmpty()) continue;
+            byte[] symbol = agg.getSymbol().getBytes(StandardCharsets.UTF_8);
+            symbols.add(symbol);
+            depths.add(providers);
+            for (ProviderDepthSnapshot p : providers) {
+                bodyLength += recordSize(symbol, p);
+                records++;
+            }
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + bodyLength);
+            buf.position(HEADER_SIZE);
+            for (int i = 0; i < symbols.size(); i++) {
+                for (ProviderDepthSnapshot p : depths.get(i)) writeRecord(buf, symbols.get(i), p);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(HEADER_SIZE, bodyLength));
+            buf.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, now)
+                    .putInt(16, records).putInt(20, bodyLength).putLong(24, crc.getValue());
+            buf.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return records;
+    }
+
+    /**
+     * 加载检查点并预置聚合器深度；文件不存在或校验失败时冷启动（返回空结果）。
+     * maxAge 为 null 或 0 时不按时效丢弃。
+     */
+    public RestoreReport restore(Duration maxAge) throws IOException {
+        if (path == null || !Files.exists(path)) return RestoreReport.empty();
+        long now = clock.millis();
+        long maxAgeMillis = maxAge == null ? 0 : maxAge.toMillis();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_SIZE) return corrupt("文件过短");
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) return corrupt("magic/版本不匹配");
+            long writtenAt = buf.getLong(8);
+            int records = buf.getInt(16);
+            int bodyLength = buf.getInt(20);
+            if (bodyLength < 0 || HEADER_SIZE + (long) bodyLength > ch.size()) return corrupt("记录区长度越界");
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(HEADER_SIZE, bodyLength));
+            if (crc.getValue() != buf.getLong(24)) return corrupt("CRC 校验失败");
+
+            buf.position(HEADER_SIZE);
+            List<String> restoredSymbols = new ArrayList<>();
+            int providers = 0;
+            int skipped = 0;
+            for (int r = 0; r < records; r++) {
+                String symbol = readString(buf);
+                String provider = readString(buf);
+                long updatedAt = buf.getLong();
+                int askCount = buf.getShort() & 0xFFFF;
+                int bidCount = buf.getShort() & 0xFFFF;
+                List<OrderBookLevel> asks = readLevels(buf, askCount);
+                List<OrderBookLevel> bids = readLevels(buf, bidCount);
+                if (maxAgeMillis > 0 && now - updatedAt > maxAgeMillis) {
+                    skipped++;
+                    continue;
+                }
+                if (service.aggregatorFor(symbol).restoreDepth(provider, asks, bids, updatedAt)) {
+                    providers++;
+                    if (!restoredSymbols.contains(symbol)) restoredSymbols.add(symbol);
+                }
+            }
+            System.out.println(String.format("[Snapshot] 从 %s 恢复 %d 个 symbol / %d 个 provider 深度，丢弃过期 %d 条，快照距今 %dms",
+                    path, restoredSymbols.size(), providers, skipped, now - writtenAt));
+            return new RestoreReport(restoredSymbols.size(), providers, skipped, now - writtenAt);
+        }
+    }
+
+    /** 按固定间隔写检查点，直到 close() */
+    public void startPeriodic(Scheduler scheduler, Duration interval) {
+        if (path == null) return;
+        long millis = Math.max(1, interval.toMillis());
+        scheduler.schedule(new Runnable() {
+            @Override public void run() {
+                if (closed) return;
+                try {
+                    checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("[Snapshot] 检查点写入失败: " + e);
+                }
+                if (!closed) scheduler.schedule(this, millis);
+            }
+        }, millis);
+    }
+
+    /** 停止周期检查点并写最后一次（关闭时调用） */
+    @Override public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (path == null) return;
+        int records = checkpoint();
+        System.out.println(String.format("[Snapshot] 关闭前写入检查点 %s：%d 条 provider 深度", path, records));
+    }
+
+    private static RestoreReport corrupt(String reason) {
+        System.out.println("[Snapshot] 检查点不可用（" + reason + "），冷启动");
+        return RestoreReport.empty();
+    }
+
+    private static int recordSize(byte[] symbol, ProviderDepthSnapshot p) {
+        int providerBytes = p.provider().getBytes(StandardCharsets.UTF_8).length;
+        return 2 + symbol.length + 2 + providerBytes + 8 + 4
+                + (encodable(p.asks()) + encodable(p.bids())) * LEVEL_SIZE;
+    }
+
+    private static void writeRecord(ByteBuffer buf, byte[] symbol, ProviderDepthSnapshot p) {
+        byte[] provider = p.provider().getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) symbol.length).put(symbol);
+        buf.putShort((short) provider.length).put(provider);
+        buf.putLong(p.updatedAtMillis());
+        buf.putShort((short) encodable(p.asks()));
+        buf.putShort((short) encodable(p.bids()));
+        writeLevels(buf, p.asks());
+        writeLevels(buf, p.bids());
+    }
+
+    // unscaled 值超出 long 的档位不写入（实际行情价格/数量不会触及）
+    private static int encodable(NavigableMap<BigDecimal, BigDecimal> side) {
+        int n = 0;
+        for (Map.Entry<BigDecimal, BigDecimal> e : side.entrySet()) {
+            if (fits(e.getKey()) && fits(e.getValue())) n++;
+        }
+        return Math.min(n, 0xFFFF);
+    }
+
+    private static void writeLevels(ByteBuffer buf, NavigableMap<BigDecimal, BigDecimal> side) {
+        int limit = encodable(side);
+        int n = 0;
+        for (Map.Entry<BigDecimal, BigDecimal> e : side.entrySet()) {
+            if (n == limit) break;
+            if (!fits(e.getKey()) || !fits(e.getValue())) continue;
+            putDecimal(buf, e.getKey());
+            putDecimal(buf, e.getValue());
+            n++;
+        }
+    }
+
+    private static boolean fits(BigDecimal v) {
+        return v.unscaledValue().bitLength() < 64 && v.scale() >= Byte.MIN_VALUE && v.scale() <= Byte.MAX_VALUE;
+    }
+
+    private static void putDecimal(ByteBuffer buf, BigDecimal v) {
+        buf.putLong(v.unscaledValue().longValue()).put((byte) v.scale());
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buf) {
+        long unscaled = buf.getLong();
+        return new BigDecimal(BigInteger.valueOf(unscaled), buf.get());
+    }
+
+    private static List<OrderBookLevel> readLevels(ByteBuffer buf, int count) {
+        List<OrderBookLevel> levels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) levels.add(new OrderBookLevel(getDecimal(buf), getDecimal(buf)));
+        return levels;
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
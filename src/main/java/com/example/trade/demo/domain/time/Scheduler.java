@@ -0,0 +1,14 @@
+package com.example.trade.demo.domain.time;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** 定时任务抽象：生产环境委托给 ScheduledExecutorService，回测时由 VirtualScheduler 按虚拟时间驱动 */
+public interface Scheduler {
+
+    void schedule(Runnable task, long delayMillis);
+
+    static Scheduler of(ScheduledExecutorService executor) {
+        return (task, delayMillis) -> executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
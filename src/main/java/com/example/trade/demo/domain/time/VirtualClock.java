@@ -0,0 +1,24 @@
+package com.example.trade.demo.domain.time;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/** 虚拟时钟：时间只由调用方推进，且单调不回退；用于确定性回测 */
+public final class VirtualClock extends Clock {
+    private volatile long millis;
+
+    public VirtualClock(long startMillis) {
+        this.millis = startMillis;
+    }
+
+    public void advanceTo(long targetMillis) {
+        if (targetMillis > millis) millis = targetMillis;
+    }
+
+    @Override public long millis() { return millis; }
+    @Override public Instant instant() { return Instant.ofEpochMilli(millis); }
+    @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+    @Override public Clock withZone(ZoneId zone) { return this; }
+}
@@ -0,0 +1,44 @@
+package com.example.trade.demo.domain.time;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * 虚拟时间调度器：任务按 (到期时间, 提交顺序) 排队，runUntil 时依次推进时钟并执行，
+ * 同一时刻的任务按提交顺序执行，保证回放结果可复现。非线程安全，每个回放分区独占一个实例。
+ */
+public final class VirtualScheduler implements Scheduler {
+
+    private record Task(long dueMillis, long seq, Runnable action) {}
+
+    private final VirtualClock clock;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(
+            Comparator.comparingLong(Task::dueMillis).thenComparingLong(Task::seq));
+    private long seq;
+
+    public VirtualScheduler(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    @Override public void schedule(Runnable task, long delayMillis) {
+        queue.add(new Task(clock.millis() + Math.max(0, delayMillis), seq++, task));
+    }
+
+    /** 执行到期时间不晚于 targetMillis 的全部任务（含执行过程中新加入的），最后把时钟推进到 targetMillis */
+    public int runUntil(long targetMillis) {
+        int executed = 0;
+        Task t;
+        while ((t = queue.peek()) != null && t.dueMillis() <= targetMillis) {
+            queue.poll();
+            clock.advanceTo(t.dueMillis());
+            t.action().run();
+            executed++;
+        }
+        clock.advanceTo(targetMillis);
+        return executed;
+    }
+
+    public int pending() { return queue.size(); }
+
+    public VirtualClock clock() { return clock; }
+}
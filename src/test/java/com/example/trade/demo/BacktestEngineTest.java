@@ -0,0 +1,92 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.backtest.BacktestEngine;
+import com.example.trade.demo.domain.backtest.BacktestEvent;
+import com.example.trade.demo.domain.backtest.BacktestReport;
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.fx.event.FlatOrderCompleted;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class BacktestEngineTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static List<BacktestEvent> recordedDay() {
+        List<BacktestEvent> events = new ArrayList<>();
+        String[] symbols = {"ETHUSDT", "BTCUSDT", "SOLUSDT"};
+        for (int i = 0; i < 200; i++) {
+            for (int s = 0; s < symbols.length; s++) {
+                BigDecimal mid = new BigDecimal("80.00").add(new BigDecimal(i % 7 + s).movePointLeft(2));
+                events.add(new BacktestEvent.Tick(T0 + i * 250L, new MarketDataEvent(symbols[s], "LP" + (i % 3),
+                        List.of(new OrderBookLevel(mid.add(new BigDecimal("0.05")), new BigDecimal("10"))),
+                        List.of(new OrderBookLevel(mid.subtract(new BigDecimal("0.05")), new BigDecimal("10"))))));
+            }
+        }
+        FxSymbol eth = new FxSymbol("ETH", "USDT");
+        events.add(new BacktestEvent.Flat(T0 + 10_000,
+                new FlatSignal(eth, FlatSignal.Side.BUY, new BigDecimal("3"), "rebalance", Instant.ofEpochMilli(T0 + 10_000)),
+                new VwapParams(eth, VwapParams.TargetType.BASE_QTY, new BigDecimal("3"),
+                        VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(2), BigDecimal.ZERO)));
+        return events;
+    }
+
+    private static BacktestEngine engine(ForkJoinPool pool) {
+        return new BacktestEngine(SimpleBestPriceStrategy::new,
+                symbol -> new FxSymbolRule(new BigDecimal("0.01"), 2, 4, 2),
+                () -> new ProviderTtlPolicy(Duration.ofSeconds(1)), pool, Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testReplayIsDeterministicAcrossRuns() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            BacktestReport first = engine(pool).run(recordedDay());
+            BacktestReport second = engine(pool).run(recordedDay());
+
+            assertEquals(3, first.results().size());
+            assertFalse(first.of("ETHUSDT").quoteResults().isEmpty(), "应产生报价结果");
+            assertEquals(first.digest(), second.digest(), "同一输入多次回放结果应一致");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testTimestampsFollowVirtualClock() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            BacktestReport report = engine(pool).run(recordedDay());
+            BacktestReport.SymbolResult eth = report.of("ETHUSDT");
+
+            ExecutionResult firstQuote = eth.quoteResults().get(0);
+            assertEquals(T0, firstQuote.getExecuteTime(), "执行时间应取虚拟时钟");
+            assertEquals(T0, firstQuote.getInstruction().getTimestamp());
+
+            FlatOrderCompleted done = eth.flatEvents().stream()
+                    .filter(FlatOrderCompleted.class::isInstance).map(FlatOrderCompleted.class::cast)
+                    .findFirst().orElseThrow();
+            assertEquals(0, new BigDecimal("3").compareTo(done.cumBase()));
+            assertEquals(Instant.ofEpochMilli(T0 + 10_000), done.occurredOn());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.QuoteInstruction;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.CreditLimitService;
+import com.example.trade.demo.domain.fx.service.CreditLimitService.Reservation;
+import com.example.trade.demo.domain.fx.service.CreditRates;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.InMemoryOms;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteRiskRule;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class CreditLimitServiceTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+
+    @Test
+    void testConcurrentReservationsNeverExceedSharedLimits() throws Exception {
+        CreditLimitService limits = new CreditLimitService();
+        limits.setProviderLimit("LP1", new BigDecimal("1000"));
+        limits.setCounterpartyLimit("C1", new BigDecimal("600"));
+        int threads = 12;
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong filledUnits = new AtomicLong();
+        AtomicLong filledOnC1 = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try { go.await(); } catch (InterruptedException e) { return; }
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    String cpty = rnd.nextBoolean() ? "C1" : "OTHER";
+                    Reservation r = limits.reserve("LP1", cpty, new BigDecimal("7"));
+                    if (!r.isGranted()) continue;
+                    if (rnd.nextInt(100) == 0) { // 少量成交，按预占价成交
+                        r.fill(new BigDecimal("7"), new BigDecimal("7"));
+                        filledUnits.incrementAndGet();
+                        if (cpty.equals("C1")) filledOnC1.incrementAndGet();
+                    }
+                    r.release();
+                    r.release(); // 幂等
+                }
+            });
+            w.start();
+            workers.add(w);
+        }
+        List<String> breaches = new ArrayList<>();
+        Thread monitor = new Thread(() -> {
+            while (!done.get()) {
+                if (limits.providerLine("LP1").available().signum() < 0) breaches.add("LP1 " + limits.providerLine("LP1").used());
+                if (limits.counterpartyLine("C1").available().signum() < 0) breaches.add("C1 " + limits.counterpartyLine("C1").used());
+            }
+        });
+        monitor.start();
+        go.countDown();
+        for (Thread w : workers) w.join();
+        done.set(true);
+        monitor.join();
+
+        assertTrue(breaches.isEmpty(), () -> "额度被突破: " + breaches.get(0));
+        assertTrue(limits.refused() > 0, "测试应制造额度争用");
+        // 全部释放后只剩成交占用
+        assertEquals(0, BigDecimal.valueOf(7 * filledUnits.get()).compareTo(limits.providerLine("LP1").used()));
+        assertEquals(0, BigDecimal.valueOf(7 * filledOnC1.get()).compareTo(limits.counterpartyLine("C1").used()));
+    }
+
+    // 只确认不成交；撤单回报 CANCELED
+    private static final class AckOnlyOms implements OmsClient {
+        @Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+            onReport.accept(new ExecutionReport(child.clientOrderId, "V", OrdStatus.NEW, BigDecimal.ZERO, child.price, Instant.EPOCH, "ACK"));
+        }
+        @Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) {
+            onReport.accept(new ExecutionReport(child.clientOrderId, "V", OrdStatus.CANCELED, BigDecimal.ZERO, child.price, Instant.EPOCH, "CXL"));
+        }
+        @Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {}
+    }
+
+    private static FlatOrderApplicationService app(OmsClient oms, VirtualScheduler scheduler, InMemoryFlatOrderRepository repo) {
+        OrderBook book = new OrderBook(List.of(new PriceLevel(new BigDecimal("1.1000"), List.of(
+                new ProviderDepth("LP1", new BigDecimal("5")), new ProviderDepth("LP2", new BigDecimal("5"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0990"), List.of(new ProviderDepth("LP1", new BigDecimal("5"))))));
+        return new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return book; }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2); }
+        }, new VwapSplittingDomainService(), oms, repo, scheduler, scheduler.clock(), FlatOrderId::newId);
+    }
+
+    private static FlatOrderId buy(FlatOrderApplicationService app, String qty) {
+        return app.start(new FlatSignal(EURUSD, FlatSignal.Side.BUY, new BigDecimal(qty), "test", Instant.EPOCH),
+                new VwapParams(EURUSD, VwapParams.TargetType.BASE_QTY, new BigDecimal(qty),
+                        VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO));
+    }
+
+    @Test
+    void testChildrenReserveOnSendConsumeOnFillAndReleaseOnCancel() {
+        CreditLimitService limits = new CreditLimitService();
+        limits.setProviderLimit("LP1", new BigDecimal("3")); // 放不下 5 × 1.1
+        limits.setProviderLimit("LP2", new BigDecimal("100"));
+        limits.setCounterpartyLimit("FLAT_BOOK", new BigDecimal("100"));
+
+        VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        InMemoryFlatOrderRepository repo = new InMemoryFlatOrderRepository();
+        FlatOrderApplicationService filled = app(new InMemoryOms(scheduler.clock()), scheduler, repo);
+        filled.setCreditLimits(limits, "FLAT_BOOK");
+        FlatOrderAggregate fo = repo.load(buy(filled, "10"));
+
+        ChildOrder lp1 = fo.children.stream().filter(c -> c.providerId.equals("LP1")).findFirst().orElseThrow();
+        assertEquals(OrdStatus.REJECTED, lp1.status, "额度不足的子单不发送");
+        assertEquals(0, new BigDecimal("5").compareTo(fo.cumBase));
+        assertEquals(0, new BigDecimal("5.5").compareTo(limits.providerLine("LP2").used()), "成交金额持续占用");
+        assertEquals(0, BigDecimal.ZERO.compareTo(limits.providerLine("LP1").used()));
+        assertEquals(0, new BigDecimal("5.5").compareTo(limits.counterpartyLine("FLAT_BOOK").used()));
+
+        // 只确认不成交：预占一直保持，父单超时撤单后释放
+        CreditLimitService limits2 = new CreditLimitService();
+        limits2.setCounterpartyLimit("FLAT_BOOK", new BigDecimal("100"));
+        FlatOrderApplicationService resting = app(new AckOnlyOms(), scheduler, repo);
+        resting.setCreditLimits(limits2, "FLAT_BOOK");
+        buy(resting, "5");
+        assertEquals(0, new BigDecimal("5.5").compareTo(limits2.counterpartyLine("FLAT_BOOK").used()));
+        scheduler.runUntil(6_000);
+        assertEquals(0, BigDecimal.ZERO.compareTo(limits2.counterpartyLine("FLAT_BOOK").used()), "撤单后释放预占");
+    }
+
+    @Test
+    void testStandingQuoteReservationIsResizedNotStacked() {
+        CreditLimitService limits = new CreditLimitService();
+        limits.setCounterpartyLimit("CLIENT", new BigDecimal("1000"));
+        QuoteExecutor executor = new QuoteExecutor(java.time.Clock.systemUTC(), Duration.ZERO);
+        executor.setCreditLimits(limits, null, "CLIENT");
+
+        QuoteInstruction q = QuoteInstruction.createBidAskQuote("AAA", new BigDecimal("99"), new BigDecimal("100"), new BigDecimal("5"), "T");
+        for (int i = 0; i < 3; i++) assertTrue(executor.executeQuote(q).isSuccess());
+        assertEquals(0, new BigDecimal("500").compareTo(limits.counterpartyLine("CLIENT").used()), "同一 symbol 的重复报价不叠加");
+
+        assertTrue(executor.executeQuote(QuoteInstruction.createBidAskQuote("BBB", new BigDecimal("99"), new BigDecimal("100"),
+                new BigDecimal("5"), "T")).isSuccess());
+        ExecutionResult refused = executor.executeQuote(QuoteInstruction.createBidAskQuote("CCC", new BigDecimal("99"),
+                new BigDecimal("100"), new BigDecimal("1"), "T"));
+        assertFalse(refused.isSuccess());
+        assertTrue(refused.getMessage().startsWith("额度不足"));
+
+        executor.releaseQuoteCredit("AAA");
+        assertTrue(executor.executeQuote(QuoteInstruction.createBidAskQuote("CCC", new BigDecimal("99"), new BigDecimal("100"),
+                new BigDecimal("1"), "T")).isSuccess());
+        assertEquals(0, new BigDecimal("600").compareTo(limits.counterpartyLine("CLIENT").used()));
+    }
+
+    @Test
+    void testReleasedStandingQuoteIsNeverResurrected() throws Exception {
+        CreditLimitService limits = new CreditLimitService();
+        limits.setCounterpartyLimit("CLIENT", new BigDecimal("1000"));
+        Reservation r = limits.reserve(null, "CLIENT", new BigDecimal("100"));
+        r.release();
+        assertTrue(r.isReleased());
+        assertFalse(r.tryResize(new BigDecimal("200")), "已释放的预占不能被调整回来");
+        assertEquals(0, BigDecimal.ZERO.compareTo(limits.counterpartyLine("CLIENT").used()));
+
+        // 报价线程与撤价线程并发：撤价后不留下未登记的预占
+        QuoteExecutor executor = new QuoteExecutor(java.time.Clock.systemUTC(), Duration.ZERO);
+        executor.setCreditLimits(limits, null, "CLIENT");
+        QuoteInstruction q = QuoteInstruction.createBidAskQuote("AAA", new BigDecimal("99"), new BigDecimal("100"), new BigDecimal("1"), "T");
+        CountDownLatch go = new CountDownLatch(1);
+        Thread quoting = new Thread(() -> {
+            try { go.await(); } catch (InterruptedException e) { return; }
+            for (int i = 0; i < 50_000; i++) executor.executeQuote(q);
+        });
+        Thread pulling = new Thread(() -> {
+            try { go.await(); } catch (InterruptedException e) { return; }
+            for (int i = 0; i < 50_000; i++) executor.releaseQuoteCredit("AAA");
+        });
+        quoting.start();
+        pulling.start();
+        go.countDown();
+        quoting.join();
+        pulling.join();
+        executor.releaseQuoteCredit("AAA");
+        assertEquals(0, BigDecimal.ZERO.compareTo(limits.counterpartyLine("CLIENT").used()), "全部撤价后额度应全部归还");
+    }
+
+    @Test
+    void testChildNotionalIsConvertedToLimitCurrencyViaCrossBook() {
+        FxSymbol eurjpy = new FxSymbol("EUR", "JPY");
+        FxSymbol eurchf = new FxSymbol("EUR", "CHF");
+        Map<FxSymbol, OrderBook> books = Map.of(
+                eurjpy, book("160.00", "159.90"),
+                eurchf, book("0.9500", "0.9490"),
+                new FxSymbol("USD", "JPY"), book("160.01", "159.99"));
+        CreditLimitService limits = new CreditLimitService();
+        assertEquals("USD", limits.limitCurrency());
+        limits.setCounterpartyLimit("FLAT_BOOK", new BigDecimal("100"));
+
+        VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        InMemoryFlatOrderRepository repo = new InMemoryFlatOrderRepository();
+        FlatOrderApplicationService app = new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return books.getOrDefault(symbol, new OrderBook(List.of(), List.of())); }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.01"), 2, 2, 2); }
+        }, new VwapSplittingDomainService(), new InMemoryOms(scheduler.clock()), repo, scheduler, scheduler.clock(), FlatOrderId::newId);
+        app.setCreditLimits(limits, "FLAT_BOOK");
+
+        // 5 EUR × 160 JPY = 800 JPY，按 USDJPY 中间价 160 折合 5 USD
+        FlatOrderAggregate fo = repo.load(app.start(new FlatSignal(eurjpy, FlatSignal.Side.BUY, new BigDecimal("5"), "test", Instant.EPOCH),
+                new VwapParams(eurjpy, VwapParams.TargetType.BASE_QTY, new BigDecimal("5"),
+                        VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO)));
+        assertEquals(0, new BigDecimal("5").compareTo(fo.cumBase));
+        assertEquals(0, new BigDecimal("5").compareTo(limits.counterpartyLine("FLAT_BOOK").used()), "日元名义金额应按 USD 记账");
+
+        // 没有 USDCHF / CHFUSD 盘口，无法换算的子单拒绝
+        FlatOrderAggregate chf = repo.load(app.start(new FlatSignal(eurchf, FlatSignal.Side.BUY, new BigDecimal("5"), "test", Instant.EPOCH),
+                new VwapParams(eurchf, VwapParams.TargetType.BASE_QTY, new BigDecimal("5"),
+                        VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO)));
+        assertTrue(chf.children.stream().allMatch(c -> c.status == OrdStatus.REJECTED));
+        assertEquals(0, new BigDecimal("5").compareTo(limits.counterpartyLine("FLAT_BOOK").used()));
+    }
+
+    @Test
+    void testStandingQuoteNotionalIsConvertedToLimitCurrency() {
+        Map<FxSymbol, OrderBook> books = Map.of(new FxSymbol("USD", "JPY"), book("160.01", "159.99"));
+        Map<String, FxSymbol> symbols = Map.of(
+                "USDJPY", new FxSymbol("USD", "JPY"),
+                "EURJPY", new FxSymbol("EUR", "JPY"),
+                "EURCHF", new FxSymbol("EUR", "CHF"));
+        CreditLimitService limits = new CreditLimitService();
+        limits.setCounterpartyLimit("CLIENT", new BigDecimal("2000"));
+        QuoteExecutor executor = new QuoteExecutor(java.time.Clock.systemUTC(), Duration.ZERO);
+        executor.setRiskRule(new QuoteRiskRule(new BigDecimal("1000"), BigDecimal.ZERO));
+        executor.setCreditLimits(limits, null, "CLIENT",
+                new CreditRates(s -> books.getOrDefault(s, new OrderBook(List.of(), List.of()))), symbols::get);
+
+        // 1000 USD × 150.01 = 150010 JPY，按报价价格折回 1000 USD，而不是按 150010 占用额度
+        assertTrue(executor.executeQuote(QuoteInstruction.createBidAskQuote("USDJPY", new BigDecimal("149.99"),
+                new BigDecimal("150.01"), new BigDecimal("1000"), "T")).isSuccess());
+        assertEquals(0, new BigDecimal("1000").compareTo(limits.counterpartyLine("CLIENT").used()));
+
+        // 100 EUR × 160 JPY = 16000 JPY，经 USDJPY 中间价 160 折合 100 USD
+        assertTrue(executor.executeQuote(QuoteInstruction.createBidAskQuote("EURJPY", new BigDecimal("159.90"),
+                new BigDecimal("160.00"), new BigDecimal("100"), "T")).isSuccess());
+        assertEquals(0, new BigDecimal("1100").compareTo(limits.counterpartyLine("CLIENT").used()));
+
+        // 没有 USDCHF / CHFUSD 盘口，未知 symbol 同样无法换算：都按额度不足拒绝，不占额度
+        ExecutionResult chf = executor.executeQuote(QuoteInstruction.createBidAskQuote("EURCHF", new BigDecimal("0.9490"),
+                new BigDecimal("0.9500"), new BigDecimal("1"), "T"));
+        assertFalse(chf.isSuccess());
+        assertTrue(chf.getMessage().contains("无法换算到 USD"));
+        assertFalse(executor.executeQuote(QuoteInstruction.createBidAskQuote("XXXYYY", new BigDecimal("1"),
+                new BigDecimal("1"), new BigDecimal("1"), "T")).isSuccess());
+        assertEquals(0, new BigDecimal("1100").compareTo(limits.counterpartyLine("CLIENT").used()));
+    }
+
+    private static OrderBook book(String ask, String bid) {
+        return new OrderBook(List.of(new PriceLevel(new BigDecimal(ask), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))),
+                List.of(new PriceLevel(new BigDecimal(bid), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))));
+    }
+
+    @Test
+    void testSettlementAndDayRollFreeFilledNotionalButKeepOpenReservations() {
+        CreditLimitService limits = new CreditLimitService();
+        limits.setProviderLimit("LP1", new BigDecimal("100"));
+        limits.setCounterpartyLimit("C1", new BigDecimal("100"));
+
+        Reservation done = limits.reserve("LP1", "C1", new BigDecimal("60"));
+        done.fill(new BigDecimal("60"), new BigDecimal("60"));
+        done.release();
+        Reservation open = limits.reserve("LP1", "C1", new BigDecimal("30"));
+        assertFalse(limits.reserve("LP1", "C1", new BigDecimal("20")).isGranted(), "成交占用不释放时额度耗尽");
+
+        assertEquals(0, new BigDecimal("25").compareTo(limits.settleProvider("LP1", new BigDecimal("25"))));
+        assertEquals(0, new BigDecimal("65").compareTo(limits.providerLine("LP1").used()));
+        assertEquals(0, new BigDecimal("35").compareTo(limits.providerLine("LP1").filled()));
+        assertEquals(0, new BigDecimal("90").compareTo(limits.counterpartyLine("C1").used()), "交割只作用于指定额度线");
+        assertEquals(0, new BigDecimal("35").compareTo(limits.settleProvider("LP1", new BigDecimal("1000"))), "最多释放已成交部分");
+
+        limits.rollDay();
+        assertEquals(0, new BigDecimal("30").compareTo(limits.providerLine("LP1").used()), "在挂预占不受日终滚动影响");
+        assertEquals(0, new BigDecimal("30").compareTo(limits.counterpartyLine("C1").used()));
+        assertTrue(limits.reserve("LP1", "C1", new BigDecimal("20")).isGranted());
+        open.release();
+        assertEquals(0, BigDecimal.ZERO.compareTo(limits.settleCounterparty("C1", BigDecimal.ONE)));
+    }
+}
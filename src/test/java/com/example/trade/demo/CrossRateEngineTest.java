@@ -0,0 +1,154 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.NavigableMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.fx.application.CrossRateEngine;
+import com.example.trade.demo.domain.fx.application.MarketDepthAdapters.FromQuoteService;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class CrossRateEngineTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+    private static final FxSymbol USDJPY = new FxSymbol("USD", "JPY");
+    private static final FxSymbol GBPUSD = new FxSymbol("GBP", "USD");
+    private static final FxSymbol EURJPY = new FxSymbol("EUR", "JPY");
+    private static final FxSymbol GBPJPY = new FxSymbol("GBP", "JPY");
+    private static final FxSymbol EURGBP = new FxSymbol("EUR", "GBP");
+    private static final FxSymbolRule JPY_RULE = new FxSymbolRule(new BigDecimal("0.001"), 3, 0, 0);
+    private static final FxSymbolRule GBP_RULE = new FxSymbolRule(new BigDecimal("0.00001"), 5, 0, 2);
+
+    private static List<OrderBookLevel> lv(String... pxQty) {
+        OrderBookLevel[] out = new OrderBookLevel[pxQty.length / 2];
+        for (int i = 0; i < out.length; i++) out[i] = new OrderBookLevel(new BigDecimal(pxQty[2 * i]), new BigDecimal(pxQty[2 * i + 1]));
+        return List.of(out);
+    }
+
+    private static QuoteService newService() {
+        return new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                ProviderTtlPolicy.never(), null, Clock.systemUTC());
+    }
+
+    private static NavigableMap<BigDecimal, BigDecimal> synth(QuoteService quotes, String symbol, boolean ask) {
+        return (ask ? quotes.aggregatorOf(symbol).getAllAskDepth() : quotes.aggregatorOf(symbol).getAllBidDepth())
+                .get(CrossRateEngine.SYNTH_PROVIDER);
+    }
+
+    @Test
+    void testSyntheticDepthFromBothLegOrientations() {
+        QuoteService quotes = newService();
+        CrossRateEngine engine = new CrossRateEngine(quotes, 5);
+        quotes.addDepthListener(engine::onDepthUpdate);
+        engine.addCross(EURJPY, EURUSD, USDJPY, JPY_RULE);
+        engine.addCross(EURGBP, EURUSD, GBPUSD, GBP_RULE);
+
+        quotes.onMarketData(new MarketDataEvent("EURUSD", "LP1",
+                lv("1.1000", "1000000", "1.1001", "2000000"), lv("1.0999", "1000000")));
+        assertNull(quotes.aggregatorOf("EURJPY"), "另一条腿尚无行情时不合成");
+        quotes.onMarketData(new MarketDataEvent("USDJPY", "LP2", lv("150.00", "1000000"), lv("149.99", "3000000")));
+
+        // 买 EUR/JPY：1.1M USD 的 EUR 卖盘对 1M USD 的 USD/JPY 卖盘，受后者限制
+        assertEquals(1, synth(quotes, "EURJPY", true).size());
+        assertEquals(new BigDecimal("909090"), synth(quotes, "EURJPY", true).get(new BigDecimal("165.000")));
+        // 卖 EUR/JPY：1.0999 × 149.99 = 164.974001，向下取整到 tick
+        assertEquals(new BigDecimal("1000000"), synth(quotes, "EURJPY", false).get(new BigDecimal("164.974")));
+
+        quotes.onMarketData(new MarketDataEvent("GBPUSD", "LP2", lv("1.2502", "5000000"), lv("1.2500", "5000000")));
+        // EUR/GBP 卖盘 1.1000 / 1.2500 = 0.88，第二档 1.1001 / 1.2500 = 0.88008
+        NavigableMap<BigDecimal, BigDecimal> eurgbpAsk = synth(quotes, "EURGBP", true);
+        assertEquals(List.of(new BigDecimal("0.88000"), new BigDecimal("0.88008")), List.copyOf(eurgbpAsk.keySet()));
+        assertEquals(new BigDecimal("2000000"), eurgbpAsk.get(new BigDecimal("0.88008")));
+        // 1.0999 / 1.2502 = 0.879779...，向下取整
+        assertEquals(new BigDecimal("0.87977"), synth(quotes, "EURGBP", false).firstKey());
+
+        // 合成深度经 FromQuoteService 进入 VWAP 拆单使用的盘口
+        OrderBook book = new FromQuoteService(quotes, s -> JPY_RULE).latest(EURJPY);
+        assertEquals(new BigDecimal("165.000"), book.asksAsc().get(0).price());
+        assertEquals(CrossRateEngine.SYNTH_PROVIDER, book.asksAsc().get(0).providers().get(0).providerId());
+    }
+
+    @Test
+    void testOnlyCrossesOfChangedLegAreRecomputed() {
+        QuoteService quotes = newService();
+        CrossRateEngine engine = new CrossRateEngine(quotes, 3);
+        quotes.addDepthListener(engine::onDepthUpdate);
+        engine.addCross(EURJPY, EURUSD, USDJPY, JPY_RULE);
+        engine.addCross(GBPJPY, GBPUSD, USDJPY, JPY_RULE);
+        quotes.onMarketData(new MarketDataEvent("EURUSD", "LP1", lv("1.1000", "1000000"), lv("1.0999", "1000000")));
+        quotes.onMarketData(new MarketDataEvent("GBPUSD", "LP1", lv("1.2502", "1000000"), lv("1.2500", "1000000")));
+        quotes.onMarketData(new MarketDataEvent("USDJPY", "LP1", lv("150.00", "5000000"), lv("149.99", "5000000")));
+        long recomputed = engine.recomputed();
+        long published = engine.published();
+
+        // 只影响 GBP/JPY
+        quotes.onMarketData(new MarketDataEvent("GBPUSD", "LP1", lv("1.2503", "1000000"), lv("1.2500", "1000000")));
+        assertEquals(recomputed + 1, engine.recomputed());
+        assertEquals(published + 1, engine.published());
+
+        // 腿的合并档位不变：不重算
+        long legChanges = engine.legChanges();
+        quotes.onMarketData(new MarketDataEvent("EURUSD", "LP1", lv("1.1000", "1000000"), lv("1.0999", "1000000")));
+        assertEquals(legChanges, engine.legChanges());
+        assertEquals(recomputed + 1, engine.recomputed());
+
+        // 公共腿变化：两个交叉盘都重算
+        quotes.onMarketData(new MarketDataEvent("USDJPY", "LP1", lv("150.01", "5000000"), lv("150.00", "5000000")));
+        assertEquals(recomputed + 3, engine.recomputed());
+        assertEquals(new BigDecimal("164.985"), synth(quotes, "EURJPY", false).firstKey());
+
+        assertThrows(IllegalArgumentException.class, () -> engine.addCross(new FxSymbol("EUR", "CHF"), EURUSD, GBPUSD, JPY_RULE));
+        assertThrows(IllegalArgumentException.class, () -> engine.addCross(new FxSymbol("JPY", "EUR"), EURJPY, EURUSD, JPY_RULE));
+    }
+
+    @Test
+    void testSyntheticDepthStaysFreshWhileLegsTickAndExpiresWithALeg() {
+        ManualClock clock = new ManualClock(0);
+        QuoteService quotes = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(clock, Duration.ZERO),
+                new ProviderTtlPolicy(Duration.ofSeconds(5)), null, clock);
+        CrossRateEngine engine = new CrossRateEngine(quotes, 3);
+        quotes.addDepthListener(engine::onDepthUpdate);
+        engine.addCross(EURJPY, EURUSD, USDJPY, JPY_RULE);
+        MarketDataEvent eurusd = new MarketDataEvent("EURUSD", "LP1", lv("1.1000", "1000000"), lv("1.0999", "1000000"));
+        MarketDataEvent usdjpy = new MarketDataEvent("USDJPY", "LP2", lv("150.00", "5000000"), lv("149.99", "5000000"));
+        quotes.onMarketData(eurusd);
+        quotes.onMarketData(usdjpy);
+        long published = engine.published();
+
+        // 平静行情：两条腿档位不变地持续更新，合成深度不重写但也不过期
+        clock.now = 3_000;
+        quotes.onMarketData(eurusd);
+        quotes.onMarketData(usdjpy);
+        clock.now = 6_000;
+        quotes.onMarketData(eurusd);
+        assertEquals(published, engine.published());
+        assertEquals(new BigDecimal("165.000"), quotes.aggregatorOf("EURJPY").getBestAsk().orElseThrow(),
+                "腿仍在更新时 SYNTH 不应按上次写回的时刻过期");
+
+        // USD/JPY 最后一次更新在 3s，8s 时过期：下一笔 EUR/USD 更新清空合成深度
+        clock.now = 9_000;
+        quotes.onMarketData(eurusd);
+        assertTrue(quotes.aggregatorOf("EURJPY").getBestAsk().isEmpty());
+        assertTrue(quotes.aggregatorOf("EURJPY").getBestBid().isEmpty());
+
+        // USD/JPY 恢复后合成深度随之恢复；两条腿都静默时按 TTL 自然过期
+        quotes.onMarketData(usdjpy);
+        assertTrue(quotes.aggregatorOf("EURJPY").getBestAsk().isPresent());
+        clock.now = 15_000;
+        assertTrue(quotes.aggregatorOf("EURJPY").getBestAsk().isEmpty());
+    }
+}
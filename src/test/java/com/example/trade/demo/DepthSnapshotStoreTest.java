@@ -0,0 +1,142 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+import com.example.trade.demo.domain.snapshot.DepthSnapshotStore;
+import com.example.trade.demo.domain.snapshot.DepthSnapshotStore.RestoreReport;
+
+public class DepthSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<OrderBookLevel> levels(String... pxQty) {
+        List<OrderBookLevel> out = new ArrayList<>();
+        for (int i = 0; i < pxQty.length; i += 2) {
+            out.add(new OrderBookLevel(new BigDecimal(pxQty[i]), new BigDecimal(pxQty[i + 1])));
+        }
+        return out;
+    }
+
+    private static QuoteService newService(ManualClock clock) {
+        return new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(clock, Duration.ZERO),
+                new ProviderTtlPolicy(Duration.ofSeconds(5)), null, clock);
+    }
+
+    @Test
+    void testCheckpointRoundTripsAllSymbolsProvidersAndLevels() throws IOException {
+        ManualClock clock = new ManualClock();
+        QuoteService before = newService(clock);
+        before.onMarketData(new MarketDataEvent("EURUSD", "LP1", levels("80.05", "10", "80.06", "20"), levels("79.95", "15")));
+        before.onMarketData(new MarketDataEvent("EURUSD", "LP2", levels("80.04", "5"), levels("79.96", "5.50")));
+        before.onMarketData(new MarketDataEvent("USDJPY", "LP1", levels("90.123", "1"), levels("90.101", "2")));
+        Path file = dir.resolve("depth.snap");
+        assertEquals(3, new DepthSnapshotStore(file, before, clock).checkpoint());
+        assertFalse(Files.exists(dir.resolve("depth.snap.tmp")));
+
+        clock.now += 200;
+        QuoteService after = newService(clock);
+        RestoreReport report = new DepthSnapshotStore(file, after, clock).restore(Duration.ofSeconds(30));
+        assertEquals(2, report.symbols());
+        assertEquals(3, report.providers());
+        assertEquals(200, report.snapshotAgeMillis());
+
+        MarketDepthAggregator eurusd = after.aggregatorOf("EURUSD");
+        assertEquals(new BigDecimal("80.04"), eurusd.getBestAsk().orElseThrow());
+        assertEquals(new BigDecimal("79.96"), eurusd.getBestBid().orElseThrow());
+        assertEquals(before.aggregatorOf("EURUSD").getAllAskDepth(), eurusd.getAllAskDepth());
+        assertEquals(before.aggregatorOf("EURUSD").getAllBidDepth(), eurusd.getAllBidDepth(), "数量按原精度恢复");
+        assertEquals(new BigDecimal("5.50"), eurusd.getAllBidDepth().get("LP2").firstEntry().getValue(), "scale 应保留");
+        assertEquals(new BigDecimal("90.123"), after.aggregatorOf("USDJPY").getBestAsk().orElseThrow());
+        assertTrue(eurusd.isRestored("LP1"));
+        assertEquals(2, eurusd.getRestoredProviderCount());
+    }
+
+    @Test
+    void testRestoredBookQuotesOnFirstTickAndLiveUpdateClearsStaleMark() throws IOException {
+        ManualClock clock = new ManualClock();
+        QuoteService before = newService(clock);
+        before.onMarketData(new MarketDataEvent("EURUSD", "LP1", levels("80.05", "10"), levels("79.95", "10")));
+        before.onMarketData(new MarketDataEvent("EURUSD", "LP2", levels("80.02", "10"), levels("79.90", "10")));
+        Path file = dir.resolve("depth.snap");
+        new DepthSnapshotStore(file, before, clock).checkpoint();
+
+        QuoteService after = newService(clock);
+        new DepthSnapshotStore(file, after, clock).restore(Duration.ofSeconds(30));
+        List<ExecutionResult> results = new ArrayList<>();
+        after.addResultListener(results::add);
+        // 只有 LP1 重连：报价仍使用 LP2 的恢复深度
+        after.onMarketData(new MarketDataEvent("EURUSD", "LP1", levels("80.06", "10"), levels("79.94", "10")));
+        assertEquals(1, results.size());
+        assertEquals(new BigDecimal("80.02"), results.get(0).getInstruction().getAskPrice());
+        MarketDepthAggregator agg = after.aggregatorOf("EURUSD");
+        assertFalse(agg.isRestored("LP1"));
+        assertTrue(agg.isRestored("LP2"));
+
+        // 未重连的 provider 在 TTL 后过期
+        clock.now += 6_000;
+        assertFalse(agg.getAllAskDepth().containsKey("LP2"));
+        assertEquals(0, agg.getRestoredProviderCount());
+    }
+
+    @Test
+    void testStaleProvidersAndCorruptFilesAreSkipped() throws IOException {
+        ManualClock clock = new ManualClock();
+        QuoteService before = newService(clock);
+        before.onMarketData(new MarketDataEvent("EURUSD", "OLD", levels("80.05", "10"), levels("79.95", "10")));
+        clock.now += 4_000;
+        before.onMarketData(new MarketDataEvent("EURUSD", "NEW", levels("80.05", "10"), levels("79.95", "10")));
+        Path file = dir.resolve("depth.snap");
+        new DepthSnapshotStore(file, before, clock).checkpoint();
+
+        clock.now += 2_000;
+        QuoteService after = newService(clock);
+        RestoreReport report = new DepthSnapshotStore(file, after, clock).restore(Duration.ofSeconds(3));
+        assertEquals(1, report.providers());
+        assertEquals(1, report.skippedStale());
+        assertTrue(after.aggregatorOf("EURUSD").isRestored("NEW"));
+        assertFalse(after.aggregatorOf("EURUSD").getAllAskDepth().containsKey("OLD"));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+        QuoteService cold = newService(clock);
+        assertEquals(0, new DepthSnapshotStore(file, cold, clock).restore(null).providers());
+        assertEquals(0, cold.getActiveSymbolCount());
+        assertEquals(0, new DepthSnapshotStore(dir.resolve("missing.snap"), cold, clock).restore(null).providers());
+    }
+
+    @Test
+    void testStoreWithoutPathIsANoOp() throws IOException {
+        ManualClock clock = new ManualClock();
+        QuoteService service = newService(clock);
+        service.onMarketData(new MarketDataEvent("EURUSD", "LP1", levels("80.05", "10"), levels("79.95", "10")));
+        DepthSnapshotStore store = new DepthSnapshotStore(null, service, clock);
+        assertFalse(store.isEnabled());
+        assertEquals(0, store.restore(Duration.ofSeconds(30)).providers());
+        assertEquals(0, store.checkpoint());
+        store.close();
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count(), "未配置路径时不写任何文件");
+        }
+    }
+}
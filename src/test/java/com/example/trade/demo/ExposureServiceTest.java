@@ -0,0 +1,173 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.ExposureService;
+import com.example.trade.demo.domain.fx.application.ExposureService.ExposureSnapshot;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.event.FlatOrderCompleted;
+import com.example.trade.demo.domain.fx.event.FlatOrderStarted;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.InMemoryOms;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class ExposureServiceTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+    private static final FxSymbol USDJPY = new FxSymbol("USD", "JPY");
+    private static final BigDecimal PX = new BigDecimal("1.1");
+
+    @Test
+    void testConcurrentFillsProduceConsistentSnapshotsAndExactTotals() throws Exception {
+        ExposureService exposure = new ExposureService(Clock.systemUTC());
+        int threads = 8;
+        int fillsPerThread = 20_000;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try { go.await(); } catch (InterruptedException e) { return; }
+                for (int i = 0; i < fillsPerThread; i++) exposure.onFill(EURUSD, FlatSignal.Side.BUY, BigDecimal.ONE, PX);
+            });
+            w.start();
+            writers.add(w);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> violations = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                ExposureSnapshot s = exposure.refresh();
+                // 每笔成交的 symbol 两条腿与货币头寸必须同时计入
+                BigDecimal base = s.of(EURUSD).netBase();
+                if (s.of(EURUSD).netQuote().compareTo(base.multiply(PX).negate()) != 0
+                        || s.currency("EUR").compareTo(base) != 0
+                        || s.of(EURUSD).fills() != s.version()) {
+                    violations.add(s.toString());
+                }
+            }
+        });
+        reader.start();
+        go.countDown();
+        for (Thread w : writers) w.join();
+        done.set(true);
+        reader.join();
+
+        assertTrue(violations.isEmpty(), () -> "不一致的快照: " + violations.get(0));
+        ExposureSnapshot last = exposure.refresh();
+        long total = (long) threads * fillsPerThread;
+        assertEquals(total, last.version());
+        assertEquals(0, BigDecimal.valueOf(total).compareTo(last.of(EURUSD).netBase()));
+        assertEquals(0, PX.multiply(BigDecimal.valueOf(total)).negate().compareTo(last.currency("USD")));
+        assertSame(last, exposure.snapshot());
+    }
+
+    @Test
+    void testCurrencyNettingAcrossSymbols() {
+        ExposureService exposure = new ExposureService(Clock.systemUTC());
+        exposure.onFill(EURUSD, FlatSignal.Side.BUY, new BigDecimal("10"), PX); // EUR +10, USD -11
+        exposure.onFill(USDJPY, FlatSignal.Side.BUY, new BigDecimal("11"), new BigDecimal("150")); // USD +11, JPY -1650
+        ExposureSnapshot s = exposure.refresh();
+        assertEquals(0, BigDecimal.ZERO.compareTo(s.currency("USD")));
+        assertEquals(0, new BigDecimal("-1650").compareTo(s.currency("JPY")));
+        assertEquals(0, new BigDecimal("10").compareTo(s.currency("EUR")));
+        assertEquals(0, new BigDecimal("-11").compareTo(s.of(EURUSD).netQuote()));
+    }
+
+    @Test
+    void testLimitBreachRaisesOneFlatSignalThatFlattensThePosition() {
+        VirtualClock clock = new VirtualClock(0);
+        OrderBook book = new OrderBook(
+                List.of(new PriceLevel(new BigDecimal("1.1001"), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0999"), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))));
+        FlatOrderApplicationService app = new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return book; }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2); }
+        }, new VwapSplittingDomainService(), new InMemoryOms(clock), new InMemoryFlatOrderRepository(),
+                new VirtualScheduler(clock), clock, FlatOrderId::newId);
+        ExposureService exposure = new ExposureService(clock);
+        exposure.setLimit(EURUSD, new BigDecimal("50"));
+        app.addEventListener(exposure::onEvent);
+        List<FlatSignal> signals = new ArrayList<>();
+        exposure.addSignalListener(signals::add);
+        exposure.addSignalListener(sig -> app.start(sig, new VwapParams(sig.symbol(), VwapParams.TargetType.BASE_QTY,
+                sig.suggestedTarget(), VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO)));
+
+        exposure.onFill(EURUSD, FlatSignal.Side.BUY, new BigDecimal("40"), PX);
+        exposure.refresh();
+        assertTrue(signals.isEmpty(), "未超限不应触发");
+
+        exposure.onFill(EURUSD, FlatSignal.Side.BUY, new BigDecimal("30"), PX);
+        exposure.refresh();
+        assertEquals(1, signals.size());
+        assertEquals(FlatSignal.Side.SELL, signals.get(0).side());
+        assertEquals(0, new BigDecimal("70").compareTo(signals.get(0).suggestedTarget()));
+
+        ExposureSnapshot after = exposure.refresh();
+        assertEquals(0, BigDecimal.ZERO.compareTo(after.of(EURUSD).netBase()), "平盘成交应回流到敞口");
+        assertEquals(1, signals.size());
+    }
+
+    @Test
+    void testOnlyOwnFlatOrderCompletionReleasesTheSymbol() {
+        ExposureService exposure = new ExposureService(Clock.systemUTC());
+        exposure.setLimit(EURUSD, new BigDecimal("50"));
+        List<FlatSignal> signals = new ArrayList<>();
+        List<FlatOrderId> started = new ArrayList<>();
+        boolean[] startParent = {true};
+        exposure.addSignalListener(signals::add);
+        // 模拟 app.start：同一线程上同步发出 FlatOrderStarted
+        exposure.addSignalListener(sig -> {
+            if (!startParent[0]) return;
+            FlatOrderId id = FlatOrderId.newId();
+            started.add(id);
+            exposure.onEvent(new FlatOrderStarted(id, sig.symbol(), sig.side(), VwapParams.TargetType.BASE_QTY,
+                    sig.suggestedTarget(), Instant.EPOCH));
+        });
+
+        exposure.onFill(EURUSD, FlatSignal.Side.BUY, new BigDecimal("70"), PX);
+        exposure.refresh();
+        assertEquals(1, signals.size());
+
+        // 其他来源（如手工或轧差批次）的同 symbol 平盘单完成，不能解除本服务的在途标记
+        exposure.onEvent(completed(FlatOrderId.newId()));
+        exposure.refresh();
+        assertEquals(1, signals.size(), "他人父单完成后不应重复对冲");
+
+        exposure.onEvent(completed(started.get(0)));
+        exposure.refresh();
+        assertEquals(2, signals.size(), "自己的父单完成后仍超限，再次发出信号");
+
+        // 监听器没有发起父单时不保留在途标记
+        exposure.onEvent(completed(started.get(1)));
+        startParent[0] = false;
+        exposure.refresh();
+        exposure.refresh();
+        assertEquals(4, signals.size());
+    }
+
+    private static FlatOrderCompleted completed(FlatOrderId id) {
+        return new FlatOrderCompleted(id, EURUSD, FlatSignal.Side.SELL, BigDecimal.ZERO, BigDecimal.ZERO, null, Instant.EPOCH);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams.TargetType;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class FlatOrderRepositoryTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+    private static final FxSymbol USDJPY = new FxSymbol("USD", "JPY");
+    private static final List<String> LPS = List.of("LP1", "LP2", "LP3");
+
+    private static FlatOrderAggregate parent(int n, FxSymbol symbol) {
+        FlatOrderAggregate fo = new FlatOrderAggregate(new FlatOrderId("P" + n), symbol, FlatSignal.Side.BUY,
+                TargetType.BASE_QTY, new BigDecimal("3"));
+        for (int i = 0; i < LPS.size(); i++) {
+            fo.children.add(new ChildOrder("P" + n + "-" + i, symbol, FlatSignal.Side.BUY, BigDecimal.ONE, BigDecimal.ONE, LPS.get(i)));
+        }
+        return fo;
+    }
+
+    @Test
+    void testIndexesFollowInPlaceUpdates() {
+        InMemoryFlatOrderRepository repo = new InMemoryFlatOrderRepository();
+        int parents = 3_000;
+        for (int n = 0; n < parents; n++) repo.save(parent(n, n % 3 == 0 ? USDJPY : EURUSD));
+
+        assertEquals(1_000, repo.findWorking(USDJPY).size());
+        assertEquals(2_000, repo.findBySymbol(EURUSD).size());
+        assertEquals(parents, repo.findByStatus(OrdStatus.PENDING_NEW).size());
+        assertEquals(parents, repo.workingChildrenAt("LP2").size());
+        assertEquals("P42", repo.findByClientOrderId("P42-1").id.value());
+        assertNull(repo.findByVenueOrderId("V-P42-1"));
+
+        // 偶数父单：LP1 子单确认后成交，父单结束
+        for (int n = 0; n < parents; n += 2) {
+            FlatOrderAggregate fo = repo.load(new FlatOrderId("P" + n));
+            ChildOrder lp1 = fo.children.get(0);
+            lp1.venueOrderId = "V-" + lp1.clientOrderId;
+            lp1.status = OrdStatus.NEW;
+            repo.update(fo);
+            lp1.status = OrdStatus.FILLED;
+            fo.status = OrdStatus.FILLED;
+            repo.update(fo);
+        }
+        assertEquals(parents / 2, repo.findByStatus(OrdStatus.FILLED).size());
+        assertEquals(parents / 2, repo.findByStatus(OrdStatus.PENDING_NEW).size());
+        assertEquals(500, repo.findWorking(USDJPY).size());
+        assertEquals(1_000, repo.findBySymbol(USDJPY).size(), "symbol 索引保留已结束父单");
+        assertEquals(parents / 2, repo.workingChildrenAt("LP1").size());
+        assertEquals(parents, repo.childrenAt("LP1").size());
+        assertEquals(parents, repo.workingChildrenAt("LP3").size());
+        assertEquals("P42", repo.findByVenueOrderId("V-P42-0").id.value());
+        assertSame(repo.load(new FlatOrderId("P42")).children.get(0), repo.findChild("P42-0"));
+
+        // venueOrderId 变化（如改单后 venue 换号）时旧号不再命中
+        FlatOrderAggregate p42 = repo.load(new FlatOrderId("P42"));
+        p42.children.get(0).venueOrderId = "V2-P42-0";
+        repo.update(p42);
+        assertNull(repo.findByVenueOrderId("V-P42-0"));
+        assertEquals("P42", repo.findByVenueOrderId("V2-P42-0").id.value());
+
+        // 追加子单（分片）同样被索引
+        p42.children.add(new ChildOrder("P42-9", EURUSD, FlatSignal.Side.BUY, BigDecimal.ONE, BigDecimal.ONE, "LP4"));
+        repo.update(p42);
+        assertEquals(List.of("P42-9"), repo.workingChildrenAt("LP4").stream().map(c -> c.clientOrderId).toList());
+    }
+
+    // 只确认不成交；撤单立即回报 CANCELED
+    private static final class AckOnlyOms implements OmsClient {
+        int cancels;
+        @Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+            onReport.accept(new ExecutionReport(child.clientOrderId, "V-" + child.clientOrderId, OrdStatus.NEW,
+                    BigDecimal.ZERO, child.price, Instant.EPOCH, "ACK"));
+        }
+        @Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) {
+            cancels++;
+            onReport.accept(new ExecutionReport(child.clientOrderId, "V-" + child.clientOrderId, OrdStatus.CANCELED,
+                    BigDecimal.ZERO, child.price, Instant.EPOCH, "CXL"));
+        }
+        @Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {}
+    }
+
+    @Test
+    void testCancelProviderUsesWorkingChildIndex() {
+        OrderBook book = new OrderBook(List.of(new PriceLevel(new BigDecimal("1.1000"), List.of(
+                new ProviderDepth("LP1", new BigDecimal("5")), new ProviderDepth("LP2", new BigDecimal("5"))))), List.of());
+        VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        InMemoryFlatOrderRepository repo = new InMemoryFlatOrderRepository();
+        AckOnlyOms oms = new AckOnlyOms();
+        FlatOrderApplicationService app = new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return book; }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2); }
+        }, new VwapSplittingDomainService(), oms, repo, scheduler, scheduler.clock(), FlatOrderId::newId);
+        for (int i = 0; i < 50; i++) {
+            app.start(new FlatSignal(EURUSD, FlatSignal.Side.BUY, BigDecimal.TEN, "test", Instant.EPOCH),
+                    new VwapParams(EURUSD, TargetType.BASE_QTY, BigDecimal.TEN, VwapParams.ExecutionIntent.TAKER,
+                            Duration.ofSeconds(10), BigDecimal.ZERO));
+        }
+        assertEquals(50, repo.workingChildrenAt("LP1").size());
+
+        assertEquals(50, app.cancelProvider("LP1"));
+        assertEquals(50, oms.cancels);
+        assertTrue(repo.workingChildrenAt("LP1").isEmpty(), "撤单回报写回子单状态并更新索引");
+        assertEquals(50, repo.workingChildrenAt("LP2").size());
+        assertEquals(OrdStatus.CANCELED, repo.childrenAt("LP1").get(0).status);
+        assertEquals(0, app.cancelProvider("LP1"));
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.application.MarketDepthAdapters.FromQuoteService;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.RepricePolicy;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class FlatOrderRepricingTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+    private static final FxSymbolRule RULE = new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2);
+
+    // 只确认不成交；改单回报由测试手动放行，模拟改单在途
+    private static final class HoldingOms implements OmsClient {
+        final List<BigDecimal> replaces = new ArrayList<>();
+        final List<Consumer<ExecutionReport>> pendingReplaceAcks = new ArrayList<>();
+        final AtomicInteger cancels = new AtomicInteger();
+
+        @Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+            onReport.accept(new ExecutionReport(child.clientOrderId, "V-" + child.clientOrderId, OrdStatus.NEW,
+                    BigDecimal.ZERO, child.price, Instant.EPOCH, "ACK"));
+        }
+        @Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) { cancels.incrementAndGet(); }
+        @Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {
+            replaces.add(newPx);
+            pendingReplaceAcks.add(onReport);
+        }
+        void ackNextReplace() {
+            BigDecimal px = replaces.get(replaces.size() - pendingReplaceAcks.size());
+            pendingReplaceAcks.remove(0).accept(new ExecutionReport("", "", OrdStatus.REPLACED,
+                    BigDecimal.ZERO, px, Instant.EPOCH, "RPL"));
+        }
+    }
+
+    private static OrderBook bookWithAsk(String px) {
+        return new OrderBook(List.of(new PriceLevel(new BigDecimal(px), List.of(new ProviderDepth("LP1", new BigDecimal("5"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0990"), List.of(new ProviderDepth("LP1", new BigDecimal("5"))))));
+    }
+
+    private static final class Fixture {
+        final AtomicReference<OrderBook> book = new AtomicReference<>(bookWithAsk("1.1000"));
+        final VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        final HoldingOms oms = new HoldingOms();
+        final InMemoryFlatOrderRepository repo = new InMemoryFlatOrderRepository();
+        final FlatOrderApplicationService app = new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return book.get(); }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return RULE; }
+        }, new VwapSplittingDomainService(), oms, repo, scheduler, scheduler.clock(), FlatOrderId::newId);
+
+        FlatOrderId start() {
+            return start("0.0010");
+        }
+
+        FlatOrderId start(String slippageBuffer) {
+            return app.start(new FlatSignal(EURUSD, FlatSignal.Side.BUY, new BigDecimal("5"), "test", Instant.EPOCH),
+                    new VwapParams(EURUSD, VwapParams.TargetType.BASE_QTY, new BigDecimal("5"),
+                            VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), new BigDecimal(slippageBuffer)));
+        }
+    }
+
+    @Test
+    void testBookMoveBeyondThresholdAmendsInPlaceAndCoalesces() {
+        Fixture f = new Fixture();
+        f.app.setRepricePolicy(new RepricePolicy(2, Duration.ZERO));
+        FlatOrderId id = f.start();
+        ChildOrder child = f.repo.load(id).children.get(0);
+
+        // 移动 1 tick：未超阈值
+        f.book.set(bookWithAsk("1.1001"));
+        f.app.onBookUpdate(EURUSD);
+        assertTrue(f.oms.replaces.isEmpty());
+
+        // 移动 3 tick：原地改价
+        f.book.set(bookWithAsk("1.1003"));
+        f.app.onBookUpdate(EURUSD);
+        assertEquals(List.of(new BigDecimal("1.1003")), f.oms.replaces);
+
+        // 改单在途期间的两次变化只保留最新价
+        f.book.set(bookWithAsk("1.1006"));
+        f.app.onBookUpdate(EURUSD);
+        f.book.set(bookWithAsk("1.1009"));
+        f.app.onBookUpdate(EURUSD);
+        assertEquals(1, f.oms.replaces.size());
+        assertEquals(1, f.app.amendsCoalesced());
+
+        f.oms.ackNextReplace();
+        assertEquals(new BigDecimal("1.1003"), child.price);
+        assertEquals(List.of(new BigDecimal("1.1003"), new BigDecimal("1.1009")), f.oms.replaces);
+        f.oms.ackNextReplace();
+        assertEquals(new BigDecimal("1.1009"), child.price);
+        assertEquals(OrdStatus.NEW, child.status, "改单后子单仍在工作");
+        assertEquals(0, f.oms.cancels.get());
+    }
+
+    @Test
+    void testRestTimeoutRepricesInsteadOfCancelling() {
+        Fixture f = new Fixture();
+        f.app.setRepricePolicy(new RepricePolicy(100, Duration.ofMillis(500)));
+        FlatOrderId id = f.start();
+
+        f.book.set(bookWithAsk("1.1001")); // 低于阈值，盘口通知不会改单
+        f.app.onBookUpdate(EURUSD);
+        assertTrue(f.oms.replaces.isEmpty());
+
+        f.scheduler.runUntil(600);
+        assertEquals(List.of(new BigDecimal("1.1001")), f.oms.replaces);
+        FlatOrderAggregate fo = f.repo.load(id);
+        assertEquals(0, f.oms.cancels.get());
+        assertEquals(OrdStatus.NEW, fo.children.get(0).status);
+    }
+
+    @Test
+    void testRepricingIsOffByDefault() {
+        Fixture f = new Fixture();
+        f.start();
+        f.book.set(bookWithAsk("1.1050"));
+        f.app.onBookUpdate(EURUSD);
+        assertTrue(f.oms.replaces.isEmpty());
+    }
+
+    @Test
+    void testRepriceStopsAtSlippageBuffer() {
+        Fixture f = new Fixture();
+        f.app.setRepricePolicy(new RepricePolicy(2, Duration.ZERO));
+        FlatOrderId id = f.start("0.0005");
+        ChildOrder child = f.repo.load(id).children.get(0);
+
+        // 卖盘上移 9 tick：买单最多追到 1.1000 + 0.0005
+        f.book.set(bookWithAsk("1.1009"));
+        f.app.onBookUpdate(EURUSD);
+        assertEquals(List.of(new BigDecimal("1.1005")), f.oms.replaces);
+        f.oms.ackNextReplace();
+        f.book.set(bookWithAsk("1.1012"));
+        f.app.onBookUpdate(EURUSD);
+        assertEquals(1, f.oms.replaces.size(), "已在滑点上限，不再追价");
+
+        // 回落到上限以内时照常改价
+        f.book.set(bookWithAsk("1.0998"));
+        f.app.onBookUpdate(EURUSD);
+        assertEquals(new BigDecimal("1.0998"), f.oms.replaces.get(1));
+        assertEquals(new BigDecimal("1.1000"), child.originalPx);
+    }
+
+    @Test
+    void testDepthFeedDrivesRepricing() {
+        QuoteService quotes = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                ProviderTtlPolicy.never(), null, Clock.systemUTC());
+        FromQuoteService md = new FromQuoteService(quotes, s -> RULE);
+        VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        HoldingOms oms = new HoldingOms();
+        FlatOrderApplicationService app = new FlatOrderApplicationService(md, new VwapSplittingDomainService(), oms,
+                new InMemoryFlatOrderRepository(), scheduler, scheduler.clock(), FlatOrderId::newId);
+        app.setRepricePolicy(new RepricePolicy(2, Duration.ZERO));
+        quotes.addDepthListener(md.bookUpdateListener(app));
+
+        quotes.onMarketData(new MarketDataEvent("EURUSD", "LP1", levels("1.1000", "5"), levels("1.0990", "5")));
+        app.start(new FlatSignal(EURUSD, FlatSignal.Side.BUY, new BigDecimal("5"), "test", Instant.EPOCH),
+                new VwapParams(EURUSD, VwapParams.TargetType.BASE_QTY, new BigDecimal("5"),
+                        VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), new BigDecimal("0.0010")));
+        // 其他 symbol 的行情不触发
+        quotes.onMarketData(new MarketDataEvent("USDJPY", "LP1", levels("150.00", "5"), levels("149.99", "5")));
+        assertTrue(oms.replaces.isEmpty());
+
+        quotes.onMarketData(new MarketDataEvent("EURUSD", "LP1", levels("1.1003", "5"), levels("1.0990", "5")));
+        assertEquals(List.of(new BigDecimal("1.1003")), oms.replaces);
+    }
+
+    @Test
+    void testOneDeadlineTimerPerParentRegardlessOfChildCount() {
+        Fixture f = new Fixture();
+        f.book.set(new OrderBook(List.of(new PriceLevel(new BigDecimal("1.1000"), List.of(
+                        new ProviderDepth("LP1", new BigDecimal("2")), new ProviderDepth("LP2", new BigDecimal("2")),
+                        new ProviderDepth("LP3", new BigDecimal("2"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0990"), List.of(new ProviderDepth("LP1", new BigDecimal("5")))))));
+        f.app.setRepricePolicy(new RepricePolicy(100, Duration.ofMillis(500)));
+        FlatOrderId id = f.start();
+        assertEquals(3, f.repo.load(id).children.size());
+        // 父单超时 + 一个子单期限定时器
+        assertEquals(2, f.scheduler.pending());
+
+        f.book.set(new OrderBook(List.of(new PriceLevel(new BigDecimal("1.1002"), List.of(
+                        new ProviderDepth("LP1", new BigDecimal("2")), new ProviderDepth("LP2", new BigDecimal("2")),
+                        new ProviderDepth("LP3", new BigDecimal("2"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0990"), List.of(new ProviderDepth("LP1", new BigDecimal("5")))))));
+        f.scheduler.runUntil(500);
+        assertEquals(3, f.oms.replaces.size(), "一次到期检查处理全部子单");
+        assertEquals(2, f.scheduler.pending(), "检查后只重新调度一次");
+    }
+
+    private static List<OrderBookLevel> levels(String px, String qty) {
+        return List.of(new OrderBookLevel(new BigDecimal(px), new BigDecimal(qty)));
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.ExposureService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.application.FlatSignalNettingService;
+import com.example.trade.demo.domain.fx.application.FlatSignalNettingService.NettingBatch;
+import com.example.trade.demo.domain.fx.application.FlatSignalNettingService.SignalOutcome;
+import com.example.trade.demo.domain.fx.event.DomainEvent;
+import com.example.trade.demo.domain.fx.event.FlatOrderStarted;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.InMemoryOms;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.NettingPolicy;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class FlatSignalNettingServiceTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+
+    private final VirtualClock clock = new VirtualClock(0);
+    private final VirtualScheduler scheduler = new VirtualScheduler(clock);
+    private final List<FlatOrderStarted> parents = new ArrayList<>();
+    private final List<NettingBatch> batches = new ArrayList<>();
+    private final List<SignalOutcome> outcomes = new ArrayList<>();
+    private FlatOrderApplicationService app;
+
+    private static VwapParams params(FlatSignal sig) {
+        return new VwapParams(sig.symbol(), VwapParams.TargetType.BASE_QTY, sig.suggestedTarget(),
+                VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO);
+    }
+
+    private FlatSignalNettingService newService(NettingPolicy policy) {
+        return newService(policy, FlatSignalNettingServiceTest::params);
+    }
+
+    private FlatSignalNettingService newService(NettingPolicy policy, Function<FlatSignal, VwapParams> paramsFor) {
+        OrderBook book = new OrderBook(
+                List.of(new PriceLevel(new BigDecimal("1.1001"), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0999"), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))));
+        app = new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return book; }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2); }
+        }, new VwapSplittingDomainService(), new InMemoryOms(clock), new InMemoryFlatOrderRepository(),
+                scheduler, clock, FlatOrderId::newId);
+        FlatSignalNettingService netting = new FlatSignalNettingService(app, paramsFor, scheduler, clock, policy);
+        app.addEventListener(netting::onEvent);
+        app.addEventListener((DomainEvent e) -> { if (e instanceof FlatOrderStarted s) parents.add(s); });
+        netting.addBatchListener(batches::add);
+        netting.addOutcomeListener(outcomes::add);
+        return netting;
+    }
+
+    private static FlatSignal sig(FlatSignal.Side side, String qty, String reason) {
+        return new FlatSignal(EURUSD, side, new BigDecimal(qty), reason, Instant.EPOCH);
+    }
+
+    private SignalOutcome outcomeOf(String reason) {
+        return outcomes.stream().filter(o -> o.signal().reason().equals(reason)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void testSignalsWithinWindowBecomeOneNetParentWithAttribution() {
+        FlatSignalNettingService netting = newService(NettingPolicy.window(Duration.ofMillis(50)));
+        netting.submit(sig(FlatSignal.Side.BUY, "10", "a"));
+        scheduler.runUntil(10);
+        netting.submit(sig(FlatSignal.Side.SELL, "4", "b"));
+        scheduler.runUntil(20);
+        netting.submit(sig(FlatSignal.Side.BUY, "2", "c"));
+        scheduler.runUntil(40);
+        assertTrue(parents.isEmpty(), "窗口未到期不发单");
+
+        scheduler.runUntil(60);
+        assertEquals(1, parents.size());
+        assertEquals(FlatSignal.Side.BUY, parents.get(0).side());
+        assertEquals(0, new BigDecimal("8").compareTo(parents.get(0).targetValue()));
+        assertEquals(1, batches.size());
+        assertEquals(0, new BigDecimal("16").compareTo(batches.get(0).grossBase()));
+        assertEquals(parents.get(0).flatOrderId(), batches.get(0).parentId());
+        assertEquals(3, netting.signalsReceived());
+        assertEquals(1, netting.ordersSent());
+
+        // SELL 4 全部内部对冲；BUY 10 / BUY 2 按 10:2 分摊净额 8
+        SignalOutcome b = outcomeOf("b");
+        assertEquals(0, new BigDecimal("4").compareTo(b.nettedBase()));
+        assertEquals(0, b.filledBase().signum());
+        SignalOutcome a = outcomeOf("a");
+        SignalOutcome c = outcomeOf("c");
+        assertEquals(new BigDecimal("6.666666"), a.filledBase());
+        assertEquals(new BigDecimal("3.333334"), a.nettedBase());
+        assertEquals(0, new BigDecimal("8").compareTo(a.filledBase().add(c.filledBase())), "分摊后合计等于父单成交量");
+        assertEquals(0, new BigDecimal("10").compareTo(a.nettedBase().add(a.filledBase())));
+        assertEquals(new BigDecimal("1.1001"), a.avgPx());
+        assertEquals(parents.get(0).flatOrderId(), c.parentId());
+    }
+
+    @Test
+    void testFullyOffsettingSignalsSendNothing() {
+        FlatSignalNettingService netting = newService(NettingPolicy.window(Duration.ofMillis(50)));
+        netting.submit(sig(FlatSignal.Side.BUY, "5", "a"));
+        netting.submit(sig(FlatSignal.Side.SELL, "5", "b"));
+        scheduler.runUntil(100);
+        assertTrue(parents.isEmpty());
+        assertEquals(1, netting.fullyNetted());
+        assertNull(batches.get(0).netSide());
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.stream().allMatch(o -> o.parentId() == null && o.filledBase().signum() == 0 && o.avgPx() == null));
+    }
+
+    @Test
+    void testThresholdFlushesBeforeWindowAndStartsNewBatch() {
+        FlatSignalNettingService netting = newService(new NettingPolicy(Duration.ofMillis(50), new BigDecimal("20"), 100));
+        netting.submit(sig(FlatSignal.Side.SELL, "5", "a"));
+        netting.submit(sig(FlatSignal.Side.SELL, "15", "b"));
+        assertEquals(1, parents.size(), "净额达到阈值立即发单");
+        assertEquals(FlatSignal.Side.SELL, parents.get(0).side());
+
+        // 新批次有自己的窗口；旧窗口到期不影响新批次
+        scheduler.runUntil(30);
+        netting.submit(sig(FlatSignal.Side.BUY, "3", "c"));
+        scheduler.runUntil(60);
+        assertEquals(1, parents.size());
+        scheduler.runUntil(80);
+        assertEquals(2, parents.size());
+        assertEquals(0, new BigDecimal("3").compareTo(parents.get(1).targetValue()));
+
+        FlatSignalNettingService direct = newService(NettingPolicy.off());
+        direct.submit(sig(FlatSignal.Side.BUY, "1", "d"));
+        assertEquals(3, parents.size(), "关闭轧差时逐笔直发");
+    }
+
+    @Test
+    void testFailedStartPublishesBatchWithUnfilledOutcomes() {
+        AtomicBoolean broken = new AtomicBoolean(true);
+        FlatSignalNettingService netting = newService(NettingPolicy.window(Duration.ofMillis(50)), sig -> {
+            if (broken.get()) throw new IllegalStateException("no params");
+            return params(sig);
+        });
+        netting.submit(sig(FlatSignal.Side.BUY, "10", "a"));
+        netting.submit(sig(FlatSignal.Side.SELL, "4", "b"));
+        scheduler.runUntil(60);
+
+        assertTrue(parents.isEmpty());
+        assertEquals(1, batches.size(), "发单失败的批次也要发布");
+        assertTrue(batches.get(0).failed());
+        assertEquals(FlatSignal.Side.BUY, batches.get(0).netSide());
+        assertEquals(1, netting.startFailures());
+        assertEquals(0, netting.ordersSent());
+        assertEquals(2, outcomes.size(), "已出队的信号都要给出结果");
+        SignalOutcome a = outcomeOf("a");
+        assertNull(a.parentId());
+        assertEquals(0, new BigDecimal("4").compareTo(a.nettedBase()));
+        assertEquals(0, a.filledBase().signum());
+        assertNull(a.avgPx());
+        assertEquals(0, new BigDecimal("4").compareTo(outcomeOf("b").nettedBase()));
+
+        // 之后的批次不受影响
+        broken.set(false);
+        netting.submit(sig(FlatSignal.Side.BUY, "3", "c"));
+        scheduler.runUntil(200);
+        assertEquals(1, parents.size());
+        assertFalse(batches.get(1).failed());
+    }
+
+    @Test
+    void testExposureKeepsSignalInFlightWhileItWaitsInTheWindow() {
+        FlatSignalNettingService netting = newService(NettingPolicy.window(Duration.ofMillis(50)));
+        ExposureService exposure = new ExposureService(clock);
+        exposure.setLimit(EURUSD, new BigDecimal("50"));
+        app.addEventListener(exposure::onEvent);
+        List<FlatSignal> signals = new ArrayList<>();
+        exposure.addSignalListener(signals::add);
+        netting.attach(exposure);
+
+        exposure.onFill(EURUSD, FlatSignal.Side.BUY, new BigDecimal("70"), new BigDecimal("1.1"));
+        exposure.refresh();
+        scheduler.runUntil(20);
+        exposure.refresh();
+        assertEquals(1, signals.size(), "信号在窗口内暂存时不应重复对冲");
+        assertTrue(parents.isEmpty());
+
+        scheduler.runUntil(60);
+        assertEquals(1, parents.size());
+        assertEquals(0, new BigDecimal("70").compareTo(parents.get(0).targetValue()));
+        ExposureService.ExposureSnapshot after = exposure.refresh();
+        assertEquals(0, BigDecimal.ZERO.compareTo(after.of(EURUSD).netBase()), "平盘成交应回流到敞口");
+
+        // 结果给出后解除在途标记，再次超限时重新发信号
+        exposure.onFill(EURUSD, FlatSignal.Side.SELL, new BigDecimal("60"), new BigDecimal("1.1"));
+        exposure.refresh();
+        assertEquals(2, signals.size());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.fx.application.MarketDepthAdapters.FromQuoteService;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class InstrumentRegistryTest {
+
+    private static List<OrderBookLevel> level(String px, String qty) {
+        return List.of(new OrderBookLevel(new BigDecimal(px), new BigDecimal(qty)));
+    }
+
+    @Test
+    void testIdsAreDenseAndFxSymbolSharesStringId() {
+        InstrumentRegistry registry = new InstrumentRegistry();
+        assertEquals(0, registry.symbolId("EURUSD"));
+        assertEquals(1, registry.symbolId("USDJPY"));
+        assertEquals(0, registry.symbolId(new FxSymbol("EUR", "USD")), "FxSymbol 与拼接字符串应共用同一 ID");
+        assertEquals(new FxSymbol("EUR", "USD"), registry.fxSymbolOf(0));
+        assertNull(registry.fxSymbolOf(1));
+        assertEquals(-1, registry.findSymbol("GBPUSD"));
+
+        for (int i = 0; i < 100; i++) assertEquals(i, registry.providerId("LP" + i));
+        assertEquals("LP42", registry.providerName(42));
+        assertEquals(100, registry.providerCount());
+    }
+
+    @Test
+    void testQuoteServiceUsesEventIdsAndFxSymbolResolvesSameAggregator() {
+        InstrumentRegistry registry = new InstrumentRegistry();
+        QuoteService service = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(Clock.systemUTC(),
+                Duration.ZERO), ProviderTtlPolicy.never(), null, Clock.systemUTC(), registry);
+        List<ExecutionResult> results = new ArrayList<>();
+        service.addResultListener(results::add);
+
+        int eurusd = registry.symbolId(new FxSymbol("EUR", "USD"));
+        int lp1 = registry.providerId("LP1");
+        service.onMarketData(new MarketDataEvent(registry, eurusd, lp1,
+                level("80.05", "10"), level("79.95", "10"), System.nanoTime()));
+        // 同一 symbol 以名称到达时落到同一个聚合器
+        service.onMarketData(new MarketDataEvent("EURUSD", "LP2", level("80.04", "5"), level("79.96", "5")));
+
+        assertEquals(1, service.getActiveSymbolCount());
+        MarketDepthAggregator agg = service.aggregatorOf(eurusd);
+        assertSame(agg, service.aggregatorOf("EURUSD"));
+        assertEquals(List.of("LP1", "LP2"), new ArrayList<>(agg.getAllAskDepth().keySet()));
+        assertEquals(2, results.size());
+
+        OrderBook book = new FromQuoteService(service, s -> new FxSymbolRule(new BigDecimal("0.01"), 2, 2, 2))
+                .latest(new FxSymbol("EUR", "USD"));
+        assertEquals(0, new BigDecimal("80.04").compareTo(book.asksAsc().get(0).price()));
+        assertEquals(0, new BigDecimal("79.96").compareTo(book.bidsDesc().get(0).price()));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.InMemoryOms;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JfrEventsTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+
+    private static void drive() {
+        QuoteService quotes = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                ProviderTtlPolicy.never(), null, Clock.systemUTC());
+        quotes.onMarketData(new MarketDataEvent("AAA", "LP1",
+                List.of(new OrderBookLevel(new BigDecimal("80.02"), BigDecimal.TEN)),
+                List.of(new OrderBookLevel(new BigDecimal("80.00"), BigDecimal.TEN))));
+        // 买价超过风控上限
+        quotes.onMarketData(new MarketDataEvent("AAA", "LP1",
+                List.of(new OrderBookLevel(new BigDecimal("120.02"), BigDecimal.TEN)),
+                List.of(new OrderBookLevel(new BigDecimal("120.00"), BigDecimal.TEN))));
+
+        OrderBook book = new OrderBook(List.of(
+                new PriceLevel(new BigDecimal("1.1000"), List.of(new ProviderDepth("LP1", new BigDecimal("3")))),
+                new PriceLevel(new BigDecimal("1.1001"), List.of(new ProviderDepth("LP2", new BigDecimal("5"))))), List.of());
+        VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        FlatOrderApplicationService flat = new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return book; }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2); }
+        }, new VwapSplittingDomainService(), new InMemoryOms(scheduler.clock()), new InMemoryFlatOrderRepository(),
+                scheduler, scheduler.clock(), FlatOrderId::newId);
+        flat.start(new FlatSignal(EURUSD, FlatSignal.Side.BUY, new BigDecimal("6"), "test", Instant.EPOCH),
+                new VwapParams(EURUSD, VwapParams.TargetType.BASE_QTY, new BigDecimal("6"),
+                        VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO));
+        scheduler.runUntil(10_000);
+    }
+
+    private static Map<String, List<RecordedEvent>> record(Configuration config, Path file) throws Exception {
+        try (Recording recording = config == null ? new Recording() : new Recording(config)) {
+            if (config != null) {
+                // 测试中的 tick 很快，去掉阈值以确保被记录
+                recording.enable("com.example.trade.QuoteTick").withThreshold(Duration.ZERO);
+                recording.enable("com.example.trade.StrategyDecision").withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            drive();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("com.example.trade."))
+                .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+    }
+
+    @Test
+    void testProfileEnablesDomainEvents(@TempDir Path dir) throws Exception {
+        Configuration config;
+        try (Reader r = new InputStreamReader(JfrEventsTest.class.getResourceAsStream("/jfr/trade.jfc"), StandardCharsets.UTF_8)) {
+            config = Configuration.create(r);
+        }
+        Map<String, List<RecordedEvent>> events = record(config, dir.resolve("on.jfr"));
+
+        List<RecordedEvent> ticks = events.get("com.example.trade.QuoteTick");
+        assertEquals(2, ticks.size());
+        assertEquals("AAA", ticks.get(0).getString("symbol"));
+        assertTrue(ticks.get(0).getBoolean("quoted"));
+        assertTrue(ticks.get(0).getLong("strategyNanos") > 0);
+        assertEquals(2, events.get("com.example.trade.StrategyDecision").size());
+
+        RecordedEvent reject = events.get("com.example.trade.QuoteReject").get(0);
+        assertEquals("RISK", reject.getString("check"));
+        assertEquals(120.0, reject.getDouble("bid"), 1e-9);
+
+        RecordedEvent split = events.get("com.example.trade.VwapSplit").get(0);
+        assertEquals(2, split.getInt("childCount"));
+        assertEquals(2, split.getInt("levelsConsumed"));
+        assertEquals(2, split.getInt("providers"));
+
+        List<RecordedEvent> reports = events.get("com.example.trade.FlatOrderReport");
+        assertTrue(reports.stream().anyMatch(e -> e.getBoolean("parentFinished")));
+        assertTrue(reports.stream().anyMatch(e -> "LP2".equals(e.getString("provider"))));
+        assertTrue(events.get("com.example.trade.FlatOrderTimeout").stream().anyMatch(e -> "PARENT".equals(e.getString("kind"))));
+    }
+
+    @Test
+    void testDomainEventsAreOffWithoutProfile(@TempDir Path dir) throws Exception {
+        assertTrue(record(null, dir.resolve("off.jfr")).isEmpty());
+        assertTrue(Files.size(dir.resolve("off.jfr")) > 0);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.log.ConsoleLog;
+import com.example.trade.demo.domain.service.JitWarmup;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class JitWarmupTest {
+
+    @Test
+    void testWarmupDrivesWholeHotPathWithoutTouchingStdout() {
+        PrintStream out = System.out;
+        JitWarmup.Report report = new JitWarmup(List.of(new SimpleBestPriceStrategy()), 200, 1, Duration.ofSeconds(5)).run();
+
+        assertSame(out, System.out, "预热不应替换进程级 System.out");
+        assertFalse(ConsoleLog.isQuiet(), "预热结束后本线程日志应恢复");
+        assertTrue(report.rounds() >= 1);
+        assertEquals(report.rounds() * 200L, report.ticks());
+        // 同一 provider 重复推送相同前 N 档会被聚合器跳过，其余 tick 都应经过策略与执行器
+        assertTrue(report.results() > report.ticks() / 2 && report.results() <= report.ticks());
+        assertTrue(report.childOrders() > 0, "拆单路径应被执行");
+    }
+
+    @Test
+    void testQuietLoggingOnlyAppliesToCallingThread() {
+        boolean otherThreadQuiet = ConsoleLog.quietly(() -> {
+            assertTrue(ConsoleLog.isQuiet());
+            return CompletableFuture.supplyAsync(ConsoleLog::isQuiet).join();
+        });
+        assertFalse(otherThreadQuiet, "其他线程的日志不受影响");
+        assertFalse(ConsoleLog.isQuiet());
+    }
+
+    @Test
+    void testQuietLoggingSkipsFormattingArguments() {
+        AtomicInteger rendered = new AtomicInteger();
+        Object arg = new Object() {
+            @Override public String toString() { rendered.incrementAndGet(); return "arg"; }
+        };
+        ConsoleLog.quietly(() -> {
+            ConsoleLog.println("[Test] %s", arg);
+            ConsoleLog.println("[Test] %s %s", arg, arg);
+            return null;
+        });
+        assertEquals(0, rendered.get(), "静默时不应格式化参数");
+        ConsoleLog.println("[Test] %s", arg);
+        assertEquals(1, rendered.get());
+    }
+
+    @Test
+    void testWarmupStopsAtMaxDurationWhenCompilationNeverSettles() {
+        // quiet-rounds 极大时只能由时间上限结束
+        JitWarmup.Report report = new JitWarmup(List.of(new SimpleBestPriceStrategy()), 50, Integer.MAX_VALUE,
+                Duration.ofMillis(200)).run();
+
+        assertFalse(report.converged());
+        assertTrue(report.elapsedMillis() < 2_000, "应在时间上限附近结束");
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.QuoteInstruction;
+import com.example.trade.demo.domain.service.LatencyTracer;
+import com.example.trade.demo.domain.service.LatencyTracer.TraceSample;
+
+public class LatencyTracerTest {
+
+    // ingest 固定为 1000ns，总耗时 = total
+    private static ExecutionResult result(String symbol, long total) {
+        QuoteInstruction qi = new QuoteInstruction(symbol, new BigDecimal("99.99"), new BigDecimal("100.01"))
+                .withTrace(0L, 1_000L, 1_000L + total / 4);
+        return new ExecutionResult(true, "ok", qi, 0L, 1_000L + total / 2, 1_000L + total);
+    }
+
+    @Test
+    void testSamplesEveryNthResultButCountsAllInHistogram() {
+        LatencyTracer tracer = new LatencyTracer(3, 16);
+        for (int i = 1; i <= 10; i++) tracer.record(result("EURUSD", i * 100L));
+
+        List<TraceSample> samples = tracer.samples();
+        // 第 1、4、7、10 个结果被抽样
+        assertEquals(List.of(100L, 400L, 700L, 1000L), samples.stream().map(TraceSample::totalNanos).toList());
+        assertEquals(25L, samples.get(0).strategyNanos());
+        assertEquals(25L, samples.get(0).riskNanos());
+        assertEquals(50L, samples.get(0).executionNanos());
+        assertEquals(10, tracer.summary("EURUSD").count());
+        assertEquals(1000L, tracer.summary("EURUSD").max());
+        assertEquals(0, tracer.summary("USDJPY").count());
+    }
+
+    @Test
+    void testRingKeepsLatestSamplesInOrderAfterWrap() {
+        LatencyTracer tracer = new LatencyTracer(1, 4);
+        for (int i = 1; i <= 10; i++) tracer.record(result("EURUSD", i));
+        assertEquals(List.of(7L, 8L, 9L, 10L), tracer.samples().stream().map(TraceSample::totalNanos).toList());
+
+        // 容量与抽样间隔非法时按 1 处理，不在记录时抛异常
+        LatencyTracer clamped = new LatencyTracer(0, 0);
+        clamped.record(result("EURUSD", 5));
+        clamped.record(result("EURUSD", 6));
+        assertEquals(List.of(6L), clamped.samples().stream().map(TraceSample::totalNanos).toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.log.ConsoleLog;
+import com.example.trade.demo.domain.loadtest.LoadGenerator;
+import com.example.trade.demo.domain.loadtest.LoadProfile;
+import com.example.trade.demo.domain.loadtest.SyntheticMarketData;
+import com.example.trade.demo.domain.service.JitWarmup;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.VMAPBestPriceStrategy;
+
+public class LoadGeneratorTest {
+
+    private static final VMAPBestPriceStrategy STRATEGY = new VMAPBestPriceStrategy(new VMAPBestPriceStrategy.Params(
+            new BigDecimal("50"), 5, new BigDecimal("30"), new BigDecimal("0.01"), 1, 1, new BigDecimal("5"), "VWAP_BEST"));
+
+    private static QuoteService newService(VMAPBestPriceStrategy strategy) {
+        return new QuoteService(strategy, new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                ProviderTtlPolicy.never(), null, Clock.systemUTC(), new InstrumentRegistry());
+    }
+
+    @Test
+    void testSyntheticFeedIsReproducibleAndStaysInsideRiskBand() {
+        LoadProfile profile = new LoadProfile(3, 4, 5, 1_000, 50, 7);
+        SyntheticMarketData a = new SyntheticMarketData(profile, new InstrumentRegistry());
+        SyntheticMarketData b = new SyntheticMarketData(profile, new InstrumentRegistry());
+        for (int i = 0; i < 10_000; i++) {
+            MarketDataEvent x = a.next(i);
+            MarketDataEvent y = b.next(i);
+            assertEquals(x.getSymbol(), y.getSymbol());
+            assertEquals(x.getProvider(), y.getProvider());
+            assertEquals(x.getAskLevels().get(0).getPrice(), y.getAskLevels().get(0).getPrice());
+            assertEquals(5, x.getBidLevels().size());
+            BigDecimal bid = x.getBidLevels().get(0).getPrice();
+            assertTrue(bid.compareTo(new BigDecimal("50")) > 0 && bid.compareTo(new BigDecimal("100")) < 0, bid::toPlainString);
+            assertTrue(bid.compareTo(x.getAskLevels().get(0).getPrice()) < 0);
+        }
+    }
+
+    @Test
+    void testLatencyIsCorrectedForCoordinatedOmission() {
+        QuoteService service = newService(STRATEGY);
+        // 第 200 个报价结果处管线卡住 60ms：卡顿期间应发出的行情全部晚发
+        AtomicLong seen = new AtomicLong();
+        service.addResultListener(r -> {
+            if (seen.incrementAndGet() == 200) {
+                try { Thread.sleep(60); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            }
+        });
+        LoadGenerator.Report report = new LoadGenerator(service, LoadProfile.of(4, 3, 2_000), true, null)
+                .run(Duration.ofMillis(800), Duration.ofMillis(200));
+
+        assertFalse(ConsoleLog.isQuiet(), "结束后发生器线程的日志应恢复");
+        assertTrue(report.ticks() >= 1_500 && report.ticks() <= 1_600, "按计划时间发完全部行情: " + report.ticks());
+        assertTrue(report.quotes() > 0 && report.quotes() <= report.ticks());
+        assertTrue(report.windows().size() >= 3);
+        assertEquals(report.ticks(), report.windows().stream().mapToLong(LoadGenerator.Window::ticks).sum());
+        assertTrue(report.latency().max() >= 40_000_000L, "修正后的延迟包含排队等待: " + report.latency().max());
+        assertTrue(report.latency().p99() >= 10_000_000L, "卡顿影响约 120 个 tick，应体现在 p99: " + report.latency().p99());
+        assertTrue(report.serviceTime().p99() < 10_000_000L, "未修正的服务时间看不到卡顿: " + report.serviceTime().p99());
+    }
+
+    /**
+     * 长时间浸泡测试，默认不运行：
+     * mvn test -Dtest=LoadGeneratorTest#soak -Dsoak.duration=PT30M -Dsoak.rate=20000
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "soak.duration", matches = ".+")
+    void soak() {
+        Duration duration = Duration.parse(System.getProperty("soak.duration"));
+        Duration window = Duration.parse(System.getProperty("soak.window", "PT10S"));
+        LoadProfile profile = new LoadProfile(Integer.getInteger("soak.symbols", 20), Integer.getInteger("soak.providers", 5),
+                Integer.getInteger("soak.levels", 5), Double.parseDouble(System.getProperty("soak.rate", "10000")),
+                Double.parseDouble(System.getProperty("soak.volatility-bps", "2")), 42L);
+        QuoteService service = newService(STRATEGY);
+        new JitWarmup(List.of(STRATEGY), 500, 2, Duration.ofSeconds(10)).run();
+        LoadGenerator.Report report = new LoadGenerator(service, profile, true, System.out).run(duration, window);
+        assertTrue(report.sustained(), "未能维持目标速率");
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.trade.demo;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/** 测试用手动时钟：now 由测试直接设置或推进，可跨线程读取 */
+final class ManualClock extends Clock {
+    volatile long now;
+
+    ManualClock() { this(1_000_000L); }
+
+    ManualClock(long startMillis) { this.now = startMillis; }
+
+    @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+    @Override public Clock withZone(ZoneId zone) { return this; }
+    @Override public Instant instant() { return Instant.ofEpochMilli(now); }
+    @Override public long millis() { return now; }
+}
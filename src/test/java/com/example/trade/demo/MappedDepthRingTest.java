@@ -0,0 +1,123 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.ingress.MappedDepthRing;
+import com.example.trade.demo.domain.ingress.MappedRingIngress;
+import com.example.trade.demo.domain.ingress.MappedRingReader;
+import com.example.trade.demo.domain.ingress.MappedRingWriter;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class MappedDepthRingTest {
+
+    @TempDir
+    Path dir;
+
+    private static boolean publish(MappedRingWriter w, String symbol, String provider, long mid) {
+        return w.publish(symbol, provider, System.nanoTime(),
+                new long[] {mid + 5, mid + 6}, new long[] {10, 20}, 2,
+                new long[] {mid - 5}, new long[] {10}, 1);
+    }
+
+    @Test
+    void testSeparateMappingsExchangeEventsAndResolveIds() throws Exception {
+        Path file = dir.resolve("md.ring");
+        // 生产者与消费者各自映射同一文件，模拟两个进程
+        MappedRingWriter writer = new MappedRingWriter(MappedDepthRing.open(file, 8, 4, 2));
+        MappedDepthRing consumerSide = MappedDepthRing.open(file, 1024, 99, 9); // 已存在时沿用文件参数
+        assertEquals(8, consumerSide.capacity());
+        assertEquals(4, consumerSide.maxLevels());
+
+        InstrumentRegistry registry = new InstrumentRegistry();
+        MappedRingReader reader = new MappedRingReader(consumerSide, registry);
+
+        for (int i = 0; i < 8; i++) assertTrue(publish(writer, i % 2 == 0 ? "EURUSD" : "USDJPY", "LP" + (i % 3), 8_000 + i));
+        assertFalse(publish(writer, "EURUSD", "LP1", 8_000), "缓冲区满时应拒绝写入");
+        assertEquals(8, consumerSide.backlog());
+
+        List<String> seen = new ArrayList<>();
+        long[] lastAsk = new long[1];
+        assertEquals(8, reader.drain(e -> {
+            seen.add(e.getSymbol() + "/" + e.getProvider() + "#" + e.getSymbolId());
+            lastAsk[0] = e.askPx(0);
+            assertEquals(2, e.getAskCount());
+            assertEquals(1, e.getBidCount());
+        }));
+        assertEquals("EURUSD/LP0#0", seen.get(0));
+        assertEquals("USDJPY/LP1#1", seen.get(1));
+        assertEquals(8_012, lastAsk[0]);
+        assertEquals(2, registry.symbolCount());
+        assertEquals(0, consumerSide.backlog());
+        assertTrue(publish(writer, "EURUSD", "LP1", 8_000), "消费后槽位归还");
+    }
+
+    @Test
+    void testConsumerRestartResumesFromPersistedHead() throws Exception {
+        Path file = dir.resolve("restart.ring");
+        MappedRingWriter writer = new MappedRingWriter(MappedDepthRing.open(file, 16, 2, 2));
+        for (int i = 0; i < 5; i++) publish(writer, "EURUSD", "LP1", 8_000 + i);
+
+        MappedRingReader first = new MappedRingReader(MappedDepthRing.open(file, 16, 2, 2), new InstrumentRegistry());
+        assertEquals(5, first.drain(e -> { }));
+
+        for (int i = 5; i < 8; i++) publish(writer, "EURUSD", "LP1", 8_000 + i);
+        // 消费者进程重启：重新映射文件，只读到未消费的 3 条
+        MappedRingReader restarted = new MappedRingReader(MappedDepthRing.open(file, 16, 2, 2), new InstrumentRegistry());
+        List<Long> asks = new ArrayList<>();
+        assertEquals(3, restarted.drain(e -> asks.add(e.askPx(0))));
+        assertEquals(List.of(8_010L, 8_011L, 8_012L), asks);
+    }
+
+    @Test
+    void testRejectsNamesThatDoNotFitTheSlot() throws Exception {
+        MappedDepthRing ring = MappedDepthRing.open(dir.resolve("names.ring"), 8, 2, 2);
+        MappedRingWriter writer = new MappedRingWriter(ring);
+        assertThrows(IllegalArgumentException.class, () -> publish(writer, "X".repeat(33), "LP1", 8_000));
+        assertThrows(IllegalArgumentException.class, () -> publish(writer, "BTCUSDT", "流动性1", 8_000));
+        MappedRingReader reader = new MappedRingReader(ring, new InstrumentRegistry());
+        assertEquals(0, reader.drain(e -> { }), "被拒绝的事件不发布");
+
+        assertTrue(publish(writer, "Y".repeat(32), "LP1", 8_000), "正好 32 字节可以写入");
+        List<String> symbols = new ArrayList<>();
+        reader.drain(e -> symbols.add(e.getSymbol()));
+        assertEquals(List.of("Y".repeat(32)), symbols);
+    }
+
+    @Test
+    void testIngressThreadFeedsQuoteService() throws Exception {
+        Path file = dir.resolve("ingress.ring");
+        MappedRingWriter writer = new MappedRingWriter(MappedDepthRing.open(file, 64, 4, 2));
+        QuoteService quotes = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                ProviderTtlPolicy.never(), null, Clock.systemUTC());
+        List<ExecutionResult> results = new java.util.concurrent.CopyOnWriteArrayList<>();
+        quotes.addResultListener(results::add);
+
+        MappedDepthRing ring = MappedDepthRing.open(file, 64, 4, 2);
+        MappedRingIngress ingress = new MappedRingIngress(new MappedRingReader(ring, quotes.getRegistry()),
+                MappedRingIngress.toQuoteService(quotes, ring.priceScale())).start();
+        try {
+            publish(writer, "BTCUSDT", "LP1", 8_000);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (results.isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        } finally {
+            ingress.close();
+        }
+        assertEquals(1, results.size());
+        assertEquals(0, new BigDecimal("79.95").compareTo(results.get(0).getInstruction().getBidPrice()));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.service.ExecutionResultPublisher;
+import com.example.trade.demo.domain.service.MarketDataBufferPolicy;
+import com.example.trade.demo.domain.service.MarketDataSubscriber;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class MarketDataSubscriberTest {
+
+    private static MarketDataEvent tick(String symbol, String provider, String ask) {
+        BigDecimal a = new BigDecimal(ask);
+        return new MarketDataEvent(symbol, provider, List.of(new OrderBookLevel(a, BigDecimal.ONE)),
+                List.of(new OrderBookLevel(a.subtract(BigDecimal.ONE), BigDecimal.ONE)));
+    }
+
+    private static QuoteService newService() {
+        return new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                ProviderTtlPolicy.never(), null, Clock.systemUTC());
+    }
+
+    // 手动驱动的执行器与记录需求的订阅句柄
+    private static final class Manual implements Flow.Subscription, java.util.concurrent.Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        long requested;
+        boolean cancelled;
+        @Override public void request(long n) { requested += n; }
+        @Override public void cancel() { cancelled = true; }
+        @Override public void execute(Runnable r) { tasks.add(r); }
+        void runAll() { Runnable r; while ((r = tasks.poll()) != null) r.run(); }
+    }
+
+    @Test
+    void testBufferPolicyOnlyReplenishesDemandAfterProcessing() {
+        QuoteService service = newService();
+        Manual m = new Manual();
+        MarketDataSubscriber sub = service.marketDataSubscriber(m, MarketDataBufferPolicy.buffer(), 4);
+        sub.onSubscribe(m);
+        assertEquals(4, m.requested);
+
+        for (int i = 0; i < 4; i++) sub.onNext(tick("BTCUSDT", "LP1", "80." + i));
+        assertEquals(4, m.requested, "未处理前不补充需求");
+        assertEquals(4, sub.buffered());
+
+        m.runAll();
+        assertEquals(4, sub.processed());
+        assertEquals(8, m.requested);
+        assertEquals(0, sub.buffered());
+        assertEquals(new BigDecimal("80.3"), service.aggregatorOf("BTCUSDT").getBestAsk().orElseThrow());
+    }
+
+    @Test
+    void testConflateAndDropOldestFreeDemandImmediatelyPerSymbolPolicy() {
+        QuoteService service = newService();
+        Manual m = new Manual();
+        MarketDataSubscriber sub = service.marketDataSubscriber(m, MarketDataBufferPolicy.buffer(), 8)
+                .withSymbolPolicy("EURUSD", MarketDataBufferPolicy.conflate())
+                .withSymbolPolicy("USDJPY", MarketDataBufferPolicy.dropOldest(2));
+        sub.onSubscribe(m);
+
+        sub.onNext(tick("EURUSD", "LP1", "80.1"));
+        sub.onNext(tick("EURUSD", "LP2", "80.5"));
+        sub.onNext(tick("EURUSD", "LP1", "80.2")); // 覆盖 LP1 的上一笔
+        sub.onNext(tick("EURUSD", "LP1", "80.3"));
+        for (int i = 0; i < 3; i++) sub.onNext(tick("USDJPY", "LP1", "90." + i)); // 丢弃最旧一笔
+        sub.onNext(tick("ETHUSDT", "LP1", "50.0"));
+
+        assertEquals(2, sub.conflated());
+        assertEquals(1, sub.dropped());
+        assertEquals(8 + 3, m.requested, "合并/丢弃立即释放需求");
+        assertEquals(5, sub.buffered());
+
+        m.runAll();
+        assertEquals(5, sub.processed());
+        assertEquals(8 + 3 + 5, m.requested);
+        assertEquals(new BigDecimal("80.3"), service.aggregatorOf("EURUSD").getAllAskDepth().get("LP1").firstKey());
+        assertEquals(new BigDecimal("90.2"), service.aggregatorOf("USDJPY").getBestAsk().orElseThrow());
+    }
+
+    @Test
+    void testSubmissionPublisherIsThrottledAndResultsFlowDownstream() throws Exception {
+        QuoteService service = newService();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            int listeners = service.resultListenerCount();
+            ExecutionResultPublisher results = service.resultPublisher(pool, 1024);
+            AtomicLong received = new AtomicLong();
+            CountDownLatch resultsDone = new CountDownLatch(1);
+            results.subscribe(new Flow.Subscriber<ExecutionResult>() {
+                Flow.Subscription s;
+                @Override public void onSubscribe(Flow.Subscription s) { this.s = s; s.request(Long.MAX_VALUE); }
+                @Override public void onNext(ExecutionResult item) { received.incrementAndGet(); }
+                @Override public void onError(Throwable t) { resultsDone.countDown(); }
+                @Override public void onComplete() { resultsDone.countDown(); }
+            });
+
+            MarketDataSubscriber sub = service.marketDataSubscriber(pool, MarketDataBufferPolicy.buffer(), 16);
+            int events = 2_000;
+            int maxLag = 0;
+            try (SubmissionPublisher<MarketDataEvent> feed = new SubmissionPublisher<>(pool, 32)) {
+                feed.subscribe(sub);
+                for (int i = 0; i < events; i++) {
+                    // submit 在订阅者需求耗尽、发布缓冲满时阻塞，上游随之限速
+                    feed.submit(tick("SYM" + (i % 8), "LP1", String.valueOf(50 + i % 40)));
+                    maxLag = Math.max(maxLag, sub.buffered());
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while ((sub.processed() < events || received.get() < events) && System.nanoTime() < deadline) Thread.sleep(5);
+
+            assertEquals(events, sub.processed());
+            assertTrue(maxLag <= 16, "缓冲不应超过订阅窗口: " + maxLag);
+            assertEquals(0, sub.dropped());
+            assertEquals(events, received.get());
+            results.close();
+            assertTrue(resultsDone.await(5, TimeUnit.SECONDS));
+            assertEquals(listeners, service.resultListenerCount(), "关闭后应从 QuoteService 注销");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class MarketDepthAggregatorTest {
+
+    private static OrderBookLevel lv(String px, String qty) {
+        return new OrderBookLevel(new BigDecimal(px), new BigDecimal(qty));
+    }
+
+    @Test
+    void testDeepLevelUpdateDoesNotChangeTopN() {
+        MarketDepthAggregator agg = new MarketDepthAggregator("BTCUSDT");
+        List<OrderBookLevel> asks = Arrays.asList(lv("100.5", "10"), lv("100.6", "10"));
+        List<OrderBookLevel> bids = Arrays.asList(lv("100.4", "10"), lv("100.3", "10"));
+
+        assertTrue(agg.updateDepth("ProviderA", asks, bids, 1), "首次更新应视为变化");
+
+        // 只改第二档，前 1 档不变
+        assertFalse(agg.updateDepth("ProviderA",
+                Arrays.asList(lv("100.5", "10"), lv("100.7", "50")),
+                Arrays.asList(lv("100.4", "10"), lv("100.2", "50")), 1), "深档变化不应触发");
+
+        // 同样的更新在关心 2 档时视为变化（档数变化）
+        assertTrue(agg.updateDepth("ProviderA", asks, bids, 2));
+    }
+
+    @Test
+    void testOtherProviderAtSamePriceChangesTopQty() {
+        MarketDepthAggregator agg = new MarketDepthAggregator("BTCUSDT");
+        agg.updateDepth("ProviderA", Arrays.asList(lv("100.5", "10")), Arrays.asList(lv("100.4", "10")), 1);
+
+        // ProviderB 报出同价位，合并后第一档数量变化
+        assertTrue(agg.updateDepth("ProviderB", Arrays.asList(lv("100.5", "5")), Arrays.asList(lv("100.0", "5")), 1));
+
+        // ProviderC 只报更差价位
+        assertFalse(agg.updateDepth("ProviderC", Arrays.asList(lv("101.0", "5")), Arrays.asList(lv("99.0", "5")), 1));
+    }
+
+    @Test
+    void testScaleOnlyDifferenceIsNotAChange() {
+        MarketDepthAggregator agg = new MarketDepthAggregator("BTCUSDT");
+        agg.updateDepth("ProviderA", Arrays.asList(lv("100.5", "10")), Arrays.asList(lv("100.4", "10")), 1);
+        assertFalse(agg.updateDepth("ProviderA", Arrays.asList(lv("100.50", "10.0")), Arrays.asList(lv("100.40", "10")), 1));
+    }
+
+    @Test
+    void testStaleProviderExpiresFromBestPrices() {
+        ManualClock clock = new ManualClock(0);
+        ProviderTtlPolicy ttl = new ProviderTtlPolicy(Duration.ofSeconds(5));
+        ttl.setProviderTtl("SlowLP", Duration.ofSeconds(1));
+        MarketDepthAggregator agg = new MarketDepthAggregator("EURUSD", ttl, clock);
+
+        agg.updateDepth("SlowLP", Arrays.asList(lv("1.1000", "1")), Arrays.asList(lv("1.0999", "1")));
+        agg.updateDepth("FastLP", Arrays.asList(lv("1.1002", "1")), Arrays.asList(lv("1.0997", "1")));
+        assertEquals(new BigDecimal("1.0999"), agg.getBestBid().orElseThrow());
+
+        clock.now = 1_500; // SlowLP 过期，FastLP 仍有效
+        assertEquals(new BigDecimal("1.0997"), agg.getBestBid().orElseThrow());
+        assertEquals(new BigDecimal("1.1002"), agg.getBestAsk().orElseThrow());
+        assertFalse(agg.getAllBidDepth().containsKey("SlowLP"));
+
+        clock.now = 6_000; // 全部过期
+        assertTrue(agg.getBestBid().isEmpty());
+    }
+
+    @Test
+    void testConfiguredTickKeepsEveryLevelAndReusesLadders() {
+        QuoteService service = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(Clock.systemUTC(), Duration.ZERO),
+                ProviderTtlPolicy.never(), null, Clock.systemUTC());
+        service.getPriceScalePolicy().setSymbolScale("USDJPY", 3);
+        service.onMarketData(new MarketDataEvent("USDJPY", "LP1",
+                Arrays.asList(lv("158.123457", "5"), lv("158.25", "5")), Arrays.asList(lv("158.000", "5"))));
+        MarketDepthAggregator agg = service.aggregatorOf("USDJPY");
+        assertEquals(2, agg.getConsolidatedAsks(5).size(), "比 tick 更细的价格不能挤掉其他档位");
+
+        service.onMarketData(new MarketDataEvent("USDJPY", "LP1",
+                Arrays.asList(lv("158.120", "5"), lv("158.250", "5.50")), Arrays.asList(lv("158.000", "5"))));
+        NavigableMap<BigDecimal, BigDecimal> asks = agg.getAllAskDepth().get("LP1");
+        assertEquals(new BigDecimal("158.120"), asks.firstKey(), "价格按行情原样返回");
+        assertEquals(new BigDecimal("5.50"), asks.lastEntry().getValue());
+    }
+
+    @Test
+    void testMergedTopMatchesSortedReferenceAcrossProviders() {
+        Random rnd = new Random(11);
+        MarketDepthAggregator agg = new MarketDepthAggregator("EURUSD");
+        String[] providers = { "LP1", "LP2", "LP3", "LP4" };
+        int topN = 5;
+        for (int i = 0; i < 2_000; i++) {
+            List<OrderBookLevel> asks = new ArrayList<>();
+            List<OrderBookLevel> bids = new ArrayList<>();
+            int levels = rnd.nextInt(8);
+            for (int l = 0; l < levels; l++) {
+                // 价格集中在少数几档，provider 之间经常同价
+                asks.add(lv(BigDecimal.valueOf(10_010 + rnd.nextInt(12), 4).toPlainString(), String.valueOf(1 + rnd.nextInt(9))));
+                bids.add(lv(BigDecimal.valueOf(10_000 - rnd.nextInt(12), 4).toPlainString(), String.valueOf(1 + rnd.nextInt(9))));
+            }
+            agg.updateDepth(providers[rnd.nextInt(providers.length)], asks, bids, topN);
+
+            assertLevels(reference(agg.getAllAskDepth(), false, topN), agg.getConsolidatedAsks(topN));
+            assertLevels(reference(agg.getAllBidDepth(), true, topN), agg.getConsolidatedBids(topN));
+        }
+    }
+
+    // 各 provider 全部深度按价格相加后取前 topN 档
+    private static List<OrderBookLevel> reference(Map<String, NavigableMap<BigDecimal, BigDecimal>> depth, boolean isBid, int topN) {
+        NavigableMap<BigDecimal, BigDecimal> merged = new TreeMap<>();
+        for (NavigableMap<BigDecimal, BigDecimal> book : depth.values()) {
+            book.forEach((px, qty) -> merged.merge(px, qty, BigDecimal::add));
+        }
+        List<OrderBookLevel> top = new ArrayList<>();
+        for (Map.Entry<BigDecimal, BigDecimal> e : (isBid ? merged.descendingMap() : merged).entrySet()) {
+            if (top.size() == topN) break;
+            top.add(new OrderBookLevel(e.getKey(), e.getValue()));
+        }
+        return top;
+    }
+
+    private static void assertLevels(List<OrderBookLevel> expected, List<OrderBookLevel> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(0, expected.get(i).getPrice().compareTo(actual.get(i).getPrice()));
+            assertEquals(0, expected.get(i).getQuantity().compareTo(actual.get(i).getQuantity()));
+        }
+    }
+}
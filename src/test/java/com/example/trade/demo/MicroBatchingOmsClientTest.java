@@ -0,0 +1,177 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.MicroBatchingOmsClient;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class MicroBatchingOmsClientTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+
+    private final VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+    private final BatchVenue venue = new BatchVenue();
+    private final MicroBatchingOmsClient oms = new MicroBatchingOmsClient(venue, scheduler, scheduler.clock(), 3, 10);
+
+    /** 记录每次 submitAll 的批次，并保留 venue 回报入口以便手动推送回报 */
+    private static final class BatchVenue implements OmsClient {
+        final List<List<String>> batches = new ArrayList<>();
+        final Map<String, Consumer<ExecutionReport>> reportTo = new HashMap<>();
+        @Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {
+            submitAll(List.of(child), onReport);
+        }
+        @Override public void submitAll(List<ChildOrder> children, Consumer<ExecutionReport> onReport) {
+            batches.add(children.stream().map(c -> c.clientOrderId).toList());
+            for (ChildOrder c : children) reportTo.put(c.clientOrderId, onReport);
+        }
+        @Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) { }
+        @Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) { }
+
+        void report(String id, OrdStatus status, String qty) {
+            reportTo.get(id).accept(new ExecutionReport(id, "V-" + id, status, new BigDecimal(qty),
+                    new BigDecimal("1.1000"), Instant.EPOCH, status.name()));
+        }
+    }
+
+    private static ChildOrder child(String id, String provider) {
+        return new ChildOrder(id, EURUSD, FlatSignal.Side.BUY, new BigDecimal("1.1000"), BigDecimal.ONE, provider);
+    }
+
+    @Test
+    void testFlushesWhenBatchFillsUp() {
+        oms.submit(child("C0", "LP1"), r -> { });
+        assertEquals(List.of(List.of("C0")), venue.batches, "首笔没有到达间隔可参考，直接发送");
+        oms.submit(child("C1", "LP1"), r -> { });
+        oms.submit(child("C2", "LP1"), r -> { });
+        assertEquals(1, venue.batches.size(), "流量密集时攒批等待");
+        oms.submit(child("C3", "LP1"), r -> { });
+        assertEquals(List.of("C1", "C2", "C3"), venue.batches.get(1), "攒满 maxBatch 立即发送");
+        assertEquals(2, oms.batchesSent());
+        assertEquals(4, oms.ordersSent());
+    }
+
+    @Test
+    void testFlushesAfterLingerBudget() {
+        oms.submit(child("C0", "LP1"), r -> { });
+        oms.submit(child("C1", "LP1"), r -> { });
+        oms.submit(child("C2", "LP2"), r -> { });
+        oms.submit(child("C3", "LP2"), r -> { });
+        scheduler.runUntil(9);
+        assertEquals(List.of(List.of("C0"), List.of("C2")), venue.batches);
+        scheduler.runUntil(10);
+        assertEquals(List.of(List.of("C0"), List.of("C2"), List.of("C1"), List.of("C3")), venue.batches,
+                "预算到期时各 provider 的批分别发出");
+    }
+
+    @Test
+    void testReportsRouteBackToEachSubmittersCallbackInOrder() {
+        List<ExecutionReport> first = new ArrayList<>();
+        List<ExecutionReport> second = new ArrayList<>();
+        oms.submit(child("C0", "LP1"), first::add);
+        oms.submit(child("C1", "LP1"), second::add);
+        oms.submit(child("C2", "LP1"), first::add);
+        scheduler.runUntil(10);
+
+        venue.report("C1", OrdStatus.NEW, "0");
+        venue.report("C0", OrdStatus.NEW, "0");
+        venue.report("C1", OrdStatus.PARTIALLY_FILLED, "0.4");
+        venue.report("C2", OrdStatus.NEW, "0");
+        venue.report("C1", OrdStatus.FILLED, "0.6");
+        venue.report("C1", OrdStatus.FILLED, "0.6"); // 终态之后的重复回报不再路由
+        venue.report("C0", OrdStatus.FILLED, "1");
+
+        assertEquals(List.of("C0:NEW", "C2:NEW", "C0:FILLED"), first.stream().map(r -> r.clientOrderId() + ":" + r.ordStatus()).toList());
+        assertEquals(List.of("C1:NEW", "C1:PARTIALLY_FILLED", "C1:FILLED"),
+                second.stream().map(r -> r.clientOrderId() + ":" + r.ordStatus()).toList());
+    }
+
+    @Test
+    void testCloseFlushesPendingBatchesAndStopsBatching() {
+        oms.submit(child("C0", "LP1"), r -> { });
+        oms.submit(child("C1", "LP1"), r -> { });
+        oms.submit(child("C2", "LP2"), r -> { });
+        oms.submit(child("C3", "LP2"), r -> { });
+        oms.close();
+        assertEquals(List.of(List.of("C0"), List.of("C2"), List.of("C1"), List.of("C3")), venue.batches);
+
+        oms.submit(child("C4", "LP1"), r -> { });
+        assertEquals(List.of("C4"), venue.batches.get(4), "关闭后不再攒批");
+        scheduler.runUntil(100);
+        assertEquals(5, venue.batches.size(), "已调度的 linger 到期时不重复发送");
+    }
+
+    // 平盘服务每个父单一次 submitAll：只有 LP1 一档深度，每个父单切出一个发往 LP1 的子单
+    private FlatOrderApplicationService app() {
+        OrderBook book = new OrderBook(List.of(new PriceLevel(new BigDecimal("1.1000"), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0990"), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))));
+        return new FlatOrderApplicationService(new MarketDepthProvider() {
+            @Override public OrderBook latest(FxSymbol symbol) { return book; }
+            @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2); }
+        }, new VwapSplittingDomainService(), oms, new InMemoryFlatOrderRepository(), scheduler, scheduler.clock(), FlatOrderId::newId);
+    }
+
+    private static FlatOrderId buy(FlatOrderApplicationService app) {
+        return app.start(new FlatSignal(EURUSD, FlatSignal.Side.BUY, BigDecimal.ONE, "test", Instant.EPOCH),
+                new VwapParams(EURUSD, VwapParams.TargetType.BASE_QTY, BigDecimal.ONE,
+                        VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO));
+    }
+
+    @Test
+    void testSlicesOfBackToBackParentsShareOneBatch() {
+        FlatOrderApplicationService app = app();
+        buy(app);
+        assertEquals(1, venue.batches.size(), "首个父单的切片没有到达间隔可参考，直接发送");
+        buy(app);
+        buy(app);
+        assertEquals(1, venue.batches.size(), "相邻父单的切片经 submitAll 进入同一批等待");
+        scheduler.runUntil(10);
+        assertEquals(2, venue.batches.size());
+        assertEquals(2, venue.batches.get(1).size(), "预算到期时两个父单的切片一起发出");
+
+        buy(app);
+        buy(app);
+        buy(app);
+        assertEquals(3, venue.batches.size(), "攒满 maxBatch 不等预算");
+        assertEquals(3, venue.batches.get(2).size());
+        assertEquals(6, oms.ordersSent());
+    }
+
+    @Test
+    void testSparseParentsAreSentWithoutLinger() {
+        FlatOrderApplicationService app = app();
+        for (int i = 0; i < 4; i++) {
+            buy(app);
+            assertEquals(i + 1, venue.batches.size(), "父单间隔大于预算时切片立即发送");
+            scheduler.runUntil(scheduler.clock().millis() + 50);
+        }
+        assertEquals(1.0, oms.averageBatchSize());
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.cluster.LoopbackTransport;
+import com.example.trade.demo.domain.cluster.PartitionRouter;
+import com.example.trade.demo.domain.cluster.PartitionRouter.SymbolMove;
+import com.example.trade.demo.domain.cluster.QuoteNode;
+import com.example.trade.demo.domain.entity.ExecutionResult;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class PartitionRouterTest {
+
+    private static final int SYMBOLS = 60;
+
+    private final LoopbackTransport transport = new LoopbackTransport();
+    private final PartitionRouter router = new PartitionRouter(transport, 64);
+    private final Map<String, QuoteNode> nodes = new HashMap<>();
+    private final PartitionRouter[] routerUnderTest = new PartitionRouter[1];
+
+    private void start(String nodeId) {
+        QuoteNode node = new QuoteNode(nodeId, new QuoteService(new SimpleBestPriceStrategy(),
+                new QuoteExecutor(Clock.systemUTC(), Duration.ZERO), ProviderTtlPolicy.never(), null, Clock.systemUTC()));
+        nodes.put(nodeId, node);
+        transport.bind(nodeId, node);
+    }
+
+    private void publishAll() {
+        for (int i = 0; i < SYMBOLS; i++) {
+            BigDecimal mid = new BigDecimal("80.00").add(new BigDecimal(i).movePointLeft(2));
+            router.route(new MarketDataEvent("SYM" + i, "LP1",
+                    List.of(new OrderBookLevel(mid.add(new BigDecimal("0.05")), BigDecimal.ONE)),
+                    List.of(new OrderBookLevel(mid.subtract(new BigDecimal("0.05")), BigDecimal.ONE))));
+        }
+    }
+
+    private void assertOwnedOnlyByRingOwner() {
+        for (int i = 0; i < SYMBOLS; i++) {
+            String symbol = "SYM" + i;
+            String owner = router.ownerOf(symbol);
+            for (QuoteNode node : nodes.values()) {
+                boolean has = node.getQuoteService().aggregatorOf(symbol) != null;
+                assertEquals(node.getNodeId().equals(owner), has, symbol + " 只应存在于归属节点 " + owner);
+            }
+        }
+    }
+
+    @Test
+    void testSymbolsArePartitionedAcrossNodes() {
+        for (String n : List.of("node-a", "node-b", "node-c")) { start(n); router.join(n); }
+        publishAll();
+
+        assertOwnedOnlyByRingOwner();
+        for (QuoteNode node : nodes.values()) {
+            assertTrue(node.getQuoteService().getActiveSymbolCount() > 0, node.getNodeId() + " 应分到 symbol");
+        }
+    }
+
+    @Test
+    void testJoinMovesOnlyAffectedSymbolsWithTheirDepth() {
+        for (String n : List.of("node-a", "node-b", "node-c")) { start(n); router.join(n); }
+        publishAll();
+
+        start("node-d");
+        List<ExecutionResult> quoted = new ArrayList<>();
+        nodes.get("node-d").getQuoteService().addResultListener(quoted::add);
+        List<SymbolMove> moves = router.join("node-d");
+        assertFalse(moves.isEmpty());
+        assertTrue(moves.size() < SYMBOLS / 2, "一致性哈希只应迁移少量 symbol，实际 " + moves.size());
+        assertTrue(moves.stream().allMatch(m -> m.toNode().equals("node-d") && m.stateTransferred()));
+
+        // 不等新行情，迁移来的深度已在新节点
+        assertOwnedOnlyByRingOwner();
+        SymbolMove m = moves.get(0);
+        int i = Integer.parseInt(m.symbol().substring(3));
+        BigDecimal expectedAsk = new BigDecimal("80.05").add(new BigDecimal(i).movePointLeft(2));
+        MarketDepthAggregator agg = nodes.get("node-d").getQuoteService().aggregatorOf(m.symbol());
+        assertEquals(0, expectedAsk.compareTo(agg.getBestAsk().orElseThrow()));
+        assertTrue(agg.isRestored("LP1"), "迁移来的深度应标记为 restored");
+        assertTrue(quoted.isEmpty(), "迁移只恢复深度，不能用旧深度报价");
+
+        // 下一笔实时行情刷新深度后才报价
+        publishAll();
+        assertFalse(agg.isRestored("LP1"));
+        assertEquals(moves.size(), quoted.size());
+    }
+
+    @Test
+    void testCrashedNodeSymbolsRebuildFromNextTicks() {
+        for (String n : List.of("node-a", "node-b")) { start(n); router.join(n); }
+        publishAll();
+
+        transport.unbind("node-b"); // 节点宕机，无法导出状态
+        nodes.remove("node-b");
+        List<SymbolMove> moves = router.leave("node-b");
+        assertTrue(moves.stream().noneMatch(SymbolMove::stateTransferred));
+        assertTrue(moves.stream().allMatch(mv -> mv.toNode().equals("node-a")));
+
+        publishAll();
+        assertEquals(SYMBOLS, nodes.get("node-a").getQuoteService().getActiveSymbolCount());
+    }
+
+    @Test
+    void testTickArrivingDuringTransferIsDeliveredAfterTheMigratedDepth() {
+        // 迁移中途到达的行情：先暂存，深度迁移完成后再发往新节点，不会被旧快照覆盖
+        List<String> interleaved = new ArrayList<>();
+        LoopbackTransport midTick = new LoopbackTransport() {
+            @Override public boolean transferSymbol(String fromNode, String toNode, String symbol) {
+                interleaved.add(symbol);
+                routerUnderTest[0].route(new MarketDataEvent(symbol, "LP1",
+                        List.of(new OrderBookLevel(new BigDecimal("99.05"), BigDecimal.ONE)),
+                        List.of(new OrderBookLevel(new BigDecimal("98.95"), BigDecimal.ONE))));
+                return super.transferSymbol(fromNode, toNode, symbol);
+            }
+        };
+        PartitionRouter r = new PartitionRouter(midTick, 64);
+        routerUnderTest[0] = r;
+        Map<String, QuoteNode> cluster = new HashMap<>();
+        for (String n : List.of("node-a", "node-b", "node-c", "node-d")) {
+            QuoteNode node = new QuoteNode(n, new QuoteService(new SimpleBestPriceStrategy(),
+                    new QuoteExecutor(Clock.systemUTC(), Duration.ZERO), ProviderTtlPolicy.never(), null, Clock.systemUTC()));
+            cluster.put(n, node);
+            midTick.bind(n, node);
+        }
+        for (String n : List.of("node-a", "node-b", "node-c")) r.join(n);
+        for (int i = 0; i < SYMBOLS; i++) {
+            r.route(new MarketDataEvent("SYM" + i, "LP1",
+                    List.of(new OrderBookLevel(new BigDecimal("80.05"), BigDecimal.ONE)),
+                    List.of(new OrderBookLevel(new BigDecimal("79.95"), BigDecimal.ONE))));
+        }
+
+        List<SymbolMove> moves = r.join("node-d");
+        assertEquals(moves.size(), interleaved.size());
+        for (SymbolMove m : moves) {
+            MarketDepthAggregator agg = cluster.get("node-d").getQuoteService().aggregatorOf(m.symbol());
+            assertEquals(0, new BigDecimal("99.05").compareTo(agg.getBestAsk().orElseThrow()), m.symbol() + " 应保留迁移中途的新行情");
+            assertNull(cluster.get(m.fromNode()).getQuoteService().aggregatorOf(m.symbol()), "原节点不应重新创建 " + m.symbol());
+        }
+    }
+
+    @Test
+    void testConcurrentRoutingDuringRebalanceLeavesNoOrphans() throws Exception {
+        for (String n : List.of("node-a", "node-b")) { start(n); router.join(n); }
+        for (String n : List.of("node-c", "node-d")) start(n);
+        publishAll();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread feed = new Thread(() -> {
+            while (!stop.get()) publishAll();
+        });
+        feed.start();
+        try {
+            for (int round = 0; round < 20; round++) {
+                router.join("node-c");
+                router.join("node-d");
+                router.leave("node-c");
+                router.leave("node-d");
+            }
+            router.join("node-c");
+        } finally {
+            stop.set(true);
+            feed.join();
+        }
+        assertOwnedOnlyByRingOwner();
+        assertEquals(SYMBOLS, router.knownSymbolCount());
+
+        for (String n : List.of("node-a", "node-b", "node-c")) router.leave(n);
+        assertEquals(0, router.knownSymbolCount(), "无节点可归属的 symbol 不再记录");
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.PriceLadder;
+
+public class PriceLadderTest {
+
+    private static BigDecimal d(String v) { return new BigDecimal(v); }
+
+    private static OrderBookLevel lv(String px, String qty) {
+        return new OrderBookLevel(d(px), d(qty));
+    }
+
+    @Test
+    void testBestAndWorstTrackingOnUpdatesAndRemovals() {
+        PriceLadder bids = PriceLadder.of(Arrays.asList(lv("100.40", "10"), lv("100.30", "5"), lv("100.10", "7")), true, 2);
+        assertEquals(d("100.40"), bids.bestPrice());
+        assertEquals(d("100.10"), bids.worstPrice());
+        assertEquals(3, bids.levels());
+
+        bids.set(d("100.45"), d("2"));
+        assertEquals(d("100.45"), bids.bestPrice());
+        bids.remove(d("100.45"));
+        bids.remove(d("100.4"));
+        assertEquals(d("100.30"), bids.bestPrice(), "删除最优档后应落到下一个有量价位");
+        bids.set(d("100.10"), BigDecimal.ZERO);
+        assertEquals(d("100.30"), bids.worstPrice());
+        assertEquals(1, bids.levels());
+        assertNull(bids.quantityAt(d("100.40")));
+        assertEquals(d("5"), bids.quantityAt(d("100.3")), "不同写法的同一价位应命中同一槽位");
+
+        // 按最优到最差取前 N 档
+        PriceLadder asks = PriceLadder.of(Arrays.asList(lv("100.6", "1"), lv("100.5", "2"), lv("100.9", "3")), false, 1);
+        BigDecimal[] px = new BigDecimal[2];
+        BigDecimal[] qty = new BigDecimal[2];
+        assertEquals(2, asks.top(2, px, qty));
+        assertEquals(List.of(d("100.5"), d("100.6")), List.of(px));
+        assertEquals(List.of(d("2"), d("1")), List.of(qty));
+    }
+
+    @Test
+    void testKeepsScaleOfIncomingValues() {
+        PriceLadder asks = PriceLadder.of(List.of(lv("65000.00", "5.50"), lv("65000.5", "1")), false, 2);
+        assertEquals("65000.00", asks.bestPrice().toPlainString());
+        assertEquals("5.50", asks.bestQuantity().toPlainString());
+        assertEquals("65000.5", asks.worstPrice().toPlainString());
+        assertEquals("{65000.00=5.50, 65000.5=1}", asks.asMap().toString());
+    }
+
+    @Test
+    void testRecentresOnDriftAndReusesArraysAcrossReplaces() {
+        PriceLadder asks = PriceLadder.asks(2);
+        asks.set(d("80.00"), d("1"));
+        int capacity = asks.capacity();
+        // 价格持续上漂，逐档加入新价位、删除旧价位，数组始终只覆盖附近的价格
+        for (int i = 1; i <= 5000; i++) {
+            asks.set(BigDecimal.valueOf(8000 + i, 2), d("1"));
+            asks.remove(BigDecimal.valueOf(8000 + i - 1, 2));
+        }
+        assertEquals(d("130.00"), asks.bestPrice());
+        assertEquals(1, asks.levels());
+        assertEquals(capacity, asks.capacity(), "漂移应通过重新居中处理，而不是扩容");
+
+        // 全量替换复用同一数组
+        for (int i = 0; i < 100; i++) {
+            asks.replace(List.of(lv(BigDecimal.valueOf(13000 + i, 2).toPlainString(), "1"),
+                    lv(BigDecimal.valueOf(13005 + i, 2).toPlainString(), "2")));
+        }
+        assertEquals(2, asks.levels());
+        assertEquals(d("130.99"), asks.bestPrice());
+        assertEquals(capacity, asks.capacity());
+        assertFalse(asks.isSparse());
+    }
+
+    @Test
+    void testPricesOffTheTickFallBackToTreeMapWithoutDroppingLevels() {
+        // 价格比配置的 tick 更细：不缩小 tick，整侧退回 TreeMap，两档都保留
+        PriceLadder jpy = PriceLadder.of(List.of(lv("158.123457", "5"), lv("158.25", "5")), false, 3);
+        assertTrue(jpy.isSparse());
+        assertEquals(2, jpy.levels());
+        assertEquals(d("158.123457"), jpy.bestPrice());
+        assertEquals(d("158.25"), jpy.worstPrice());
+
+        PriceLadder eur = PriceLadder.of(List.of(lv("1.08500001", "1"), lv("1.0855", "1")), false, 5);
+        assertEquals(2, eur.levels());
+        assertTrue(eur.capacity() <= 16, "不为细价格分配大数组");
+
+        // 下一次全量更新回到 tick 上时重新使用数组
+        eur.replace(List.of(lv("1.08500", "1"), lv("1.08550", "1")));
+        assertFalse(eur.isSparse());
+        assertEquals(d("1.08500"), eur.bestPrice());
+
+        // 未配置 tick 时始终按价格排序存放
+        PriceLadder any = PriceLadder.of(List.of(lv("3.14159", "1"), lv("2.5", "1")), true, -1);
+        assertTrue(any.isSparse());
+        assertEquals(d("3.14159"), any.bestPrice());
+    }
+
+    @Test
+    void testSpanBeyondLimitFallsBackToTreeMap() {
+        PriceLadder asks = PriceLadder.of(List.of(lv("50.0001", "1")), false, 4);
+        asks.set(d("99.0001"), d("1"));
+        assertEquals(2, asks.levels(), "跨度超限的价位不丢弃");
+        assertTrue(asks.isSparse());
+        asks.set(d("40.0001"), d("2"));
+        assertEquals(d("40.0001"), asks.bestPrice());
+        assertEquals(d("99.0001"), asks.worstPrice());
+        assertEquals(3, asks.levels());
+        assertTrue(asks.capacity() <= 4096);
+    }
+
+    @Test
+    void testMatchesTreeMapUnderRandomUpdates() {
+        Random rnd = new Random(7);
+        PriceLadder ladder = PriceLadder.bids(2);
+        NavigableMap<BigDecimal, BigDecimal> ref = new TreeMap<>();
+        int mid = 10_000;
+        for (int i = 0; i < 20_000; i++) {
+            if (i % 100 == 0) mid += rnd.nextInt(41) - 20;
+            BigDecimal px = BigDecimal.valueOf(mid - rnd.nextInt(30), 2);
+            BigDecimal qty = rnd.nextInt(4) == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(1 + rnd.nextInt(50));
+            ladder.set(px, qty);
+            if (qty.signum() == 0) ref.remove(px); else ref.put(px, qty);
+            if (ref.isEmpty()) {
+                assertTrue(ladder.isEmpty());
+                continue;
+            }
+            assertEquals(ref.lastKey(), ladder.bestPrice());
+            assertEquals(ref.firstKey(), ladder.worstPrice());
+        }
+        assertFalse(ladder.isSparse());
+        assertEquals(ref.size(), ladder.levels());
+        for (Map.Entry<BigDecimal, BigDecimal> e : ref.entrySet()) {
+            assertEquals(e.getValue(), ladder.quantityAt(e.getKey()));
+        }
+        assertEquals(ref, ladder.asMap());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.InstrumentRegistry;
+import com.example.trade.demo.domain.entity.MarketDataEvent;
+import com.example.trade.demo.domain.entity.MarketDepthAggregator;
+import com.example.trade.demo.domain.entity.OrderBookLevel;
+import com.example.trade.demo.domain.entity.ProviderTtlPolicy;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.QuoteService;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+
+public class QuoteServiceTest {
+
+    private static List<OrderBookLevel> level(String px, String qty) {
+        return List.of(new OrderBookLevel(new BigDecimal(px), new BigDecimal(qty)));
+    }
+
+    @Test
+    void testIdleEvictionFreesSlotAndRecreatesOnNextTick() {
+        InstrumentRegistry registry = new InstrumentRegistry();
+        ManualClock clock = new ManualClock();
+        QuoteService service = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(clock, Duration.ZERO),
+                ProviderTtlPolicy.never(), Duration.ofSeconds(10), clock, registry);
+        service.onMarketData(new MarketDataEvent("BTCUSDT", "LP1", level("80.05", "1"), level("79.95", "1")));
+        clock.now += 20_000;
+        assertEquals(1, service.evictIdleSymbols(clock.now));
+        assertNull(service.aggregatorOf("BTCUSDT"));
+        service.onMarketData(new MarketDataEvent("BTCUSDT", "LP1", level("80.05", "1"), level("79.95", "1")));
+        assertNotNull(service.aggregatorOf("BTCUSDT"));
+        assertEquals(1, service.getActiveSymbolCount());
+    }
+
+    @Test
+    void testEvictionRacingAnUpdateKeepsTheUpdatedAggregator() throws Exception {
+        InstrumentRegistry registry = new InstrumentRegistry();
+        ManualClock clock = new ManualClock();
+        QuoteService[] holder = new QuoteService[1];
+        AtomicBoolean armed = new AtomicBoolean();
+        // 策略在查到聚合器之后、写入深度之前被询问关注档数：借此在这个窗口内触发一次淘汰
+        QuoteService service = new QuoteService(new SimpleBestPriceStrategy() {
+            @Override public int depthOfInterest() {
+                if (armed.getAndSet(false)) assertEquals(1, holder[0].evictIdleSymbols(clock.now + 20_000));
+                return super.depthOfInterest();
+            }
+        }, new QuoteExecutor(clock, Duration.ZERO), ProviderTtlPolicy.never(), Duration.ofSeconds(10), clock, registry);
+        holder[0] = service;
+        service.onMarketData(new MarketDataEvent("BTCUSDT", "LP1", level("80.05", "1"), level("79.95", "1")));
+        MarketDepthAggregator agg = service.aggregatorOf("BTCUSDT");
+        armed.set(true);
+        service.onMarketData(new MarketDataEvent("BTCUSDT", "LP1", level("80.04", "2"), level("79.96", "2")));
+        assertSame(agg, service.aggregatorOf("BTCUSDT"), "被淘汰的聚合器收到更新后应放回槽位");
+        assertEquals(0, new BigDecimal("80.04").compareTo(agg.getBestAsk().orElseThrow()));
+        assertEquals(1, service.getActiveSymbolCount());
+
+        // 并发：一个线程持续更新，另一个线程持续淘汰；槽位上的聚合器要么为空，要么持有最后一笔更新
+        QuoteService plain = new QuoteService(new SimpleBestPriceStrategy(), new QuoteExecutor(clock, Duration.ZERO),
+                ProviderTtlPolicy.never(), Duration.ofSeconds(10), clock, registry);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread evictor = new Thread(() -> {
+            while (!done.get()) plain.evictIdleSymbols(clock.now + 60_000);
+        });
+        evictor.start();
+        try {
+            for (int i = 1; i <= 500; i++) {
+                String px = new BigDecimal("80.00").add(BigDecimal.valueOf(i, 2)).toPlainString();
+                plain.onMarketData(new MarketDataEvent("ETHUSDT", "LP1", level(px, "1"), level("79.00", "1")));
+                MarketDepthAggregator current = plain.aggregatorOf("ETHUSDT");
+                if (current != null) {
+                    assertEquals(0, new BigDecimal(px).compareTo(current.getBestAsk().orElseThrow()), "更新不能落在已移出的聚合器上");
+                }
+            }
+        } finally {
+            done.set(true);
+            evictor.join();
+        }
+        assertEquals(plain.aggregatorOf("ETHUSDT") == null ? 0 : 1, plain.getActiveSymbolCount());
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.event.ChildOrderExecuted;
+import com.example.trade.demo.domain.fx.event.DomainEvent;
+import com.example.trade.demo.domain.fx.event.FlatOrderCompleted;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.SimulatedVenueOms;
+import com.example.trade.demo.domain.fx.service.SimulatedVenueOms.VenueProfile;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal.Side;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.time.Scheduler;
+
+public class SimulatedVenueOmsTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+    private static final OrderBook BOOK = new OrderBook(
+            List.of(new PriceLevel(new BigDecimal("1.1001"), List.of(new ProviderDepth("LP1", new BigDecimal("1000000"))))),
+            List.of(new PriceLevel(new BigDecimal("1.0999"), List.of(new ProviderDepth("LP1", new BigDecimal("1000000"))))));
+
+    private static ChildOrder child(String id, String px, String qty) {
+        return new ChildOrder(id, EURUSD, Side.BUY, new BigDecimal(px), new BigDecimal(qty), "LP1");
+    }
+
+    private static SimulatedVenueOms venue(VenueProfile profile) {
+        return new SimulatedVenueOms(s -> BOOK, Map.of(), profile, Clock.systemUTC(), 4, 42L);
+    }
+
+    @Test
+    void testAckThenFillsAgainstBookLiquidity() throws Exception {
+        try (SimulatedVenueOms oms = venue(new VenueProfile(50, 20, 100, 50, 0, 1.0, 0.0, 3))) {
+            List<ExecutionReport> reports = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(1);
+            Map<String, String> threads = new ConcurrentHashMap<>();
+            oms.submit(child("C1", "1.1002", "1000.00"), rpt -> {
+                threads.put("t", Thread.currentThread().getName());
+                reports.add(rpt);
+                if (rpt.ordStatus() == OrdStatus.FILLED) done.countDown();
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            assertEquals(OrdStatus.NEW, reports.get(0).ordStatus());
+            assertTrue(reports.stream().anyMatch(r -> r.ordStatus() == OrdStatus.PARTIALLY_FILLED), "部分成交概率为 1 时应先出现部分成交");
+            BigDecimal cum = reports.stream().map(ExecutionReport::lastQtyBase).reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(0, new BigDecimal("1000.00").compareTo(cum));
+            assertTrue(threads.get("t").startsWith("SimVenue-"), "回报应在模拟器线程上投递");
+        }
+    }
+
+    @Test
+    void testLimitOutsideBookExpiresAndRejectsAreReported() throws Exception {
+        try (SimulatedVenueOms oms = venue(new VenueProfile(0, 0, 10, 0, 0, 0.0, 0.0, 2))) {
+            CountDownLatch expired = new CountDownLatch(1);
+            oms.submit(child("C2", "1.0900", "1000"), rpt -> { if (rpt.ordStatus() == OrdStatus.EXPIRED) expired.countDown(); });
+            assertTrue(expired.await(5, TimeUnit.SECONDS), "限价不在盘口内应挂单后过期");
+        }
+        try (SimulatedVenueOms oms = venue(new VenueProfile(0, 0, 0, 0, 0, 0.0, 1.0, 0))) {
+            CountDownLatch rejected = new CountDownLatch(1);
+            oms.submit(child("C3", "1.1002", "1000"), rpt -> { if (rpt.ordStatus() == OrdStatus.REJECTED) rejected.countDown(); });
+            assertTrue(rejected.await(5, TimeUnit.SECONDS));
+            assertEquals(1, oms.rejected());
+        }
+    }
+
+    @Test
+    void testCancelRacesWithFill() throws Exception {
+        // 成交延迟远大于撤单延迟：撤单先到
+        try (SimulatedVenueOms oms = venue(new VenueProfile(0, 0, 200_000, 0, 10, 0.0, 0.0, 0))) {
+            ChildOrder c = child("C4", "1.1002", "1000");
+            oms.submit(c, rpt -> { });
+            CountDownLatch cxl = new CountDownLatch(1);
+            AtomicLong canceled = new AtomicLong();
+            oms.cancel(c, rpt -> { if (rpt.ordStatus() == OrdStatus.CANCELED) canceled.incrementAndGet(); cxl.countDown(); });
+            assertTrue(cxl.await(5, TimeUnit.SECONDS));
+            assertEquals(1, canceled.get());
+        }
+        // 撤单延迟远大于成交延迟：成交先到，撤单被拒
+        try (SimulatedVenueOms oms = venue(new VenueProfile(0, 0, 0, 0, 100_000, 0.0, 0.0, 0))) {
+            ChildOrder c = child("C5", "1.1002", "1000");
+            oms.submit(c, rpt -> { });
+            CountDownLatch cxl = new CountDownLatch(1);
+            Map<String, String> reason = new ConcurrentHashMap<>();
+            oms.cancel(c, rpt -> { reason.put("r", rpt.reason()); cxl.countDown(); });
+            assertTrue(cxl.await(5, TimeUnit.SECONDS));
+            assertEquals("CXL_REJECT_TOO_LATE", reason.get("r"));
+            assertEquals(1, oms.filled());
+        }
+    }
+
+    @Test
+    void testFillsReportConsumedLevelPrices() throws Exception {
+        OrderBook twoLevels = new OrderBook(List.of(
+                new PriceLevel(new BigDecimal("1.1001"), List.of(new ProviderDepth("LP1", new BigDecimal("400")))),
+                new PriceLevel(new BigDecimal("1.1002"), List.of(new ProviderDepth("LP1", new BigDecimal("1000"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0999"), List.of(new ProviderDepth("LP1", new BigDecimal("1000"))))));
+        try (SimulatedVenueOms oms = new SimulatedVenueOms(s -> twoLevels, Map.of(), VenueProfile.instant(), Clock.systemUTC(), 1, 42L)) {
+            List<ExecutionReport> fills = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(1);
+            oms.submit(child("C6", "1.1003", "1000"), rpt -> {
+                if (rpt.lastQtyBase().signum() > 0) fills.add(rpt);
+                if (rpt.ordStatus() == OrdStatus.FILLED) done.countDown();
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // 限价 1.1003：先吃 1.1001 的 400，再吃 1.1002 的 600，成交价取档位价格而非限价
+            assertEquals(2, fills.size());
+            assertEquals(OrdStatus.PARTIALLY_FILLED, fills.get(0).ordStatus());
+            assertEquals(new BigDecimal("1.1001"), fills.get(0).lastPx());
+            assertEquals(0, new BigDecimal("400").compareTo(fills.get(0).lastQtyBase()));
+            assertEquals(new BigDecimal("1.1002"), fills.get(1).lastPx());
+            assertEquals(0, new BigDecimal("600").compareTo(fills.get(1).lastQtyBase()));
+        }
+    }
+
+    @Test
+    void testParentsAccumulateFillsReportedFromSeveralShards() throws Exception {
+        List<PriceLevel> asks = new ArrayList<>();
+        for (int lvl = 0; lvl < 3; lvl++) {
+            List<ProviderDepth> lps = new ArrayList<>();
+            for (int lp = 1; lp <= 8; lp++) lps.add(new ProviderDepth("LP" + lp, new BigDecimal("1000")));
+            asks.add(new PriceLevel(new BigDecimal("1.1001").add(BigDecimal.valueOf(lvl, 4)), lps));
+        }
+        OrderBook book = new OrderBook(asks, List.of(new PriceLevel(new BigDecimal("1.0999"),
+                List.of(new ProviderDepth("LP1", new BigDecimal("1000"))))));
+        InMemoryFlatOrderRepository repo = new InMemoryFlatOrderRepository();
+        int parents = 20;
+        Map<FlatOrderId, List<ChildOrderExecuted>> executions = new ConcurrentHashMap<>();
+        CountDownLatch completed = new CountDownLatch(parents);
+        // 部分成交概率为 1：每个子单分多次回报，同一父单的子单分布在 4 个分片线程上同时回报
+        try (SimulatedVenueOms oms = new SimulatedVenueOms(s -> book, Map.of(),
+                new VenueProfile(0, 0, 20, 20, 0, 1.0, 0.0, 3), Clock.systemUTC(), 4, 7L)) {
+            FlatOrderApplicationService app = new FlatOrderApplicationService(new MarketDepthProvider() {
+                @Override public OrderBook latest(FxSymbol symbol) { return book; }
+                @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return new FxSymbolRule(new BigDecimal("0.0001"), 4, 0, 0); }
+            }, new VwapSplittingDomainService(), oms, repo, Scheduler.of(FlatOrderApplicationService.newTimer()),
+                    Clock.systemUTC(), FlatOrderId::newId);
+            app.addEventListener((DomainEvent e) -> {
+                if (e instanceof ChildOrderExecuted x) executions.computeIfAbsent(x.flatOrderId(), k -> new CopyOnWriteArrayList<>()).add(x);
+                if (e instanceof FlatOrderCompleted) completed.countDown();
+            });
+            List<FlatOrderId> ids = new ArrayList<>();
+            for (int i = 0; i < parents; i++) {
+                ids.add(app.start(new FlatSignal(EURUSD, Side.BUY, new BigDecimal("20000"), "load", Instant.EPOCH),
+                        new VwapParams(EURUSD, VwapParams.TargetType.BASE_QTY, new BigDecimal("20000"),
+                                VwapParams.ExecutionIntent.TAKER, Duration.ofSeconds(10), BigDecimal.ZERO)));
+            }
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+
+            for (FlatOrderId id : ids) {
+                FlatOrderAggregate fo = repo.load(id);
+                assertTrue(fo.children.size() > 4, "子单应分布到多个分片");
+                BigDecimal base = BigDecimal.ZERO;
+                BigDecimal quote = BigDecimal.ZERO;
+                for (ChildOrderExecuted x : executions.get(id)) {
+                    base = base.add(x.lastQtyBase());
+                    quote = quote.add(x.lastQtyBase().multiply(x.lastPx()));
+                }
+                synchronized (fo) {
+                    assertEquals(0, base.compareTo(fo.cumBase), "父单累计量应等于各笔成交之和");
+                    assertEquals(0, quote.compareTo(fo.cumQuote));
+                    assertEquals(0, fo.children.stream().map(c -> c.cumBase).reduce(BigDecimal.ZERO, BigDecimal::add).compareTo(fo.cumBase));
+                }
+                assertEquals(0, new BigDecimal("20000").compareTo(fo.cumBase));
+            }
+        }
+    }
+
+    @Test
+    void testDrainsBurstOfOrders() throws Exception {
+        try (SimulatedVenueOms oms = venue(VenueProfile.instant())) {
+            int n = 20_000;
+            CountDownLatch done = new CountDownLatch(n);
+            for (int i = 0; i < n; i++) {
+                oms.submit(child("L" + i, "1.1002", "1000"), rpt -> { if (rpt.ordStatus() == OrdStatus.FILLED) done.countDown(); });
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(n, oms.filled());
+        }
+    }
+
+    /**
+     * 吞吐下限测试，默认不运行：
+     * mvn test -Dtest=SimulatedVenueOmsTest#throughput -Dsimvenue.min-rate=100000 -Dsimvenue.orders=500000
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "simvenue.min-rate", matches = ".+")
+    void throughput() throws Exception {
+        double minRate = Double.parseDouble(System.getProperty("simvenue.min-rate"));
+        int n = Integer.getInteger("simvenue.orders", 200_000);
+        try (SimulatedVenueOms oms = venue(VenueProfile.instant())) {
+            CountDownLatch done = new CountDownLatch(n);
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                oms.submit(child("L" + i, "1.1002", "1000"), rpt -> { if (rpt.ordStatus() == OrdStatus.FILLED) done.countDown(); });
+            }
+            assertTrue(done.await(60, TimeUnit.SECONDS));
+            double perSec = n / ((System.nanoTime() - start) / 1e9);
+            assertTrue(perSec >= minRate, String.format("吞吐 %.0f orders/s 低于下限 %.0f", perSec, minRate));
+            assertEquals(n, oms.filled());
+        }
+    }
+}
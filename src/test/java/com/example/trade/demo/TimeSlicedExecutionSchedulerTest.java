@@ -0,0 +1,150 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderId;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService;
+import com.example.trade.demo.domain.fx.application.FlatOrderApplicationService.MarketDepthProvider;
+import com.example.trade.demo.domain.fx.application.TimeSlicedExecutionScheduler;
+import com.example.trade.demo.domain.fx.event.FlatOrderCompleted;
+import com.example.trade.demo.domain.fx.repository.InMemoryFlatOrderRepository;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.InMemoryOms;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.service.VwapSplittingDomainService;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbolRule;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.PriceLevel;
+import com.example.trade.demo.domain.fx.valueobject.OrderBook.ProviderDepth;
+import com.example.trade.demo.domain.fx.valueobject.VwapParams;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class TimeSlicedExecutionSchedulerTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+    private static final FxSymbolRule RULE = new FxSymbolRule(new BigDecimal("0.0001"), 4, 2, 2);
+
+    private static OrderBook book(String askPx) {
+        return new OrderBook(List.of(new PriceLevel(new BigDecimal(askPx), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))),
+                List.of(new PriceLevel(new BigDecimal("1.0990"), List.of(new ProviderDepth("LP1", new BigDecimal("100"))))));
+    }
+
+    private static final class Fixture {
+        final VirtualClock clock = new VirtualClock(0);
+        final VirtualScheduler timer = new VirtualScheduler(clock);
+        final AtomicReference<OrderBook> book = new AtomicReference<>(book("1.1000"));
+        final InMemoryFlatOrderRepository repo = new InMemoryFlatOrderRepository();
+        final List<FlatOrderCompleted> completed = new CopyOnWriteArrayList<>();
+        final FlatOrderApplicationService app;
+        final TimeSlicedExecutionScheduler slicer;
+
+        Fixture() {
+            this(null);
+        }
+
+        Fixture(OmsClient oms) {
+            app = new FlatOrderApplicationService(new MarketDepthProvider() {
+                @Override public OrderBook latest(FxSymbol symbol) { return book.get(); }
+                @Override public FxSymbolRule ruleOf(FxSymbol symbol) { return RULE; }
+            }, new VwapSplittingDomainService(), oms != null ? oms : new InMemoryOms(clock), repo, timer, clock, FlatOrderId::newId);
+            slicer = new TimeSlicedExecutionScheduler(app, clock, Duration.ofMillis(200), 4);
+            app.addEventListener(e -> { if (e instanceof FlatOrderCompleted c) completed.add(c); });
+        }
+
+        FlatOrderId buy(String qty, Duration ttl) {
+            return slicer.submit(new FlatSignal(EURUSD, FlatSignal.Side.BUY, new BigDecimal(qty), "test", Instant.EPOCH),
+                    new VwapParams(EURUSD, VwapParams.TargetType.BASE_QTY, new BigDecimal(qty),
+                            VwapParams.ExecutionIntent.TAKER, ttl, BigDecimal.ZERO));
+        }
+
+        void advanceTo(long millis) {
+            clock.advanceTo(millis);
+            slicer.runDue(millis);
+            timer.runUntil(millis);
+        }
+    }
+
+    @Test
+    void testParentIsSpreadOverTtlAndResplitAgainstLatestBook() {
+        Fixture f = new Fixture();
+        FlatOrderId id = f.buy("10", Duration.ofSeconds(1)); // 5 个分片
+
+        f.advanceTo(0);
+        FlatOrderAggregate fo = f.repo.load(id);
+        assertEquals(1, fo.children.size());
+        assertEquals(0, new BigDecimal("2").compareTo(fo.cumBase), "第一个分片只发出 1/5");
+        assertTrue(f.completed.isEmpty(), "分片之间子单全部终态不应结束父单");
+
+        f.book.set(book("1.1005"));
+        f.advanceTo(200);
+        assertEquals(new BigDecimal("1.1005"), fo.children.get(1).price, "每个分片按最新盘口拆单");
+
+        f.advanceTo(800);
+        assertEquals(5, fo.children.size());
+        assertEquals(1, f.completed.size());
+        assertEquals(0, new BigDecimal("10").compareTo(f.completed.get(0).cumBase()));
+        assertEquals(0, f.slicer.activeParents());
+    }
+
+    @Test
+    void testThousandsOfParentsShareFixedLoops() {
+        Fixture f = new Fixture();
+        int parents = 2_000;
+        for (int i = 0; i < parents; i++) f.buy("3", Duration.ofMillis(600)); // 3 个分片
+
+        for (long t = 0; t <= 600; t += 200) f.advanceTo(t);
+
+        assertEquals(parents, f.completed.size());
+        assertEquals(parents * 3L, f.slicer.slicesSent());
+        assertEquals(0, f.slicer.activeParents());
+        assertTrue(f.completed.stream().allMatch(c -> new BigDecimal("3").compareTo(c.cumBase()) == 0));
+    }
+
+    @Test
+    void testTimeoutsAreCheckedByTheSliceLoopWithoutTimers() {
+        List<String> canceled = new CopyOnWriteArrayList<>();
+        OmsClient silent = new OmsClient() {
+            @Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) {} // 始终不确认
+            @Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) { canceled.add(child.clientOrderId); }
+            @Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {}
+        };
+        Fixture f = new Fixture(silent);
+        FlatOrderId id = f.buy("10", Duration.ofMillis(400)); // 2 个分片
+
+        f.advanceTo(0);
+        f.advanceTo(200);
+        assertEquals(0, f.timer.pending(), "分片父单的期限不调度定时器");
+        FlatOrderAggregate fo = f.repo.load(id);
+        assertEquals(2, fo.children.size());
+        assertEquals(1, f.slicer.activeParents(), "最后一个分片之后仍检查父单的期限");
+
+        f.advanceTo(1499);
+        assertTrue(canceled.isEmpty());
+        f.advanceTo(1500);
+        assertEquals(List.of(fo.children.get(0).clientOrderId), canceled, "确认超时由调度循环处理");
+        f.advanceTo(1700);
+        assertEquals(2, canceled.size());
+
+        f.advanceTo(5399);
+        assertTrue(f.completed.isEmpty());
+        f.advanceTo(5400); // ttl + parentTimeout
+        assertEquals(1, f.completed.size());
+        assertEquals(0, f.slicer.activeParents());
+        assertEquals(0, f.timer.pending());
+    }
+}
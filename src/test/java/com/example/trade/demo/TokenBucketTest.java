@@ -0,0 +1,183 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.QuoteInstruction;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.ChildOrder;
+import com.example.trade.demo.domain.fx.aggregate.FlatOrderAggregate.OrdStatus;
+import com.example.trade.demo.domain.fx.service.CreditLimitService;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.ExecutionReport;
+import com.example.trade.demo.domain.fx.service.OrderExecutionDomainService.OmsClient;
+import com.example.trade.demo.domain.fx.service.RateLimitedOmsClient;
+import com.example.trade.demo.domain.fx.valueobject.FlatSignal;
+import com.example.trade.demo.domain.fx.valueobject.FxSymbol;
+import com.example.trade.demo.domain.service.QuoteExecutor;
+import com.example.trade.demo.domain.service.RateLimitPolicy;
+import com.example.trade.demo.domain.service.TokenBucket;
+import com.example.trade.demo.domain.time.VirtualClock;
+import com.example.trade.demo.domain.time.VirtualScheduler;
+
+public class TokenBucketTest {
+
+    private static final FxSymbol EURUSD = new FxSymbol("EUR", "USD");
+
+    @Test
+    void testConcurrentAcquireNeverExceedsBurstAndRefillsAtRate() throws Exception {
+        VirtualClock clock = new VirtualClock(0);
+        TokenBucket bucket = new TokenBucket("LP1", 100, 20, clock);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread th = new Thread(() -> {
+                try { go.await(); } catch (InterruptedException e) { return; }
+                for (int i = 0; i < 10_000; i++) if (bucket.tryAcquire()) acquired.incrementAndGet();
+            });
+            th.start();
+            threads.add(th);
+        }
+        go.countDown();
+        for (Thread th : threads) th.join();
+        assertEquals(20, acquired.get(), "时间不动时最多放行 burst 个");
+        assertEquals(80_000 - 20, bucket.throttled());
+
+        clock.advanceTo(50); // 100/s × 50ms = 5 个
+        int more = 0;
+        while (bucket.tryAcquire()) more++;
+        assertEquals(5, more);
+
+        clock.advanceTo(60);
+        assertEquals(0, bucket.reserve(20_000_000));
+        assertEquals(10_000_000, bucket.reserve(20_000_000), "预订第二个令牌需等待一个间隔");
+        assertTrue(bucket.reserve(5_000_000) < 0, "超过最长等待则不预订");
+    }
+
+    private static final class RecordingOms implements OmsClient {
+        final VirtualClock clock;
+        final List<String> log = new ArrayList<>();
+        RecordingOms(VirtualClock clock) { this.clock = clock; }
+        @Override public void submit(ChildOrder child, Consumer<ExecutionReport> onReport) { log.add("NEW " + child.clientOrderId + "@" + clock.millis()); }
+        @Override public void cancel(ChildOrder child, Consumer<ExecutionReport> onReport) { log.add("CXL " + child.clientOrderId + "@" + clock.millis()); }
+        @Override public void replace(ChildOrder child, BigDecimal newPx, Consumer<ExecutionReport> onReport) {
+            log.add("RPL " + child.clientOrderId + " " + newPx.toPlainString() + "@" + clock.millis());
+        }
+    }
+
+    private static List<ChildOrder> children(int n) {
+        List<ChildOrder> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(new ChildOrder("C" + i, EURUSD, FlatSignal.Side.BUY, new BigDecimal("1.1000"), BigDecimal.ONE, "LP1"));
+        }
+        return out;
+    }
+
+    @Test
+    void testOmsQueuesWithinDeadlineRejectsBeyondAndCancelsQueuedLocally() {
+        VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        RecordingOms venue = new RecordingOms(scheduler.clock());
+        RateLimitedOmsClient oms = new RateLimitedOmsClient(venue, scheduler, scheduler.clock(), RateLimitPolicy.queue(Duration.ofMillis(300)));
+        oms.setProviderLimit("LP1", 10, 2); // 每 100ms 一个，突发 2
+        List<ExecutionReport> reports = new ArrayList<>();
+        List<ChildOrder> cs = children(6);
+
+        oms.submitAll(cs, reports::add);
+        assertEquals(List.of("NEW C0@0", "NEW C1@0"), venue.log);
+        assertEquals(3, oms.queued());
+        assertEquals(1, oms.rejected(), "第 6 笔需等待 400ms，超过 300ms 期限");
+        assertEquals(OrdStatus.REJECTED, reports.get(0).ordStatus());
+        assertEquals("THROTTLED", reports.get(0).reason());
+
+        oms.cancel(cs.get(3), reports::add); // 尚在排队
+        assertEquals("CXL_BEFORE_SEND", reports.get(1).reason());
+        oms.replace(cs.get(4), new BigDecimal("1.1001"), reports::add);
+        assertEquals(OrdStatus.REPLACED, reports.get(2).ordStatus());
+
+        scheduler.runUntil(1_000);
+        assertEquals(List.of("NEW C0@0", "NEW C1@0", "NEW C2@100", "NEW C4@300"), venue.log);
+        assertEquals(1, oms.cancelledBeforeSend());
+        assertEquals(4, oms.sent());
+
+        // 撤单从不因限速丢弃：令牌耗尽时排队
+        oms.cancelAll(List.of(cs.get(0), cs.get(1), cs.get(2)), reports::add);
+        scheduler.runUntil(2_000);
+        assertEquals(List.of("CXL C0@1000", "CXL C1@1000", "CXL C2@1100"), venue.log.subList(4, 7));
+    }
+
+    @Test
+    void testCoalesceKeepsLatestQueuedReplaceAndSymbolBucketIsShared() {
+        VirtualScheduler scheduler = new VirtualScheduler(new VirtualClock(0));
+        RecordingOms venue = new RecordingOms(scheduler.clock());
+        RateLimitedOmsClient oms = new RateLimitedOmsClient(venue, scheduler, scheduler.clock(), RateLimitPolicy.coalesce(Duration.ofSeconds(1)));
+        oms.setSymbolLimit(EURUSD, 10, 1);
+        List<ChildOrder> cs = children(1);
+        List<ExecutionReport> reports = new ArrayList<>();
+        oms.submit(cs.get(0), reports::add);
+        scheduler.runUntil(0);
+        cs.get(0).status = OrdStatus.NEW;
+
+        oms.replace(cs.get(0), new BigDecimal("1.1001"), reports::add);
+        oms.replace(cs.get(0), new BigDecimal("1.1002"), reports::add);
+        oms.replace(cs.get(0), new BigDecimal("1.1003"), reports::add);
+        assertEquals(2, oms.coalesced());
+        assertEquals(List.of("RPL_SUPERSEDED", "RPL_SUPERSEDED"), reports.stream().map(ExecutionReport::reason).toList());
+        scheduler.runUntil(1_000);
+        assertEquals(List.of("NEW C0@0", "RPL C0 1.1003@100"), venue.log);
+        assertEquals(0, oms.symbolBucket(EURUSD).throttled());
+    }
+
+    @Test
+    void testQuoteExecutorThrottlesPerSymbol() {
+        VirtualClock clock = new VirtualClock(0);
+        QuoteExecutor executor = new QuoteExecutor(clock, Duration.ZERO);
+        executor.setRateLimits(null, 5, 1, RateLimitPolicy.coalesce(Duration.ZERO));
+        QuoteInstruction a = QuoteInstruction.createBidAskQuote("AAA", new BigDecimal("99"), new BigDecimal("100"), BigDecimal.ONE, "T");
+        QuoteInstruction b = QuoteInstruction.createBidAskQuote("BBB", new BigDecimal("99"), new BigDecimal("100"), BigDecimal.ONE, "T");
+
+        assertTrue(executor.executeQuote(a).isSuccess());
+        assertTrue(executor.executeQuote(b).isSuccess(), "各 symbol 独立限速");
+        assertFalse(executor.executeQuote(a).isSuccess());
+        assertEquals(1, executor.quotesCoalesced());
+        clock.advanceTo(200);
+        assertTrue(executor.executeQuote(a).isSuccess());
+
+        TokenBucket venue = new TokenBucket("venue", 1, 1, clock);
+        executor.setRateLimits(venue, 0, 0, RateLimitPolicy.reject());
+        assertTrue(executor.executeQuote(a).isSuccess());
+        assertTrue(executor.executeQuote(b).getMessage().startsWith("限速"));
+        assertEquals(1, executor.quotesThrottled());
+    }
+
+    @Test
+    void testQuoteExecutorNeverWaitsAndRefundsTokenOnCreditReject() {
+        VirtualClock clock = new VirtualClock(0);
+        QuoteExecutor executor = new QuoteExecutor(clock, Duration.ZERO);
+        executor.setRateLimits(null, 1, 1, RateLimitPolicy.queue(Duration.ofSeconds(5)));
+        CreditLimitService limits = new CreditLimitService();
+        limits.setCounterpartyLimit("CLIENT", new BigDecimal("50"));
+        executor.setCreditLimits(limits, null, "CLIENT");
+        QuoteInstruction q = QuoteInstruction.createBidAskQuote("AAA", new BigDecimal("99"), new BigDecimal("100"), BigDecimal.ONE, "T");
+
+        // 额度不足被拒时退还令牌，提高额度后同一时刻仍可发送
+        assertTrue(executor.executeQuote(q).getMessage().startsWith("额度不足"));
+        limits.setCounterpartyLimit("CLIENT", new BigDecimal("1000"));
+        assertTrue(executor.executeQuote(q).isSuccess());
+
+        // QUEUE 模式下令牌要 1 秒后才有，执行器不在行情线程上等待，立即失败
+        long start = System.nanoTime();
+        assertTrue(executor.executeQuote(q).getMessage().startsWith("限速"));
+        assertTrue(System.nanoTime() - start < 500_000_000L, "不应阻塞调用线程");
+        assertEquals(1, executor.quotesThrottled());
+        clock.advanceTo(1_000);
+        assertTrue(executor.executeQuote(q).isSuccess());
+    }
+}
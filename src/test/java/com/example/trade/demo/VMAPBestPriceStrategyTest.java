@@ -2,9 +2,14 @@ package com.example.trade.demo;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
 import com.example.trade.demo.domain.entity.MarketDepthAggregator;
@@ -98,6 +103,87 @@ public class VMAPBestPriceStrategyTest {
         QuoteInstruction qi = strat.decideQuote(agg);
         assertNull(qi, "深度不足时不应生成指令");
     }
-}
 
+    @Test
+    void testBatchPricingMatchesPerSymbolDecisions() {
+        VMAPBestPriceStrategy strat = new VMAPBestPriceStrategy(new VMAPBestPriceStrategy.Params(
+            new BigDecimal("50"), 5, new BigDecimal("30"), new BigDecimal("0.01"), 1, 1, new BigDecimal("5"), "VWAP_BEST"));
+        Random rnd = new Random(7);
+        List<MarketDepthAggregator> aggs = new ArrayList<>();
+        for (int s = 0; s < 256; s++) {
+            MarketDepthAggregator agg = new MarketDepthAggregator("SYM" + s);
+            int providers = 1 + rnd.nextInt(3);
+            for (int p = 0; p < providers; p++) {
+                List<OrderBookLevel> asks = new ArrayList<>();
+                List<OrderBookLevel> bids = new ArrayList<>();
+                int levels = rnd.nextInt(7); // 0 档时该 symbol 不可报价
+                for (int l = 0; l < levels; l++) {
+                    asks.add(new OrderBookLevel(BigDecimal.valueOf(10_000 + l * 5 + rnd.nextInt(5), 2), BigDecimal.valueOf(1 + rnd.nextInt(20))));
+                    bids.add(new OrderBookLevel(BigDecimal.valueOf(9_990 - l * 5 - rnd.nextInt(5), 2), BigDecimal.valueOf(1 + rnd.nextInt(20))));
+                }
+                agg.updateDepth("P" + p, asks, bids);
+            }
+            aggs.add(agg);
+        }
+
+        List<QuoteInstruction> batched = strat.decideQuotes(aggs, new VMAPBestPriceStrategy.Batch(aggs.size(), 5));
+        int quoted = 0;
+        for (int s = 0; s < aggs.size(); s++) {
+            QuoteInstruction expected = strat.decideQuote(aggs.get(s));
+            QuoteInstruction actual = batched.get(s);
+            if (expected == null) {
+                assertNull(actual, "SYM" + s);
+                continue;
+            }
+            quoted++;
+            assertNotNull(actual, "SYM" + s);
+            assertEquals(expected.getBidPrice(), actual.getBidPrice(), "SYM" + s);
+            assertEquals(expected.getAskPrice(), actual.getAskPrice(), "SYM" + s);
+        }
+        assertTrue(quoted > 50 && quoted < aggs.size(), "样本应同时覆盖可报价与不可报价的 symbol");
+    }
 
+    @Test
+    void testRepricingPreloadedBatchAllocatesNothing() {
+        VMAPBestPriceStrategy strat = new VMAPBestPriceStrategy(new VMAPBestPriceStrategy.Params(
+            new BigDecimal("20"), 2, new BigDecimal("20"), new BigDecimal("0.01"), 0, 0, new BigDecimal("5"), "T"));
+        VMAPBestPriceStrategy.Batch batch = new VMAPBestPriceStrategy.Batch(2, 2);
+        // 与 testVWAPQuoteHappyPath 相同的合并盘口：bid 100.40x10 / 100.30x20，ask 100.50x15 / 100.60x25
+        for (int s = 0; s < 2; s++) {
+            batch.bids.set(s, 0, 100.40, 10);
+            batch.bids.set(s, 1, 100.30, 20);
+            batch.asks.set(s, 0, 100.50, 15);
+            batch.asks.set(s, 1, 100.60, 25);
+        }
+        batch.asks.set(1, 0, 100.50, 1); // 第二个 symbol 的卖一变薄，VWAP 上移
+        strat.priceBatch(batch, 2);
+
+        assertTrue(batch.quotable[0] && batch.quotable[1]);
+        assertEquals(10035, batch.bidTicks[0]);
+        assertEquals(10053, batch.askTicks[0]);
+        assertEquals(10060, batch.askTicks[1]); // 1@100.50 + 19@100.60 = 100.595 → 向上取整 100.60
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "需要 HotSpot 线程分配计数器");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // 预热：priceBatch 与内核完成 JIT 编译后，改写价格数量再重定价不应分配对象
+        for (int i = 0; i < 200_000; i++) {
+            batch.asks.set(1, 0, 100.50, 1 + (i & 7));
+            strat.priceBatch(batch, 2);
+        }
+        long tid = Thread.currentThread().getId();
+        int rounds = 200_000;
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < rounds; i++) {
+            batch.asks.set(1, 0, 100.50, 1 + (i & 7));
+            strat.priceBatch(batch, 2);
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        // 只允许计数器读取本身的少量固定开销：20 万次重定价总计不到 2KB
+        assertTrue((double) allocated / rounds < 0.01, "重定价不应分配对象，实际总分配 " + allocated + " 字节");
+        assertTrue(batch.quotable[0] && batch.quotable[1]);
+    }
+}
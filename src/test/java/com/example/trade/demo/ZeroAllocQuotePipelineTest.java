@@ -0,0 +1,92 @@
+package com.example.trade.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import com.example.trade.demo.domain.entity.MutableExecutionResult;
+import com.example.trade.demo.domain.entity.MutableMarketDataEvent;
+import com.example.trade.demo.domain.service.MarketDataRing;
+import com.example.trade.demo.domain.service.QuoteRiskRule;
+import com.example.trade.demo.domain.service.SimpleBestPriceStrategy;
+import com.example.trade.demo.domain.service.ZeroAllocQuotePipeline;
+
+public class ZeroAllocQuotePipelineTest {
+
+    private static final String[] SYMBOLS = {"BTCUSDT", "ETHUSDT", "SOLUSDT"};
+    private static final String[] PROVIDERS = {"ProviderA", "ProviderB", "ProviderC"};
+
+    // 结果统计（只用基本类型，避免测试本身产生分配）
+    private static final class Counter implements ZeroAllocQuotePipeline.ResultHandler {
+        long success;
+        long rejected;
+        long lastBid;
+        @Override public void onResult(MutableExecutionResult result) {
+            if (result.isSuccess()) success++; else rejected++;
+            lastBid = result.getInstruction().getBidPrice();
+        }
+    }
+
+    private static void publishTicks(MarketDataRing ring, ZeroAllocQuotePipeline pipeline, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            MutableMarketDataEvent e = ring.claim();
+            long mid = 8_000 + (i % 7); // 80.00 ~ 80.06，两位小数定点；抖动小于价差，各 provider 不会交叉
+            e.reset(SYMBOLS[i % SYMBOLS.length], PROVIDERS[(i / 3) % PROVIDERS.length], System.nanoTime())
+                    .addAsk(mid + 5, 10).addAsk(mid + 6, 20)
+                    .addBid(mid - 5, 10).addBid(mid - 6, 20);
+            ring.publish();
+            if ((i & 63) == 63) ring.drain(pipeline);
+        }
+        ring.drain(pipeline);
+    }
+
+    @Test
+    void testSteadyStateAllocatesNothingPerEvent() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "需要 HotSpot 线程分配计数器");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Counter counter = new Counter();
+        ZeroAllocQuotePipeline pipeline = new ZeroAllocQuotePipeline(SimpleBestPriceStrategy.StrategyType.BID_ASK, 2,
+                QuoteRiskRule.DEFAULT, 1, 8, 5, counter);
+        MarketDataRing ring = new MarketDataRing(128, 5);
+
+        // 预热：所有 symbol/provider 槽位建立，热点方法完成 JIT 编译
+        publishTicks(ring, pipeline, 0, 300_000);
+
+        long tid = Thread.currentThread().getId();
+        int events = 200_000;
+        long before = threads.getThreadAllocatedBytes(tid);
+        publishTicks(ring, pipeline, 300_000, events);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+        assertTrue(counter.success > 0, "应产生成功报价");
+        assertEquals(0, counter.rejected);
+        // 只允许计数器读取本身的少量固定开销：折算到每个事件不足 0.01 字节，即 20 万个事件总计不到 2KB
+        double perEvent = (double) allocated / events;
+        assertTrue(perEvent < 0.01, "稳态每事件分配字节数应为 0，实际总分配 " + allocated + " 字节");
+    }
+
+    @Test
+    void testRiskRejectUsesFixedPointThresholds() {
+        Counter counter = new Counter();
+        ZeroAllocQuotePipeline pipeline = new ZeroAllocQuotePipeline(SimpleBestPriceStrategy.StrategyType.BID_ONLY, 2,
+                QuoteRiskRule.DEFAULT, 1, 4, 5, counter);
+
+        MutableMarketDataEvent e = new MutableMarketDataEvent(5);
+        pipeline.onMarketData(e.reset("BTCUSDT", "ProviderA", System.nanoTime()).addAsk(16_100, 5).addBid(16_000, 8));
+        assertEquals(1, counter.rejected, "买价 160.00 超过上限应被拒绝");
+
+        pipeline.onMarketData(e.reset("BTCUSDT", "ProviderA", System.nanoTime()).addAsk(9_100, 5).addBid(9_000, 8));
+        assertEquals(1, counter.success);
+        assertEquals(9_000, counter.lastBid);
+
+        // 顶档未变化时不重复决策
+        assertFalse(pipeline.onMarketData(e.reset("BTCUSDT", "ProviderA", System.nanoTime()).addAsk(9_100, 7).addBid(9_000, 9)));
+    }
+}